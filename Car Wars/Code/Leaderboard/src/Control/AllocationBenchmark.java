@@ -0,0 +1,245 @@
+package Control;
+
+import GUI.CoalescingListener;
+import Model.CarStats;
+import Model.CarTable;
+import Model.MappedLog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mätprogram som kontrollerar hur mycket minne krockhanteringen allokerar per rad.
+ * Rader skickas genom hela vägen från {@link HandleClient} via {@link MyServer#handleClientMessage}
+ * till lyssnarna och GUI-uppdateringen ({@link CoalescingListener}), utan sockets: raderna läses
+ * från en kanal i minnet och allt körs i mättråden. Allokeringen räknas med trådens
+ * allokeringsräknare i ThreadMXBean, efter en uppvärmning så att JIT-kompilatorn är klar.
+ *
+ * Varje scenario har en budget i byte per rad. Överskrids någon budget avslutas programmet med
+ * felkod 1, så att mätningen kan köras före varje sammanslagning och stoppa ändringar som
+ * återinför skräp i krockvägen. Trafikloggen är på, som i en vanlig match, och konsolutskrifterna
+ * ({@link ServerConfig#LOG_CONSOLE}) är av, som de är som standard. Med dem påslagna för felsökning
+ * skapas strängar för varje rad; det scenariot har ingen budget och redovisas bara.
+ *
+ * Körs med: java Control.AllocationBenchmark
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class AllocationBenchmark {
+
+    /** Rader per varv i kanalen */
+    private static final int LINES_PER_ROUND = 500;
+
+    /** Varv innan mätningen börjar */
+    private static final int WARMUP_ROUNDS = 400;
+
+    /** Varv som mäts */
+    private static final int MEASURED_ROUNDS = 400;
+
+    /** Rader per sekund, under budgeten i {@link IngressGuard} så att inga rader kastas */
+    private static final int LINES_PER_SECOND = 90000;
+
+    /** Bilarnas hälsa, återställs efter varje varv så att ingen slås ut */
+    private static final int BENCHMARK_HEALTH = 1000;
+
+    /** Största tillåtna allokering per rad i snitt (byte), lite marginal för engångsallokeringar */
+    private static final double BUDGET_BYTES_PER_LINE = 1.0;
+
+    /** Storlek på trafikloggens segment, så stor att mätningen inte byter segment */
+    private static final int TRAFFIC_LOG_BYTES = 64 * 1024 * 1024;
+
+    /** Ursprunglig utskriftsström, för resultaten */
+    private static final PrintStream out = System.out;
+
+    /**
+     * Huvudmetod.
+     *
+     * @param args används inte
+     * @throws Exception om mätningen inte kan genomföras
+     */
+    public static void main(String[] args) throws Exception {
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "car.initialHealth", String.valueOf(BENCHMARK_HEALTH));
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "ingress.ratePerSecond", "100000");
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "ingress.burst", "100000");
+        ServerConfig config = ServerConfig.load();
+        Path logDirectory = Files.createTempDirectory("carwars-alloc");
+        MappedLog trafficLog = new MappedLog(logDirectory, TRAFFIC_LOG_BYTES, 2);
+
+        boolean ok = true;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            MyServer server = new MyServer(config);
+            List<CarStats> players = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                players.add(new CarStats("Spelare" + (i + 1), "Car" + i, null, BENCHMARK_HEALTH, 0, i % 2));
+            }
+            server.setLeaderboardGUI(null, players);
+            server.setTrafficLog(trafficLog);
+            // Samma sammanslagna GUI-uppdatering som kontrollpanelen använder
+            server.addServerEventListener(new CoalescingListener(config, () -> { }));
+
+            config.set(ServerConfig.LOG_CONSOLE, "false");
+            ok &= run(server, "KROCK", lines("BIL1:KROCK"), true);
+            ok &= run(server, "Blandning", lines("BIL2:KROCK", "BIL2:KROCK", "BIL2:KROCK", "PING", "BIL2:KROCK",
+                    "BIL2:KROCK", "BIL2:KROCK", "BIL2:PONG:1000:2000", "BIL2:KROCK", "PING"), true);
+            config.set(ServerConfig.LOG_CONSOLE, "true");
+            run(server, "Konsol", lines("BIL3:KROCK"), false);
+        } finally {
+            System.setOut(out);
+            trafficLog.close();
+            for (Path segment : MappedLog.listSegments(logDirectory)) {
+                Files.delete(segment);
+            }
+            Files.delete(logDirectory);
+        }
+        out.println(ok ? "✅ Alla scenarier inom budget" : "❌ Budgeten överskreds");
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Kör ett scenario genom en ny anslutning och skriver resultatet.
+     *
+     * @param server servern
+     * @param name scenariots namn
+     * @param block rader för ett varv
+     * @param budgeted true om scenariot ska hålla budgeten
+     * @return true om scenariot höll budgeten
+     */
+    private static boolean run(MyServer server, String name, byte[] block, boolean budgeted) {
+        MyServer.ClientConnection connection = server.attachClient(new Socket(), new PrintWriter(Writer.nullWriter()));
+        RepeatingChannel channel = new RepeatingChannel(block, server.getCarTable());
+        new HandleClient(new Socket(), server, connection, channel).run();
+
+        double bytesPerLine = (double) channel.measuredBytes / channel.measuredLines;
+        boolean ok = !budgeted || bytesPerLine < BUDGET_BYTES_PER_LINE;
+        out.printf("%s %-10s %,d rader, %,d byte allokerade (%.2f byte/rad, budget %s)%n",
+                ok ? "✓" : "❌", name, channel.measuredLines, channel.measuredBytes, bytesPerLine,
+                budgeted ? "< " + BUDGET_BYTES_PER_LINE : "ingen");
+        return ok;
+    }
+
+    /**
+     * Kodar ett varv med rader, där raderna upprepas tills varvet är fullt.
+     *
+     * @param lines raderna i ordning
+     * @return varvets bytes
+     */
+    private static byte[] lines(String... lines) {
+        StringBuilder block = new StringBuilder();
+        for (int i = 0; i < LINES_PER_ROUND; i++) {
+            block.append(lines[i % lines.length]).append('\n');
+        }
+        return block.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Trådens allokering hittills.
+     *
+     * @return antal allokerade byte
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Kanal som läser samma varv om och om igen. Mellan varven återställs bilarnas hälsa
+     * och takten hålls under budgeten, och mätningen startas och stoppas vid rätt varv.
+     * Allt körs i lästråden, så mätningen omfattar bara det servern gör med raderna.
+     */
+    private static class RepeatingChannel implements ReadableByteChannel {
+        /** Rader för ett varv */
+        private final byte[] block;
+
+        /** Biltabellen, vars hälsa återställs */
+        private final CarTable table;
+
+        /** Läsposition i varvet */
+        private int position;
+
+        /** Antal påbörjade varv */
+        private int round;
+
+        /** Tidpunkt då första varvet började (System.nanoTime) */
+        private long startNanos;
+
+        /** Allokering när mätningen började */
+        private long allocatedAtStart;
+
+        /** Resultat */
+        long measuredBytes;
+        long measuredLines;
+
+        RepeatingChannel(byte[] block, CarTable table) {
+            this.block = block;
+            this.table = table;
+            this.position = block.length;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (position == block.length) {
+                if (!nextRound()) {
+                    return -1;
+                }
+                position = 0;
+            }
+            int length = Math.min(dst.remaining(), block.length - position);
+            dst.put(block, position, length);
+            position += length;
+            return length;
+        }
+
+        /**
+         * Börjar nästa varv.
+         *
+         * @return false när alla varv är lästa
+         */
+        private boolean nextRound() {
+            if (round == 0) {
+                startNanos = System.nanoTime();
+            } else if (round == WARMUP_ROUNDS) {
+                allocatedAtStart = allocatedBytes();
+            } else if (round == WARMUP_ROUNDS + MEASURED_ROUNDS) {
+                measuredBytes = allocatedBytes() - allocatedAtStart;
+                measuredLines = (long) MEASURED_ROUNDS * LINES_PER_ROUND;
+                return false;
+            }
+
+            for (int slot = 0; slot < table.size(); slot++) {
+                table.restoreState(slot, BENCHMARK_HEALTH, 0, 0);
+            }
+            // Håll takten under inflödesbudgeten
+            long due = startNanos + (long) round * LINES_PER_ROUND * 1_000_000_000L / LINES_PER_SECOND;
+            while (System.nanoTime() < due) {
+                LockSupport.parkNanos(due - System.nanoTime());
+            }
+            round++;
+            return true;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
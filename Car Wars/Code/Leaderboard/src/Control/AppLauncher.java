@@ -4,8 +4,18 @@ import GUI.LeaderboardGUI;
 import GUI.MatchSetupGUI;
 import GUI.CarControlPanel;
 import Model.LoggerSetup;
+import Model.MatchHistoryStore;
+import Model.MatchRecord;
+import Model.MatchResult;
+import Model.MatchSnapshot;
+import Model.RatingService;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -20,6 +30,24 @@ public class AppLauncher {
     /** Server-instans för att hantera ESP32-kommunikation */
     private static MyServer myServer;
 
+    /** Matchhistorik som sparar resultat mellan körningar (null om den inte kunde öppnas) */
+    private static volatile MatchHistoryStore historyStore;
+
+    /** Säsongsranking som uppdateras efter varje match */
+    private static final RatingService ratingService = new RatingService();
+
+    /** Spelläge för pågående match */
+    private static volatile String currentGameMode;
+
+    /** Starttid för pågående match */
+    private static volatile long matchStartMillis;
+
+    /** Sparar ögonblicksbilder av pågående match (null om det är avstängt) */
+    private static MatchSnapshotter snapshotter;
+
+    /** Strömmar matchen till reservservrar (null om servern inte är primär) */
+    private static volatile ReplicationPrimary replication;
+
     /**
      * Huvudmetod som startar applikationen.
      * Initierar logger, server och visar setup-GUI.
@@ -27,31 +55,272 @@ public class AppLauncher {
      * @param args kommandoradsargument (används inte)
      */
     public static void main(String[] args) {
-        Logger logger = LoggerSetup.setupLogger("LeaderboardApp");
+        // Läs inställningarna och gör dem ändringsbara via JMX (t.ex. jconsole)
+        ServerConfig config = ServerConfig.load();
+        config.registerMBean();
+        Logger logger = LoggerSetup.setupLogger("LeaderboardApp", Paths.get(config.get(ServerConfig.LOG_DIRECTORY)),
+                config.get(ServerConfig.LOG_SEGMENT_MB), config.get(ServerConfig.LOG_SEGMENTS));
+        logger.setLevel(Level.parse(config.get(ServerConfig.LOG_LEVEL)));
+        config.addListener(key -> {
+            if (key == ServerConfig.LOG_LEVEL) {
+                logger.setLevel(Level.parse(config.get(ServerConfig.LOG_LEVEL)));
+            }
+        });
+
+        // En reservserver delar ofta katalog med primären, som fortfarande skriver historiken
+        String role = config.get(ServerConfig.REPLICATION_ROLE);
+        if (!role.equals(ServerConfig.REPLICATION_STANDBY)) {
+            openHistory(config, logger);
+        }
 
         // Skapa servern men starta den inte ännu
-        myServer = new MyServer();
+        myServer = new MyServer(config);
+        myServer.setTrafficLog(LoggerSetup.getLog());
+
+        // Visa matchslutet en gång när servern rapporterar det
+        myServer.addServerEventListener(new ServerEventListener() {
+            @Override
+            public void matchOver(MatchResult result) {
+                logger.info(result.isDraw() ? "Match över: oavgjort"
+                        : "Match över: vinnare " + result.winnerName + " (" + result.winnerCarId + ")");
+                if (historyStore != null) {
+                    MatchRecord record = historyStore.record(result, currentGameMode, matchStartMillis);
+                    ratingService.applyMatch(record);
+                }
+                SwingUtilities.invokeLater(() -> showMatchOverDialog(result));
+            }
+        });
+
+        // Spara krockar och matchslut för statistik i efterhand (MatchAnalytics)
+        if (config.get(ServerConfig.JOURNAL_ENABLED)) {
+            try {
+                EventJournal journal = new EventJournal(Paths.get(config.get(ServerConfig.JOURNAL_DIRECTORY)), myServer);
+                myServer.addServerEventListener(journal);
+                journal.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(journal::close));
+            } catch (IOException e) {
+                logger.warning("Kunde inte öppna händelsejournalen: " + e.getMessage());
+            }
+        }
+
+        // Exportera matcherna i kolumnformat för analytiker
+        if (config.get(ServerConfig.EXPORT_ENABLED)) {
+            try {
+                MatchExporter exporter = new MatchExporter(Paths.get(config.get(ServerConfig.EXPORT_DIRECTORY)), myServer);
+                myServer.addServerEventListener(exporter);
+                exporter.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(exporter::close));
+            } catch (IOException e) {
+                logger.warning("Kunde inte starta exporten: " + e.getMessage());
+            }
+        }
+
+        // Strömma leaderboarden till åskådare, spelet fungerar även utan den
+        try {
+            SpectatorServer spectatorServer = new SpectatorServer(config.get(ServerConfig.SPECTATOR_PORT),
+                    config.get(ServerConfig.SPECTATOR_DISPATCH_QUEUE), config.get(ServerConfig.SPECTATOR_SUBSCRIBER_QUEUE));
+            myServer.addServerEventListener(spectatorServer);
+            config.addListener(key -> {
+                if (key == ServerConfig.SPECTATOR_DISPATCH_QUEUE || key == ServerConfig.SPECTATOR_SUBSCRIBER_QUEUE) {
+                    spectatorServer.setQueueSizes(config.get(ServerConfig.SPECTATOR_DISPATCH_QUEUE),
+                            config.get(ServerConfig.SPECTATOR_SUBSCRIBER_QUEUE));
+                }
+            });
+            spectatorServer.start();
+        } catch (IOException e) {
+            logger.warning("Kunde inte starta åskådarservern: " + e.getMessage());
+        }
+
+        // Spara pågående match, så att den kan återupptas om servern stängs mitt i
+        MatchSnapshot snapshot = null;
+        if (config.get(ServerConfig.SNAPSHOT_ENABLED)) {
+            Path snapshotFile = Paths.get(config.get(ServerConfig.SNAPSHOT_FILE));
+            if (!role.equals(ServerConfig.REPLICATION_STANDBY)) {
+                snapshot = readSnapshot(snapshotFile, config, logger);
+            }
+            snapshotter = new MatchSnapshotter(snapshotFile, myServer);
+            myServer.addServerEventListener(snapshotter);
+            snapshotter.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(snapshotter::close));
+        }
 
+        // En reservserver speglar primären och startar först när den tar över
+        if (role.equals(ServerConfig.REPLICATION_STANDBY)) {
+            InetSocketAddress primary = new InetSocketAddress(config.get(ServerConfig.REPLICATION_HOST),
+                    config.get(ServerConfig.REPLICATION_PORT));
+            new ReplicationStandby(primary, config.get(ServerConfig.REPLICATION_FAILOVER_MILLIS),
+                    config.get(ServerConfig.SERVER_PORT), mirror -> {
+                logger.info("Reservservern tar över från " + primary);
+                openHistory(config, logger);
+                startReplication(config, logger);
+                if (config.get(ServerConfig.GATEWAY_ENABLED)) {
+                    startGatewayHub(config, logger);
+                }
+                if (mirror != null) {
+                    startMatch(MatchSetupGUI.restoredMatch(mirror, config), mirror, logger);
+                } else {
+                    showMatchSetup(config, logger);
+                }
+            }).start();
+            System.out.println("🪞 Reservserver, speglar " + primary);
+            return;
+        }
+        if (role.equals(ServerConfig.REPLICATION_PRIMARY)) {
+            startReplication(config, logger);
+        }
+        if (config.get(ServerConfig.GATEWAY_ENABLED)) {
+            startGatewayHub(config, logger);
+        }
+
+        if (snapshot != null) {
+            // Återuppta matchen direkt, utan setup GUI
+            startMatch(MatchSetupGUI.restoredMatch(snapshot, config), snapshot, logger);
+            return;
+        }
+        showMatchSetup(config, logger);
+    }
+
+    /**
+     * Öppnar matchhistoriken och bygger upp rankingen från tidigare matcher.
+     * Spelet fungerar även utan historiken.
+     *
+     * @param config inställningar med historikens fil
+     * @param logger logger för att logga händelser
+     */
+    private static void openHistory(ServerConfig config, Logger logger) {
+        try {
+            MatchHistoryStore store = new MatchHistoryStore(Paths.get(config.get(ServerConfig.HISTORY_FILE)));
+            Runtime.getRuntime().addShutdownHook(new Thread(store::close));
+
+            // Bygg upp rankingen från tidigare matcher
+            for (MatchRecord record : store.getAllMatches()) {
+                ratingService.applyMatch(record);
+            }
+            historyStore = store;
+        } catch (IOException e) {
+            logger.warning("Kunde inte öppna matchhistoriken: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Visar setup GUI, som startar matchen när användaren är klar.
+     *
+     * @param config inställningar med startvärden för bilarna
+     * @param logger logger för att logga händelser
+     */
+    private static void showMatchSetup(ServerConfig config, Logger logger) {
         // Starta setup GUI i Swing-tråden (EDT)
         SwingUtilities.invokeLater(() -> {
             // Skapa och visa match setup GUI
             MatchSetupGUI setupGUI = new MatchSetupGUI(matchConfig -> {
                 // Denna callback körs när användaren startar matchen
-                startMatch(matchConfig, logger);
-            });
+                startMatch(matchConfig, null, logger);
+            }, historyStore, ratingService, config);
 
             setupGUI.setVisible(true);
         });
     }
 
+    /**
+     * Startar replikeringen till reservservrar.
+     *
+     * @param config inställningar med replikeringens port
+     * @param logger logger för att logga händelser
+     */
+    private static void startReplication(ServerConfig config, Logger logger) {
+        try {
+            ReplicationPrimary primary = new ReplicationPrimary(config.get(ServerConfig.REPLICATION_PORT), myServer);
+            myServer.addServerEventListener(primary);
+            primary.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(primary::close));
+            replication = primary;
+        } catch (IOException e) {
+            logger.warning("Kunde inte starta replikeringen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tar emot bilar via gatewayer, som håller bilarnas anslutningar åt servern.
+     *
+     * @param config inställningar med gatewayernas port
+     * @param logger logger för att logga händelser
+     */
+    private static void startGatewayHub(ServerConfig config, Logger logger) {
+        try {
+            GatewayHub hub = new GatewayHub(config.get(ServerConfig.GATEWAY_PORT), myServer);
+            hub.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(hub::close));
+        } catch (IOException e) {
+            logger.warning("Kunde inte öppna porten för gatewayer: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Läser ögonblicksbilden av en avbruten match.
+     *
+     * @param file filen med bilden
+     * @param config inställningar med största ålder för bilden
+     * @param logger logger för att logga händelser
+     * @return bilden, eller null om det inte finns någon match att återuppta
+     */
+    private static MatchSnapshot readSnapshot(Path file, ServerConfig config, Logger logger) {
+        try {
+            MatchSnapshot snapshot = MatchSnapshot.read(file);
+            if (snapshot == null) {
+                return null;
+            }
+            long age = System.currentTimeMillis() - snapshot.takenMillis;
+            if (age > config.get(ServerConfig.SNAPSHOT_MAX_AGE_SECONDS) * 1000L) {
+                logger.info("Ögonblicksbilden är för gammal (" + age / 1000 + " s), startar ny match");
+                return null;
+            }
+            logger.info("Återupptar avbruten match: " + snapshot.gameMode + " med " + snapshot.size() + " spelare");
+            return snapshot;
+        } catch (IOException e) {
+            logger.warning("Kunde inte läsa ögonblicksbilden: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Visar dialogrutan för matchslutet.
+     *
+     * @param result matchens resultat
+     */
+    private static void showMatchOverDialog(MatchResult result) {
+        if (result.isDraw()) {
+            JOptionPane.showMessageDialog(null,
+                    "OAVGJORT! \n\n" +
+                            "Alla bilar förlorade samtidigt!",
+                    "MATCH ÖVER",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(null,
+                    "🏆 " + result.winnerName + " (" + result.winnerCarId + ") HAR VUNNIT! 🏆\n\n" +
+                            "Grattis till segern!",
+                    "MATCH ÖVER",
+                    JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
     /**
      * Startar en match baserat på den valda konfigurationen.
      * Skapar och visar leaderboard GUI och kontrollpanel.
      *
      * @param matchConfig konfiguration för matchen (spelare, spelläge)
+     * @param snapshot ögonblicksbild att återuppta matchen från, eller null för en ny match
      * @param logger logger för att logga händelser
      */
-    private static void startMatch(MatchSetupGUI.MatchConfig matchConfig, Logger logger) {
+    private static void startMatch(MatchSetupGUI.MatchConfig matchConfig, MatchSnapshot snapshot, Logger logger) {
+        currentGameMode = matchConfig.gameMode;
+        matchStartMillis = snapshot != null ? snapshot.matchStartMillis : System.currentTimeMillis();
+        if (snapshotter != null) {
+            snapshotter.setMatch(currentGameMode, matchStartMillis);
+        }
+        if (replication != null) {
+            replication.setMatch(currentGameMode, matchStartMillis);
+        }
+
         SwingUtilities.invokeLater(() -> {
             try {
                 // Skapa leaderboard GUI med de konfigurerade spelarna
@@ -60,8 +329,13 @@ public class AppLauncher {
                         matchConfig.gameMode
                 );
 
-                // Koppla GUI:n till servern
-                myServer.setLeaderboardGUI(leaderboardGUI, matchConfig.players);
+                // Koppla GUI:n till servern, med ställningen från bilden om matchen återupptas
+                if (snapshot != null) {
+                    myServer.restoreMatch(leaderboardGUI, matchConfig.players, snapshot);
+                    startServer();
+                } else {
+                    myServer.setLeaderboardGUI(leaderboardGUI, matchConfig.players);
+                }
 
                 // Visa leaderboard
                 leaderboardGUI.setVisible(true);
@@ -86,7 +360,16 @@ public class AppLauncher {
             }
         });
 
-        // Starta servern i en egen tråd
+        // En återupptagen match startar servern först när sessionerna är återställda
+        if (snapshot == null) {
+            startServer();
+        }
+    }
+
+    /**
+     * Startar servern i en egen tråd.
+     */
+    private static void startServer() {
         new Thread(() -> {
             myServer.socket();
         }).start();
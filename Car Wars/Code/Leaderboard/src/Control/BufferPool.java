@@ -0,0 +1,58 @@
+package Control;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool med direkta ByteBuffers för läsning från klienter.
+ * Direkta buffertar är dyra att skapa och frigörs först av skräpsamlaren,
+ * så de lånas ut och lämnas tillbaka i stället för att skapas per anslutning.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class BufferPool {
+
+    /** Storlek på varje buffert i byte */
+    private final int bufferSize;
+
+    /** Lediga buffertar */
+    private final ArrayBlockingQueue<ByteBuffer> free;
+
+    /**
+     * Konstruktor för BufferPool.
+     *
+     * @param bufferSize storlek på varje buffert i byte
+     * @param maxIdle max antal lediga buffertar som sparas
+     */
+    public BufferPool(int bufferSize, int maxIdle) {
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * Lånar en tom buffert, eller skapar en ny om poolen är tom.
+     *
+     * @return en buffert i skrivläge
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Lämnar tillbaka en buffert. Om poolen redan är full släpps bufferten.
+     *
+     * @param buffer bufferten
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() == bufferSize) {
+            free.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package Control;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Kontrollerar de förutdelade nycklarna som bilar och arena-kontroll loggar in med.
+ * Nycklarna läses från en properties-fil med en rad per enhet, t.ex. "BIL1=hemlighet"
+ * och "ARENA=hemlighet". Bara SHA-256 av varje nyckel sparas i minnet, och jämförelsen
+ * tar lika lång tid oavsett hur mycket av nyckeln som stämmer och om ID:t finns.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class CarAuthenticator {
+
+    /** ID som arena-kontrollen loggar in som */
+    public static final String ARENA_ID = "ARENA";
+
+    /** Hash av nyckeln per ID */
+    private final Map<String, byte[]> tokenHashes;
+
+    /** Jämförs mot okända ID:n så att de tar lika lång tid som kända */
+    private final byte[] unknownHash;
+
+    /**
+     * Konstruktor för CarAuthenticator.
+     *
+     * @param tokens nyckel per ID
+     */
+    public CarAuthenticator(Map<String, String> tokens) {
+        this.tokenHashes = new HashMap<>();
+        for (Map.Entry<String, String> entry : tokens.entrySet()) {
+            tokenHashes.put(entry.getKey(), hash(entry.getValue()));
+        }
+        this.unknownHash = hash("\u0000okänd");
+    }
+
+    /**
+     * Läser nycklarna från en fil. En fil som saknas ger en tom nyckellista,
+     * och då kan ingen logga in.
+     *
+     * @param file properties-fil med ID=nyckel
+     * @return autentiseraren
+     */
+    public static CarAuthenticator load(Path file) {
+        Map<String, String> tokens = new HashMap<>();
+        if (Files.isRegularFile(file)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.out.println("Kunde inte läsa nycklar från " + file + ": " + e.getMessage());
+            }
+            for (String id : properties.stringPropertyNames()) {
+                tokens.put(id, properties.getProperty(id).trim());
+            }
+        } else {
+            System.out.println("⚠️ Nyckelfilen " + file + " saknas, ingen enhet kan logga in");
+        }
+        return new CarAuthenticator(tokens);
+    }
+
+    /**
+     * Kontrollerar en nyckel.
+     *
+     * @param id bil-ID eller {@link #ARENA_ID}
+     * @param token nyckeln som enheten skickade
+     * @return true om nyckeln stämmer för ID:t
+     */
+    public boolean verify(String id, String token) {
+        byte[] expected = tokenHashes.get(id);
+        boolean known = expected != null;
+        boolean equal = MessageDigest.isEqual(known ? expected : unknownHash, hash(token));
+        return known & equal;
+    }
+
+    /**
+     * Antal enheter som har en nyckel.
+     *
+     * @return antal nycklar
+     */
+    public int size() {
+        return tokenHashes.size();
+    }
+
+    /**
+     * SHA-256 av en text i UTF-8. Lika långa hashar gör att jämförelsen inte
+     * avslöjar nyckelns längd.
+     */
+    private static byte[] hash(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 saknas", e);
+        }
+    }
+}
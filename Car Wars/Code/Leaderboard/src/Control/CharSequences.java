@@ -0,0 +1,125 @@
+package Control;
+
+/**
+ * Hjälpmetoder för att tolka meddelanden direkt i en CharSequence.
+ * Ramarna från {@link LineFramer} återanvänds mellan rader, så tolkningen
+ * ska inte skapa nya strängar i onödan.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public final class CharSequences {
+
+    private CharSequences() {
+    }
+
+    /**
+     * Anger om texten har ett visst prefix på en viss position.
+     *
+     * @param text texten
+     * @param prefix prefixet
+     * @param offset position i texten där prefixet ska börja
+     * @return true om prefixet finns på positionen
+     */
+    public static boolean startsWith(CharSequence text, String prefix, int offset) {
+        if (offset < 0 || offset + prefix.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Anger om texten börjar med ett visst prefix.
+     *
+     * @param text texten
+     * @param prefix prefixet
+     * @return true om texten börjar med prefixet
+     */
+    public static boolean startsWith(CharSequence text, String prefix) {
+        return startsWith(text, prefix, 0);
+    }
+
+    /**
+     * Hittar första förekomsten av ett tecken.
+     *
+     * @param text texten
+     * @param c tecknet
+     * @param from position att börja söka från
+     * @return position för tecknet eller -1
+     */
+    public static int indexOf(CharSequence text, char c, int from) {
+        for (int i = Math.max(from, 0); i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Anger om texten innehåller en viss delsträng.
+     *
+     * @param text texten
+     * @param part delsträngen
+     * @return true om delsträngen finns
+     */
+    public static boolean contains(CharSequence text, String part) {
+        for (int i = 0; i + part.length() <= text.length(); i++) {
+            if (startsWith(text, part, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tolkar ett heltal i ett intervall av texten. Blanksteg runt talet ignoreras.
+     *
+     * @param text texten
+     * @param start första tecknet
+     * @param end tecknet efter det sista
+     * @return talet
+     * @throws NumberFormatException om intervallet inte är ett heltal
+     */
+    public static long parseLong(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        boolean negative = start < end && text.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i >= end || end - i > 18) {
+            throw new NumberFormatException("Ogiltigt tal: " + text.subSequence(start, end));
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Ogiltigt tal: " + text.subSequence(start, end));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Tolkar ett heltal från en position till slutet av texten.
+     *
+     * @param text texten
+     * @param start första tecknet
+     * @return talet
+     * @throws NumberFormatException om resten av texten inte är ett heltal
+     */
+    public static long parseLong(CharSequence text, int start) {
+        return parseLong(text, start, text.length());
+    }
+}
@@ -0,0 +1,110 @@
+package Control;
+
+/**
+ * Uppskattning av en bils klockförskjutning och tur-och-retur-tid.
+ * Servern skickar "SYNC serverTid" och bilen svarar "BILn:PONG:serverTid:bilTid".
+ * Av de senaste mätningarna används den med kortast tur-och-retur-tid, eftersom
+ * den har minst osäkerhet i var på vägen bilens tid lästes av.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class ClockEstimate {
+
+    /** Antal mätningar som sparas */
+    private static final int WINDOW = 8;
+
+    /** Tur-och-retur-tid per mätning (ms) */
+    private final long[] rtts = new long[WINDOW];
+
+    /** Klockförskjutning per mätning: bilens klocka minus serverns (ms) */
+    private final long[] offsets = new long[WINDOW];
+
+    /** Antal sparade mätningar */
+    private int count;
+
+    /** Nästa position i ringbufferten */
+    private int next;
+
+    /**
+     * Lägger till en mätning.
+     *
+     * @param sentServerMillis servertid när SYNC skickades
+     * @param carMillis bilens tid när den svarade
+     * @param receivedServerMillis servertid när svaret kom
+     */
+    public synchronized void addSample(long sentServerMillis, long carMillis, long receivedServerMillis) {
+        long rtt = receivedServerMillis - sentServerMillis;
+        if (rtt < 0) {
+            return;
+        }
+        rtts[next] = rtt;
+        // Bilens tid antas avläst mitt emellan sändning och mottagning
+        offsets[next] = carMillis - (sentServerMillis + rtt / 2);
+        next = (next + 1) % WINDOW;
+        count = Math.min(count + 1, WINDOW);
+    }
+
+    /**
+     * Anger om det finns minst en mätning.
+     *
+     * @return true om uppskattningen kan användas
+     */
+    public synchronized boolean hasEstimate() {
+        return count > 0;
+    }
+
+    /**
+     * Får tur-och-retur-tiden för den bästa mätningen.
+     *
+     * @return tur-och-retur-tid i millisekunder, -1 utan mätningar
+     */
+    public synchronized long getRttMillis() {
+        int best = best();
+        return best < 0 ? -1 : rtts[best];
+    }
+
+    /**
+     * Får klockförskjutningen för den bästa mätningen.
+     *
+     * @return bilens klocka minus serverns i millisekunder, 0 utan mätningar
+     */
+    public synchronized long getOffsetMillis() {
+        int best = best();
+        return best < 0 ? 0 : offsets[best];
+    }
+
+    /**
+     * Räknar om en servertid till bilens klocka.
+     *
+     * @param serverMillis servertid
+     * @return motsvarande tid i bilens klocka
+     */
+    public long toCarMillis(long serverMillis) {
+        return serverMillis + getOffsetMillis();
+    }
+
+    /**
+     * Räknar om en tid i bilens klocka till servertid.
+     *
+     * @param carMillis tid i bilens klocka
+     * @return motsvarande servertid
+     */
+    public long toServerMillis(long carMillis) {
+        return carMillis - getOffsetMillis();
+    }
+
+    /**
+     * Index för mätningen med kortast tur-och-retur-tid.
+     */
+    private int best() {
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            if (best < 0 || rtts[i] < rtts[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,282 @@
+package Control;
+
+import Model.CarTable;
+import Model.TelemetryRing;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Upptäcker krockar på servern utifrån bilarnas strömmade accelerometervärden.
+ * Samma regel som i bilens firmware används, att accelerationens belopp ändras
+ * mer än en tröskel mellan två värden, men tröskeln anpassas per bil efter hur
+ * mycket bilens värden brukar variera och kan ändras utan att bilarna flashas om.
+ *
+ * Varje körning läser de nya värdena ur bilarnas {@link TelemetryRing} och räknar
+ * belopp och förändring i raka loopar över primitiva arrayer utan villkor, som
+ * JIT-kompilatorn kan vektorisera. Bilarna delas upp mellan kärnorna med fork/join.
+ * Upptäckta krockar registreras på samma sätt som KROCK-meddelanden från bilarna.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class CollisionDetector {
+
+    /** Tid mellan körningarna (ms) */
+    public static final int PASS_INTERVAL_MILLIS = 20;
+
+    /** g per råvärde från ADXL345, samma som i bilens firmware */
+    private static final float G_PER_COUNT = 0.0039f;
+
+    /** Tröskel innan bilens brus är känt, samma som collisionThreshold i firmware (g) */
+    private static final float INITIAL_THRESHOLD_G = 2.0f;
+
+    /** Max antal värden per bil och körning */
+    private static final int MAX_WINDOW = 512;
+
+    /** Vikt per värde för bilens glidande medelvärde och varians */
+    private static final float ADAPT_RATE = 0.005f;
+
+    /** Efter en krock ignoreras bilens värden så här länge (ms), så en smäll räknas en gång */
+    private static final int REFRACTORY_MILLIS = 500;
+
+    /** En bil räknas som strömmande om den skickat telemetri inom denna tid (ms) */
+    private static final int STREAMING_MILLIS = 1000;
+
+    /** Antal bilar som en uppgift behandlar utan att delas vidare */
+    private static final int BATCH_THRESHOLD = 8;
+
+    /**
+     * Tillstånd och arbetsarrayer för en bil.
+     */
+    private static final class CarState {
+        /** Ringbufferten som läses, byts vid ny match */
+        final TelemetryRing ring;
+
+        /** Löpnummer för nästa oläst värde */
+        long consumed;
+
+        /** Belopp för senast lästa värde, NaN innan första värdet */
+        float previousMagnitude = Float.NaN;
+
+        /** Glidande medelvärde av förändringen och av dess kvadrat */
+        float mean;
+        float meanSquare;
+
+        /** Tidpunkt för senaste krock (serverns klocka, ms) */
+        long lastCrashMillis = Long.MIN_VALUE / 2;
+
+        /** När bilen senast skickade värden (systemtid, ms) */
+        volatile long lastSampleMillis;
+
+        /** Kopia av nya värden */
+        final int[] time = new int[MAX_WINDOW];
+        final short[] x = new short[MAX_WINDOW];
+        final short[] y = new short[MAX_WINDOW];
+        final short[] z = new short[MAX_WINDOW];
+
+        /** Belopp (g), index 0 är föregående körnings sista värde */
+        final float[] magnitude = new float[MAX_WINDOW + 1];
+
+        /** Förändring i belopp mot föregående värde (g) */
+        final float[] delta = new float[MAX_WINDOW];
+
+        CarState(TelemetryRing ring, float sigma) {
+            this.ring = ring;
+            float spread = INITIAL_THRESHOLD_G / sigma;
+            this.meanSquare = spread * spread;
+        }
+
+        float threshold(float floor, float sigma) {
+            float variance = Math.max(0f, meanSquare - mean * mean);
+            return Math.max(floor, mean + sigma * (float) Math.sqrt(variance));
+        }
+    }
+
+    /** Servern som krockarna rapporteras till */
+    private final MyServer server;
+
+    /** Inställningar för tröskeln */
+    private final ServerConfig config;
+
+    /** Räknare för upptäckta krockar */
+    private final ServerMetrics metrics;
+
+    /** Biltabellen som tillstånden hör till (bara körningstråden) */
+    private CarTable table;
+
+    /** Tillstånd per bilplats, läses av klienttrådarna */
+    private volatile CarState[] states = new CarState[0];
+
+    /**
+     * Konstruktor för CollisionDetector.
+     *
+     * @param server servern med telemetrin och biltabellen
+     * @param config inställningar för tröskeln
+     * @param metrics räknare för upptäckta krockar
+     */
+    public CollisionDetector(MyServer server, ServerConfig config, ServerMetrics metrics) {
+        this.server = server;
+        this.config = config;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Går igenom nya värden för alla bilar. Anropas regelbundet av serverns schemaläggare.
+     */
+    public void runPass() {
+        try {
+            TelemetryIngest telemetry = server.getTelemetry();
+            if (telemetry == null || !config.get(ServerConfig.CRASH_DETECTION)) {
+                // Avstängd: börja om från början när den slås på igen
+                table = null;
+                states = new CarState[0];
+                return;
+            }
+
+            CarTable current = server.getCarTable();
+            if (current != table) {
+                table = current;
+                states = new CarState[current.size()];
+            }
+            float floor = config.get(ServerConfig.CRASH_DETECTION_FLOOR_MILLI_G) / 1000f;
+            float sigma = config.get(ServerConfig.CRASH_DETECTION_SIGMA);
+            ForkJoinPool.commonPool().invoke(new PassTask(telemetry, current, states, 0, states.length, floor, sigma));
+        } catch (RuntimeException e) {
+            System.out.println("Fel i krockdetekteringen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Anger om servern avgör krockar för en bil, dvs om detekteringen är på och
+     * bilen har strömmat telemetri nyligen.
+     *
+     * @param slot bilens plats i CarTable
+     * @return true om bilens egna KROCK-meddelanden ska ignoreras
+     */
+    public boolean isDetecting(int slot) {
+        CarState[] current = states;
+        CarState state = slot >= 0 && slot < current.length ? current[slot] : null;
+        return state != null && System.currentTimeMillis() - state.lastSampleMillis < STREAMING_MILLIS;
+    }
+
+    /**
+     * Fork/join-uppgift som går igenom ett intervall av bilplatser.
+     */
+    private class PassTask extends RecursiveAction {
+        private final TelemetryIngest telemetry;
+        private final CarTable table;
+        private final CarState[] states;
+        private final int from;
+        private final int to;
+        private final float floor;
+        private final float sigma;
+
+        PassTask(TelemetryIngest telemetry, CarTable table, CarState[] states, int from, int to, float floor, float sigma) {
+            this.telemetry = telemetry;
+            this.table = table;
+            this.states = states;
+            this.from = from;
+            this.to = to;
+            this.floor = floor;
+            this.sigma = sigma;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_THRESHOLD) {
+                long now = System.currentTimeMillis();
+                for (int slot = from; slot < to; slot++) {
+                    detect(slot, now);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PassTask(telemetry, table, states, from, middle, floor, sigma),
+                    new PassTask(telemetry, table, states, middle, to, floor, sigma));
+        }
+
+        /**
+         * Läser en bils nya värden och rapporterar krockar.
+         *
+         * @param slot bilens plats
+         * @param now systemtid (ms)
+         */
+        private void detect(int slot, long now) {
+            TelemetryRing ring = telemetry.getRing(slot);
+            if (ring == null) {
+                return;
+            }
+            CarState state = states[slot];
+            if (state == null || state.ring != ring) {
+                state = new CarState(ring, sigma);
+                states[slot] = state;
+            }
+
+            long start = Math.max(state.consumed, ring.oldestReadable());
+            int count = (int) Math.min(MAX_WINDOW, ring.getWritten() - start);
+            if (count <= 0) {
+                return;
+            }
+            ring.copy(start, count, state.time, state.x, state.y, state.z, 0);
+            long overwritten = ring.oldestReadable() - start;
+            int first = overwritten > 0 ? (int) Math.min(overwritten, count) : 0;
+            if (start > state.consumed || first > 0) {
+                state.previousMagnitude = Float.NaN; // Värden saknas, börja om
+            }
+            state.consumed = start + count;
+            state.lastSampleMillis = now;
+            if (first == count) {
+                return;
+            }
+
+            // Belopp per värde
+            short[] x = state.x;
+            short[] y = state.y;
+            short[] z = state.z;
+            float[] magnitude = state.magnitude;
+            for (int i = first; i < count; i++) {
+                float ax = x[i];
+                float ay = y[i];
+                float az = z[i];
+                magnitude[i + 1] = (float) Math.sqrt(ax * ax + ay * ay + az * az) * G_PER_COUNT;
+            }
+            magnitude[first] = Float.isNaN(state.previousMagnitude) ? magnitude[first + 1] : state.previousMagnitude;
+            state.previousMagnitude = magnitude[count];
+
+            // Förändring mot föregående värde
+            float[] delta = state.delta;
+            for (int i = first; i < count; i++) {
+                delta[i] = Math.abs(magnitude[i + 1] - magnitude[i]);
+            }
+
+            float threshold = state.threshold(floor, sigma);
+            int[] time = state.time;
+            for (int i = first; i < count; i++) {
+                if (delta[i] > threshold && time[i] - state.lastCrashMillis >= REFRACTORY_MILLIS) {
+                    state.lastCrashMillis = time[i];
+                    metrics.crashesDetected.increment();
+                    server.reportDetectedCrash(table, slot, delta[i], threshold);
+                }
+            }
+
+            // Bilens brus uppdateras bara med värden under tröskeln, så smällar inte höjer den
+            float sum = 0f;
+            float sumSquares = 0f;
+            int normal = 0;
+            for (int i = first; i < count; i++) {
+                float d = delta[i];
+                float keep = d <= threshold ? 1f : 0f;
+                sum += keep * d;
+                sumSquares += keep * d * d;
+                normal += (int) keep;
+            }
+            if (normal > 0) {
+                float weight = 1f - (float) Math.pow(1f - ADAPT_RATE, normal);
+                state.mean += weight * (sum / normal - state.mean);
+                state.meanSquare += weight * (sumSquares / normal - state.meanSquare);
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package Control;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Leveransstatus för ett kommando som skickats till en eller flera bilar.
+ * Bilar som kvitterar får kommandot som "CMD sekvensnummer kommando" och
+ * svarar "BILn:ACK:sekvensnummer". Äldre bilar utan kvittens får kommandot
+ * som vanlig text och räknas som obekräftade.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class CommandDelivery {
+
+    /** Kommandot är skickat men inte kvitterat */
+    public static final int IN_FLIGHT = 0;
+
+    /** Bilen har kvitterat kommandot */
+    public static final int ACKED = 1;
+
+    /** Kommandot kunde inte levereras (fel vid sändning, frånkoppling eller för många försök) */
+    public static final int FAILED = 2;
+
+    /** Bilen saknar stöd för kvittens, kommandot är skickat utan bekräftelse */
+    public static final int UNCONFIRMED = 3;
+
+    /** Kommandot som skickades */
+    private final String command;
+
+    /** Anslutningarna som kommandot skickades till */
+    private final MyServer.ClientConnection[] targets;
+
+    /** Sekvensnummer per mottagare (0 för bilar utan kvittens) */
+    private final int[] sequences;
+
+    /** Raden som skickas till respektive mottagare (utan sekvensprefix) */
+    private final String[] payloads;
+
+    /** Leveransstatus per mottagare */
+    private final AtomicIntegerArray states;
+
+    /** Antal sändningar per mottagare, inklusive omsändningar */
+    private final AtomicIntegerArray attempts;
+
+    /** Tidpunkt (System.nanoTime) då kvittensen kom, per mottagare */
+    private final AtomicLongArray ackNanos;
+
+    /** Tidpunkt (System.nanoTime) då kommandot först skickades */
+    private final long sentNanos;
+
+    /**
+     * Konstruktor för CommandDelivery.
+     *
+     * @param command kommandot som skickas
+     * @param targets anslutningarna som kommandot skickas till
+     */
+    public CommandDelivery(String command, MyServer.ClientConnection[] targets) {
+        this.command = command;
+        this.targets = targets;
+        this.sequences = new int[targets.length];
+        this.payloads = new String[targets.length];
+        this.states = new AtomicIntegerArray(targets.length);
+        this.attempts = new AtomicIntegerArray(targets.length);
+        this.ackNanos = new AtomicLongArray(targets.length);
+        this.sentNanos = System.nanoTime();
+    }
+
+    /**
+     * Sätter sekvensnumret för en mottagare innan kommandot skickas.
+     *
+     * @param target mottagarens index
+     * @param sequence sekvensnummer, 0 om bilen saknar kvittens
+     */
+    void setSequence(int target, int sequence) {
+        sequences[target] = sequence;
+    }
+
+    /**
+     * Sätter raden som skickas till en mottagare, om den skiljer sig från kommandot.
+     *
+     * @param target mottagarens index
+     * @param payload raden utan sekvensprefix
+     */
+    void setPayload(int target, String payload) {
+        payloads[target] = payload;
+    }
+
+    /**
+     * Får raden som skickas till en mottagare.
+     *
+     * @param target mottagarens index
+     * @return raden utan sekvensprefix
+     */
+    String getPayload(int target) {
+        return payloads[target] != null ? payloads[target] : command;
+    }
+
+    /**
+     * Registrerar en sändning till en mottagare.
+     *
+     * @param target mottagarens index
+     * @return antal sändningar hittills
+     */
+    int recordAttempt(int target) {
+        return attempts.incrementAndGet(target);
+    }
+
+    /**
+     * Markerar en mottagare som kvitterad. Senare kvittenser av samma kommando ignoreras.
+     *
+     * @param target mottagarens index
+     * @param nowNanos tidpunkt för kvittensen (System.nanoTime)
+     * @return true om mottagaren inte redan var kvitterad
+     */
+    boolean markAcked(int target, long nowNanos) {
+        // Bara anslutningens egen lästråd kvitterar, så tiden kan sättas före statusen
+        if (states.get(target) != IN_FLIGHT) {
+            return false;
+        }
+        ackNanos.set(target, nowNanos);
+        return states.compareAndSet(target, IN_FLIGHT, ACKED);
+    }
+
+    /**
+     * Markerar en mottagare som misslyckad om den fortfarande väntar på kvittens.
+     *
+     * @param target mottagarens index
+     */
+    void markFailed(int target) {
+        states.compareAndSet(target, IN_FLIGHT, FAILED);
+    }
+
+    /**
+     * Markerar en mottagare som obekräftad (bil utan stöd för kvittens).
+     *
+     * @param target mottagarens index
+     */
+    void markUnconfirmed(int target) {
+        states.compareAndSet(target, IN_FLIGHT, UNCONFIRMED);
+    }
+
+    /**
+     * Hittar index för en anslutning bland mottagarna.
+     *
+     * @param connection anslutningen
+     * @return mottagarens index eller -1
+     */
+    int indexOf(MyServer.ClientConnection connection) {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == connection) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Får kommandot som skickades.
+     *
+     * @return kommandot
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Får antal mottagare.
+     *
+     * @return antal mottagare
+     */
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    /**
+     * Får anslutningen för en mottagare.
+     *
+     * @param target mottagarens index
+     * @return anslutningen
+     */
+    public MyServer.ClientConnection getTarget(int target) {
+        return targets[target];
+    }
+
+    /**
+     * Får sekvensnumret för en mottagare.
+     *
+     * @param target mottagarens index
+     * @return sekvensnummer, 0 om bilen saknar kvittens
+     */
+    public int getSequence(int target) {
+        return sequences[target];
+    }
+
+    /**
+     * Får leveransstatus för en mottagare.
+     *
+     * @param target mottagarens index
+     * @return {@link #IN_FLIGHT}, {@link #ACKED}, {@link #FAILED} eller {@link #UNCONFIRMED}
+     */
+    public int getState(int target) {
+        return states.get(target);
+    }
+
+    /**
+     * Får antal sändningar till en mottagare.
+     *
+     * @param target mottagarens index
+     * @return antal sändningar
+     */
+    public int getAttempts(int target) {
+        return attempts.get(target);
+    }
+
+    /**
+     * Får tiden från första sändning till kvittens för en mottagare.
+     *
+     * @param target mottagarens index
+     * @return latens i millisekunder, eller -1 om mottagaren inte har kvitterat
+     */
+    public double getLatencyMillis(int target) {
+        if (states.get(target) != ACKED) {
+            return -1;
+        }
+        return (ackNanos.get(target) - sentNanos) / 1_000_000.0;
+    }
+
+    /**
+     * Får antal mottagare med en viss status.
+     *
+     * @param state status att räkna
+     * @return antal mottagare
+     */
+    public int countState(int state) {
+        int count = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (states.get(i) == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Får den längsta kvittenslatensen bland mottagarna.
+     *
+     * @return latens i millisekunder, eller -1 om ingen har kvitterat
+     */
+    public double getMaxLatencyMillis() {
+        double max = -1;
+        for (int i = 0; i < targets.length; i++) {
+            max = Math.max(max, getLatencyMillis(i));
+        }
+        return max;
+    }
+
+    /**
+     * Anger om leveransen är avslutad, dvs ingen mottagare väntar på kvittens.
+     *
+     * @return true om inga kommandon är på väg
+     */
+    public boolean isSettled() {
+        return countState(IN_FLIGHT) == 0;
+    }
+
+    /**
+     * Kort sammanfattning av leveransen, t.ex. för kontrollpanelen.
+     *
+     * @return text med antal kvitterade, väntande och misslyckade mottagare
+     */
+    public String summary() {
+        StringBuilder text = new StringBuilder(command)
+                .append(": ").append(countState(ACKED)).append('/').append(targets.length).append(" kvitterade");
+        int inFlight = countState(IN_FLIGHT);
+        if (inFlight > 0) {
+            text.append(", ").append(inFlight).append(" väntar");
+        }
+        int failed = countState(FAILED);
+        if (failed > 0) {
+            text.append(", ").append(failed).append(" misslyckade");
+        }
+        int unconfirmed = countState(UNCONFIRMED);
+        if (unconfirmed > 0) {
+            text.append(", ").append(unconfirmed).append(" utan kvittens");
+        }
+        double maxLatency = getMaxLatencyMillis();
+        if (maxLatency >= 0) {
+            text.append(String.format(" (max %.1f ms)", maxLatency));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,381 @@
+package Control;
+
+import Model.CarTable;
+import Model.MatchResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Händelsejournal med alla krockar, straff och matchslut, för statistik i efterhand.
+ * Journalen lyssnar på servern och lägger varje händelse som en kort binär post i
+ * en av två buffertar. När bufferten är full, eller några gånger per sekund, tar
+ * bakgrundstråden över den och skriver den till disk medan lyssnarna fyller den andra.
+ * Krockvägen skapar inga objekt och gör ingen disk-I/O, inte heller under journalens lås.
+ * Varje dag får en egen fil, och en match skrivs alltid i sin helhet till samma fil.
+ *
+ * Postformat (big-endian, som matchhistoriken):
+ * <pre>
+ * 'S' int magiskt tal, long starttid (ms), short starthälsa, byte antal bilar,
+ *     per bil: byte lag, text bil-ID, text bilnamn, text spelarnamn
+ * 'H' int tid sedan start (ms), byte plats, short hälsa efter träffen, byte 0 = krock / 1 = straff
+ * 'E' int tid sedan start (ms), byte vinnande lag (-1 = oavgjort)
+ * </pre>
+ * Texter skrivs som short längd följt av UTF-8, högst 60 byte. En post som bara delvis hann skrivas
+ * före ett avbrott hoppas över av {@link MatchAnalytics}. Matcher i det äldre formatet
+ * ({@link #MAGIC_V1}) har hälsan som en byte i 'H'-posten.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class EventJournal extends Thread implements ServerEventListener {
+
+    /** Filändelse för journalfiler */
+    public static final String FILE_SUFFIX = ".cwj";
+
+    /** Magiskt tal i varje matchstart, "CJW2" */
+    public static final int MAGIC = 0x434A5732;
+
+    /** Magiskt tal i matchstarter i det äldre formatet, där hälsan bara fick plats med 127 */
+    public static final int MAGIC_V1 = 0x434A5731;
+
+    /** Posttyp för matchstart */
+    public static final byte MATCH_START = 'S';
+
+    /** Posttyp för krock eller straff */
+    public static final byte HIT = 'H';
+
+    /** Posttyp för matchslut */
+    public static final byte MATCH_END = 'E';
+
+    /** Typ av träff i HIT-posten för en krock */
+    public static final byte KIND_CRASH = 0;
+
+    /** Typ av träff i HIT-posten för ett straff */
+    public static final byte KIND_PENALTY = 1;
+
+    /** Max antal byte per text */
+    private static final int MAX_TEXT_BYTES = 60;
+
+    /** Tid mellan skrivningarna till disk (ms) */
+    private static final int FLUSH_INTERVAL_MILLIS = 200;
+
+    /** Längsta tid en händelse väntar på att skrivtråden lämnar tillbaka den andra bufferten (ms) */
+    private static final int ROOM_WAIT_MILLIS = 50;
+
+    /** Storlek på bufferten i byte */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Katalog för journalfilerna */
+    private final Path directory;
+
+    /** Servern, för lagindelningen */
+    private final MyServer server;
+
+    /** Buffert som lyssnarna fyller */
+    private Block filling = new Block();
+
+    /** Tom buffert att byta till, null medan skrivtråden har den */
+    private Block spare = new Block();
+
+    /** Full buffert som väntar på skrivtråden, null om ingen väntar */
+    private Block full;
+
+    /** Sätts när bufferten ska skrivas utan att vänta på intervallet */
+    private boolean flushRequested;
+
+    /** Sätts av close() för att få skrivtråden att skriva klart och sluta */
+    private boolean closing;
+
+    /** Händelser som inte fick plats för att skrivtråden inte hann med */
+    private long dropped;
+
+    /** Fil för pågående dag, null innan första matchen (används bara av skrivtråden) */
+    private FileChannel channel;
+
+    /** Dagen som öppen fil gäller (används bara av skrivtråden) */
+    private String fileDay;
+
+    /** Starttid för pågående match (ms), 0 innan första matchen */
+    private long matchStartMillis;
+
+    /**
+     * Buffert med händelser och dagen vars fil de ska skrivas till.
+     */
+    private static class Block {
+        final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        String day;
+    }
+
+    /**
+     * Konstruktor för EventJournal.
+     *
+     * @param directory katalog för journalfilerna
+     * @param server servern, för lagindelningen
+     * @throws IOException om katalogen inte kan skapas
+     */
+    public EventJournal(Path directory, MyServer server) throws IOException {
+        super("event-journal");
+        setDaemon(true);
+        this.directory = directory;
+        this.server = server;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Skriver fulla buffertar, och annars bufferten några gånger per sekund, tills journalen stängs.
+     * All disk-I/O görs här, utan journalens lås.
+     */
+    @Override
+    public void run() {
+        boolean running = true;
+        while (running) {
+            Block block;
+            long lost;
+            synchronized (this) {
+                if (full == null && !flushRequested && !closing) {
+                    try {
+                        wait(FLUSH_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        closing = true;
+                    }
+                }
+                running = !closing;
+                flushRequested = false;
+                if (full == null && filling.bytes.position() > 0) {
+                    handOff();
+                }
+                block = full;
+                full = null;
+                lost = dropped;
+                dropped = 0;
+            }
+
+            if (lost > 0) {
+                System.out.println("Händelsejournalen hann inte med, " + lost + " händelser kastades");
+            }
+            if (block != null) {
+                write(block);
+                synchronized (this) {
+                    block.bytes.clear();
+                    spare = block;
+                    notifyAll();
+                    // Bufferten kan ha fyllts medan den andra skrevs
+                    if (filling.bytes.remaining() < BUFFER_SIZE / 2) {
+                        flushRequested = true;
+                    }
+                }
+            }
+        }
+        writeRemaining();
+    }
+
+    /**
+     * Skriver det som finns kvar och stänger filen.
+     */
+    public void close() {
+        synchronized (this) {
+            closing = true;
+            notifyAll();
+        }
+        if (!isAlive()) {
+            // Tråden startades aldrig, skriv klart här
+            writeRemaining();
+            return;
+        }
+        try {
+            join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void matchStarted(CarTable cars) {
+        String day = new SimpleDateFormat("yyyyMMdd").format(new Date());
+        if (!day.equals(filling.day)) {
+            // En ny dag får en egen fil, så förra dagens händelser lämnas över först
+            if (filling.bytes.position() == 0 || handOff()) {
+                filling.day = day;
+            }
+        }
+
+        matchStartMillis = System.currentTimeMillis();
+        if (!ensureRoom(16 + cars.size() * (1 + 3 * (2 + MAX_TEXT_BYTES)))) {
+            matchStartMillis = 0;
+            return;
+        }
+        ByteBuffer buffer = filling.bytes;
+        buffer.put(MATCH_START).putInt(MAGIC).putLong(matchStartMillis);
+        buffer.putShort((short) cars.getInitialHealth()).put((byte) cars.size());
+        for (int slot = 0; slot < cars.size(); slot++) {
+            buffer.put((byte) server.getTeam(slot));
+            putText(buffer, cars.getCarId(slot));
+            putText(buffer, cars.getCarName(slot));
+            putText(buffer, cars.getPlayerName(slot));
+        }
+    }
+
+    @Override
+    public synchronized void carHit(int slot, int health, boolean crash) {
+        if (matchStartMillis == 0 || !ensureRoom(9)) {
+            return;
+        }
+        filling.bytes.put(HIT).putInt((int) (System.currentTimeMillis() - matchStartMillis))
+                .put((byte) slot).putShort((short) health).put(crash ? KIND_CRASH : KIND_PENALTY);
+    }
+
+    @Override
+    public synchronized void matchOver(MatchResult result) {
+        if (matchStartMillis == 0 || !ensureRoom(6)) {
+            return;
+        }
+        filling.bytes.put(MATCH_END).putInt((int) (result.endTimeMillis - matchStartMillis)).put((byte) result.winnerTeam);
+        flushRequested = true;
+        notifyAll();
+    }
+
+    /**
+     * Ser till att det finns plats i bufferten, genom att lämna över den till skrivtråden om det behövs.
+     * Har skrivtråden kvar den andra bufferten väntas en kort stund (låset släpps under väntan).
+     * Anropas med journalens lås.
+     *
+     * @param bytes antal byte som ska få plats
+     * @return false om det inte blev plats i tid, händelsen räknas då som kastad
+     */
+    private boolean ensureRoom(int bytes) {
+        long deadline = 0;
+        while (filling.bytes.remaining() < bytes && !handOff()) {
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + ROOM_WAIT_MILLIS * 1_000_000L;
+            } else if (now - deadline >= 0) {
+                dropped++;
+                return false;
+            }
+            try {
+                wait(Math.max(1, (deadline - now) / 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped++;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lämnar över bufferten till skrivtråden och byter till den tomma. Anropas med journalens lås.
+     *
+     * @return false om skrivtråden fortfarande har den andra bufferten
+     */
+    private boolean handOff() {
+        if (spare == null) {
+            return false;
+        }
+        full = filling;
+        filling = spare;
+        filling.day = full.day;
+        spare = null;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Skriver det som finns kvar i bufferten och stänger filen.
+     */
+    private void writeRemaining() {
+        Block block = null;
+        synchronized (this) {
+            if (filling.bytes.position() > 0 && handOff()) {
+                block = full;
+                full = null;
+            }
+        }
+        if (block != null) {
+            write(block);
+        }
+        closeFile();
+    }
+
+    /**
+     * Skriver en buffert till dess dags fil. Anropas bara av skrivtråden (eller close()
+     * när tråden inte körs), aldrig under journalens lås.
+     *
+     * @param block bufferten
+     */
+    private void write(Block block) {
+        ByteBuffer buffer = block.bytes;
+        buffer.flip();
+        try {
+            if (block.day != null && !block.day.equals(fileDay)) {
+                openFile(block.day);
+            }
+            if (channel != null) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Kunde inte skriva händelsejournalen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stänger dagens fil.
+     */
+    private void closeFile() {
+        if (channel != null) {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Kunde inte stänga händelsejournalen: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Byter till filen för en ny dag.
+     *
+     * @param day dagen som yyyyMMdd
+     */
+    private void openFile(String day) {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            channel = FileChannel.open(directory.resolve("events-" + day + FILE_SUFFIX),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            fileDay = day;
+        } catch (IOException e) {
+            System.out.println("Kunde inte öppna händelsejournalen: " + e.getMessage());
+            channel = null;
+        }
+    }
+
+    /**
+     * Skriver en text som short längd följt av UTF-8.
+     *
+     * @param buffer bufferten
+     * @param text texten, null skrivs som tom text
+     */
+    private static void putText(ByteBuffer buffer, String text) {
+        byte[] bytes = (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_TEXT_BYTES);
+        // Kapa före ett tecken, inte mitt i det (å, ä och ö är två byte i UTF-8)
+        while (length > 0 && length < bytes.length && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.putShort((short) length).put(bytes, 0, length);
+    }
+}
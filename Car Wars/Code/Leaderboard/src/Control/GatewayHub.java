@@ -0,0 +1,289 @@
+package Control;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Poängserverns sida av gatewayerna ({@link GatewayNode}). Varje gateway håller en förbindelse
+ * ({@link GatewayLink}) med bilarna som är anslutna till den. För servern ser en bil via en
+ * gateway ut som vilken klient som helst: den får en egen anslutning, vars socket och
+ * PrintWriter skickar vidare till gatewayn, och dess rader hanteras av
+ * {@link MyServer#handleClientMessage}. Sessioner, inloggning och kvittenser fungerar därför
+ * som vanligt, och en bil kan återansluta via en annan gateway.
+ *
+ * Varje gateway läses av en egen tråd, så fler gatewayer ger fler trådar som hanterar rader
+ * medan poängservern slipper bilarnas sockets, ramning och PING.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class GatewayHub extends Thread {
+
+    /** Servern som äger matchen */
+    private final MyServer server;
+
+    /** Socket som gatewayerna ansluter till */
+    private final ServerSocket serverSocket;
+
+    /** Nyckeln som gatewayerna loggar in med */
+    private final String secret;
+
+    /**
+     * Konstruktor för GatewayHub. Öppnar porten direkt på adressen {@link ServerConfig#GATEWAY_BIND_ADDRESS},
+     * men tar inte emot gatewayer förrän tråden startas. Utan {@link ServerConfig#GATEWAY_SECRET}
+     * öppnas ingen port, eftersom vem som helst annars kunde skicka rader i bilarnas namn.
+     *
+     * @param port port som gatewayerna ansluter till
+     * @param server servern som äger matchen
+     * @throws IOException om porten inte kan öppnas eller nyckeln saknas
+     */
+    public GatewayHub(int port, MyServer server) throws IOException {
+        super("gateway-hub");
+        setDaemon(true);
+        this.server = server;
+        this.secret = server.getConfig().get(ServerConfig.GATEWAY_SECRET);
+        if (secret.isEmpty()) {
+            throw new IOException(ServerConfig.GATEWAY_SECRET.name + " är inte satt");
+        }
+        String bindAddress = server.getConfig().get(ServerConfig.GATEWAY_BIND_ADDRESS);
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getByName(bindAddress), port));
+    }
+
+    /**
+     * Tar emot gatewayer tills porten stängs och läser varje gateway i en egen tråd.
+     */
+    @Override
+    public void run() {
+        System.out.println("🌐 Väntar på gatewayer på " + serverSocket.getLocalSocketAddress());
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread reader = new Thread(() -> serve(socket), "gateway-" + socket.getRemoteSocketAddress());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.out.println("Fel i gateway-porten: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stänger porten. Gatewayer som redan är anslutna kopplas från när servern stängs.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.out.println("Fel vid stängning av gateway-porten: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hanterar en gateway tills förbindelsen bryts. Bilarna på gatewayn tas då bort som
+     * om de hade tappat anslutningen, så de kan återuppta sina sessioner via en annan gateway.
+     *
+     * @param socket gatewayns socket
+     */
+    private void serve(Socket socket) {
+        Map<Integer, RemoteSocket> clients = new HashMap<>();
+        GatewayLink link = null;
+        try {
+            link = new GatewayLink(socket, server.getConfig().get(ServerConfig.GATEWAY_TIMEOUT_MILLIS),
+                    server.getMetrics(), false, secret);
+            System.out.println("🌐 Gateway ansluten: " + link);
+            GatewayLink gateway = link;
+            link.readFrames((type, connection, text) -> frame(gateway, clients, type, connection, text));
+        } catch (EOFException e) {
+            System.out.println("🌐 Gateway frånkopplad: " + socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            System.out.println("🌐 Gateway frånkopplad (" + socket.getRemoteSocketAddress() + "): " + e.getMessage());
+        } finally {
+            if (link != null) {
+                link.close();
+            } else {
+                closeQuietly(socket);
+            }
+            for (RemoteSocket client : clients.values()) {
+                client.closeFromGateway();
+                server.removeClient(client.connection, client);
+            }
+        }
+    }
+
+    /**
+     * Hanterar en ram från en gateway.
+     *
+     * @param link förbindelsen till gatewayn
+     * @param clients gatewayns bilar per anslutning
+     * @param type ramens typ
+     * @param connection anslutningen som ramen gäller
+     * @param text ramens text
+     * @throws IOException om gatewayn skickar något okänt
+     */
+    private void frame(GatewayLink link, Map<Integer, RemoteSocket> clients, byte type, int connection,
+                       CharSequence text) throws IOException {
+        RemoteSocket client;
+        switch (type) {
+            case GatewayLink.OPEN:
+                client = new RemoteSocket(link, connection, InetAddress.getByName(text.toString()));
+                PrintWriter output = new PrintWriter(new LinkWriter(link, connection), true);
+                client.connection = server.attachClient(client, output);
+                clients.put(connection, client);
+                System.out.println("Ny enhet ansluten via gateway: " + client.getInetAddress());
+                break;
+            case GatewayLink.LINE:
+                client = clients.get(connection);
+                if (client == null) {
+                    return; // Rader som redan var på väg när bilen kopplades från
+                }
+                server.handleClientMessage(text, client.connection);
+
+                // Efter en återanslutning fortsätter läsningen för den återupptagna sessionen
+                if (client.connection.resumedAs != null) {
+                    client.connection = client.connection.resumedAs;
+                }
+                break;
+            case GatewayLink.CLOSE:
+                client = clients.remove(connection);
+                if (client != null) {
+                    client.closeFromGateway();
+                    server.removeClient(client.connection, client);
+                }
+                break;
+            default:
+                throw new IOException("okänd ramtyp " + type);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.out.println("Fel vid stängning av socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Socket för en bil som är ansluten via en gateway. Den är aldrig själv ansluten,
+     * men visar bilens adress och ber gatewayn koppla från bilen när servern stänger den.
+     */
+    static class RemoteSocket extends Socket {
+        /** Förbindelsen till gatewayn */
+        private final GatewayLink link;
+
+        /** Bilens anslutning på gatewayn */
+        private final int id;
+
+        /** Bilens adress */
+        private final InetAddress address;
+
+        /** Serverns anslutning för bilen (bara gatewayns lästråd) */
+        MyServer.ClientConnection connection;
+
+        /** true när gatewayn redan har kopplat från bilen */
+        private volatile boolean closedByGateway;
+
+        /**
+         * Konstruktor för RemoteSocket.
+         *
+         * @param link förbindelsen till gatewayn
+         * @param id bilens anslutning på gatewayn
+         * @param address bilens adress
+         */
+        RemoteSocket(GatewayLink link, int id, InetAddress address) {
+            this.link = link;
+            this.id = id;
+            this.address = address;
+        }
+
+        @Override
+        public InetAddress getInetAddress() {
+            return address;
+        }
+
+        @Override
+        public SocketAddress getRemoteSocketAddress() {
+            return new InetSocketAddress(address, 0);
+        }
+
+        /**
+         * Stänger socketen och ber gatewayn koppla från bilen.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (!isClosed() && !closedByGateway) {
+                link.send(GatewayLink.CLOSE, id, null);
+            }
+            super.close();
+        }
+
+        /**
+         * Stänger socketen utan att meddela gatewayn, som redan har kopplat från bilen.
+         */
+        void closeFromGateway() {
+            closedByGateway = true;
+            closeQuietly(this);
+        }
+    }
+
+    /**
+     * Skickar varje hel rad som skrivs till en bil via gatewayn.
+     */
+    private static class LinkWriter extends Writer {
+        /** Förbindelsen till gatewayn */
+        private final GatewayLink link;
+
+        /** Bilens anslutning på gatewayn */
+        private final int id;
+
+        /** Raden som skrivs (skyddas av PrintWriterns lås) */
+        private final StringBuilder line = new StringBuilder();
+
+        LinkWriter(GatewayLink link, int id) {
+            this.link = link;
+            this.id = id;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                char c = chars[i];
+                if (c == '\n') {
+                    try {
+                        if (!link.send(GatewayLink.LINE, id, line)) {
+                            throw new IOException("gatewayn är frånkopplad");
+                        }
+                    } finally {
+                        line.setLength(0);
+                    }
+                } else if (c != '\r') {
+                    line.append(c);
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+            // Hela rader skickas direkt när de skrivs
+        }
+
+        @Override
+        public void close() {
+            // Förbindelsen delas av alla bilar på gatewayn
+        }
+    }
+}
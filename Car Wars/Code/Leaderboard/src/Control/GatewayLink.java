@@ -0,0 +1,343 @@
+package Control;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Förbindelse mellan en gateway ({@link GatewayNode}) och poängservern ({@link GatewayHub}).
+ * Gatewayn skickar vidare bilarnas rader och poängservern skickar tillbaka sina rader till
+ * bilarna. Alla bilar på en gateway delar samma förbindelse.
+ *
+ * Ramarna läggs i en buffert och en sändartråd skickar allt som har samlats sedan förra
+ * sändningen i ett enda anrop, så rader från många bilar kostar ett systemanrop. Blir bufferten
+ * full väntar avsändaren, så en långsam mottagare bromsar bilarna i stället för att rader försvinner.
+ *
+ * Protokoll (big-endian): gatewayn börjar med int "CWGW". Poängservern svarar med 16 slumpade
+ * byte och gatewayn visar att den känner till den delade nyckeln ({@link ServerConfig#GATEWAY_SECRET})
+ * genom att skicka HMAC-SHA256 av dem, vilket poängservern godkänner med en byte 1. Därefter går ramar åt båda hållen med
+ * byte typ, int anslutning, short längd och texten i UTF-8:
+ * <pre>
+ * 'O' ny bil ansluten, texten är bilens adress
+ * 'L' en rad från eller till bilen
+ * 'C' bilen har kopplats från eller ska kopplas från
+ * 'K' livstecken, anslutning 0 och ingen text
+ * </pre>
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class GatewayLink {
+
+    /** Magiskt tal i början av strömmen, "CWGW" */
+    public static final int MAGIC = 0x43574757;
+
+    /** Ram när en bil har anslutit */
+    public static final byte OPEN = 'O';
+
+    /** Ram med en rad */
+    public static final byte LINE = 'L';
+
+    /** Ram när en bil har kopplats från */
+    public static final byte CLOSE = 'C';
+
+    /** Livstecken när inget annat har skickats */
+    public static final byte HEARTBEAT = 'K';
+
+    /** Tid mellan livstecknen (ms) */
+    public static final int HEARTBEAT_MILLIS = 100;
+
+    /** Antal slumpade byte i inloggningen */
+    private static final int CHALLENGE_BYTES = 16;
+
+    /** Slump för inloggningen */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** Storlek på ramhuvudet */
+    private static final int HEADER_BYTES = 7;
+
+    /** Storlek på sändbufferten */
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    /**
+     * Tar emot ramar från andra sidan.
+     */
+    public interface FrameHandler {
+        /**
+         * Hanterar en ram. Texten återanvänds och får inte sparas efter anropet.
+         *
+         * @param type ramens typ
+         * @param connection anslutningen som ramen gäller
+         * @param text ramens text
+         * @throws IOException om förbindelsen ska stängas
+         */
+        void frame(byte type, int connection, CharSequence text) throws IOException;
+    }
+
+    /** Förbindelsens socket */
+    private final Socket socket;
+
+    /** Ström att läsa ramar från (bara lästråden) */
+    private final DataInputStream in;
+
+    /** Ström att skriva ramar till (bara sändartråden) */
+    private final OutputStream out;
+
+    /** Serverns räknare */
+    private final ServerMetrics metrics;
+
+    /** Ramar som inte har skickats än (skyddas av låset på this) */
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES);
+
+    /** Buffert som sändartråden skickar från, byts med pending */
+    private ByteBuffer sending = ByteBuffer.allocate(BUFFER_BYTES);
+
+    /** true när förbindelsen är stängd (skyddas av låset på this) */
+    private boolean closed;
+
+    /** Återanvänd text för mottagna ramar (bara lästråden) */
+    private final StringBuilder text = new StringBuilder();
+
+    /** Återanvänd buffert för mottagna ramar (bara lästråden) */
+    private byte[] textBytes = new byte[256];
+
+    /**
+     * Konstruktor för GatewayLink. Gatewayn skickar det magiska talet och loggar in med den
+     * delade nyckeln, poängservern kontrollerar båda, sedan startas sändartråden.
+     *
+     * @param socket ansluten socket
+     * @param timeoutMillis tid utan ramar innan förbindelsen räknas som bruten (ms)
+     * @param metrics serverns räknare
+     * @param initiator true på gatewayn, som öppnade förbindelsen
+     * @param secret nyckeln som gatewayer och poängserver delar
+     * @throws IOException om förbindelsen inte kan öppnas, talar ett annat protokoll eller har fel nyckel
+     */
+    public GatewayLink(Socket socket, int timeoutMillis, ServerMetrics metrics, boolean initiator, String secret)
+            throws IOException {
+        this.socket = socket;
+        this.metrics = metrics;
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(timeoutMillis);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+        this.out = socket.getOutputStream();
+        DataOutputStream handshake = new DataOutputStream(out);
+        if (initiator) {
+            handshake.writeInt(MAGIC);
+            byte[] challenge = new byte[CHALLENGE_BYTES];
+            in.readFully(challenge);
+            handshake.write(sign(secret, challenge));
+            if (in.read() != 1) {
+                throw new IOException("poängservern godkände inte gateway-nyckeln");
+            }
+        } else {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("okänt protokoll från " + socket.getInetAddress());
+            }
+            byte[] challenge = new byte[CHALLENGE_BYTES];
+            RANDOM.nextBytes(challenge);
+            handshake.write(challenge);
+            byte[] expected = sign(secret, challenge);
+            byte[] answer = new byte[expected.length];
+            in.readFully(answer);
+            if (!MessageDigest.isEqual(expected, answer)) {
+                throw new IOException("fel gateway-nyckel från " + socket.getInetAddress());
+            }
+            handshake.write(1);
+        }
+
+        Thread sender = new Thread(this::sendBatches, "gateway-link-" + socket.getPort());
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Signerar inloggningens slumpade byte med den delade nyckeln.
+     *
+     * @param secret nyckeln
+     * @param challenge de slumpade byten
+     * @return HMAC-SHA256 av byten
+     * @throws IOException om nyckeln saknas eller HMAC inte finns i Java-miljön
+     */
+    private static byte[] sign(String secret, byte[] challenge) throws IOException {
+        if (secret == null || secret.isEmpty()) {
+            throw new IOException(ServerConfig.GATEWAY_SECRET.name + " är inte satt");
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(challenge);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("kunde inte signera: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lägger en ram i sändbufferten. Väntar om bufferten är full.
+     *
+     * @param type ramens typ
+     * @param connection anslutningen som ramen gäller
+     * @param text ramens text, eller null
+     * @return false om förbindelsen är stängd
+     */
+    public boolean send(byte type, int connection, CharSequence text) {
+        int length = text != null ? text.length() : 0;
+        byte[] encoded = null;
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) >= 0x80) {
+                encoded = text.toString().getBytes(StandardCharsets.UTF_8);
+                break;
+            }
+        }
+        int bytes = encoded != null ? encoded.length : length;
+        if (bytes > 0xFFFF) {
+            throw new IllegalArgumentException("för lång rad: " + bytes + " byte");
+        }
+
+        synchronized (this) {
+            try {
+                while (!closed && pending.remaining() < HEADER_BYTES + bytes) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            if (closed) {
+                return false;
+            }
+            if (pending.position() == 0) {
+                notifyAll();
+            }
+            pending.put(type).putInt(connection).putShort((short) bytes);
+            if (encoded != null) {
+                pending.put(encoded);
+            } else {
+                // Bilarnas rader är ASCII och kopieras utan att skapa några objekt
+                for (int i = 0; i < length; i++) {
+                    pending.put((byte) text.charAt(i));
+                }
+            }
+        }
+        metrics.gatewayFrames.increment();
+        return true;
+    }
+
+    /**
+     * Läser ramar och lämnar dem till hanteraren tills förbindelsen bryts.
+     *
+     * @param handler hanterare för ramarna
+     * @throws IOException när förbindelsen bryts eller inget har hörts inom utsatt tid
+     */
+    public void readFrames(FrameHandler handler) throws IOException {
+        while (true) {
+            byte type = in.readByte();
+            int connection = in.readInt();
+            int length = in.readUnsignedShort();
+            if (length > textBytes.length) {
+                textBytes = new byte[Math.max(length, textBytes.length * 2)];
+            }
+            in.readFully(textBytes, 0, length);
+            if (type == HEARTBEAT) {
+                continue;
+            }
+
+            text.setLength(0);
+            for (int i = 0; i < length; i++) {
+                byte b = textBytes[i];
+                if (b < 0) {
+                    text.setLength(0);
+                    text.append(new String(textBytes, 0, length, StandardCharsets.UTF_8));
+                    break;
+                }
+                text.append((char) b);
+            }
+            handler.frame(type, connection, text);
+        }
+    }
+
+    /**
+     * Stänger förbindelsen. Ramar som inte har skickats kastas.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.out.println("Fel vid stängning av gateway-förbindelsen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Kontrollerar om förbindelsen är stängd.
+     *
+     * @return true om förbindelsen är stängd
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Adressen på andra sidan, för loggning.
+     *
+     * @return adress och port
+     */
+    @Override
+    public String toString() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+
+    /**
+     * Skickar det som har samlats i bufferten, eller ett livstecken, tills förbindelsen stängs.
+     */
+    private void sendBatches() {
+        try {
+            while (true) {
+                boolean heartbeat;
+                synchronized (this) {
+                    if (!closed && pending.position() == 0) {
+                        wait(HEARTBEAT_MILLIS);
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    heartbeat = pending.position() == 0;
+                    if (heartbeat) {
+                        pending.put(HEARTBEAT).putInt(0).putShort((short) 0);
+                    }
+                    ByteBuffer batch = pending;
+                    pending = sending;
+                    sending = batch;
+                    // Avsändare som väntade på plats kan fortsätta
+                    notifyAll();
+                }
+
+                out.write(sending.array(), 0, sending.position());
+                sending.clear();
+                if (!heartbeat) {
+                    metrics.gatewayBatches.increment();
+                }
+            }
+        } catch (IOException e) {
+            close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package Control;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gateway som tar emot bilarnas TCP-anslutningar framför poängservern ({@link GatewayHub}),
+ * för tävlingar med fler bilar än en server orkar ta emot. Gatewayn läser raderna med en
+ * {@link LineFramer}, kastar rader över budget med en {@link IngressGuard} och svarar själv på
+ * PING. Övriga rader skickas vidare till poängservern över en gemensam förbindelse
+ * ({@link GatewayLink}), som skickar många bilars rader i samma sändning. Poängserverns svar
+ * skickas tillbaka till rätt bil. Varje bil har en egen begränsad kö och en egen skrivtråd, så en
+ * bil som inte läser sina svar kopplas från när kön är full i stället för att stoppa de andra.
+ *
+ * När {@link ServerConfig#TLS_ENABLED} är på krypterar gatewayn bilarnas anslutningar på samma sätt
+ * som poängservern. Gatewayn loggar in hos poängservern med {@link ServerConfig#GATEWAY_SECRET}.
+ *
+ * Tappar gatewayn poängservern kopplas bilarna från, så de återansluter och återupptar sina
+ * sessioner när förbindelsen är uppe igen, via denna eller en annan gateway.
+ *
+ * Körs från kommandoraden, en process per gateway, t.ex. lokalt med en egen port per gateway:
+ * {@code java -Dcarwars.server.port=7001 -Dcarwars.gateway.secret=... Control.GatewayNode}
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class GatewayNode {
+
+    /** Tid mellan försöken att ansluta till poängservern (ms) */
+    private static final int CONNECT_RETRY_MILLIS = 500;
+
+    /** Längsta väntan på plats i en bils kö innan bilen kopplas från (ms) */
+    private static final int QUEUE_WAIT_MILLIS = 20;
+
+    /** Storlek på läsbuffertarna */
+    private static final int READ_BUFFER_SIZE = 2048;
+
+    /** Antal lediga läsbuffertar som sparas för nya bilar */
+    private static final int MAX_IDLE_BUFFERS = 32;
+
+    /** Inställningar för porten, budgeten och poängservern */
+    private final ServerConfig config;
+
+    /** Räknare för gatewayns trafik */
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    /** Poolen med läsbuffertar */
+    private final BufferPool bufferPool = new BufferPool(READ_BUFFER_SIZE, MAX_IDLE_BUFFERS);
+
+    /** Poängserverns adress */
+    private final InetSocketAddress authority;
+
+    /** Förbindelsen till poängservern, null när den är nere */
+    private volatile GatewayLink link;
+
+    /** Anslutna bilar per anslutningsnummer */
+    private final ConcurrentHashMap<Integer, Car> cars = new ConcurrentHashMap<>();
+
+    /** Senast använda anslutningsnummer */
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /** TLS för bilarnas anslutningar, null utan TLS */
+    private SSLContext tlsContext;
+
+    /**
+     * En bil som är ansluten till gatewayn.
+     */
+    private static class Car {
+        /** Markerar att bilen ska kopplas från när raderna före den är skickade */
+        static final String END = new String("END");
+
+        /** Bilens socket */
+        final Socket socket;
+
+        /** Ström för att skicka rader till bilen (bara skrivtråden) */
+        final PrintWriter output;
+
+        /** Rader som väntar på att skickas till bilen */
+        final BlockingQueue<String> outbox;
+
+        /** Tråd som skickar raderna i kön */
+        Thread writer;
+
+        Car(Socket socket, PrintWriter output, int queueSize) {
+            this.socket = socket;
+            this.output = output;
+            this.outbox = new ArrayBlockingQueue<>(queueSize);
+        }
+    }
+
+    /**
+     * Konstruktor för GatewayNode.
+     *
+     * @param config inställningar för porten, budgeten och poängservern
+     */
+    public GatewayNode(ServerConfig config) {
+        this.config = config;
+        this.authority = new InetSocketAddress(config.get(ServerConfig.GATEWAY_AUTHORITY_HOST),
+                config.get(ServerConfig.GATEWAY_PORT));
+    }
+
+    /**
+     * Startar en gateway med inställningarna från carwars.properties och systemegenskaper.
+     *
+     * @param args kommandoradsargument (används inte)
+     */
+    public static void main(String[] args) {
+        GatewayNode node = new GatewayNode(ServerConfig.load());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(node.metrics.summary())));
+        node.run();
+    }
+
+    /**
+     * Håller förbindelsen till poängservern i en egen tråd och tar emot bilar tills porten stängs.
+     */
+    public void run() {
+        if (config.get(ServerConfig.TLS_ENABLED)) {
+            try {
+                tlsContext = TlsChannel.createServerContext(Paths.get(config.get(ServerConfig.TLS_KEYSTORE)),
+                        config.get(ServerConfig.TLS_KEYSTORE_PASSWORD).toCharArray(),
+                        config.get(ServerConfig.TLS_SESSION_CACHE_SIZE),
+                        config.get(ServerConfig.TLS_SESSION_TIMEOUT_SECONDS));
+                System.out.println("🔒 TLS aktiverat med " + config.get(ServerConfig.TLS_KEYSTORE));
+            } catch (IOException | GeneralSecurityException e) {
+                System.out.println("Fel: kunde inte ladda TLS-nyckeln: " + e.getMessage());
+                return;
+            }
+        }
+        if (config.get(ServerConfig.GATEWAY_SECRET).isEmpty()) {
+            System.out.println("Fel: " + ServerConfig.GATEWAY_SECRET.name + " är inte satt");
+            return;
+        }
+
+        Thread linkThread = new Thread(this::maintainLink, "gateway-authority");
+        linkThread.setDaemon(true);
+        linkThread.start();
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            int port = config.get(ServerConfig.SERVER_PORT);
+            serverChannel.bind(new InetSocketAddress(port));
+            System.out.println("🌐 Gateway igång på port " + port + ", poängserver " + authority);
+
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                GatewayLink current = link;
+                if (current == null) {
+                    // Utan poängserver kan bilen inte spela, den får försöka igen
+                    System.out.println("⚠️ Poängservern är inte ansluten, kopplar från " +
+                            channel.socket().getInetAddress());
+                    channel.close();
+                    continue;
+                }
+                int id = nextId.incrementAndGet();
+                Thread reader = new Thread(() -> serveCar(channel, id, current), "gateway-car-" + id);
+                reader.start();
+            }
+        } catch (IOException e) {
+            System.out.println("Fel: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ansluter till poängservern och skickar dess rader till bilarna. Bryts förbindelsen
+     * kopplas bilarna från och gatewayn ansluter igen.
+     */
+    private void maintainLink() {
+        while (true) {
+            Socket socket = new Socket();
+            GatewayLink current = null;
+            try {
+                socket.connect(authority, config.get(ServerConfig.GATEWAY_TIMEOUT_MILLIS));
+                current = new GatewayLink(socket, config.get(ServerConfig.GATEWAY_TIMEOUT_MILLIS), metrics, true,
+                        config.get(ServerConfig.GATEWAY_SECRET));
+                link = current;
+                System.out.println("🌐 Ansluten till poängservern " + authority);
+                current.readFrames(this::deliver);
+            } catch (IOException e) {
+                if (current != null) {
+                    System.out.println("🌐 Tappade poängservern (" + (e instanceof EOFException ? "stängd" : e.getMessage()) +
+                            "), kopplar från " + cars.size() + " bilar");
+                }
+            } finally {
+                link = null;
+                if (current != null) {
+                    current.close();
+                } else {
+                    closeQuietly(socket);
+                }
+                for (Car car : cars.values()) {
+                    closeQuietly(car.socket);
+                }
+            }
+
+            try {
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lägger en ram från poängservern i bilens kö. Förbindelsens lästråd väntar högst
+     * {@link #QUEUE_WAIT_MILLIS} på en enskild bil, så att en bil som hinner ikapp efter en
+     * skur får behålla anslutningen; är kön fortfarande full kopplas bilen från.
+     *
+     * @param type ramens typ
+     * @param id bilens anslutningsnummer
+     * @param text ramens text
+     */
+    private void deliver(byte type, int id, CharSequence text) {
+        Car car = cars.get(id);
+        if (car == null) {
+            return; // Bilen hann koppla från
+        }
+        if (type == GatewayLink.LINE) {
+            try {
+                if (car.outbox.offer(text.toString(), QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                System.out.println("⚠️ Kön till " + car.socket.getInetAddress() + " är full, kopplar från");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            closeQuietly(car.socket);
+            return;
+        }
+        // Poängservern kopplade från bilen, efter raderna som redan ligger i kön
+        if (!car.outbox.offer(Car.END)) {
+            closeQuietly(car.socket);
+        }
+    }
+
+    /**
+     * Skickar raderna i bilens kö tills bilen kopplas från. Rader som har samlats skickas
+     * tillsammans med en flush.
+     *
+     * @param car bilen
+     */
+    private static void writeCar(Car car) {
+        try {
+            boolean end = false;
+            while (!end) {
+                String line = car.outbox.take();
+                do {
+                    if (line == Car.END) {
+                        end = true;
+                        break;
+                    }
+                    car.output.println(line);
+                } while ((line = car.outbox.poll()) != null);
+                car.output.flush();
+                if (car.output.checkError()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Bilens lästråd har avslutats
+        }
+        closeQuietly(car.socket);
+    }
+
+    /**
+     * Läser rader från en bil och skickar dem vidare tills bilen eller förbindelsen kopplar från.
+     *
+     * @param channel bilens kanal
+     * @param id bilens anslutningsnummer
+     * @param current förbindelsen till poängservern
+     */
+    private void serveCar(SocketChannel channel, int id, GatewayLink current) {
+        Socket socket = channel.socket();
+        ByteBuffer buffer = bufferPool.acquire();
+        Car car = null;
+        try {
+            // Med TLS går både läsning och skrivning genom TLS-kanalen
+            ReadableByteChannel input = channel;
+            OutputStream outputStream = socket.getOutputStream();
+            if (tlsContext != null) {
+                SSLEngine engine = tlsContext.createSSLEngine();
+                engine.setUseClientMode(false);
+                TlsChannel tlsChannel = new TlsChannel(channel, engine);
+                input = tlsChannel;
+                outputStream = tlsChannel.getOutputStream();
+            }
+
+            car = new Car(socket, new PrintWriter(outputStream), config.get(ServerConfig.GATEWAY_CAR_QUEUE));
+            Car writing = car;
+            car.writer = new Thread(() -> writeCar(writing), "gateway-car-writer-" + id);
+            car.writer.start();
+            cars.put(id, car);
+            System.out.println("Ny enhet ansluten: " + socket.getInetAddress());
+            if (!current.send(GatewayLink.OPEN, id, socket.getInetAddress().getHostAddress())) {
+                return;
+            }
+
+            LineFramer framer = new LineFramer(input, buffer, config.get(ServerConfig.MAX_FRAME_LENGTH));
+            IngressGuard ingress = new IngressGuard(metrics, config);
+            int maxRejectedFrames = config.get(ServerConfig.MAX_REJECTED_FRAMES);
+            int rejectedFrames = 0;
+            int result;
+            while ((result = framer.next()) != LineFramer.EOF) {
+                if (result == LineFramer.OVERSIZE) {
+                    metrics.framesRejected.increment();
+                    if (++rejectedFrames >= maxRejectedFrames) {
+                        System.out.println("⛔ " + socket.getInetAddress() + " skickar för långa rader, kopplar från");
+                        break;
+                    }
+                    continue;
+                }
+
+                CharSequence line = framer.frame();
+                if (!ingress.admit(line, socket.getInetAddress())) {
+                    continue;
+                }
+
+                // Heartbeat besvaras här, poängservern behöver inte se dem
+                if (CharSequences.startsWith(line, "PING")) {
+                    if (!car.outbox.offer("PONG")) {
+                        break;
+                    }
+                } else if (!current.send(GatewayLink.LINE, id, line)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println(" Klient frånkopplad (" + socket.getInetAddress() + "): " +
+                    (socket.isClosed() ? "stängd" : e.getMessage()));
+        } finally {
+            cars.remove(id);
+            current.send(GatewayLink.CLOSE, id, null);
+            closeQuietly(socket);
+            if (car != null) {
+                car.writer.interrupt();
+            }
+            bufferPool.release(buffer);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.out.println("Fel vid stängning av socket: " + e.getMessage());
+        }
+    }
+}
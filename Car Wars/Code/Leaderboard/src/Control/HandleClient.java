@@ -1,7 +1,10 @@
 package Control;
 
-import java.io.*;
+import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Tråd-klass som hanterar kommunikation med en enskild klient (ESP32 eller ESP8266).
@@ -22,6 +25,9 @@ public class HandleClient extends Thread {
     /** Klientanslutningsobjekt som innehåller metadata */
     private MyServer.ClientConnection clientConnection;
 
+    /** Kanal att läsa från, t.ex. en {@link TlsChannel}, eller null för socketens egen */
+    private ReadableByteChannel input;
+
     /**
      * Konstruktor för HandleClient.
      *
@@ -30,34 +36,85 @@ public class HandleClient extends Thread {
      * @param clientConnection klientanslutningsobjekt
      */
     public HandleClient(Socket socket, MyServer server, MyServer.ClientConnection clientConnection) {
+        this(socket, server, clientConnection, null);
+    }
+
+    /**
+     * Konstruktor för HandleClient med en egen läskanal.
+     *
+     * @param socket socket-anslutning till klienten
+     * @param server referens till huvudservern
+     * @param clientConnection klientanslutningsobjekt
+     * @param input kanal att läsa från, eller null för socketens egen
+     */
+    public HandleClient(Socket socket, MyServer server, MyServer.ClientConnection clientConnection,
+                        ReadableByteChannel input) {
         this.clientSocket = socket;
         this.server = server;
         this.clientConnection = clientConnection;
+        this.input = input;
     }
 
     /**
      * Huvudmetod som körs när tråden startar.
      * Lyssnar kontinuerligt på meddelanden från klienten och hanterar dem.
+     * Raderna läses med en {@link LineFramer} från en lånad direkt buffert, så
+     * minnet per klient är konstant och för långa rader kastas.
      */
     public void run() {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()))) {
-            String line;
-            while ((line = in.readLine()) != null) {
-                System.out.println(" Mottaget från " + clientSocket.getInetAddress() + ": " + line);
+        ByteBuffer buffer = server.getBufferPool().acquire();
+        try {
+            // Sockets från servern har alltid en kanal, men en vanlig socket fungerar också
+            ReadableByteChannel channel = input != null ? input
+                    : clientSocket.getChannel() != null ? clientSocket.getChannel()
+                    : Channels.newChannel(clientSocket.getInputStream());
+            ServerConfig config = server.getConfig();
+            LineFramer framer = new LineFramer(channel, buffer, config.get(ServerConfig.MAX_FRAME_LENGTH));
+            int maxRejectedFrames = config.get(ServerConfig.MAX_REJECTED_FRAMES);
+
+            int rejectedFrames = 0;
+            int result;
+            while ((result = framer.next()) != LineFramer.EOF) {
+                if (result == LineFramer.OVERSIZE) {
+                    server.getMetrics().framesRejected.increment();
+                    System.out.println("⚠️ För lång rad från " + clientConnection + " kastad");
+                    if (++rejectedFrames >= maxRejectedFrames) {
+                        System.out.println("⛔ " + clientConnection + " skickar för långa rader, kopplar från");
+                        break;
+                    }
+                    continue;
+                }
 
-                // Vidarebefordra alla meddelanden till servern för hantering
+                CharSequence line = framer.frame();
+
+                // Rader över klientens budget kastas innan de tolkas
+                if (!clientConnection.ingress.admit(line, clientConnection)) {
+                    continue;
+                }
+
+                // Vidarebefordra alla meddelanden till servern för hantering (servern loggar)
                 server.handleClientMessage(line, clientConnection);
+
+                // Efter en återanslutning fortsätter läsningen för den återupptagna sessionen
+                if (clientConnection.resumedAs != null) {
+                    clientConnection = clientConnection.resumedAs;
+                }
             }
         } catch (IOException e) {
             System.out.println(" Klient frånkopplad (" + clientSocket.getInetAddress() + "): " + e.getMessage());
         } finally {
             // Rensa upp när klienten kopplar från
-            server.removeClient(clientConnection);
+            server.removeClient(clientConnection, clientSocket);
             try {
+                // En TLS-kanal skickar close_notify innan socketen stängs
+                if (input != null) {
+                    input.close();
+                }
                 clientSocket.close();
             } catch (IOException e) {
                 System.out.println("Fel vid stängning av socket: " + e.getMessage());
             }
+            server.getBufferPool().release(buffer);
         }
     }
 }
\ No newline at end of file
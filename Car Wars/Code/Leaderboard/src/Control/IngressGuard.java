@@ -0,0 +1,188 @@
+package Control;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inkommande budget för en klientanslutning.
+ * Varje rad kostar en token. Rader över budget kastas och bara var
+ * {@link #SAMPLE_EVERY}:e loggas. En klient som fortsätter att överskrida budgeten
+ * sätts i karantän en stund, och då kastas alla rader utan att tolkas. På så sätt
+ * kan en felande bil inte tränga undan de andra bilarna eller GUI:t.
+ * Takt, skur och karantänsgräns läses från {@link ServerConfig} och kan ändras
+ * medan servern kör; budgeten byggs då om vid nästa rad.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class IngressGuard {
+
+    /** Var n:te kastad rad skrivs ut i konsolen */
+    public static final int SAMPLE_EVERY = 100;
+
+    /** Längd på fönstret för karantänsgränsen (ns) */
+    private static final long QUARANTINE_WINDOW_NANOS = 5_000_000_000L;
+
+    /** Hur länge en klient är i karantän (ns) */
+    private static final long QUARANTINE_NANOS = 10_000_000_000L;
+
+    /** Inställningar för budgeten */
+    private final ServerConfig config;
+
+    /** Budget för anslutningen (bara lästråden) */
+    private TokenBucket bucket;
+
+    /** Konfigurationsversion som budgeten byggdes för (bara lästråden) */
+    private int configVersion = -1;
+
+    /** Takt och skur som budgeten byggdes med (bara lästråden) */
+    private double rate;
+    private int burst;
+
+    /** Antal kastade rader inom ett fönster som leder till karantän (bara lästråden) */
+    private int quarantineThreshold;
+
+    /** Serverns gemensamma räknare */
+    private final ServerMetrics metrics;
+
+    /** Antal mottagna rader från anslutningen */
+    private final AtomicLong received = new AtomicLong();
+
+    /** Antal kastade rader från anslutningen */
+    private final AtomicLong shed = new AtomicLong();
+
+    /** Tidpunkt (System.nanoTime) för senast mottagna rad, 0 om ingen rad har kommit */
+    private volatile long lastReceivedNanos;
+
+    /** Tidpunkt (System.nanoTime) då karantänen upphör */
+    private volatile long quarantineUntilNanos;
+
+    /** true medan anslutningen är i karantän */
+    private volatile boolean quarantined;
+
+    /** Början på nuvarande fönster för karantänsgränsen (bara lästråden) */
+    private long windowStartNanos = System.nanoTime();
+
+    /** Kastade rader i nuvarande fönster (bara lästråden) */
+    private int shedInWindow;
+
+    /**
+     * Konstruktor för IngressGuard.
+     *
+     * @param metrics serverns gemensamma räknare
+     * @param config inställningar för takt, skur och karantän
+     */
+    public IngressGuard(ServerMetrics metrics, ServerConfig config) {
+        this.metrics = metrics;
+        this.config = config;
+    }
+
+    /**
+     * Avgör om en mottagen rad ska hanteras.
+     * Anropas av anslutningens lästråd för varje rad.
+     *
+     * @param line den mottagna raden, används bara för loggning
+     * @param source beskrivning av klienten för loggning
+     * @return true om raden ska hanteras, false om den kastas
+     */
+    public boolean admit(CharSequence line, Object source) {
+        long now = System.nanoTime();
+        if (configVersion != config.getVersion()) {
+            configure(now);
+        }
+        received.incrementAndGet();
+        lastReceivedNanos = now;
+        metrics.linesReceived.increment();
+
+        if (quarantined) {
+            if (now - quarantineUntilNanos < 0) {
+                shed.incrementAndGet();
+                metrics.linesQuarantined.increment();
+                return false;
+            }
+            quarantined = false;
+            System.out.println("✓ Karantän upphävd för " + source);
+        }
+
+        if (bucket.tryAcquire(now)) {
+            return true;
+        }
+
+        long total = shed.incrementAndGet();
+        metrics.linesShed.increment();
+
+        if (now - windowStartNanos > QUARANTINE_WINDOW_NANOS) {
+            windowStartNanos = now;
+            shedInWindow = 0;
+        }
+        if (++shedInWindow >= quarantineThreshold) {
+            shedInWindow = 0;
+            quarantineUntilNanos = now + QUARANTINE_NANOS;
+            quarantined = true;
+            metrics.quarantines.increment();
+            System.out.println("⛔ " + source + " skickar för mycket, karantän i " +
+                    QUARANTINE_NANOS / 1_000_000_000L + " s");
+        } else if (total % SAMPLE_EVERY == 1) {
+            System.out.println("⚠️ " + source + " över budget, " + total + " rader kastade (senaste: " + line + ")");
+        }
+        return false;
+    }
+
+    /**
+     * Läser om inställningarna. Budgeten byggs bara om när takt eller skur har ändrats, och
+     * behåller då de tokens som finns kvar (högst den nya skuren), så att en ändring av någon
+     * annan inställning inte fyller på hinken.
+     * Versionen läses före värdena, så en ändring mitt emellan plockas upp vid nästa rad.
+     *
+     * @param now nuvarande tid (System.nanoTime)
+     */
+    private void configure(long now) {
+        configVersion = config.getVersion();
+        double newRate = config.get(ServerConfig.INGRESS_RATE);
+        int newBurst = config.get(ServerConfig.INGRESS_BURST);
+        if (bucket == null) {
+            bucket = new TokenBucket(newRate, newBurst);
+        } else if (newRate != rate || newBurst != burst) {
+            bucket = bucket.resize(newRate, newBurst, now);
+        }
+        rate = newRate;
+        burst = newBurst;
+        quarantineThreshold = config.get(ServerConfig.QUARANTINE_THRESHOLD);
+    }
+
+    /**
+     * Får antal mottagna rader från anslutningen.
+     *
+     * @return antal rader
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Får antal kastade rader från anslutningen.
+     *
+     * @return antal rader
+     */
+    public long getShed() {
+        return shed.get();
+    }
+
+    /**
+     * Får tidpunkten för den senast mottagna raden, även om den kastades.
+     *
+     * @return System.nanoTime för raden, 0 om ingen rad har kommit
+     */
+    public long getLastReceivedNanos() {
+        return lastReceivedNanos;
+    }
+
+    /**
+     * Anger om anslutningen är i karantän.
+     *
+     * @return true under karantän
+     */
+    public boolean isQuarantined() {
+        return quarantined;
+    }
+}
@@ -0,0 +1,226 @@
+package Control;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Delar upp en byteström i rader med begränsad längd.
+ * Läser från en {@link ReadableByteChannel} till en direkt buffert, avkodar UTF-8
+ * för hand till en fast teckenbuffert och lämnar ut varje rad som en återanvänd
+ * {@link CharSequence}. Minnet per anslutning är därmed konstant: en rad som är
+ * längre än maxlängden kastas i stället för att buffras. Kanalen kan vara en
+ * vanlig SocketChannel eller en kanal som dekrypterar TLS.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class LineFramer {
+
+    /** En hel rad finns i {@link #frame()} */
+    public static final int FRAME = 1;
+
+    /** En för lång rad har kastats */
+    public static final int OVERSIZE = 2;
+
+    /** Strömmen är slut */
+    public static final int EOF = -1;
+
+    /** Ersättningstecken för felaktig UTF-8 */
+    private static final char REPLACEMENT = '\uFFFD';
+
+    /** Kanalen som läses */
+    private final ReadableByteChannel channel;
+
+    /** Lånad direkt buffert, i läsläge mellan anropen */
+    private final ByteBuffer buffer;
+
+    /** Avkodade tecken för nuvarande rad */
+    private final char[] chars;
+
+    /** Återanvänd vy över nuvarande rad */
+    private final Frame frame = new Frame();
+
+    /** Antal tecken i nuvarande rad */
+    private int length;
+
+    /** true om nuvarande rad har blivit för lång och kastas till radslut */
+    private boolean overflow;
+
+    /** Kodpunkt under avkodning av en flerbytesekvens */
+    private int codePoint;
+
+    /** Antal fortsättningsbyte som återstår i nuvarande sekvens */
+    private int pending;
+
+    /** Minsta tillåtna kodpunkt för nuvarande sekvens (skydd mot överlånga kodningar) */
+    private int minCodePoint;
+
+    /**
+     * Konstruktor för LineFramer.
+     *
+     * @param channel kanalen som läses
+     * @param buffer buffert att läsa till, t.ex. från en {@link BufferPool}
+     * @param maxFrameLength max antal tecken per rad
+     */
+    public LineFramer(ReadableByteChannel channel, ByteBuffer buffer, int maxFrameLength) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.chars = new char[maxFrameLength];
+        buffer.clear().flip(); // Tom buffert i läsläge
+    }
+
+    /**
+     * Läser nästa rad. Blockerar tills en hel rad har kommit eller strömmen är slut.
+     * Vyn från {@link #frame()} är bara giltig fram till nästa anrop.
+     *
+     * @return {@link #FRAME}, {@link #OVERSIZE} eller {@link #EOF}
+     * @throws IOException om läsningen misslyckas
+     */
+    public int next() throws IOException {
+        while (true) {
+            while (buffer.hasRemaining()) {
+                int result = accept(buffer.get());
+                if (result != 0) {
+                    return result;
+                }
+            }
+
+            buffer.clear();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                // Sista raden utan radslut räknas som en rad, precis som readLine
+                if (length > 0 || overflow || pending > 0) {
+                    return endFrame();
+                }
+                return EOF;
+            }
+        }
+    }
+
+    /**
+     * Får nuvarande rad.
+     *
+     * @return vy över raden, giltig fram till nästa {@link #next()}
+     */
+    public CharSequence frame() {
+        return frame;
+    }
+
+    /**
+     * Avkodar en byte.
+     *
+     * @return 0 om raden inte är klar, annars resultatet för raden
+     */
+    private int accept(byte value) {
+        int b = value & 0xFF;
+        if (pending > 0) {
+            if ((b & 0xC0) == 0x80) {
+                codePoint = (codePoint << 6) | (b & 0x3F);
+                if (--pending == 0) {
+                    appendCodePoint(codePoint);
+                }
+                return 0;
+            }
+            // Avbruten sekvens: ersätt den och tolka byten på nytt
+            pending = 0;
+            append(REPLACEMENT);
+        }
+
+        if (b < 0x80) {
+            if (b == '\n') {
+                return endFrame();
+            }
+            append((char) b);
+        } else if ((b & 0xE0) == 0xC0) {
+            start(b & 0x1F, 1, 0x80);
+        } else if ((b & 0xF0) == 0xE0) {
+            start(b & 0x0F, 2, 0x800);
+        } else if ((b & 0xF8) == 0xF0) {
+            start(b & 0x07, 3, 0x10000);
+        } else {
+            append(REPLACEMENT);
+        }
+        return 0;
+    }
+
+    private void start(int bits, int continuationBytes, int minimum) {
+        codePoint = bits;
+        pending = continuationBytes;
+        minCodePoint = minimum;
+    }
+
+    private void appendCodePoint(int cp) {
+        if (cp < minCodePoint || cp > Character.MAX_CODE_POINT || (cp >= 0xD800 && cp <= 0xDFFF)) {
+            append(REPLACEMENT);
+        } else if (cp >= 0x10000) {
+            append(Character.highSurrogate(cp));
+            append(Character.lowSurrogate(cp));
+        } else {
+            append((char) cp);
+        }
+    }
+
+    private void append(char c) {
+        if (length < chars.length) {
+            chars[length++] = c;
+        } else {
+            overflow = true;
+        }
+    }
+
+    /**
+     * Avslutar nuvarande rad och återställer avkodningen.
+     */
+    private int endFrame() {
+        if (pending > 0) {
+            pending = 0;
+            append(REPLACEMENT);
+        }
+        boolean rejected = overflow;
+        int end = length;
+        // "\r\n" som radslut, precis som readLine
+        if (end > 0 && chars[end - 1] == '\r') {
+            end--;
+        }
+        frame.length = end;
+        length = 0;
+        overflow = false;
+        return rejected ? OVERSIZE : FRAME;
+    }
+
+    /**
+     * Vy över teckenbufferten för nuvarande rad.
+     */
+    private final class Frame implements CharSequence {
+        int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index " + index + ", längd " + length);
+            }
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException("start " + start + ", slut " + end + ", längd " + length);
+            }
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
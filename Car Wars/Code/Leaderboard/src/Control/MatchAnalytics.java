@@ -0,0 +1,571 @@
+package Control;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Statistik i efterhand över alla matcher i händelsejournalen ({@link EventJournal}).
+ * Varje journalfil minnesmappas och läses sekventiellt, filerna läses parallellt och
+ * delresultaten slås sedan ihop. Resultatet skrivs som CSV-filer och en JSON-fil:
+ * träffar per bil, skada över tid, tid till utslagning och inbördes möten.
+ * En trasig post, t.ex. en som inte hann skrivas klart före en omstart som sedan fortsatte
+ * i samma dagfil, gör bara att matchen den tillhörde räknas som oavslutad; läsningen
+ * fortsätter vid nästa matchstart.
+ *
+ * Körs från kommandoraden: {@code java Control.MatchAnalytics [journalkatalog] [utkatalog]}
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MatchAnalytics {
+
+    /** Längd på ett tidsintervall i statistiken (ms) */
+    public static final int BUCKET_MILLIS = 10000;
+
+    /** Antal tidsintervall, det sista samlar allt som är senare */
+    public static final int BUCKETS = 60;
+
+    /**
+     * Statistik för en bil över alla matcher.
+     */
+    public static class CarSummary {
+        /** Bilens namn */
+        public final String carName;
+
+        /** Antal matcher */
+        public int matches;
+
+        /** Antal vinster */
+        public int wins;
+
+        /** Antal krockar */
+        public int crashes;
+
+        /** Antal straff */
+        public int penalties;
+
+        /** Antal gånger bilen slogs ut */
+        public int eliminations;
+
+        /** Summa av tiderna till utslagning (ms) */
+        public long eliminationMillis;
+
+        /** Träffar som gav skada, per tidsintervall sedan matchstart */
+        public final long[] damage = new long[BUCKETS];
+
+        /**
+         * Konstruktor för CarSummary.
+         *
+         * @param carName bilens namn
+         */
+        public CarSummary(String carName) {
+            this.carName = carName;
+        }
+
+        /**
+         * Lägger till en annan sammanställning för samma bil.
+         *
+         * @param other sammanställningen att lägga till
+         */
+        void add(CarSummary other) {
+            matches += other.matches;
+            wins += other.wins;
+            crashes += other.crashes;
+            penalties += other.penalties;
+            eliminations += other.eliminations;
+            eliminationMillis += other.eliminationMillis;
+            for (int i = 0; i < BUCKETS; i++) {
+                damage[i] += other.damage[i];
+            }
+        }
+    }
+
+    /**
+     * Resultatet av en analys, för en fil eller ihopslaget för alla filer.
+     */
+    public static class Report {
+        /** Antal avslutade matcher */
+        public int matches;
+
+        /** Antal matcher utan matchslut i journalen */
+        public int unfinished;
+
+        /** Antal lästa träffar */
+        public long hits;
+
+        /** Antal filer som slutade med en trasig post */
+        public int damagedFiles;
+
+        /** Statistik per bilnamn */
+        public final Map<String, CarSummary> cars = new TreeMap<>();
+
+        /** Antal utslagningar per tidsintervall sedan matchstart */
+        public final long[] eliminationTimes = new long[BUCKETS];
+
+        /** Antal gånger bilen (yttre nyckel) klarade sig längre än motståndaren (inre nyckel) */
+        public final Map<String, Map<String, Integer>> headToHead = new TreeMap<>();
+
+        /**
+         * Slår ihop en annan rapport med denna.
+         *
+         * @param other rapporten att lägga till
+         * @return denna rapport
+         */
+        Report merge(Report other) {
+            matches += other.matches;
+            unfinished += other.unfinished;
+            hits += other.hits;
+            damagedFiles += other.damagedFiles;
+            other.cars.forEach((name, summary) -> car(name).add(summary));
+            for (int i = 0; i < BUCKETS; i++) {
+                eliminationTimes[i] += other.eliminationTimes[i];
+            }
+            other.headToHead.forEach((name, row) ->
+                    row.forEach((opponent, count) -> headToHead.computeIfAbsent(name, key -> new TreeMap<>())
+                            .merge(opponent, count, Integer::sum)));
+            return this;
+        }
+
+        CarSummary car(String carName) {
+            return cars.computeIfAbsent(carName, CarSummary::new);
+        }
+    }
+
+    /**
+     * En match som läses.
+     */
+    private static class MatchState {
+        final String[] carNames;
+        final int[] teams;
+        final int[] eliminatedAt;
+
+        /** true om hälsan i matchens träffar är en short, false i det äldre formatet med en byte */
+        boolean shortHealth = true;
+
+        MatchState(int carCount) {
+            carNames = new String[carCount];
+            teams = new int[carCount];
+            eliminatedAt = new int[carCount];
+            Arrays.fill(eliminatedAt, -1);
+        }
+    }
+
+    /**
+     * Läser journalen och skriver rapporterna.
+     *
+     * @param args journalkatalog och utkatalog (standard "journal" och "analytics")
+     */
+    public static void main(String[] args) {
+        Path journal = Paths.get(args.length > 0 ? args[0] : "journal");
+        Path output = Paths.get(args.length > 1 ? args[1] : "analytics");
+        try {
+            long start = System.nanoTime();
+            List<Path> files = listFiles(journal);
+            Report report = analyze(files);
+            long readMillis = (System.nanoTime() - start) / 1000000;
+            write(report, output);
+            System.out.println("📊 " + report.matches + " matcher (" + report.unfinished + " ofullständiga), "
+                    + report.hits + " träffar från " + files.size() + " filer på " + readMillis + " ms");
+            if (report.damagedFiles > 0) {
+                System.out.println("Varning: " + report.damagedFiles + " filer slutade med en trasig post");
+            }
+            System.out.println("Rapporter sparade i " + output.toAbsolutePath());
+        } catch (IOException e) {
+            System.out.println("Fel: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Får alla journalfiler i en katalog, äldsta först.
+     *
+     * @param directory journalkatalogen
+     * @return journalfilerna
+     * @throws IOException om katalogen inte kan läsas
+     */
+    public static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(EventJournal.FILE_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Analyserar journalfiler parallellt, en fil per uppgift.
+     *
+     * @param files journalfilerna
+     * @return ihopslagen rapport
+     */
+    public static Report analyze(List<Path> files) {
+        return files.parallelStream()
+                .map(MatchAnalytics::scan)
+                .reduce(Report::merge)
+                .orElseGet(Report::new);
+    }
+
+    /**
+     * Läser en journalfil sekventiellt via minnesmappning. Vid en trasig post söks filen
+     * igenom efter nästa matchstart (typ och magiskt tal), med början strax efter posten
+     * före den trasiga, eftersom en avbruten post kan ha slukat början av nästa.
+     *
+     * @param file journalfilen
+     * @return rapport för filen
+     */
+    static Report scan(Path file) {
+        Report report = new Report();
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+        } catch (IOException e) {
+            System.out.println("Kunde inte läsa " + file + ": " + e.getMessage());
+            report.damagedFiles++;
+            return report;
+        }
+
+        MatchState match = null;
+        boolean shortHealth = true;
+        boolean damaged = false;
+        int previousStart = -1;
+        while (buffer.hasRemaining()) {
+            int recordStart = buffer.position();
+            try {
+                byte type = buffer.get();
+                if (type == EventJournal.MATCH_START) {
+                    MatchState started = readStart(buffer);
+                    if (match != null) {
+                        report.unfinished++;
+                        finish(match, report, Integer.MIN_VALUE);
+                    }
+                    match = started;
+                    shortHealth = match.shortHealth;
+                    for (String carName : match.carNames) {
+                        report.car(carName).matches++;
+                    }
+                } else if (type == EventJournal.HIT) {
+                    int millis = buffer.getInt();
+                    int slot = buffer.get() & 0xFF;
+                    int health = shortHealth ? buffer.getShort() : buffer.get();
+                    byte kind = buffer.get();
+                    if (kind != EventJournal.KIND_CRASH && kind != EventJournal.KIND_PENALTY
+                            || match != null && slot >= match.carNames.length) {
+                        throw new IllegalArgumentException("Felaktig träff");
+                    }
+                    if (match != null) {
+                        hit(match, report, slot, millis, health, kind);
+                    }
+                } else if (type == EventJournal.MATCH_END) {
+                    buffer.getInt();
+                    int winnerTeam = buffer.get();
+                    if (match != null) {
+                        report.matches++;
+                        finish(match, report, winnerTeam);
+                        match = null;
+                    }
+                } else {
+                    throw new IllegalArgumentException("Okänd posttyp " + type);
+                }
+                previousStart = recordStart;
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // Matchen som posten tillhörde går inte att följa längre
+                damaged = true;
+                if (match != null) {
+                    report.unfinished++;
+                    finish(match, report, Integer.MIN_VALUE);
+                    match = null;
+                }
+                int next = nextMatchStart(buffer, previousStart + 1);
+                if (next < 0) {
+                    break;
+                }
+                buffer.position(next);
+                previousStart = next;
+            }
+        }
+        if (damaged) {
+            report.damagedFiles++;
+        }
+        if (match != null) {
+            report.unfinished++;
+            finish(match, report, Integer.MIN_VALUE);
+        }
+        return report;
+    }
+
+    /**
+     * Söker efter nästa matchstart: typen följd av ett känt magiskt tal.
+     *
+     * @param buffer journalfilen
+     * @param from första position att söka från
+     * @return matchstartens position, eller -1 om det inte finns någon
+     */
+    private static int nextMatchStart(ByteBuffer buffer, int from) {
+        for (int i = Math.max(from, 0); i + 5 <= buffer.limit(); i++) {
+            if (buffer.get(i) == EventJournal.MATCH_START) {
+                int magic = buffer.getInt(i + 1);
+                if (magic == EventJournal.MAGIC || magic == EventJournal.MAGIC_V1) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Läser en matchstart. Bilarna räknas först när hela posten har lästs.
+     */
+    private static MatchState readStart(ByteBuffer buffer) {
+        int magic = buffer.getInt();
+        if (magic != EventJournal.MAGIC && magic != EventJournal.MAGIC_V1) {
+            throw new IllegalArgumentException("Felaktig matchstart");
+        }
+        buffer.getLong(); // Starttid
+        buffer.getShort(); // Starthälsa
+        MatchState match = new MatchState(buffer.get() & 0xFF);
+        match.shortHealth = magic == EventJournal.MAGIC;
+        for (int slot = 0; slot < match.carNames.length; slot++) {
+            match.teams[slot] = buffer.get();
+            readText(buffer); // Bil-ID
+            match.carNames[slot] = readText(buffer);
+            readText(buffer); // Spelarnamn
+        }
+        return match;
+    }
+
+    /**
+     * Räknar en krock eller ett straff.
+     */
+    private static void hit(MatchState match, Report report, int slot, int millis, int health, byte kind) {
+        report.hits++;
+        CarSummary car = report.car(match.carNames[slot]);
+        if (kind == EventJournal.KIND_CRASH) {
+            car.crashes++;
+        } else {
+            car.penalties++;
+        }
+
+        // Träffar på en redan utslagen bil ger ingen skada
+        if (match.eliminatedAt[slot] >= 0) {
+            return;
+        }
+        int bucket = Math.min(Math.max(millis, 0) / BUCKET_MILLIS, BUCKETS - 1);
+        car.damage[bucket]++;
+        if (health <= 0) {
+            match.eliminatedAt[slot] = Math.max(millis, 0);
+            car.eliminations++;
+            car.eliminationMillis += match.eliminatedAt[slot];
+            report.eliminationTimes[bucket]++;
+        }
+    }
+
+    /**
+     * Räknar vinster och inbördes möten när en match är slut.
+     *
+     * @param winnerTeam vinnande lag, -1 vid oavgjort eller Integer.MIN_VALUE om matchen inte avslutades
+     */
+    private static void finish(MatchState match, Report report, int winnerTeam) {
+        for (int a = 0; a < match.carNames.length; a++) {
+            if (winnerTeam >= 0 && match.teams[a] == winnerTeam) {
+                report.car(match.carNames[a]).wins++;
+            }
+            for (int b = 0; b < match.carNames.length; b++) {
+                int eliminatedA = match.eliminatedAt[a];
+                int eliminatedB = match.eliminatedAt[b];
+                if (match.teams[a] == match.teams[b] || match.carNames[a].equals(match.carNames[b]) || eliminatedB < 0) {
+                    continue;
+                }
+                if (eliminatedA < 0 || eliminatedA > eliminatedB) {
+                    report.headToHead.computeIfAbsent(match.carNames[a], key -> new TreeMap<>())
+                            .merge(match.carNames[b], 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    private static String readText(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            throw new IllegalArgumentException("Felaktig textlängd");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skriver rapporten som CSV-filer och en JSON-fil.
+     *
+     * @param report rapporten
+     * @param directory utkatalog
+     * @throws IOException om filerna inte kan skrivas
+     */
+    public static void write(Report report, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<String> names = new ArrayList<>(report.cars.keySet());
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(directory.resolve("cars.csv")))) {
+            out.println("car,matches,wins,crashes,penalties,hits_per_match,eliminations,mean_elimination_s");
+            for (CarSummary car : report.cars.values()) {
+                out.println(csv(car.carName) + "," + car.matches + "," + car.wins + "," + car.crashes + ","
+                        + car.penalties + "," + decimal(hitsPerMatch(car)) + "," + car.eliminations + ","
+                        + decimal(meanEliminationSeconds(car)));
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(directory.resolve("damage_over_time.csv")))) {
+            out.println("car,t_s,mean_cumulative_damage");
+            for (CarSummary car : report.cars.values()) {
+                double[] curve = damageCurve(car);
+                for (int i = 0; i < BUCKETS; i++) {
+                    out.println(csv(car.carName) + "," + (i + 1) * BUCKET_MILLIS / 1000 + "," + decimal(curve[i]));
+                }
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(directory.resolve("elimination_times.csv")))) {
+            out.println("from_s,to_s,eliminations");
+            for (int i = 0; i < BUCKETS; i++) {
+                out.println(i * BUCKET_MILLIS / 1000 + "," + (i < BUCKETS - 1 ? String.valueOf((i + 1) * BUCKET_MILLIS / 1000) : "")
+                        + "," + report.eliminationTimes[i]);
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(directory.resolve("head_to_head.csv")))) {
+            StringBuilder header = new StringBuilder("car");
+            for (String name : names) {
+                header.append(',').append(csv(name));
+            }
+            out.println(header);
+            for (String name : names) {
+                StringBuilder row = new StringBuilder(csv(name));
+                Map<String, Integer> wins = report.headToHead.getOrDefault(name, Map.of());
+                for (String opponent : names) {
+                    row.append(',').append(wins.getOrDefault(opponent, 0));
+                }
+                out.println(row);
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(directory.resolve("report.json")))) {
+            out.println(json(report));
+        }
+    }
+
+    /**
+     * Skapar rapporten som JSON.
+     *
+     * @param report rapporten
+     * @return JSON-text
+     */
+    public static String json(Report report) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"matches\":").append(report.matches)
+                .append(",\"unfinished\":").append(report.unfinished)
+                .append(",\"hits\":").append(report.hits)
+                .append(",\"bucketSeconds\":").append(BUCKET_MILLIS / 1000)
+                .append(",\"cars\":[");
+        boolean first = true;
+        for (CarSummary car : report.cars.values()) {
+            json.append(first ? "" : ",");
+            first = false;
+            json.append("{\"car\":").append(quote(car.carName))
+                    .append(",\"matches\":").append(car.matches)
+                    .append(",\"wins\":").append(car.wins)
+                    .append(",\"crashes\":").append(car.crashes)
+                    .append(",\"penalties\":").append(car.penalties)
+                    .append(",\"hitsPerMatch\":").append(decimal(hitsPerMatch(car)))
+                    .append(",\"eliminations\":").append(car.eliminations)
+                    .append(",\"meanEliminationSeconds\":").append(decimal(meanEliminationSeconds(car)))
+                    .append(",\"damageOverTime\":[");
+            double[] curve = damageCurve(car);
+            for (int i = 0; i < BUCKETS; i++) {
+                json.append(i > 0 ? "," : "").append(decimal(curve[i]));
+            }
+            json.append("]}");
+        }
+        json.append("],\"eliminationTimes\":[");
+        for (int i = 0; i < BUCKETS; i++) {
+            json.append(i > 0 ? "," : "").append(report.eliminationTimes[i]);
+        }
+        json.append("],\"headToHead\":{");
+        first = true;
+        for (Map.Entry<String, Map<String, Integer>> row : report.headToHead.entrySet()) {
+            json.append(first ? "" : ",").append(quote(row.getKey())).append(":{");
+            first = false;
+            boolean firstOpponent = true;
+            for (Map.Entry<String, Integer> cell : row.getValue().entrySet()) {
+                json.append(firstOpponent ? "" : ",").append(quote(cell.getKey())).append(':').append(cell.getValue());
+                firstOpponent = false;
+            }
+            json.append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    private static double hitsPerMatch(CarSummary car) {
+        return car.matches > 0 ? (double) (car.crashes + car.penalties) / car.matches : 0;
+    }
+
+    private static double meanEliminationSeconds(CarSummary car) {
+        return car.eliminations > 0 ? car.eliminationMillis / 1000.0 / car.eliminations : 0;
+    }
+
+    /**
+     * Medelskada per match fram till slutet av varje tidsintervall.
+     */
+    private static double[] damageCurve(CarSummary car) {
+        double[] curve = new double[BUCKETS];
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += car.damage[i];
+            curve[i] = car.matches > 0 ? (double) cumulative / car.matches : 0;
+        }
+        return curve;
+    }
+
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Skapar en JSON-sträng med escaping av specialtecken.
+     */
+    private static String quote(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,480 @@
+package Control;
+
+import Model.CarTable;
+import Model.ColumnarMatchFile;
+import Model.MatchResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporterar varje match som en kolumnfil ({@link ColumnarMatchFile}) medan den pågår.
+ * Händelser läggs i primitiva kolumnarrayer och lämnas som en radgrupp till exporttråden
+ * varje sekund eller när gruppen är full, så analytiker kan läsa filen redan under matchen.
+ * När matchen är slut skrivs ett slut med radgruppernas positioner och vinnaren.
+ * Lyssnarna gör ingen disk-I/O: filer öppnas, kodas och skrivs bara av exporttråden.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MatchExporter extends Thread implements ServerEventListener {
+
+    /** Max antal rader per radgrupp */
+    private static final int GROUP_ROWS = 4096;
+
+    /** Tid mellan radgrupperna (ms) */
+    private static final int FLUSH_INTERVAL_MILLIS = 1000;
+
+    /** Längsta tid en händelse väntar på att exporttråden lämnar tillbaka en radgrupp (ms) */
+    private static final int ROOM_WAIT_MILLIS = 50;
+
+    /** Sista posten i kön, får exporttråden att avsluta */
+    private static final Object CLOSE = new Object();
+
+    /** Katalog för kolumnfilerna */
+    private final Path directory;
+
+    /** Servern, för lagindelningen */
+    private final MyServer server;
+
+    /** Arbete för exporttråden: matchstarter, radgrupper och matchslut i ordning */
+    private final BlockingQueue<Object> work = new LinkedBlockingQueue<>();
+
+    /** Radgrupp som lyssnarna fyller */
+    private RowGroup filling = new RowGroup();
+
+    /** Tom radgrupp att byta till, null medan exporttråden har den */
+    private RowGroup spare = new RowGroup();
+
+    /** Rader som inte fick plats för att exporttråden inte hann med */
+    private long dropped;
+
+    /** Biltabellen för pågående match, null mellan matcherna */
+    private CarTable cars;
+
+    /** Starttid för pågående match (ms) */
+    private long matchStartMillis;
+
+    /** Buffert för en kodad radgrupp, återanvänds (bara exporttråden) */
+    private final ByteBuffer encoded = ByteBuffer.allocate(64 + GROUP_ROWS * 14);
+
+    /** Fil för pågående match, null mellan matcherna (bara exporttråden) */
+    private FileChannel channel;
+
+    /** Position och antal rader per skriven radgrupp (bara exporttråden) */
+    private long[] groupOffsets = new long[16];
+    private int[] groupRows = new int[16];
+    private int groups;
+
+    /**
+     * Kolumner för rader som inte har skrivits än.
+     */
+    private static class RowGroup {
+        final int[] time = new int[GROUP_ROWS];
+        final byte[] car = new byte[GROUP_ROWS];
+        final byte[] event = new byte[GROUP_ROWS];
+        final short[] health = new short[GROUP_ROWS];
+        int rows;
+    }
+
+    /**
+     * Början på en ny fil: filen och dess huvud.
+     */
+    private static class Start {
+        final Path file;
+        final ByteBuffer header;
+
+        Start(Path file, ByteBuffer header) {
+            this.file = file;
+            this.header = header;
+        }
+    }
+
+    /**
+     * Slutet på en match.
+     */
+    private static class End {
+        final int winnerTeam;
+        final long endTimeMillis;
+
+        End(int winnerTeam, long endTimeMillis) {
+            this.winnerTeam = winnerTeam;
+            this.endTimeMillis = endTimeMillis;
+        }
+    }
+
+    /**
+     * Konstruktor för MatchExporter.
+     *
+     * @param directory katalog för kolumnfilerna
+     * @param server servern, för lagindelningen
+     * @throws IOException om katalogen inte kan skapas
+     */
+    public MatchExporter(Path directory, MyServer server) throws IOException {
+        super("match-exporter");
+        setDaemon(true);
+        this.directory = directory;
+        this.server = server;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Skriver köade filstarter, radgrupper och slut, och lämnar över väntande rader varje sekund,
+     * tills exporten stängs. All disk-I/O görs här, utan exportens lås.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Object item = work.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (item == null) {
+                    synchronized (this) {
+                        if (filling.rows > 0) {
+                            handOff();
+                        }
+                    }
+                } else if (item == CLOSE) {
+                    break;
+                } else {
+                    process(item);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeFile();
+    }
+
+    /**
+     * Skriver kvarvarande rader och stänger filen, utan slut om matchen pågår.
+     */
+    public void close() {
+        synchronized (this) {
+            handOffRows();
+            work.add(CLOSE);
+        }
+        if (!isAlive()) {
+            // Tråden startades aldrig, skriv klart här
+            for (Object item = work.poll(); item != null && item != CLOSE; item = work.poll()) {
+                process(item);
+            }
+            closeFile();
+            return;
+        }
+        try {
+            join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void matchStarted(CarTable table) {
+        // En avbruten match får ingen slutdel, men radgrupperna går att läsa
+        handOffRows();
+
+        cars = table;
+        matchStartMillis = System.currentTimeMillis();
+        Path file = directory.resolve("match-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(matchStartMillis))
+                + ColumnarMatchFile.FILE_SUFFIX);
+        work.add(new Start(file, header(table)));
+    }
+
+    @Override
+    public synchronized void carHit(int slot, int newHealth, boolean crash) {
+        addRow(slot, crash ? ColumnarMatchFile.EVENT_CRASH : ColumnarMatchFile.EVENT_PENALTY, newHealth);
+    }
+
+    @Override
+    public synchronized void clientIdentified(MyServer.ClientConnection client) {
+        carConnection(client, ColumnarMatchFile.EVENT_CONNECTED);
+    }
+
+    @Override
+    public synchronized void clientDisconnected(MyServer.ClientConnection client) {
+        carConnection(client, ColumnarMatchFile.EVENT_DISCONNECTED);
+    }
+
+    @Override
+    public synchronized void matchOver(MatchResult result) {
+        if (cars == null) {
+            return;
+        }
+        handOffRows();
+        work.add(new End(result.winnerTeam, result.endTimeMillis));
+        cars = null;
+    }
+
+    /**
+     * Lägger till en rad för en anslutande eller frånkopplad bil.
+     */
+    private void carConnection(MyServer.ClientConnection client, byte type) {
+        CarTable table = cars;
+        if (table == null || client.carId == null) {
+            return;
+        }
+        int slot = table.slotOf(client.carId);
+        if (slot >= 0) {
+            addRow(slot, type, table.getHealth(slot));
+        }
+    }
+
+    /**
+     * Lägger till en rad i kolumnerna och lämnar över radgruppen till exporttråden om den är full.
+     */
+    private void addRow(int slot, byte type, int newHealth) {
+        if (cars == null) {
+            return;
+        }
+        if (filling.rows == GROUP_ROWS && !(ensureSpare() && handOff())) {
+            dropped++;
+            return;
+        }
+        RowGroup group = filling;
+        int row = group.rows;
+        group.time[row] = (int) (System.currentTimeMillis() - matchStartMillis);
+        group.car[row] = (byte) slot;
+        group.event[row] = type;
+        group.health[row] = (short) newHealth;
+        if (++group.rows == GROUP_ROWS) {
+            handOff();
+        }
+    }
+
+    /**
+     * Lämnar över väntande rader innan matchen byts eller exporten stängs.
+     * Rader som inte kan lämnas över i tid kastas, så att de inte hamnar i nästa matchs fil.
+     */
+    private void handOffRows() {
+        if (filling.rows > 0 && !(ensureSpare() && handOff())) {
+            dropped += filling.rows;
+            filling.rows = 0;
+        }
+    }
+
+    /**
+     * Väntar en kort stund på att exporttråden lämnar tillbaka den tomma radgruppen.
+     * Låset släpps under väntan. Anropas med exportens lås.
+     *
+     * @return false om radgruppen inte kom tillbaka i tid
+     */
+    private boolean ensureSpare() {
+        long deadline = System.nanoTime() + ROOM_WAIT_MILLIS * 1_000_000L;
+        while (spare == null) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                return false;
+            }
+            try {
+                wait(Math.max(1, left / 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lämnar över radgruppen till exporttråden och byter till den tomma. Anropas med exportens lås.
+     *
+     * @return false om exporttråden fortfarande har den andra radgruppen
+     */
+    private boolean handOff() {
+        if (spare == null) {
+            return false;
+        }
+        work.add(filling);
+        filling = spare;
+        spare = null;
+        return true;
+    }
+
+    /**
+     * Utför ett köat arbete. Anropas bara av exporttråden (eller close() när tråden inte körs).
+     *
+     * @param item filstart, radgrupp eller slut
+     */
+    private void process(Object item) {
+        if (item instanceof RowGroup) {
+            RowGroup group = (RowGroup) item;
+            writeGroup(group);
+            long lost;
+            synchronized (this) {
+                group.rows = 0;
+                spare = group;
+                lost = dropped;
+                dropped = 0;
+                notifyAll();
+            }
+            if (lost > 0) {
+                System.out.println("Exporten hann inte med, " + lost + " rader kastades");
+            }
+        } else if (item instanceof Start) {
+            openFile((Start) item);
+        } else if (item instanceof End) {
+            writeFooter((End) item);
+        }
+    }
+
+    /**
+     * Skapar filen för en ny match och skriver huvudet. En tidigare fil utan slut stängs.
+     */
+    private void openFile(Start start) {
+        closeFile();
+        groups = 0;
+        try {
+            channel = FileChannel.open(start.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            write(start.header);
+        } catch (IOException e) {
+            System.out.println("Kunde inte skapa exportfilen: " + e.getMessage());
+            closeFile();
+        }
+    }
+
+    /**
+     * Skriver slutet med radgruppernas positioner och vinnaren, och stänger filen.
+     */
+    private void writeFooter(End end) {
+        if (channel == null) {
+            return;
+        }
+        ByteBuffer footer = ByteBuffer.allocate(32 + groups * 12);
+        try {
+            int footerStart = (int) channel.position();
+            footer.put(ColumnarMatchFile.FOOTER).putInt(groups);
+            for (int i = 0; i < groups; i++) {
+                footer.putLong(groupOffsets[i]).putInt(groupRows[i]);
+            }
+            footer.put((byte) end.winnerTeam).putLong(end.endTimeMillis);
+            footer.putInt(footerStart).putInt(ColumnarMatchFile.END_MAGIC);
+            footer.flip();
+            write(footer);
+            channel.force(false);
+        } catch (IOException e) {
+            System.out.println("Kunde inte avsluta exportfilen: " + e.getMessage());
+        }
+        closeFile();
+    }
+
+    /**
+     * Kodar och skriver en radgrupp.
+     */
+    private void writeGroup(RowGroup group) {
+        int rows = group.rows;
+        if (rows == 0 || channel == null) {
+            return;
+        }
+        int[] time = group.time;
+        encoded.clear();
+        encoded.put(ColumnarMatchFile.ROW_GROUP).putInt(rows);
+
+        // Tid: skillnad mot föregående rad som zigzag-varint
+        int lengthPosition = encoded.position();
+        encoded.putInt(0);
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            long delta = time[row] - previous;
+            ColumnarMatchFile.writeVarLong(encoded, (delta << 1) ^ (delta >> 63));
+            previous = time[row];
+        }
+        encoded.putInt(lengthPosition, encoded.position() - lengthPosition - 4);
+
+        // Bil (index i lexikonet) och händelse: en byte per rad, hälsa: en short per rad
+        encoded.putInt(rows).put(group.car, 0, rows);
+        encoded.putInt(rows).put(group.event, 0, rows);
+        encoded.putInt(rows * 2);
+        encoded.asShortBuffer().put(group.health, 0, rows);
+        encoded.position(encoded.position() + rows * 2);
+        encoded.flip();
+
+        try {
+            if (groups == groupOffsets.length) {
+                groupOffsets = Arrays.copyOf(groupOffsets, groups * 2);
+                groupRows = Arrays.copyOf(groupRows, groups * 2);
+            }
+            groupOffsets[groups] = channel.position();
+            groupRows[groups] = rows;
+            write(encoded);
+            groups++;
+        } catch (IOException e) {
+            System.out.println("Kunde inte skriva exportfilen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Skapar huvud, schema och lexikon för en match.
+     *
+     * @param table matchens biltabell
+     * @return bufferten, redo att skrivas
+     */
+    private ByteBuffer header(CarTable table) {
+        // Lexikon med varje text en gång
+        Map<String, Integer> texts = new LinkedHashMap<>();
+        int[][] indexes = new int[table.size()][3];
+        for (int slot = 0; slot < table.size(); slot++) {
+            String[] values = {table.getCarId(slot), table.getCarName(slot), table.getPlayerName(slot)};
+            for (int i = 0; i < 3; i++) {
+                String value = values[i] != null ? values[i] : "";
+                Integer index = texts.putIfAbsent(value, texts.size());
+                indexes[slot][i] = index != null ? index : texts.size() - 1;
+            }
+        }
+
+        int size = 64 + table.size() * 16;
+        for (String text : texts.keySet()) {
+            size += 5 + text.length() * 3;
+        }
+        ByteBuffer header = ByteBuffer.allocate(size);
+        header.putInt(ColumnarMatchFile.MAGIC).putShort(ColumnarMatchFile.VERSION).putLong(matchStartMillis);
+        header.put((byte) ColumnarMatchFile.COLUMN_NAMES.length);
+        for (int i = 0; i < ColumnarMatchFile.COLUMN_NAMES.length; i++) {
+            ColumnarMatchFile.writeText(header, ColumnarMatchFile.COLUMN_NAMES[i]);
+            header.put(ColumnarMatchFile.COLUMN_ENCODINGS[i]);
+        }
+        ColumnarMatchFile.writeVarLong(header, texts.size());
+        for (String text : texts.keySet()) {
+            ColumnarMatchFile.writeText(header, text);
+        }
+        header.put((byte) table.size());
+        for (int slot = 0; slot < table.size(); slot++) {
+            for (int i = 0; i < 3; i++) {
+                ColumnarMatchFile.writeVarLong(header, indexes[slot][i]);
+            }
+            header.put((byte) server.getTeam(slot));
+        }
+        header.flip();
+        return header;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void closeFile() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Kunde inte stänga exportfilen: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package Control;
+
+import GUI.CarControlPanel;
+import GUI.LeaderboardGUI;
+import GUI.MatchSetupGUI;
+import Model.CarStats;
+import Model.CarTable;
+import Model.MatchResult;
+import Model.SimulatedArena;
+
+import javax.swing.*;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Simulerade matcher utan riktiga bilar. Virtuella bilar kör i en {@link SimulatedArena} och
+ * deras krockar skickas som "BIL1:KROCK" direkt till {@link MyServer#handleClientMessage}, via
+ * anslutningar utan socket. Servern hanterar dem precis som från riktiga bilar: biltabellen,
+ * lyssnarna, GUI:t och vinstkontrollen.
+ *
+ * I batchläge körs många matcher så fort det går, parallellt på alla kärnor, med en egen server
+ * per match. Efter varje match kontrolleras reglerna: hälsa och krockar stämmer med de skickade
+ * krockarna, matchslutet rapporteras exakt en gång och bara det vinnande laget har bilar kvar.
+ * Första matchen körs två gånger för att kontrollera att simuleringen är deterministisk.
+ * Avslutas med felkod 1 om någon kontroll misslyckas.
+ *
+ * Med {@code --gui} körs en match i realtid (eller uppsnabbad) med leaderboard och kontrollpanel,
+ * och tiden för att rita leaderboarden efter varje krock mäts.
+ *
+ * Körs från kommandoraden:
+ * {@code java Control.MatchSimulator [matcher] [bilar] [lag] [frö]} eller
+ * {@code java Control.MatchSimulator --gui [bilar] [lag] [frö] [hastighet]}
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MatchSimulator {
+
+    /** Längsta simulerade match, sedan räknas den som oavgjord på tid (steg) */
+    public static final int MAX_TICKS = 10 * 60 * 1000 / SimulatedArena.TICK_MILLIS;
+
+    /** Resultat för en match som inte blev avgjord inom {@link #MAX_TICKS} */
+    public static final int UNFINISHED = -3;
+
+    /**
+     * Resultat av en simulerad match.
+     */
+    public static class Outcome {
+        /** Matchens frö */
+        public final long seed;
+
+        /** Antal simulerade steg */
+        public final int ticks;
+
+        /** Vinnande lag, {@link MatchTracker#DRAW} eller {@link #UNFINISHED} */
+        public final int winnerTeam;
+
+        /** Antal krockar som skickades till servern */
+        public final int crashes;
+
+        /** Kontrollsumma över slutställningen, lika för lika frön */
+        public final long fingerprint;
+
+        /** Första regelbrottet, eller null om matchen följde reglerna */
+        public final String violation;
+
+        /**
+         * Konstruktor för Outcome.
+         *
+         * @param seed matchens frö
+         * @param ticks antal simulerade steg
+         * @param winnerTeam vinnande lag
+         * @param crashes antal skickade krockar
+         * @param fingerprint kontrollsumma över slutställningen
+         * @param violation första regelbrottet, eller null
+         */
+        public Outcome(long seed, int ticks, int winnerTeam, int crashes, long fingerprint, String violation) {
+            this.seed = seed;
+            this.ticks = ticks;
+            this.winnerTeam = winnerTeam;
+            this.crashes = crashes;
+            this.fingerprint = fingerprint;
+            this.violation = violation;
+        }
+    }
+
+    /**
+     * Håller reda på matchslutet från servern.
+     */
+    private static class ResultListener implements ServerEventListener {
+        /** Senaste matchslutet */
+        volatile MatchResult result;
+
+        /** Antal rapporterade matchslut */
+        volatile int reports;
+
+        @Override
+        public void matchOver(MatchResult result) {
+            this.result = result;
+            reports++;
+        }
+    }
+
+    /**
+     * Kör simulerade matcher i batch, eller en match med GUI.
+     *
+     * @param args se klassbeskrivningen
+     * @throws Exception om simuleringen inte kunde köras
+     */
+    public static void main(String[] args) throws Exception {
+        ServerConfig config = ServerConfig.load();
+        // Spärrtiden mäts i verklig tid och skulle kasta krockar i en uppsnabbad match
+        config.set(ServerConfig.CRASH_DEBOUNCE_MILLIS, "0");
+
+        if (args.length > 0 && args[0].equals("--gui")) {
+            int cars = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            int teams = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+            double speedup = args.length > 4 ? Double.parseDouble(args[4]) : 4.0;
+            runWithGui(config, cars, teams, seed, speedup);
+            return;
+        }
+
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int cars = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int teams = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        System.exit(runBatch(config, matches, cars, teams, seed) ? 0 : 1);
+    }
+
+    /**
+     * Kör matcher parallellt och skriver en sammanfattning.
+     * Serverns utskrifter stängs av under körningen, annars är det konsolen som mäts.
+     *
+     * @param config inställningar för servrarna
+     * @param matches antal matcher
+     * @param cars antal bilar per match
+     * @param teams antal lag
+     * @param seed frö för första matchen, matchen i har frö seed + i
+     * @return true om alla matcher följde reglerna
+     * @throws InterruptedException om körningen avbryts
+     * @throws ExecutionException om en match kastade ett undantag
+     */
+    public static boolean runBatch(ServerConfig config, int matches, int cars, int teams, long seed)
+            throws InterruptedException, ExecutionException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        PrintStream console = System.out;
+        System.out.println("🎮 Simulerar " + matches + " matcher med " + cars + " bilar i " + teams +
+                " lag på " + threads + " trådar");
+
+        List<Outcome> outcomes = new ArrayList<>(matches);
+        Outcome replay;
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>(matches);
+            for (int i = 0; i < matches; i++) {
+                long matchSeed = seed + i;
+                futures.add(pool.submit(() -> runMatch(config, players(cars, teams, config), matchSeed)));
+            }
+            for (Future<Outcome> future : futures) {
+                outcomes.add(future.get());
+            }
+            replay = runMatch(config, players(cars, teams, config), seed);
+        } finally {
+            System.setOut(console);
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        // Sammanställ resultaten
+        int[] wins = new int[teams];
+        int draws = 0;
+        int unfinished = 0;
+        long crashes = 0;
+        long ticks = 0;
+        List<Outcome> violations = new ArrayList<>();
+        for (Outcome outcome : outcomes) {
+            if (outcome.winnerTeam == MatchTracker.DRAW) {
+                draws++;
+            } else if (outcome.winnerTeam == UNFINISHED) {
+                unfinished++;
+            } else {
+                wins[outcome.winnerTeam]++;
+            }
+            crashes += outcome.crashes;
+            ticks += outcome.ticks;
+            if (outcome.violation != null) {
+                violations.add(outcome);
+            }
+        }
+        boolean deterministic = matches == 0 || replay.fingerprint == outcomes.get(0).fingerprint;
+
+        System.out.printf("✅ %d matcher på %.2f s (%.0f matcher/s, %.0f krockar/s)%n",
+                matches, seconds, matches / seconds, crashes / seconds);
+        System.out.printf("   Snittlängd %.1f simulerade sekunder, vinster per lag %s, oavgjort %d, ej avgjorda %d%n",
+                matches > 0 ? ticks * SimulatedArena.TICK_MILLIS / 1000.0 / matches : 0.0,
+                Arrays.toString(wins), draws, unfinished);
+        if (!deterministic) {
+            System.out.println("❌ Samma frö gav olika resultat (frö " + seed + ")");
+        }
+        for (Outcome outcome : violations.subList(0, Math.min(10, violations.size()))) {
+            System.out.println("❌ Frö " + outcome.seed + ": " + outcome.violation);
+        }
+        if (!violations.isEmpty()) {
+            System.out.println("❌ " + violations.size() + " matcher bröt mot reglerna");
+        }
+        return deterministic && violations.isEmpty();
+    }
+
+    /**
+     * Kör en match med leaderboard och kontrollpanel och mäter tiden för att rita leaderboarden.
+     *
+     * @param config inställningar för servern
+     * @param cars antal bilar
+     * @param teams antal lag
+     * @param seed frö för matchen
+     * @param speedup hur många gånger snabbare än verklig tid matchen körs
+     * @throws InterruptedException om körningen avbryts
+     * @throws InvocationTargetException om GUI:t inte kunde skapas
+     */
+    public static void runWithGui(ServerConfig config, int cars, int teams, long seed, double speedup)
+            throws InterruptedException, InvocationTargetException {
+        MatchSetupGUI.MatchConfig matchConfig = MatchSetupGUI.simulatedMatch(cars, teams, config);
+        LeaderboardGUI[] gui = new LeaderboardGUI[1];
+        SwingUtilities.invokeAndWait(() -> {
+            gui[0] = new LeaderboardGUI(matchConfig.players, matchConfig.gameMode);
+            gui[0].setVisible(true);
+        });
+
+        long[] frameNanos = new long[MAX_TICKS];
+        int[] frames = new int[1];
+        Outcome outcome = runMatch(config, matchConfig.players, seed, server -> {
+            SwingUtilities.invokeLater(() -> new CarControlPanel(server).setVisible(true));
+            return gui[0];
+        }, () -> {
+            // Rita om hela leaderboarden direkt i Swing-tråden, efter uppdateringarna från krocken
+            try {
+                SwingUtilities.invokeAndWait(() -> {
+                    JRootPane root = gui[0].getRootPane();
+                    long start = System.nanoTime();
+                    root.paintImmediately(0, 0, root.getWidth(), root.getHeight());
+                    frameNanos[frames[0]++] = System.nanoTime() - start;
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (InvocationTargetException e) {
+                System.out.println("Fel vid ritning: " + e.getCause());
+            }
+        }, (long) (SimulatedArena.TICK_MILLIS / speedup));
+
+        long[] sorted = Arrays.copyOf(frameNanos, frames[0]);
+        Arrays.sort(sorted);
+        System.out.println("🎮 Match klar efter " + outcome.ticks * SimulatedArena.TICK_MILLIS / 1000.0 +
+                " simulerade sekunder, " + outcome.crashes + " krockar" +
+                (outcome.violation != null ? ", ❌ " + outcome.violation : ", reglerna följdes"));
+        if (sorted.length > 0) {
+            System.out.printf("🖼️ Ritning av leaderboarden: median %.2f ms, 99%% %.2f ms, max %.2f ms (%d bilder)%n",
+                    sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6,
+                    sorted[sorted.length - 1] / 1e6, sorted.length);
+        }
+    }
+
+    /**
+     * Skapar bilarna för en match utan GUI, fördelade på lagen i tur och ordning.
+     *
+     * @param cars antal bilar
+     * @param teams antal lag
+     * @param config inställningar med startvärden för bilarna
+     * @return bilarna
+     */
+    private static List<CarStats> players(int cars, int teams, ServerConfig config) {
+        List<CarStats> players = new ArrayList<>(cars);
+        for (int slot = 0; slot < cars; slot++) {
+            players.add(new CarStats("Sim" + (slot + 1), "SimBil" + (slot + 1), null,
+                    config.get(ServerConfig.INITIAL_HEALTH), config.get(ServerConfig.INITIAL_ABILITY), slot % teams));
+        }
+        return players;
+    }
+
+    /**
+     * Kör en match så fort det går, utan GUI.
+     *
+     * @param config inställningar för servern
+     * @param players bilarna med lag
+     * @param seed frö för matchen
+     * @return matchens resultat
+     */
+    public static Outcome runMatch(ServerConfig config, List<CarStats> players, long seed) {
+        return runMatch(config, players, seed, null, null, 0);
+    }
+
+    /**
+     * Kör en match: bilarna kör i arenan och varje krock skickas till en egen server.
+     *
+     * @param config inställningar för servern
+     * @param players bilarna med lag
+     * @param seed frö för matchen
+     * @param guiFactory skapar leaderboarden när servern finns, eller null för ingen GUI
+     * @param afterCrash anropas efter varje steg med krockar, eller null
+     * @param tickMillis verklig tid per steg (ms), 0 för så fort det går
+     * @return matchens resultat
+     */
+    private static Outcome runMatch(ServerConfig config, List<CarStats> players, long seed,
+                                    Function<MyServer, LeaderboardGUI> guiFactory, Runnable afterCrash,
+                                    long tickMillis) {
+        MyServer server = new MyServer(config);
+        ResultListener listener = new ResultListener();
+        server.addServerEventListener(listener);
+
+        int cars = players.size();
+        int initialHealth = config.get(ServerConfig.INITIAL_HEALTH);
+        server.setLeaderboardGUI(guiFactory != null ? guiFactory.apply(server) : null, players);
+        CarTable table = server.getCarTable();
+
+        // En anslutning utan socket per bil, och krockraden skapas en gång
+        MyServer.ClientConnection[] connections = new MyServer.ClientConnection[cars];
+        String[] crashLines = new String[cars];
+        for (int slot = 0; slot < cars; slot++) {
+            connections[slot] = server.attachClient(new Socket(), new PrintWriter(Writer.nullWriter()));
+            crashLines[slot] = table.getCarId(slot) + ":KROCK";
+        }
+
+        SimulatedArena arena = new SimulatedArena(cars, seed);
+        int[] hits = new int[cars * cars];
+        int[] sent = new int[cars];
+        int crashes = 0;
+        int tick = 0;
+        while (tick < MAX_TICKS && listener.result == null) {
+            tick++;
+            int count = arena.step(hits);
+            for (int i = 0; i < count && listener.result == null; i++) {
+                int slot = hits[i];
+                if (table.getHealth(slot) == 0) {
+                    continue;
+                }
+                server.handleClientMessage(crashLines[slot], connections[slot]);
+                sent[slot]++;
+                crashes++;
+                if (table.getHealth(slot) == 0) {
+                    arena.setActive(slot, false);
+                }
+            }
+            if (count > 0 && afterCrash != null) {
+                afterCrash.run();
+            }
+            if (tickMillis > 0) {
+                try {
+                    Thread.sleep(tickMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        MatchResult result = listener.result;
+        int winnerTeam = result == null ? UNFINISHED : result.winnerTeam;
+        long fingerprint = tick * 31L + winnerTeam;
+        for (int slot = 0; slot < cars; slot++) {
+            fingerprint = fingerprint * 31 + table.getHealth(slot) * 1000L + table.getCrashCount(slot);
+        }
+        return new Outcome(seed, tick, winnerTeam, crashes, fingerprint,
+                checkRules(table, players, initialHealth, sent, listener));
+    }
+
+    /**
+     * Kontrollerar att servern följde reglerna under en match.
+     *
+     * @param table matchens biltabell
+     * @param players bilarna med lag
+     * @param initialHealth hälsa vid start
+     * @param sent antal krockar som skickades per bil
+     * @param listener matchslutet från servern
+     * @return första regelbrottet, eller null
+     */
+    private static String checkRules(CarTable table, List<CarStats> players, int initialHealth, int[] sent,
+                                     ResultListener listener) {
+        boolean[] teamAlive = new boolean[players.size()];
+        int aliveTeams = 0;
+        for (int slot = 0; slot < table.size(); slot++) {
+            int expected = Math.max(0, initialHealth - sent[slot]);
+            if (table.getHealth(slot) != expected) {
+                return table.getCarId(slot) + " har hälsa " + table.getHealth(slot) + ", väntade " + expected;
+            }
+            if (table.getCrashCount(slot) != sent[slot]) {
+                return table.getCarId(slot) + " har " + table.getCrashCount(slot) + " krockar, skickade " + sent[slot];
+            }
+            int team = players.get(slot).team;
+            if (table.getHealth(slot) > 0 && !teamAlive[team]) {
+                teamAlive[team] = true;
+                aliveTeams++;
+            }
+        }
+
+        MatchResult result = listener.result;
+        if (result == null) {
+            return aliveTeams >= 2 ? null : "matchen avgjordes men inget matchslut rapporterades";
+        }
+        if (listener.reports != 1) {
+            return "matchslutet rapporterades " + listener.reports + " gånger";
+        }
+        if (result.isDraw()) {
+            return aliveTeams == 0 ? null : "oavgjort men " + aliveTeams + " lag har bilar kvar";
+        }
+        if (aliveTeams != 1 || !teamAlive[result.winnerTeam]) {
+            return "lag " + result.winnerTeam + " vann men " + aliveTeams + " lag har bilar kvar";
+        }
+        for (MatchResult.Participant participant : result.participants) {
+            int slot = table.slotOf(participant.carId);
+            if (participant.finalHealth != table.getHealth(slot)) {
+                return "slutställningen för " + participant.carId + " stämmer inte med biltabellen";
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,144 @@
+package Control;
+
+import Model.CarTable;
+import Model.MatchResult;
+import Model.MatchSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Sparar ögonblicksbilder ({@link MatchSnapshot}) av den pågående matchen, så att den kan
+ * återupptas om servern stängs mitt i. Servertrådarna markerar bara att matchen har ändrats;
+ * bakgrundstråden tar och skriver bilden, så meddelandehanteringen stoppas aldrig.
+ * När matchen är avgjord tas filen bort, eftersom det då inte finns något att återuppta.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MatchSnapshotter extends Thread implements ServerEventListener {
+
+    /** Fil för ögonblicksbilden */
+    private final Path file;
+
+    /** Servern som bilderna tas från */
+    private final MyServer server;
+
+    /** Spelläge för pågående match */
+    private volatile String gameMode = "";
+
+    /** Starttid för pågående match (ms) */
+    private volatile long matchStartMillis;
+
+    /** true medan en match pågår */
+    private volatile boolean active;
+
+    /** true när matchen har ändrats sedan förra bilden */
+    private volatile boolean dirty;
+
+    /**
+     * Konstruktor för MatchSnapshotter.
+     *
+     * @param file fil för ögonblicksbilden
+     * @param server servern som bilderna tas från
+     */
+    public MatchSnapshotter(Path file, MyServer server) {
+        super("match-snapshotter");
+        setDaemon(true);
+        this.file = file;
+        this.server = server;
+    }
+
+    /**
+     * Anger spelläge och starttid, som sparas i bilden. Anropas innan matchen startas.
+     *
+     * @param gameMode spelläge
+     * @param matchStartMillis tidpunkt då matchen startade
+     */
+    public void setMatch(String gameMode, long matchStartMillis) {
+        this.gameMode = gameMode;
+        this.matchStartMillis = matchStartMillis;
+    }
+
+    /**
+     * Sparar en bild när matchen har ändrats, tills tråden avbryts.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Thread.sleep(server.getConfig().get(ServerConfig.SNAPSHOT_INTERVAL_MILLIS));
+                if (dirty) {
+                    dirty = false;
+                    writeSnapshot();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sparar en sista bild och stoppar tråden.
+     */
+    public void close() {
+        interrupt();
+        if (dirty) {
+            writeSnapshot();
+        }
+    }
+
+    @Override
+    public void matchStarted(CarTable cars) {
+        active = true;
+        dirty = true;
+    }
+
+    @Override
+    public void carHit(int slot, int health, boolean crash) {
+        dirty = true;
+    }
+
+    @Override
+    public void clientIdentified(MyServer.ClientConnection client) {
+        // Nya sessionsnycklar ska med i bilden
+        dirty = true;
+    }
+
+    @Override
+    public void arenaChanged(String command, long version) {
+        dirty = true;
+    }
+
+    @Override
+    public synchronized void matchOver(MatchResult result) {
+        active = false;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.out.println("Kunde inte ta bort ögonblicksbilden: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tar och skriver en bild av matchen, om den fortfarande pågår.
+     */
+    private synchronized void writeSnapshot() {
+        if (!active) {
+            return;
+        }
+        MatchSnapshot snapshot = server.captureSnapshot(gameMode, matchStartMillis);
+        if (snapshot == null) {
+            dirty = true; // Försök igen nästa gång
+            return;
+        }
+        try {
+            snapshot.write(file);
+            server.getMetrics().snapshotsWritten.increment();
+        } catch (IOException e) {
+            System.out.println("Kunde inte spara ögonblicksbilden: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package Control;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Håller reda på hur många bilar och lag som fortfarande är med i matchen.
+ * Räknarna uppdateras i samma ögonblick som en bils poäng når 0, så att
+ * win-condition kan avgöras i konstant tid utan att gå igenom alla bilar.
+ * Alla uppdateringar är atomära och matchslutet rapporteras exakt en gång.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MatchTracker {
+
+    /** Returvärde när matchen fortfarande pågår (eller redan är avgjord) */
+    public static final int MATCH_RUNNING = -2;
+
+    /** Returvärde när matchen slutade oavgjort */
+    public static final int DRAW = -1;
+
+    /** Vilket lag varje bilplats tillhör */
+    private volatile int[] teamOfSlot = new int[0];
+
+    /** Antal levande bilar per lag */
+    private volatile AtomicIntegerArray aliveInTeam = new AtomicIntegerArray(0);
+
+    /**
+     * Levande lag packade i ett ord: övre 32 bitar är antalet lag vid liv,
+     * undre 32 bitar är XOR av de levande lagens index. När bara ett lag
+     * återstår är XOR-värdet alltså vinnarens index.
+     */
+    private final AtomicLong aliveTeams = new AtomicLong();
+
+    /** Sätts när matchslutet har rapporterats */
+    private final AtomicBoolean matchOver = new AtomicBoolean(false);
+
+    /**
+     * Återställer räknarna inför en ny match.
+     *
+     * @param teamOfSlot lag för varje bilplats (index 0 = BIL1)
+     */
+    public synchronized void reset(int[] teamOfSlot) {
+        int teamCount = 0;
+        for (int team : teamOfSlot) {
+            teamCount = Math.max(teamCount, team + 1);
+        }
+
+        AtomicIntegerArray alive = new AtomicIntegerArray(teamCount);
+        for (int team : teamOfSlot) {
+            alive.incrementAndGet(team);
+        }
+
+        int aliveCount = 0;
+        int aliveXor = 0;
+        for (int team = 0; team < teamCount; team++) {
+            if (alive.get(team) > 0) {
+                aliveCount++;
+                aliveXor ^= team;
+            }
+        }
+
+        this.teamOfSlot = teamOfSlot.clone();
+        this.aliveInTeam = alive;
+        aliveTeams.set(pack(aliveCount, aliveXor));
+        matchOver.set(false);
+    }
+
+    /**
+     * Registrerar att en bil just har slagits ut (poängen gick från över 0 till 0).
+     * Får bara anropas en gång per bil och match.
+     *
+     * @param slot bilens plats
+     * @return vinnande lag, {@link #DRAW} eller {@link #MATCH_RUNNING}
+     */
+    public int carEliminated(int slot) {
+        int[] teams = teamOfSlot;
+        if (slot < 0 || slot >= teams.length || matchOver.get()) {
+            return MATCH_RUNNING;
+        }
+
+        int team = teams[slot];
+        if (aliveInTeam.decrementAndGet(team) != 0) {
+            // Laget har fortfarande bilar kvar
+            return MATCH_RUNNING;
+        }
+
+        long next;
+        long prev;
+        do {
+            prev = aliveTeams.get();
+            next = pack(aliveCount(prev) - 1, aliveXor(prev) ^ team);
+        } while (!aliveTeams.compareAndSet(prev, next));
+
+        int remaining = aliveCount(next);
+        if (remaining > 1) {
+            return MATCH_RUNNING;
+        }
+
+        // Bara den tråd som vinner CAS:en får rapportera matchslutet
+        if (!matchOver.compareAndSet(false, true)) {
+            return MATCH_RUNNING;
+        }
+        return remaining == 1 ? aliveXor(next) : DRAW;
+    }
+
+    /**
+     * Anger om matchen redan är avgjord.
+     *
+     * @return true om matchslutet har rapporterats
+     */
+    public boolean isMatchOver() {
+        return matchOver.get();
+    }
+
+    /**
+     * Får antal lag som fortfarande har bilar kvar.
+     *
+     * @return antal levande lag
+     */
+    public int getAliveTeamCount() {
+        return aliveCount(aliveTeams.get());
+    }
+
+    /**
+     * Får lag för en bilplats.
+     *
+     * @param slot bilens plats
+     * @return lagets index eller -1 om platsen är okänd
+     */
+    public int getTeam(int slot) {
+        int[] teams = teamOfSlot;
+        return slot >= 0 && slot < teams.length ? teams[slot] : -1;
+    }
+
+    private static long pack(int count, int xor) {
+        return ((long) count << 32) | (xor & 0xFFFFFFFFL);
+    }
+
+    private static int aliveCount(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int aliveXor(long packed) {
+        return (int) packed;
+    }
+}
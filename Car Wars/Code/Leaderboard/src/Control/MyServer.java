@@ -1,17 +1,41 @@
 package Control;
 
+import GUI.CoalescingListener;
 import GUI.LeaderboardGUI;
 import Model.CarStats;
+import Model.CarTable;
+import Model.MappedLog;
+import Model.MatchResult;
+import Model.MatchSnapshot;
 
-import javax.swing.*;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.HashMap;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
 
 /**
  * Server-klass som hanterar kommunikation med ESP32-bilar och ESP8266 arena-kontroll.
@@ -23,20 +47,207 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public class MyServer {
 
-    /** Karta över bil-ID och deras aktuella poäng */
-    private HashMap<String, Integer> scoreMap = new HashMap<>();
+    /** Tabell över bilarnas hälsa, förmåga och krockar, indexerad med bilplats */
+    private volatile CarTable cars = CarTable.empty();
 
     /** Referens till leaderboard GUI för att uppdatera poängtavlan */
-    private LeaderboardGUI leaderboardGUI;
-
-    /** Mapping mellan bil-ID och bilnamn */
-    private Map<String, String> carIdToNameMapping = new HashMap<>();
+    private volatile LeaderboardGUI leaderboardGUI;
 
     /** Lista över alla anslutna klienter (ESP32-enheter och ESP8266) */
     private CopyOnWriteArrayList<ClientConnection> connectedClients = new CopyOnWriteArrayList<>();
 
+    /** Senast identifierade anslutning per bilplats, null om bilen inte är ansluten */
+    private volatile AtomicReferenceArray<ClientConnection> connectionBySlot = new AtomicReferenceArray<>(0);
+
+    /** Bilplatser per lag för pågående match */
+    private volatile int[][] slotsByTeam = new int[0][];
+
+    /** Prefix för alla meddelanden från ESP8266 arena-kontroll */
+    public static final String ARENA_PREFIX = "ESP8266";
+
+    /** Pollning från äldre ESP8266-firmware, besvaras med det aktuella kommandot */
+    public static final String ARENA_POLL = "ESP8266 frågar om kommando";
+
+    /** Prenumeration: kontrollen får ändringar pushade som "ARENA version kommando" */
+    public static final String ARENA_SUBSCRIBE = "ESP8266 SUBSCRIBE";
+
+    /** Kvittens av en pushad version: "ESP8266 ACK version" */
+    public static final String ARENA_ACK = "ESP8266 ACK ";
+
+    /** Prefix för pushade arena-kommandon */
+    public static final String ARENA_PUSH = "ARENA ";
+
+    /** Tid innan en okvitterad arena-version skickas igen */
+    private static final long ARENA_RETRANSMIT_MILLIS = 1000;
+
+    /** Max antal omsändningar av samma arena-version */
+    private static final int ARENA_MAX_RETRANSMITS = 5;
+
+    /**
+     * Arena-kommando med versionsnummer. Objektet är oföränderligt och
+     * publiceras via ett volatile-fält, så läsare ser alltid ett konsistent par.
+     */
+    private static final class ArenaState {
+        final long version;
+        final String command;
+
+        ArenaState(long version, String command) {
+            this.version = version;
+            this.command = command;
+        }
+    }
+
+    /** Prefix för kommandon med sekvensnummer till bilar som kvitterar */
+    public static final String COMMAND_PREFIX = "CMD ";
+
+    /** Kvittens från en bil, efter bil-ID och kolon: "BIL1:ACK:17" */
+    public static final String ACK_TOKEN = "ACK:";
+
+    /** Leveransstatus för det senaste kommandot till bilarna */
+    private volatile CommandDelivery lastCarDelivery;
+
+    /** Klocksynk till bilen: "SYNC serverTid" */
+    public static final String SYNC_PREFIX = "SYNC ";
+
+    /** Svar på klocksynk, efter bil-ID och kolon: "BIL1:PONG:serverTid:bilTid" */
+    public static final String PONG_TOKEN = "PONG:";
+
+    /** Startrapport, efter bil-ID och kolon: "BIL1:STARTED:bilTid" */
+    public static final String STARTED_TOKEN = "STARTED:";
+
+    /** Inloggning från en bil, efter bil-ID och kolon: "BIL1:AUTH:nyckel" */
+    public static final String AUTH_TOKEN = "AUTH:";
+
+    /** Inloggning från arena-kontrollen: "ESP8266 AUTH nyckel" */
+    public static final String ARENA_AUTH = "ESP8266 AUTH ";
+
+    /** Svar när inloggningen godkändes */
+    public static final String AUTH_OK = "AUTH OK";
+
+    /** Svar när inloggningen nekades, anslutningen stängs direkt efter */
+    public static final String AUTH_FAIL = "AUTH FAIL";
+
+    /** Sessionsnyckel till en identifierad bil: "SESSION nyckel" */
+    public static final String SESSION_PREFIX = "SESSION ";
+
+    /** Återanslutning från en bil, som första rad på den nya anslutningen: "RESUME nyckel" */
+    public static final String RESUME_PREFIX = "RESUME ";
+
+    /** Svar när sessionen återupptogs */
+    public static final String RESUME_OK = "RESUME OK";
+
+    /** Ersätter nycklar i trafikloggen */
+    private static final String REDACTED = "***";
+
+    /** Svar när sessionen är okänd eller har gått ut; bilen identifierar sig på nytt */
+    public static final String RESUME_FAIL = "RESUME FAIL";
+
+    /** Antal försök att kopiera biltabellen till en ögonblicksbild */
+    private static final int SNAPSHOT_ATTEMPTS = 100;
+
+    /** Max antal rader som sparas till en frånkopplad bil */
+    private static final int MAX_OUTBOX_LINES = 64;
+
+    /** Antal slumpade byte i en sessionsnyckel */
+    private static final int SESSION_TOKEN_BYTES = 16;
+
+    /** Minsta tid från startkommando till planerad start */
+    private static final long MIN_START_LEAD_MILLIS = 300;
+
+    /** Tid efter planerad start innan startrapporten skrivs ut */
+    private static final long START_REPORT_GRACE_MILLIS = 1000;
+
+    /** Nollpunkt för serverns monotona klocka */
+    private final long epochNanos = System.nanoTime();
+
+    /** Resultatet av den senaste synkroniserade starten */
+    private volatile StartReport lastStartReport;
+
     /** Aktuellt arena-kommando att skicka till ESP8266 */
-    private String currentArenaCommand = "close"; // Standardvärde: stängd
+    private volatile ArenaState arenaState = new ArenaState(0, "close"); // Standardvärde: stängd
+
+    /** Serverns inställningar */
+    private final ServerConfig config;
+
+    /** Schemaläggare för omsändningar och klocksynk, antalet trådar kan ändras medan servern kör */
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /** Räknare för levande bilar och lag, avgör matchslutet i konstant tid */
+    private final MatchTracker matchTracker = new MatchTracker();
+
+    /** Räknare för inkommande trafik */
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    /** Kontrollerar nycklar vid inloggning, null om inloggning inte krävs */
+    private final CarAuthenticator authenticator;
+
+    /** Bilarnas sessioner per sessionsnyckel, så en återanslutning hittar sin anslutning direkt */
+    private final ConcurrentHashMap<String, ClientConnection> sessions = new ConcurrentHashMap<>();
+
+    /** Slumpkälla för sessionsnycklar */
+    private final SecureRandom random = new SecureRandom();
+
+    /** Mottagning av telemetri, null tills servern har startat eller om telemetri är av */
+    private volatile TelemetryIngest telemetry;
+
+    /** Krockdetektering från telemetrin, null om telemetri är av */
+    private volatile CollisionDetector collisionDetector;
+
+    /** Logg för rader till och från klienterna, null om trafiken inte loggas */
+    private volatile MappedLog trafficLog;
+
+    /** Namn på oidentifierade klienter i trafikloggen */
+    private static final String UNIDENTIFIED_PEER = "?";
+
+    /** Storlek på läsbufferten per anslutning i byte */
+    private static final int READ_BUFFER_SIZE = 2048;
+
+    /** Max antal lediga läsbuffertar som sparas för nya anslutningar */
+    private static final int MAX_IDLE_BUFFERS = 32;
+
+    /** Pool med direkta läsbuffertar */
+    private final BufferPool bufferPool = new BufferPool(READ_BUFFER_SIZE, MAX_IDLE_BUFFERS);
+
+    /**
+     * Registrerade lyssnare för serverhändelser. Arrayen byts ut vid varje ändring och
+     * ändras aldrig på plats, så krockvägen kan gå igenom den med index utan att skapa en iterator.
+     */
+    private volatile ServerEventListener[] eventListeners = new ServerEventListener[0];
+
+    /** Uppdatering av poängtavlan, sammanslagen till högst en per bildruta (null utan GUI) */
+    private volatile CoalescingListener scoreboardRefresh;
+
+    /**
+     * Konstruktor för MyServer med standardinställningar.
+     */
+    public MyServer() {
+        this(ServerConfig.defaults());
+    }
+
+    /**
+     * Konstruktor för MyServer.
+     *
+     * @param config serverns inställningar
+     */
+    public MyServer(ServerConfig config) {
+        this.config = config;
+        this.scheduler = new ScheduledThreadPoolExecutor(config.get(ServerConfig.SCHEDULER_THREADS), runnable -> {
+            Thread thread = new Thread(runnable, "server-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        config.addListener(key -> {
+            if (key == ServerConfig.SCHEDULER_THREADS) {
+                scheduler.setCorePoolSize(config.get(ServerConfig.SCHEDULER_THREADS));
+            }
+        });
+        if (config.get(ServerConfig.AUTH_REQUIRED)) {
+            this.authenticator = CarAuthenticator.load(Paths.get(config.get(ServerConfig.AUTH_TOKENS_FILE)));
+            System.out.println("🔑 Inloggning krävs, " + authenticator.size() + " nycklar laddade");
+        } else {
+            this.authenticator = null;
+        }
+    }
 
     /**
      * Klass för att hålla koll på anslutna klienter.
@@ -55,6 +266,51 @@ public class MyServer {
         /** Typ av klient: "ESP32" eller "ESP8266" */
         public String clientType;
 
+        /** Bilens plats i CarTable, slås upp en gång vid identifiering (-1 = okänd) */
+        public int carSlot;
+
+        /** true när enheten har loggat in med en giltig nyckel */
+        public volatile boolean authenticated;
+
+        /** Bilens sessionsnyckel, null innan bilen har identifierats eller om sessioner är av */
+        public volatile String sessionToken;
+
+        /** true när bilen har tappat anslutningen men kan återuppta sessionen */
+        public volatile boolean detached;
+
+        /** Räknas upp vid varje frånkoppling och återanslutning, så gamla utgångstimrar ignoreras */
+        public long sessionGeneration;
+
+        /** Sessionen som denna tillfälliga anslutning återupptog, annars null */
+        public volatile ClientConnection resumedAs;
+
+        /** Rader som skickades medan bilen var frånkopplad (skyddas av anslutningens lås) */
+        final ArrayDeque<String> outbox = new ArrayDeque<>();
+
+        /** true medan en ny anslutning tar emot sessionens sparade rader (skyddas av anslutningens lås) */
+        boolean resuming;
+
+        /** true om arena-kontrollen prenumererar på pushade kommandon */
+        public volatile boolean arenaSubscribed;
+
+        /** Senaste arena-version som kontrollen har kvitterat */
+        public volatile long arenaAckedVersion;
+
+        /** true om bilen kvitterar kommandon med sekvensnummer */
+        public volatile boolean ackCapable;
+
+        /** Senast använda sekvensnummer för kommandon till bilen */
+        public final AtomicInteger nextSequence = new AtomicInteger();
+
+        /** Okvitterade kommandon per sekvensnummer */
+        public final ConcurrentHashMap<Integer, CommandDelivery> pendingCommands = new ConcurrentHashMap<>();
+
+        /** Uppskattad klockförskjutning och tur-och-retur-tid till bilen */
+        public final ClockEstimate clock = new ClockEstimate();
+
+        /** Budget för inkommande rader från klienten */
+        public final IngressGuard ingress;
+
         /**
          * Konstruktor för ClientConnection.
          *
@@ -62,16 +318,40 @@ public class MyServer {
          * @param output output stream för meddelanden
          */
         public ClientConnection(Socket socket, PrintWriter output) {
+            this(socket, output, new ServerMetrics(), ServerConfig.defaults());
+        }
+
+        /**
+         * Konstruktor för ClientConnection med serverns gemensamma räknare och inställningar.
+         *
+         * @param socket socket-anslutning
+         * @param output output stream för meddelanden
+         * @param metrics räknare för inkommande trafik
+         * @param config inställningar för budgeten
+         */
+        public ClientConnection(Socket socket, PrintWriter output, ServerMetrics metrics, ServerConfig config) {
             this.socket = socket;
             this.output = output;
             this.carId = null; // Sätts när vi får första meddelandet
             this.clientType = "UNKNOWN"; // Bestäms från första meddelandet
+            this.carSlot = -1;
+            this.ingress = new IngressGuard(metrics, config);
+        }
+
+        /**
+         * Beskrivning av klienten för loggning.
+         *
+         * @return bil-ID eller klient-typ följt av adress
+         */
+        @Override
+        public String toString() {
+            return (carId != null ? carId : clientType) + " (" + socket.getInetAddress() + ")";
         }
     }
 
     /**
      * Setter för LeaderboardGUI och players.
-     * Initierar scoreMap och bil-mappningar baserat på spelarna.
+     * Initierar biltabellen baserat på spelarna.
      *
      * @param leaderboardGUI GUI för att visa poängtavlan
      * @param players lista över spelare i matchen
@@ -79,43 +359,254 @@ public class MyServer {
     public void setLeaderboardGUI(LeaderboardGUI leaderboardGUI, List<CarStats> players) {
         this.leaderboardGUI = leaderboardGUI;
 
-        // Initiera scoreMap och mapping baserat på spelarna
+        // Initiera biltabellen baserat på spelarna
+        String idPrefix = config.get(ServerConfig.CAR_ID_PREFIX);
+        String[] carIds = new String[players.size()];
+        String[] carNames = new String[players.size()];
+        String[] playerNames = new String[players.size()];
+        int[] teamOfSlot = new int[players.size()];
+        int teamCount = 0;
+        for (CarStats player : players) {
+            teamCount = Math.max(teamCount, player.team + 1);
+        }
         for (int i = 0; i < players.size(); i++) {
-            String carId = "BIL" + (i + 1); // BIL1, BIL2, etc.
-            String carName = players.get(i).carName;
+            carIds[i] = idPrefix + (i + 1); // BIL1, BIL2, etc.
+            carNames[i] = players.get(i).carName;
+            playerNames[i] = players.get(i).playerName;
+            // Bilar utan valt lag blir ett eget lag efter de valda lagen
+            teamOfSlot[i] = players.get(i).team != CarStats.NO_TEAM ? players.get(i).team : teamCount++;
+        }
+        CarTable table = new CarTable(carIds, carNames, playerNames,
+                config.get(ServerConfig.INITIAL_HEALTH), config.get(ServerConfig.INITIAL_ABILITY), idPrefix);
+        matchTracker.reset(teamOfSlot);
+
+        // Index för gruppadressering: lag -> platser och plats -> anslutning
+        int[] teamSizes = new int[teamCount];
+        for (int team : teamOfSlot) {
+            teamSizes[team]++;
+        }
+        int[][] teams = new int[teamCount][];
+        for (int team = 0; team < teamCount; team++) {
+            teams[team] = new int[teamSizes[team]];
+            teamSizes[team] = 0;
+        }
+        for (int slot = 0; slot < teamOfSlot.length; slot++) {
+            int team = teamOfSlot[slot];
+            teams[team][teamSizes[team]++] = slot;
+        }
+        slotsByTeam = teams;
+        connectionBySlot = new AtomicReferenceArray<>(table.size());
+        cars = table;
+
+        // Poängtavlan läser tabellen själv, så täta krockar blir en uppdatering per bildruta
+        CoalescingListener oldRefresh = scoreboardRefresh;
+        if (oldRefresh != null) {
+            oldRefresh.stop();
+        }
+        scoreboardRefresh = leaderboardGUI != null
+                ? new CoalescingListener(config, new ScoreboardRefresh(leaderboardGUI, table)) : null;
+
+        for (ServerEventListener listener : eventListeners) {
+            listener.matchStarted(table);
+        }
 
-            scoreMap.put(carId, 10);
-            carIdToNameMapping.put(carId, carName);
+        // Redan anslutna bilar får sin plats i den nya tabellen
+        AtomicReferenceArray<ClientConnection> index = connectionBySlot;
+        for (ClientConnection client : connectedClients) {
+            if (client.carId != null) {
+                client.carSlot = table.slotOf(client.carId);
+                if (client.carSlot >= 0) {
+                    index.set(client.carSlot, client);
+                }
+            }
         }
 
         System.out.println("Server initialiserad med följande bilar:");
-        for (Map.Entry<String, String> entry : carIdToNameMapping.entrySet()) {
-            System.out.println(entry.getKey() + " -> " + entry.getValue());
+        for (int slot = 0; slot < table.size(); slot++) {
+            System.out.println(table.getCarId(slot) + " -> " + table.getCarName(slot));
+        }
+    }
+
+    /**
+     * Tar en ögonblicksbild av den pågående matchen utan att stoppa meddelandehanteringen.
+     * Biltabellen kopieras optimistiskt, och kopian görs om ifall en krock kom emellan.
+     *
+     * @param gameMode spelläge
+     * @param matchStartMillis tidpunkt då matchen startade
+     * @return bilden, eller null om ingen match pågår eller tabellen ändrades vid varje försök
+     */
+    public MatchSnapshot captureSnapshot(String gameMode, long matchStartMillis) {
+        CarTable table = cars;
+        int size = table.size();
+        if (size == 0 || matchTracker.isMatchOver()) {
+            return null;
+        }
+
+        int[] health = new int[size];
+        int[] crashCounts = new int[size];
+        long[] lastCrashMillis = new long[size];
+        boolean consistent = table.copyState(health, crashCounts, lastCrashMillis);
+        for (int attempt = 1; attempt < SNAPSHOT_ATTEMPTS && !consistent; attempt++) {
+            metrics.snapshotRetries.increment();
+            Thread.yield();
+            consistent = table.copyState(health, crashCounts, lastCrashMillis);
+        }
+        if (!consistent) {
+            return null;
+        }
+
+        String[] carNames = new String[size];
+        String[] playerNames = new String[size];
+        int[] teams = new int[size];
+        String[] sessionTokens = new String[size];
+        AtomicReferenceArray<ClientConnection> index = connectionBySlot;
+        for (int slot = 0; slot < size; slot++) {
+            carNames[slot] = table.getCarName(slot);
+            playerNames[slot] = table.getPlayerName(slot);
+            teams[slot] = matchTracker.getTeam(slot);
+            ClientConnection client = slot < index.length() ? index.get(slot) : null;
+            sessionTokens[slot] = client != null ? client.sessionToken : null;
+        }
+        return new MatchSnapshot(System.currentTimeMillis(), matchStartMillis, gameMode, getArenaCommand(),
+                carNames, playerNames, teams, health, crashCounts, lastCrashMillis, sessionTokens);
+    }
+
+    /**
+     * Återupptar en match från en ögonblicksbild. Biltabellen byggs som för en ny match
+     * och får sedan bildens hälsa och krockar. Bilarnas sessioner läggs in som frånkopplade,
+     * så bilarna återansluter med sin sessionsnyckel precis som efter ett vanligt avbrott.
+     *
+     * @param leaderboardGUI GUI för att visa poängtavlan
+     * @param players spelarna i samma ordning och med samma lag som i bilden
+     * @param snapshot bilden
+     */
+    public void restoreMatch(LeaderboardGUI leaderboardGUI, List<CarStats> players, MatchSnapshot snapshot) {
+        setLeaderboardGUI(leaderboardGUI, players);
+        CarTable table = cars;
+        int window = config.get(ServerConfig.SESSION_RESUME_MILLIS);
+        int restoredSessions = 0;
+        for (int slot = 0; slot < table.size() && slot < snapshot.size(); slot++) {
+            int health = snapshot.health[slot];
+            table.restoreState(slot, health, snapshot.crashCounts[slot], snapshot.lastCrashMillis[slot]);
+            if (health != table.getInitialHealth()) {
+                requestScoreboardRefresh();
+                int restoredSlot = slot;
+                fireEvent(listener -> listener.scoreChanged(restoredSlot, health));
+            }
+            if (window > 0 && snapshot.sessionTokens[slot] != null) {
+                restoreSession(table, slot, snapshot.sessionTokens[slot], window);
+                restoredSessions++;
+            }
         }
+
+        // Utslagna bilar räknas bort, och en match som hann avgöras avslutas nu
+        for (int slot = 0; slot < table.size(); slot++) {
+            if (table.getHealth(slot) == 0) {
+                int outcome = matchTracker.carEliminated(slot);
+                if (outcome != MatchTracker.MATCH_RUNNING) {
+                    fireMatchOver(outcome);
+                }
+            }
+        }
+
+        if (!snapshot.arenaCommand.isEmpty() && !snapshot.arenaCommand.equals(getArenaCommand())) {
+            sendArenaCommand(snapshot.arenaCommand);
+        }
+        System.out.println("♻️ Match återupptagen från " + (System.currentTimeMillis() - snapshot.takenMillis) +
+                " ms gammal ögonblicksbild, " + restoredSessions + " bilar kan återansluta");
+    }
+
+    /**
+     * Lägger in en sparad session som en frånkopplad bil, som väntar på "RESUME nyckel".
+     *
+     * @param table biltabellen
+     * @param slot bilens plats
+     * @param token sessionsnyckeln
+     * @param window tid att återansluta (ms)
+     */
+    private void restoreSession(CarTable table, int slot, String token, int window) {
+        ClientConnection session = new ClientConnection(new Socket(), null, metrics, config);
+        session.carId = table.getCarId(slot);
+        session.carSlot = slot;
+        session.clientType = "ESP32";
+        session.sessionToken = token;
+        session.detached = true;
+        long generation = ++session.sessionGeneration;
+        sessions.put(token, session);
+        connectedClients.add(session);
+        connectionBySlot.set(slot, session);
+        scheduler.schedule(() -> expireSession(session, generation), window, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Startar server-socketen och lyssnar på port 6000.
+     * Startar server-socketen och lyssnar på den inställda porten (standard 6000).
      * Accepterar nya klientanslutningar och startar HandleClient-trådar.
+     * Med TLS krypteras varje anslutning med en egen {@link TlsChannel}.
      */
     public void socket() {
+        SSLContext tlsContext = null;
+        if (config.get(ServerConfig.TLS_ENABLED)) {
+            try {
+                tlsContext = TlsChannel.createServerContext(Paths.get(config.get(ServerConfig.TLS_KEYSTORE)),
+                        config.get(ServerConfig.TLS_KEYSTORE_PASSWORD).toCharArray(),
+                        config.get(ServerConfig.TLS_SESSION_CACHE_SIZE),
+                        config.get(ServerConfig.TLS_SESSION_TIMEOUT_SECONDS));
+                System.out.println("🔒 TLS aktiverat med " + config.get(ServerConfig.TLS_KEYSTORE));
+            } catch (IOException | GeneralSecurityException e) {
+                System.out.println("Fel: kunde inte ladda TLS-nyckeln: " + e.getMessage());
+                return;
+            }
+        }
+
         try {
-            ServerSocket serverSocket = new ServerSocket(6000);
-            System.out.println("Server igång på port 6000...");
+            ServerSocketChannel serverChannel = ServerSocketChannel.open();
+            int port = config.get(ServerConfig.SERVER_PORT);
+            serverChannel.bind(new InetSocketAddress(port));
+            System.out.println("Server igång på port " + port + "...");
             System.out.println("Väntar på ESP32 bilar och ESP8266 arena-kontroll...");
 
+            // Håll klockuppskattningen för alla bilar färsk
+            long syncInterval = config.get(ServerConfig.SYNC_INTERVAL_MILLIS);
+            scheduler.scheduleAtFixedRate(this::syncClocks, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+
+            // Telemetrin har en egen port och tråd, skild från kontrollvägen
+            if (config.get(ServerConfig.TELEMETRY_ENABLED)) {
+                telemetry = new TelemetryIngest(this, config, metrics);
+                addServerEventListener(telemetry);
+                telemetry.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(telemetry::close));
+
+                // Krockdetekteringen körs alltid men gör inget förrän den slås på
+                CollisionDetector detector = new CollisionDetector(this, config, metrics);
+                scheduler.scheduleAtFixedRate(detector::runPass, CollisionDetector.PASS_INTERVAL_MILLIS,
+                        CollisionDetector.PASS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                collisionDetector = detector;
+            }
+
             while (true) {
-                Socket clientSocket = serverSocket.accept();
+                // Blockerande kanal: en lästråd per klient, men läsningen går via direkta buffertar
+                SocketChannel clientChannel = serverChannel.accept();
+                Socket clientSocket = clientChannel.socket();
                 System.out.println("Ny enhet ansluten: " + clientSocket.getInetAddress());
 
+                // Med TLS går både läsning och skrivning genom TLS-kanalen
+                ReadableByteChannel clientInput = null;
+                OutputStream outputStream = clientSocket.getOutputStream();
+                if (tlsContext != null) {
+                    SSLEngine engine = tlsContext.createSSLEngine();
+                    engine.setUseClientMode(false);
+                    TlsChannel tlsChannel = new TlsChannel(clientChannel, engine);
+                    clientInput = tlsChannel;
+                    outputStream = tlsChannel.getOutputStream();
+                }
+
                 // Skapa output stream för att skicka meddelanden tillbaka till klienten
-                PrintWriter clientOutput = new PrintWriter(clientSocket.getOutputStream(), true);
+                PrintWriter clientOutput = new PrintWriter(outputStream, true);
 
                 // Lägg till klienten i listan över anslutna klienter
-                ClientConnection clientConnection = new ClientConnection(clientSocket, clientOutput);
-                connectedClients.add(clientConnection);
+                ClientConnection clientConnection = attachClient(clientSocket, clientOutput);
 
-                HandleClient clientHandler = new HandleClient(clientSocket, this, clientConnection);
+                HandleClient clientHandler = new HandleClient(clientSocket, this, clientConnection, clientInput);
                 clientHandler.start();
             }
         } catch (IOException e) {
@@ -123,32 +614,89 @@ public class MyServer {
         }
     }
 
+    /**
+     * Lägger till en ny klient i listan över anslutna klienter. Används både för
+     * klienter som ansluter direkt och för bilar som kommer via en gateway ({@link GatewayHub}).
+     *
+     * @param socket klientens socket
+     * @param output ström för att skicka meddelanden till klienten
+     * @return den nya anslutningen
+     */
+    public ClientConnection attachClient(Socket socket, PrintWriter output) {
+        ClientConnection clientConnection = new ClientConnection(socket, output, metrics, config);
+        connectedClients.add(clientConnection);
+        fireEvent(listener -> listener.clientConnected(clientConnection));
+        return clientConnection;
+    }
+
     /**
      * Hanterar meddelanden från anslutna enheter.
      * Identifierar om det är ESP32 eller ESP8266 baserat på meddelandet.
+     * Metoden är inte synkroniserad: varje anslutning läses av en egen tråd och
+     * delat tillstånd (biltabell, matchräknare, arena-kommando) är trådsäkert i sig.
+     * Meddelandet kan vara en återanvänd vy från {@link LineFramer} och får inte
+     * sparas efter anropet; använd toString() för det som ska sparas.
      *
      * @param message meddelande från klienten
      * @param clientConnection anslutningen som skickade meddelandet
      */
-    public synchronized void handleClientMessage(String message, ClientConnection clientConnection) {
-        System.out.println("Mottaget meddelande: " + message);
+    public void handleClientMessage(CharSequence message, ClientConnection clientConnection) {
+        // Anropas för varje rad, så lyssnarna gås igenom här utan lambda och iterator
+        ServerEventListener[] listeners = eventListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            try {
+                listeners[i].clientActivity(clientConnection);
+            } catch (Exception e) {
+                System.out.println("Fel i serverlyssnare: " + e.getMessage());
+            }
+        }
+        logTraffic(MappedLog.INBOUND, clientConnection, message);
 
-        // Identifiera klient-typ baserat på meddelandet
-        if (message.contains("ESP8266 frågar om kommando")) {
-            // Detta är ESP8266 arena-kontroll
-            clientConnection.clientType = "ESP8266";
-            clientConnection.carId = "ARENA";
-            System.out.println("✓ ESP8266 Arena-kontroll identifierad");
+        // En bil som återansluter visar sin sessionsnyckel i stället för att identifiera sig igen
+        if (clientConnection.carId == null && CharSequences.startsWith(message, RESUME_PREFIX)) {
+            handleResumeMessage(message, clientConnection);
+            return;
+        }
 
-            // Skicka aktuellt arena-kommando
-            clientConnection.output.println(currentArenaCommand);
-            System.out.println(" Skickat till ESP8266: " + currentArenaCommand);
+        // När inloggning krävs måste första raden vara en giltig nyckel
+        if (authenticator != null && !clientConnection.authenticated) {
+            handleAuthMessage(message, clientConnection);
+            return;
+        }
+
+        // Arena-kontrollen pollar ofta, så den hanteras först och utan loggning
+        if (CharSequences.startsWith(message, ARENA_PREFIX)) {
+            handleArenaMessage(message, clientConnection);
+            return;
+        }
+
+        // Kvittens, klocksynk och startrapport: "BIL1:ACK:17", "BIL1:PONG:...", "BIL1:STARTED:..."
+        int separator = CharSequences.indexOf(message, ':', 0);
+        if (separator > 0) {
+            if (CharSequences.startsWith(message, ACK_TOKEN, separator + 1)) {
+                handleAckMessage(message, separator, clientConnection);
+                return;
+            }
+            if (CharSequences.startsWith(message, PONG_TOKEN, separator + 1)) {
+                handlePongMessage(message, separator, clientConnection);
+                return;
+            }
+            if (CharSequences.startsWith(message, STARTED_TOKEN, separator + 1)) {
+                handleStartedMessage(message, separator, clientConnection);
+                return;
+            }
+        }
+
+        if (config.get(ServerConfig.LOG_CONSOLE)) {
+            System.out.println("Mottaget meddelande: " + message);
+        }
 
-        } else if (message.contains(":KROCK")) {
+        // Identifiera klient-typ baserat på meddelandet
+        if (CharSequences.contains(message, ":KROCK")) {
             // Detta är ESP32 bil som rapporterar krock
             handleCrashMessage(message, clientConnection);
 
-        } else if (message.startsWith("PING")) {
+        } else if (CharSequences.startsWith(message, "PING")) {
             // Heartbeat från någon enhet
             clientConnection.output.println("PONG");
 
@@ -161,221 +709,1398 @@ public class MyServer {
     /**
      * Hanterar krockmeddelanden från ESP32-bilar.
      * Minskar poäng och kontrollerar win-condition.
+     * Tillståndet uppdateras atomärt per bilplats, så metoden behöver inte vara synkroniserad.
      *
      * @param message meddelande från ESP32 (format: "BIL1:KROCK")
      * @param clientConnection anslutningen som skickade meddelandet
      */
-    public synchronized void handleCrashMessage(String message, ClientConnection clientConnection) {
+    public void handleCrashMessage(CharSequence message, ClientConnection clientConnection) {
         // Ex: "BIL1:KROCK"
-        String[] parts = message.split(":");
-        if (parts.length != 2) return;
-
-        String carId = parts[0];
-        String event = parts[1];
+        int separator = CharSequences.indexOf(message, ':', 0);
+        if (separator <= 0 || CharSequences.indexOf(message, ':', separator + 1) >= 0) return;
 
-        // Sätt carId för denna klient om det inte är satt
-        if (clientConnection.carId == null) {
-            clientConnection.carId = carId;
-            clientConnection.clientType = "ESP32";
-            System.out.println("ESP32 bil identifierad som: " + carId);
-        }
+        CarTable table = cars;
+        if (!identifyCar(message, separator, clientConnection)) return;
 
-        if (!event.equals("KROCK")) return;
+        if (message.length() - separator - 1 != 5 || !CharSequences.startsWith(message, "KROCK", separator + 1)) return;
 
-        // Kontrollera om bil-ID:t finns i vår mapping
-        if (!carIdToNameMapping.containsKey(carId)) {
-            System.out.println("Okänt bil-ID: " + carId);
+        // Platsen slås upp direkt i meddelandet, utan substring
+        int slot = table.slotOf(message, 0, separator);
+        if (slot < 0) {
+            System.out.println("Okänt bil-ID: " + message.subSequence(0, separator));
             return;
         }
 
-        // Startvärde om bilen inte finns
-        scoreMap.putIfAbsent(carId, 10);
-
-        // Minska score med 1 (men aldrig under 0)
-        int newScore = Math.max(scoreMap.get(carId) - 1, 0);
-        scoreMap.put(carId, newScore);
-
-        System.out.println(carId + " (" + carIdToNameMapping.get(carId) + ") har nu score: " + newScore);
-
-        // Uppdatera GUI:n om den är tillgänglig
-        if (leaderboardGUI != null) {
-            String carName = carIdToNameMapping.get(carId);
-            if (carName != null) {
-                SwingUtilities.invokeLater(() -> {
-                    leaderboardGUI.setScore(carName, newScore);
-                });
-            }
+        // Strömmar bilen telemetri avgör servern själv om bilen krockade
+        CollisionDetector detector = collisionDetector;
+        if (detector != null && detector.isDetecting(slot)) {
+            metrics.carCrashesIgnored.increment();
+            return;
         }
 
-        // Kontrollera win-condition
-        checkWinCondition();
+        registerCrash(table, slot);
     }
 
     /**
-     * Skickar arena-kommando till ESP8266.
+     * Registrerar en krock som servern upptäckt i en bils telemetri,
+     * på samma sätt som ett KROCK-meddelande från bilen.
      *
-     * @param command arena-kommando ("open" eller "close")
+     * @param table biltabellen som detekteringen gällde
+     * @param slot bilens plats
+     * @param deltaG förändringen i acceleration (g)
+     * @param thresholdG bilens tröskel (g)
      */
-    public void sendArenaCommand(String command) {
-        currentArenaCommand = command;
-        System.out.println("🏟️ Sätter arena-kommando till: " + command);
-
-        int sentCount = 0;
-
-        // Skicka till alla ESP8266 enheter
-        for (ClientConnection client : connectedClients) {
-            if ("ESP8266".equals(client.clientType)) {
-                try {
-                    if (client.output != null && client.socket.isConnected()) {
-                        client.output.println(command);
-                        sentCount++;
-                        System.out.println("📤 Skickat '" + command + "' till ESP8266 (" +
-                                client.socket.getInetAddress() + ")");
-                    }
-                } catch (Exception e) {
-                    System.out.println("Fel vid sändning till ESP8266: " + e.getMessage());
-                    connectedClients.remove(client);
-                }
-            }
-        }
-
-        if (sentCount == 0) {
-            System.out.println("⚠️ Ingen ESP8266 ansluten för arena-kontroll");
-        } else {
-            System.out.println("✅ Arena-kommando skickat till " + sentCount + " ESP8266 enheter");
+    public void reportDetectedCrash(CarTable table, int slot, float deltaG, float thresholdG) {
+        if (table != cars) {
+            return; // Värden från en avslutad match
         }
+        System.out.println(String.format(Locale.ROOT, "💥 Krock upptäckt för %s: %.2f g (tröskel %.2f g)",
+                table.getCarId(slot), deltaG, thresholdG));
+        registerCrash(table, slot);
     }
 
     /**
-     * Kontrollerar om någon bil har vunnit (alla andra bilar har 0 poäng).
-     * Visar ett JOptionPane-meddelande när en vinnare finns.
+     * Minskar en bils poäng för en krock, om matchen pågår och krocken inte
+     * ligger inom spärrtiden för föregående krock.
+     *
+     * @param table biltabellen
+     * @param slot bilens plats
      */
-    private void checkWinCondition() {
-        String potentialWinner = null;
-        int activeCars = 0;
-
-        // Räkna hur många bilar som fortfarande har poäng
-        for (Map.Entry<String, Integer> entry : scoreMap.entrySet()) {
-            if (entry.getValue() > 0) {
-                activeCars++;
-                potentialWinner = entry.getKey();
-            }
+    private void registerCrash(CarTable table, int slot) {
+        // Matchen är redan avgjord, krockar påverkar inte längre resultatet
+        if (matchTracker.isMatchOver()) {
+            System.out.println("Match redan avgjord, ignorerar krock från " + table.getCarId(slot));
+            return;
         }
 
-        // Skapa final variabler för lambda
-        final String finalWinner = potentialWinner;
-        final int finalActiveCars = activeCars;
-
-        // Om bara en bil har poäng kvar - vi har en vinnare!
-        if (finalActiveCars == 1 && finalWinner != null) {
-            String winnerName = carIdToNameMapping.get(finalWinner);
-
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(null,
-                        "🏆 " + winnerName + " (" + finalWinner + ") HAR VUNNIT! 🏆\n\n" +
-                                "Grattis till segern!",
-                        "MATCH ÖVER",
-                        JOptionPane.INFORMATION_MESSAGE);
-            });
-
-            System.out.println("MATCH ÖVER! Vinnare: " + winnerName + " (" + finalWinner + ")");
+        // En studsande krocksensor räknas bara en gång inom spärrtiden
+        long now = System.currentTimeMillis();
+        int debounce = config.get(ServerConfig.CRASH_DEBOUNCE_MILLIS);
+        if (debounce > 0 && table.getCrashCount(slot) > 0 && now - table.getLastCrashMillis(slot) < debounce) {
+            return;
         }
-        // Om inga bilar har poäng kvar - oavgjort
-        else if (finalActiveCars == 0) {
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(null,
-                        "OAVGJORT! \n\n" +
-                                "Alla bilar förlorade samtidigt!",
-                        "MATCH ÖVER",
-                        JOptionPane.INFORMATION_MESSAGE);
-            });
 
-            System.out.println("MATCH ÖVER! Oavgjort - alla bilar förlorade!");
+        // Minska score med 1 (men aldrig under 0)
+        scoreLowered(table, slot, table.applyCrash(slot, now), true);
+    }
+
+    /**
+     * Drar av ett straff från en bil, på samma sätt som en krock men utan att räkna den som krock.
+     * Används av operatören för att straffa enskilda bilar eller lag.
+     *
+     * @param slot bilens plats i CarTable
+     * @return true om straffet drogs av, false om platsen är okänd eller matchen är avgjord
+     */
+    public boolean penalizeCar(int slot) {
+        CarTable table = cars;
+        if (slot < 0 || slot >= table.size() || matchTracker.isMatchOver()) {
+            return false;
         }
+        System.out.println("⚖️ Straff för " + table.getCarId(slot));
+        scoreLowered(table, slot, table.applyPenalty(slot), false);
+        return true;
     }
 
     /**
-     * Skickar kommandon till alla anslutna ESP32-bilar.
+     * Uppdaterar GUI och lyssnare efter att en bils poäng har minskats med 1,
+     * och kontrollerar win-condition om bilen slogs ut.
      *
-     * @param message meddelande att skicka till bilar
+     * @param table biltabellen som ändrades
+     * @param slot bilens plats
+     * @param oldScore hälsan före ändringen
+     * @param crash true för en krock, false för ett straff
      */
-    public void broadcastToAllCars(String message) {
-        System.out.println(" Broadcast till alla enheter: " + message);
+    private void scoreLowered(CarTable table, int slot, int oldScore, boolean crash) {
+        int newScore = Math.max(oldScore - 1, 0);
 
-        // Kontrollera om det är arena-kommando
-        if (message.equalsIgnoreCase("open") || message.equalsIgnoreCase("close")) {
-            sendArenaCommand(message);
-            return;
+        if (config.get(ServerConfig.LOG_CONSOLE)) {
+            System.out.println(table.getCarId(slot) + " (" + table.getCarName(slot) + ") har nu score: " + newScore);
         }
 
-        // Skicka till ESP32 bilar
-        int sentCount = 0;
-        for (ClientConnection client : connectedClients) {
-            if ("ESP32".equals(client.clientType)) {
-                try {
-                    if (client.output != null && client.socket.isConnected()) {
-                        client.output.println(message);
-                        sentCount++;
-                        System.out.println("📤 Skickat '" + message + "' till " +
-                                (client.carId != null ? client.carId : "ESP32"));
-                    }
-                } catch (Exception e) {
-                    System.out.println("Fel vid sändning till ESP32: " + e.getMessage());
-                    connectedClients.remove(client);
-                }
+        // Uppdatera GUI:n om den är tillgänglig
+        requestScoreboardRefresh();
+
+        ServerEventListener[] listeners = eventListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            try {
+                listeners[i].carHit(slot, newScore, crash);
+            } catch (Exception e) {
+                System.out.println("Fel i serverlyssnare: " + e.getMessage());
+            }
+            try {
+                listeners[i].scoreChanged(slot, newScore);
+            } catch (Exception e) {
+                System.out.println("Fel i serverlyssnare: " + e.getMessage());
             }
         }
 
-        System.out.println(" Meddelande skickat till " + sentCount + " ESP32 bilar");
+        // Kontrollera win-condition bara när bilen precis slogs ut
+        if (oldScore > 0 && newScore == 0) {
+            int outcome = matchTracker.carEliminated(slot);
+            if (outcome != MatchTracker.MATCH_RUNNING) {
+                fireMatchOver(outcome);
+            }
+        }
     }
 
     /**
-     * Skickar kommando till en specifik bil.
+     * Kontrollerar bil-ID:t i ett meddelande. Utan inloggning sätts carId och plats
+     * första gången bilen skickar ett meddelande. Därefter måste alla meddelanden
+     * använda samma ID, så att en anslutning inte kan rapportera krockar för en annan bil.
      *
-     * @param carId ID för bilen att skicka till
-     * @param message meddelande att skicka
+     * @param message meddelande som börjar med bil-ID följt av kolon
+     * @param separator index för första kolon
+     * @param clientConnection anslutningen som skickade meddelandet
+     * @return true om meddelandet kommer från den bil som anslutningen tillhör
      */
-    public void sendToSpecificCar(String carId, String message) {
-        System.out.println("🎯 Skickar till " + carId + ": " + message);
-
-        for (ClientConnection client : connectedClients) {
-            if (carId.equals(client.carId)) {
-                try {
-                    if (client.output != null && client.socket.isConnected()) {
-                        client.output.println(message);
-                        System.out.println(" Skickade '" + message + "' till " + carId);
-                        return;
-                    }
-                } catch (Exception e) {
-                    System.out.println("Fel vid sändning till " + carId + ": " + e.getMessage());
-                    connectedClients.remove(client);
-                }
-            }
+    private boolean identifyCar(CharSequence message, int separator, ClientConnection clientConnection) {
+        String carId = clientConnection.carId;
+        if (carId == null) {
+            bindCar(clientConnection, message.subSequence(0, separator).toString());
+            return true;
+        }
+        if (separator == carId.length() && CharSequences.startsWith(message, carId, 0)) {
+            return true;
         }
 
-        System.out.println("Kunde inte hitta ansluten enhet: " + carId);
+        metrics.spoofedMessages.increment();
+        System.out.println("⛔ " + clientConnection + " skickade meddelande som " +
+                message.subSequence(0, separator) + ", ignoreras");
+        return false;
     }
 
     /**
-     * Tar bort en frånkopplad klient från listan.
+     * Knyter en anslutning till en bil och gör den nåbar via bilens plats.
      *
-     * @param clientConnection klienten att ta bort
+     * @param clientConnection anslutningen
+     * @param carId bilens ID
      */
-    public void removeClient(ClientConnection clientConnection) {
-        connectedClients.remove(clientConnection);
-        String clientInfo = clientConnection.clientType + " " +
-                (clientConnection.carId != null ? clientConnection.carId : "okänd");
-        System.out.println(" Klient frånkopplad: " + clientInfo);
+    private void bindCar(ClientConnection clientConnection, String carId) {
+        clientConnection.carId = carId;
+        clientConnection.carSlot = cars.slotOf(carId);
+        clientConnection.clientType = "ESP32";
+        AtomicReferenceArray<ClientConnection> index = connectionBySlot;
+        if (clientConnection.carSlot >= 0 && clientConnection.carSlot < index.length()) {
+            index.set(clientConnection.carSlot, clientConnection);
+        }
+        System.out.println("ESP32 bil identifierad som: " + carId);
+
+        // Sessionsnyckeln låter bilen återansluta utan att identifiera sig igen
+        if (config.get(ServerConfig.SESSION_RESUME_MILLIS) > 0) {
+            String token = newSessionToken();
+            clientConnection.sessionToken = token;
+            sessions.put(token, clientConnection);
+            sendLine(clientConnection, SESSION_PREFIX + token);
+        }
+        fireEvent(listener -> listener.clientIdentified(clientConnection));
     }
 
     /**
-     * Får antal anslutna enheter.
+     * Hanterar en återanslutning ("RESUME nyckel"). Sessionen slås upp direkt på
+     * nyckeln, och den nya socketen tar över den gamla anslutningen. Bilen behåller
+     * därmed sin plats, sina sekvensnummer, okvitterade kommandon och klockuppskattning,
+     * och rader som skickades under avbrottet skickas i ordning efter {@link #RESUME_OK}.
+     * Hälsan ligger kvar i biltabellen på bilens plats.
      *
-     * @return antal anslutna klienter
+     * @param message återanslutningen
+     * @param connection den nya, ännu oidentifierade anslutningen
      */
-    public int getConnectedCarsCount() {
-        return connectedClients.size();
-    }
+    private void handleResumeMessage(CharSequence message, ClientConnection connection) {
+        String token = message.subSequence(RESUME_PREFIX.length(), message.length()).toString().trim();
+        ClientConnection session = sessions.get(token);
+        boolean started = false;
+        if (session != null && session != connection) {
+            synchronized (session) {
+                // Annars har sessionen precis gått ut, eller en annan anslutning håller på att ta över den
+                if (session.sessionToken != null && !session.resuming) {
+                    session.resuming = true;
+                    started = true;
+                }
+            }
+        }
+        if (!started) {
+            System.out.println("Okänd session från " + connection.socket.getInetAddress());
+            sendLine(connection, RESUME_FAIL);
+            if (authenticator != null) {
+                // En gissad nyckel räknas som en misslyckad inloggning
+                metrics.authFailures.increment();
+                disconnect(connection);
+            }
+            return;
+        }
+
+        Socket oldSocket;
+        int flushed = 0;
+        try {
+            // Svaret först, sedan det som skickades under avbrottet. Raderna skickas utan sessionens lås,
+            // så trådar som skickar till bilen under tiden inte väntar på den nya socketen: de köar i
+            // outboxen (sessionen är fortfarande frånkopplad) och skickas i nästa varv. Sessionen tar
+            // över socketen först när outboxen är tom. Bil-ID:t sätts först då, så en anslutning som
+            // dör under tiden kopplas från som oidentifierad.
+            if (!sendLine(connection, RESUME_OK)) {
+                return; // Den nya anslutningen dog direkt, sessionen väntar på nästa försök
+            }
+            while (true) {
+                List<String> lines;
+                synchronized (session) {
+                    if (session.sessionToken == null) {
+                        lines = null; // Sessionen gick ut medan raderna skickades
+                    } else if (session.outbox.isEmpty()) {
+                        connection.carId = session.carId;
+                        oldSocket = session.socket;
+                        session.socket = connection.socket;
+                        session.output = connection.output;
+                        session.authenticated = true;
+                        session.detached = false;
+                        session.sessionGeneration++;
+                        connection.resumedAs = session;
+                        break;
+                    } else {
+                        lines = new ArrayList<>(session.outbox);
+                        session.outbox.clear();
+                    }
+                }
+                if (lines == null) {
+                    disconnect(connection);
+                    return;
+                }
+                for (int i = 0; i < lines.size(); i++) {
+                    if (!sendLine(connection, lines.get(i))) {
+                        requeueLines(session, lines.subList(i, lines.size()));
+                        return; // Resten ligger kvar i outboxen till nästa försök
+                    }
+                    flushed++;
+                }
+            }
+        } finally {
+            synchronized (session) {
+                session.resuming = false;
+            }
+        }
+
+        // Den tillfälliga anslutningen ersätts av sessionen
+        connectedClients.remove(connection);
+        fireEvent(listener -> listener.clientDisconnected(connection));
+        AtomicReferenceArray<ClientConnection> index = connectionBySlot;
+        int slot = session.carSlot;
+        if (slot >= 0 && slot < index.length()) {
+            index.set(slot, session);
+        }
+
+        // En gammal socket som aldrig märkte avbrottet stängs; dess lästråd tar inte bort sessionen
+        if (oldSocket != null && oldSocket != session.socket) {
+            try {
+                oldSocket.close();
+            } catch (IOException e) {
+                System.out.println("Fel vid stängning av socket: " + e.getMessage());
+            }
+        }
+
+        metrics.sessionsResumed.increment();
+        System.out.println("🔁 " + session.carId + " återupptog sin session (" + flushed + " sparade rader, " +
+                session.pendingCommands.size() + " okvitterade kommandon)");
+        ClientConnection resumed = session;
+        fireEvent(listener -> listener.clientIdentified(resumed));
+    }
+
+    /**
+     * Skapar en slumpad sessionsnyckel.
+     *
+     * @return nyckeln i hexadecimal form
+     */
+    private String newSessionToken() {
+        byte[] bytes = new byte[SESSION_TOKEN_BYTES];
+        random.nextBytes(bytes);
+        StringBuilder token = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Knyter en anslutning till arena-kontrollen.
+     *
+     * @param clientConnection anslutningen
+     */
+    private void bindArena(ClientConnection clientConnection) {
+        clientConnection.clientType = "ESP8266";
+        clientConnection.carId = CarAuthenticator.ARENA_ID;
+        System.out.println("✓ ESP8266 Arena-kontroll identifierad");
+        fireEvent(listener -> listener.clientIdentified(clientConnection));
+    }
+
+    /**
+     * Hanterar inloggningen, som måste vara första raden när inloggning krävs:
+     * "BIL1:AUTH:nyckel" från en bil eller "ESP8266 AUTH nyckel" från arena-kontrollen.
+     * Nyckeln kontrolleras en gång, och ID:t låses till anslutningen. En felaktig
+     * nyckel eller något annat meddelande ger {@link #AUTH_FAIL} och anslutningen stängs.
+     *
+     * @param message första raden från anslutningen
+     * @param clientConnection anslutningen som loggar in
+     */
+    private void handleAuthMessage(CharSequence message, ClientConnection clientConnection) {
+        if (clientConnection.socket.isClosed()) {
+            return; // Rader som redan var lästa när anslutningen nekades
+        }
+
+        String id = null;
+        String token = null;
+        if (CharSequences.startsWith(message, ARENA_AUTH)) {
+            id = CarAuthenticator.ARENA_ID;
+            token = message.subSequence(ARENA_AUTH.length(), message.length()).toString();
+        } else {
+            int separator = CharSequences.indexOf(message, ':', 0);
+            if (separator > 0 && CharSequences.startsWith(message, AUTH_TOKEN, separator + 1)) {
+                id = message.subSequence(0, separator).toString();
+                token = message.subSequence(separator + 1 + AUTH_TOKEN.length(), message.length()).toString();
+            }
+        }
+
+        if (id == null || !authenticator.verify(id, token)) {
+            metrics.authFailures.increment();
+            System.out.println("⛔ Inloggning nekad för " + clientConnection.socket.getInetAddress() + ", kopplar från");
+            sendLine(clientConnection, AUTH_FAIL);
+            disconnect(clientConnection);
+            return;
+        }
+
+        clientConnection.authenticated = true;
+        sendLine(clientConnection, AUTH_OK);
+        if (CarAuthenticator.ARENA_ID.equals(id)) {
+            bindArena(clientConnection);
+        } else {
+            bindCar(clientConnection, id);
+        }
+    }
+
+    /**
+     * Hanterar meddelanden från ESP8266 arena-kontroll.
+     * Äldre firmware pollar och får det aktuella kommandot som svar. Nyare
+     * firmware prenumererar en gång och kvitterar sedan varje pushad version.
+     *
+     * @param message meddelande som börjar med {@link #ARENA_PREFIX}
+     * @param clientConnection anslutningen som skickade meddelandet
+     */
+    private void handleArenaMessage(CharSequence message, ClientConnection clientConnection) {
+        if (!"ESP8266".equals(clientConnection.clientType)) {
+            // En bil kan inte ta över arena-kontrollens roll
+            if (clientConnection.carId != null) {
+                metrics.spoofedMessages.increment();
+                System.out.println("⛔ " + clientConnection + " skickade arena-meddelande, ignoreras");
+                return;
+            }
+            // Detta är ESP8266 arena-kontroll
+            bindArena(clientConnection);
+        }
+
+        if (CharSequences.startsWith(message, ARENA_POLL)) {
+            // Skicka aktuellt arena-kommando
+            clientConnection.output.println(arenaState.command);
+
+        } else if (CharSequences.startsWith(message, ARENA_ACK)) {
+            try {
+                long version = CharSequences.parseLong(message, ARENA_ACK.length());
+                // Bara anslutningens egen lästråd skriver fältet
+                if (version > clientConnection.arenaAckedVersion) {
+                    clientConnection.arenaAckedVersion = version;
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Ogiltig arena-kvittens: " + message);
+            }
+
+        } else if (CharSequences.startsWith(message, ARENA_SUBSCRIBE)) {
+            clientConnection.arenaSubscribed = true;
+            ArenaState state = arenaState;
+            clientConnection.output.println(ARENA_PUSH + state.version + " " + state.command);
+            System.out.println("✓ ESP8266 prenumererar på arena-kommandon (" +
+                    clientConnection.socket.getInetAddress() + ")");
+            scheduleArenaRetransmit(state.version, 0);
+
+        } else {
+            System.out.println("Okänt meddelande från ESP8266 " +
+                    clientConnection.socket.getInetAddress() + ": " + message);
+        }
+    }
+
+    /**
+     * Skickar arena-kommando till ESP8266.
+     * Prenumererande kontroller får kommandot med versionsnummer och det skickas
+     * om tills de kvitterar; pollande kontroller får det i sitt nästa svar.
+     *
+     * @param command arena-kommando ("open" eller "close")
+     */
+    public synchronized void sendArenaCommand(String command) {
+        ArenaState state = new ArenaState(arenaState.version + 1, command);
+        arenaState = state;
+        System.out.println("🏟️ Sätter arena-kommando till: " + command + " (version " + state.version + ")");
+        fireEvent(listener -> listener.arenaChanged(command, state.version));
+
+        int sentCount = 0;
+        boolean anySubscribed = false;
+
+        // Skicka till alla ESP8266 enheter
+        for (ClientConnection client : connectedClients) {
+            if ("ESP8266".equals(client.clientType)) {
+                String line = client.arenaSubscribed ? ARENA_PUSH + state.version + " " + command : command;
+                if (sendLine(client, line)) {
+                    anySubscribed |= client.arenaSubscribed;
+                    sentCount++;
+                    System.out.println("📤 Skickat '" + command + "' till ESP8266 (" +
+                            client.socket.getInetAddress() + ")");
+                }
+            }
+        }
+
+        if (sentCount == 0) {
+            System.out.println("⚠️ Ingen ESP8266 ansluten för arena-kontroll");
+        } else {
+            System.out.println("✅ Arena-kommando skickat till " + sentCount + " ESP8266 enheter");
+        }
+
+        if (anySubscribed) {
+            scheduleArenaRetransmit(state.version, 0);
+        }
+    }
+
+    /**
+     * Schemalägger en kontroll av att alla prenumeranter har kvitterat en arena-version.
+     *
+     * @param version versionen som ska kvitteras
+     * @param attempt antal omsändningar hittills
+     */
+    private void scheduleArenaRetransmit(long version, int attempt) {
+        scheduler.schedule(() -> retransmitArena(version, attempt),
+                ARENA_RETRANSMIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Skickar om en arena-version till prenumeranter som inte har kvitterat den.
+     * En nyare version ersätter den gamla, så då avbryts omsändningen.
+     *
+     * @param version versionen som ska kvitteras
+     * @param attempt antal omsändningar hittills
+     */
+    private void retransmitArena(long version, int attempt) {
+        ArenaState state = arenaState;
+        if (state.version != version) {
+            return;
+        }
+
+        boolean pending = false;
+        for (ClientConnection client : connectedClients) {
+            if (client.arenaSubscribed && client.arenaAckedVersion < version) {
+                if (attempt >= ARENA_MAX_RETRANSMITS) {
+                    System.out.println("⚠️ ESP8266 (" + client.socket.getInetAddress() +
+                            ") har inte kvitterat arena-version " + version);
+                    continue;
+                }
+                pending |= sendLine(client, ARENA_PUSH + version + " " + state.command);
+            }
+        }
+
+        if (pending) {
+            scheduleArenaRetransmit(version, attempt + 1);
+        }
+    }
+
+    /**
+     * Får det aktuella arena-kommandot.
+     *
+     * @return "open" eller "close"
+     */
+    public String getArenaCommand() {
+        return arenaState.command;
+    }
+
+    /**
+     * Får versionen av det aktuella arena-kommandot.
+     * Versionen ökar med ett för varje nytt kommando.
+     *
+     * @return arena-version
+     */
+    public long getArenaVersion() {
+        return arenaState.version;
+    }
+
+    /**
+     * Rapporterar matchslutet till alla lyssnare.
+     * Anropas exakt en gång per match av den tråd som avgjorde matchen.
+     *
+     * @param winnerTeam vinnande lag eller {@link MatchTracker#DRAW}
+     */
+    private void fireMatchOver(int winnerTeam) {
+        CarTable table = cars;
+
+        // Slutställning för alla bilar, används bl.a. för matchhistoriken
+        List<MatchResult.Participant> participants = new ArrayList<>(table.size());
+        for (int slot = 0; slot < table.size(); slot++) {
+            participants.add(new MatchResult.Participant(
+                    table.getCarId(slot),
+                    table.getCarName(slot),
+                    table.getPlayerName(slot),
+                    table.getHealth(slot),
+                    table.getCrashCount(slot),
+                    winnerTeam >= 0 && matchTracker.getTeam(slot) == winnerTeam));
+        }
+
+        MatchResult result;
+        if (winnerTeam == MatchTracker.DRAW) {
+            result = new MatchResult(null, null, MatchTracker.DRAW, System.currentTimeMillis(), participants);
+            System.out.println("MATCH ÖVER! Oavgjort - alla bilar förlorade!");
+        } else {
+            // Hitta en levande bil i det vinnande laget
+            String winnerId = null;
+            String winnerName = null;
+            for (int slot = 0; slot < table.size(); slot++) {
+                if (matchTracker.getTeam(slot) == winnerTeam && table.getHealth(slot) > 0) {
+                    winnerId = table.getCarId(slot);
+                    winnerName = table.getCarName(slot);
+                    break;
+                }
+            }
+            result = new MatchResult(winnerId, winnerName, winnerTeam, System.currentTimeMillis(), participants);
+            System.out.println("MATCH ÖVER! Vinnare: " + winnerName + " (" + winnerId + ")");
+        }
+
+        for (ServerEventListener listener : eventListeners) {
+            try {
+                listener.matchOver(result);
+            } catch (Exception e) {
+                System.out.println("Fel i lyssnare för matchslut: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Skickar en händelse till alla lyssnare.
+     * Ett fel i en lyssnare stoppar inte de andra eller servertråden.
+     *
+     * @param event anropet som ska göras på varje lyssnare
+     */
+    private void fireEvent(Consumer<ServerEventListener> event) {
+        for (ServerEventListener listener : eventListeners) {
+            try {
+                event.accept(listener);
+            } catch (Exception e) {
+                System.out.println("Fel i serverlyssnare: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Registrerar en lyssnare för serverhändelser.
+     *
+     * @param listener lyssnaren att lägga till
+     */
+    public synchronized void addServerEventListener(ServerEventListener listener) {
+        ServerEventListener[] listeners = Arrays.copyOf(eventListeners, eventListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        eventListeners = listeners;
+    }
+
+    /**
+     * Tar bort en tidigare registrerad lyssnare.
+     *
+     * @param listener lyssnaren att ta bort
+     */
+    public synchronized void removeServerEventListener(ServerEventListener listener) {
+        ServerEventListener[] listeners = eventListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                ServerEventListener[] remaining = new ServerEventListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+                eventListeners = remaining;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Begär en uppdatering av poängtavlan, om det finns en.
+     */
+    private void requestScoreboardRefresh() {
+        CoalescingListener refresh = scoreboardRefresh;
+        if (refresh != null) {
+            refresh.requestRefresh();
+        }
+    }
+
+    /**
+     * Anger om matchen är avgjord.
+     *
+     * @return true om en vinnare (eller oavgjort) redan har rapporterats
+     */
+    public boolean isMatchOver() {
+        return matchTracker.isMatchOver();
+    }
+
+    /**
+     * Skickar kommandon till alla anslutna ESP32-bilar.
+     * Bilar som kvitterar får kommandot med sekvensnummer och det skickas om
+     * tills de kvitterar; leveransen kan följas via {@link #getLastCarDelivery()}.
+     *
+     * @param message meddelande att skicka till bilar
+     * @return leveransstatus, eller null för arena-kommandon
+     */
+    public CommandDelivery broadcastToAllCars(String message) {
+        System.out.println(" Broadcast till alla enheter: " + message);
+
+        // Kontrollera om det är arena-kommando
+        if (message.equalsIgnoreCase("open") || message.equalsIgnoreCase("close")) {
+            sendArenaCommand(message);
+            return null;
+        }
+
+        // Skicka till ESP32 bilar
+        List<ClientConnection> targets = new ArrayList<>();
+        for (ClientConnection client : connectedClients) {
+            if ("ESP32".equals(client.clientType)) {
+                targets.add(client);
+            }
+        }
+
+        CommandDelivery delivery = sendReliable(targets, message);
+        System.out.println(" Meddelande skickat till " +
+                (targets.size() - delivery.countState(CommandDelivery.FAILED)) + " ESP32 bilar");
+        return delivery;
+    }
+
+    /**
+     * Skickar kommando till en specifik bil.
+     *
+     * @param carId ID för bilen att skicka till
+     * @param message meddelande att skicka
+     * @return leveransstatus, eller null om bilen inte är ansluten
+     */
+    public CommandDelivery sendToSpecificCar(String carId, String message) {
+        return sendToCar(carId, message);
+    }
+
+    /**
+     * Skickar kommando till en bil. Bilar i matchen slås upp direkt i
+     * anslutningsindexet; övriga bil-ID söks bland alla anslutningar.
+     *
+     * @param carId ID för bilen att skicka till
+     * @param command kommando att skicka
+     * @return leveransstatus, eller null om bilen inte är ansluten
+     */
+    public CommandDelivery sendToCar(String carId, String command) {
+        System.out.println("🎯 Skickar till " + carId + ": " + command);
+
+        ClientConnection target = null;
+        int slot = cars.slotOf(carId);
+        if (slot >= 0) {
+            target = connectionBySlot.get(slot);
+        } else {
+            for (ClientConnection client : connectedClients) {
+                if (carId.equals(client.carId)) {
+                    target = client;
+                }
+            }
+        }
+
+        if (target == null) {
+            System.out.println("Kunde inte hitta ansluten enhet: " + carId);
+            return null;
+        }
+        CommandDelivery delivery = sendReliable(Collections.singletonList(target), command);
+        if (delivery.getState(0) != CommandDelivery.FAILED) {
+            System.out.println(" Skickade '" + command + "' till " + carId);
+        }
+        return delivery;
+    }
+
+    /**
+     * Skickar kommando till alla anslutna bilar i ett lag.
+     * Bara lagets egna platser gås igenom.
+     *
+     * @param team lagets index (0 = lag 1)
+     * @param command kommando att skicka
+     * @return leveransstatus (tom om laget saknas eller ingen bil är ansluten)
+     */
+    public CommandDelivery sendToTeam(int team, String command) {
+        int[][] teams = slotsByTeam;
+        int[] slots = team >= 0 && team < teams.length ? teams[team] : new int[0];
+        System.out.println("🎯 Skickar till lag " + (team + 1) + ": " + command);
+        return sendToSlots(slots, slots.length, command);
+    }
+
+    /**
+     * Skickar kommando till alla anslutna bilar i matchen som uppfyller ett villkor.
+     *
+     * @param slotFilter villkor på bilens plats i CarTable
+     * @param command kommando att skicka
+     * @return leveransstatus (tom om ingen bil matchar)
+     */
+    public CommandDelivery sendToCarsMatching(IntPredicate slotFilter, String command) {
+        int size = cars.size();
+        int[] slots = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (slotFilter.test(slot)) {
+                slots[count++] = slot;
+            }
+        }
+        System.out.println("🎯 Skickar till " + count + " valda bilar: " + command);
+        return sendToSlots(slots, count, command);
+    }
+
+    /**
+     * Skickar kommando till de anslutna bilarna på givna platser.
+     *
+     * @param slots platser i CarTable
+     * @param count antal platser att använda från arrayen
+     * @param command kommando att skicka
+     * @return leveransstatus
+     */
+    private CommandDelivery sendToSlots(int[] slots, int count, String command) {
+        AtomicReferenceArray<ClientConnection> index = connectionBySlot;
+        List<ClientConnection> targets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int slot = slots[i];
+            ClientConnection client = slot < index.length() ? index.get(slot) : null;
+            if (client != null) {
+                targets.add(client);
+            }
+        }
+        return sendReliable(targets, command);
+    }
+
+    /**
+     * Får lagets index för en bilplats.
+     *
+     * @param slot bilens plats i CarTable
+     * @return lagets index (0 = lag 1), eller -1 för en okänd plats
+     */
+    public int getTeam(int slot) {
+        return matchTracker.getTeam(slot);
+    }
+
+    /**
+     * Får antal lag i pågående match.
+     *
+     * @return antal lag
+     */
+    public int getTeamCount() {
+        return slotsByTeam.length;
+    }
+
+    /**
+     * Skickar ett kommando till en grupp bilar med kvittens och omsändning.
+     * Bilar som har visat att de kvitterar får "CMD sekvensnummer kommando",
+     * övriga får kommandot som vanlig text.
+     *
+     * @param targets anslutningarna att skicka till
+     * @param command kommandot
+     * @return leveransstatus för kommandot
+     */
+    public CommandDelivery sendReliable(List<ClientConnection> targets, String command) {
+        return sendReliable(targets, command, client -> command);
+    }
+
+    /**
+     * Skickar ett kommando till en grupp bilar med en egen rad per bil,
+     * t.ex. en starttid omräknad till varje bils klocka.
+     *
+     * @param targets anslutningarna att skicka till
+     * @param command kommandot, används i leveransstatus
+     * @param lineFor raden som skickas till respektive anslutning
+     * @return leveransstatus för kommandot
+     */
+    public CommandDelivery sendReliable(List<ClientConnection> targets, String command,
+                                        Function<ClientConnection, String> lineFor) {
+        CommandDelivery delivery = new CommandDelivery(command, targets.toArray(new ClientConnection[0]));
+        boolean awaitingAck = false;
+
+        for (int i = 0; i < delivery.getTargetCount(); i++) {
+            ClientConnection client = delivery.getTarget(i);
+            String line = lineFor.apply(client);
+            delivery.setPayload(i, line);
+            if (client.ackCapable) {
+                int sequence = client.nextSequence.incrementAndGet();
+                delivery.setSequence(i, sequence);
+                client.pendingCommands.put(sequence, delivery);
+                delivery.recordAttempt(i);
+                if (sendLine(client, COMMAND_PREFIX + sequence + " " + line)) {
+                    awaitingAck = true;
+                } else {
+                    client.pendingCommands.remove(sequence);
+                    delivery.markFailed(i);
+                }
+            } else {
+                delivery.recordAttempt(i);
+                if (sendLine(client, line)) {
+                    delivery.markUnconfirmed(i);
+                } else {
+                    delivery.markFailed(i);
+                }
+            }
+        }
+
+        lastCarDelivery = delivery;
+        if (awaitingAck) {
+            scheduleCommandRetransmit(delivery);
+        }
+        return delivery;
+    }
+
+    /**
+     * Schemalägger en kontroll av att alla mottagare har kvitterat ett kommando.
+     *
+     * @param delivery leveransen att kontrollera
+     */
+    private void scheduleCommandRetransmit(CommandDelivery delivery) {
+        scheduler.schedule(() -> retransmitCommand(delivery),
+                config.get(ServerConfig.ACK_TIMEOUT_MILLIS), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Skickar om ett kommando till mottagare som inte har kvitterat det.
+     * Efter det inställda antalet försök räknas leveransen som misslyckad.
+     *
+     * @param delivery leveransen att kontrollera
+     */
+    private void retransmitCommand(CommandDelivery delivery) {
+        boolean pending = false;
+        for (int i = 0; i < delivery.getTargetCount(); i++) {
+            if (delivery.getState(i) != CommandDelivery.IN_FLIGHT) {
+                continue;
+            }
+            ClientConnection client = delivery.getTarget(i);
+            if (client.detached) {
+                pending = true; // Väntar på att bilen återansluter, försöken räknas inte
+                continue;
+            }
+            int sequence = delivery.getSequence(i);
+            if (delivery.getAttempts(i) >= config.get(ServerConfig.MAX_SEND_ATTEMPTS)
+                    || !sendLine(client, COMMAND_PREFIX + sequence + " " + delivery.getPayload(i))) {
+                client.pendingCommands.remove(sequence);
+                delivery.markFailed(i);
+                System.out.println("⚠️ " + (client.carId != null ? client.carId : "ESP32") +
+                        " kvitterade inte '" + delivery.getCommand() + "' (sekvens " + sequence + ")");
+                continue;
+            }
+            delivery.recordAttempt(i);
+            pending = true;
+        }
+
+        if (pending) {
+            scheduleCommandRetransmit(delivery);
+        }
+    }
+
+    /**
+     * Hanterar en kvittens från en bil ("BIL1:ACK:17").
+     * Den första kvittensen markerar anslutningen som kvitterande; en bil kan
+     * annonsera stödet med "BILn:ACK:0" direkt efter anslutning.
+     *
+     * @param message kvittensmeddelandet
+     * @param separator index för första kolon
+     * @param clientConnection anslutningen som skickade kvittensen
+     */
+    private void handleAckMessage(CharSequence message, int separator, ClientConnection clientConnection) {
+        if (!identifyCar(message, separator, clientConnection)) {
+            return;
+        }
+
+        int sequence;
+        try {
+            sequence = (int) CharSequences.parseLong(message, separator + 1 + ACK_TOKEN.length());
+        } catch (NumberFormatException e) {
+            System.out.println("Ogiltig kvittens: " + message);
+            return;
+        }
+
+        if (!clientConnection.ackCapable) {
+            clientConnection.ackCapable = true;
+            System.out.println("✓ " + clientConnection.carId + " kvitterar kommandon");
+            // Första klocksynken direkt, så bilen kan delta i nästa synkroniserade start
+            sendLine(clientConnection, SYNC_PREFIX + serverMillis());
+        }
+
+        CommandDelivery delivery = clientConnection.pendingCommands.remove(sequence);
+        if (delivery != null) {
+            int target = delivery.indexOf(clientConnection);
+            if (target >= 0) {
+                delivery.markAcked(target, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Startar alla bilar samtidigt.
+     * Starttiden väljs så långt fram att kommandot hinner fram till alla bilar,
+     * och skickas som "START@tid" omräknad till varje bils klocka. Bilar utan
+     * klockuppskattning får "START" och startar direkt. Avvikelsen för varje bil
+     * skrivs ut när bilarna har rapporterat sin start.
+     *
+     * @return startrapport som fylls i när bilarna rapporterar
+     */
+    public StartReport startAllCars() {
+        List<ClientConnection> targets = new ArrayList<>();
+        long maxRtt = 0;
+        for (ClientConnection client : connectedClients) {
+            // En samtidig start kan inte vänta på bilar som håller på att återansluta
+            if ("ESP32".equals(client.clientType) && !client.detached) {
+                targets.add(client);
+                maxRtt = Math.max(maxRtt, client.clock.getRttMillis());
+            }
+        }
+
+        long lead = Math.max(MIN_START_LEAD_MILLIS, 3 * maxRtt);
+        long target = serverMillis() + lead;
+        boolean[] synced = new boolean[targets.size()];
+        for (int i = 0; i < synced.length; i++) {
+            synced[i] = targets.get(i).clock.hasEstimate();
+        }
+
+        System.out.println("🏁 Synkroniserad start om " + lead + " ms till " + targets.size() + " ESP32 bilar");
+        CommandDelivery delivery = sendReliable(targets, "START", client -> client.clock.hasEstimate()
+                ? "START@" + client.clock.toCarMillis(target)
+                : "START");
+
+        StartReport report = new StartReport(target, delivery, synced);
+        lastStartReport = report;
+        scheduler.schedule(report::print, lead + START_REPORT_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        return report;
+    }
+
+    /**
+     * Skickar klocksynk till alla bilar som kvitterar kommandon.
+     * Äldre bilar får inga synkar, eftersom de tolkar varje rad som ett kommando.
+     */
+    private void syncClocks() {
+        for (ClientConnection client : connectedClients) {
+            if (client.ackCapable && !client.detached) {
+                sendLine(client, SYNC_PREFIX + serverMillis());
+            }
+        }
+    }
+
+    /**
+     * Hanterar svar på klocksynk ("BIL1:PONG:serverTid:bilTid").
+     *
+     * @param message svarsmeddelandet
+     * @param separator index för första kolon
+     * @param clientConnection anslutningen som svarade
+     */
+    private void handlePongMessage(CharSequence message, int separator, ClientConnection clientConnection) {
+        long received = serverMillis();
+        if (!identifyCar(message, separator, clientConnection)) {
+            return;
+        }
+
+        int start = separator + 1 + PONG_TOKEN.length();
+        int timeSeparator = CharSequences.indexOf(message, ':', start);
+        if (timeSeparator < 0) {
+            System.out.println("Ogiltigt synksvar: " + message);
+            return;
+        }
+        try {
+            long sent = CharSequences.parseLong(message, start, timeSeparator);
+            long carTime = CharSequences.parseLong(message, timeSeparator + 1);
+            clientConnection.clock.addSample(sent, carTime, received);
+        } catch (NumberFormatException e) {
+            System.out.println("Ogiltigt synksvar: " + message);
+        }
+    }
+
+    /**
+     * Hanterar startrapport från en bil ("BIL1:STARTED:bilTid").
+     *
+     * @param message startrapporten
+     * @param separator index för första kolon
+     * @param clientConnection anslutningen som rapporterade
+     */
+    private void handleStartedMessage(CharSequence message, int separator, ClientConnection clientConnection) {
+        if (!identifyCar(message, separator, clientConnection)) {
+            return;
+        }
+        StartReport report = lastStartReport;
+        if (report == null) {
+            return;
+        }
+
+        int target = report.getDelivery().indexOf(clientConnection);
+        if (target < 0) {
+            return;
+        }
+        try {
+            long carTime = CharSequences.parseLong(message, separator + 1 + STARTED_TOKEN.length());
+            report.markStarted(target, clientConnection.clock.toServerMillis(carTime));
+        } catch (NumberFormatException e) {
+            System.out.println("Ogiltig startrapport: " + message);
+        }
+    }
+
+    /**
+     * Serverns monotona klocka, som används för klocksynk och starttider.
+     *
+     * @return millisekunder sedan servern skapades
+     */
+    public long serverMillis() {
+        return (System.nanoTime() - epochNanos) / 1_000_000;
+    }
+
+    /**
+     * Får resultatet av den senaste synkroniserade starten.
+     *
+     * @return senaste startrapporten, eller null om ingen start har gjorts
+     */
+    public StartReport getLastStartReport() {
+        return lastStartReport;
+    }
+
+    /**
+     * Skickar en rad till en klient och kontrollerar att den gick iväg.
+     * PrintWriter sväljer IOException, så felet upptäcks med checkError och
+     * anslutningen stängs och tas bort. Till en bil som håller på att återansluta
+     * sparas raden i stället och skickas när sessionen återupptas.
+     *
+     * @param client klienten att skicka till
+     * @param line raden att skicka
+     * @return true om raden skickades eller sparades
+     */
+    private boolean sendLine(ClientConnection client, String line) {
+        if (client.detached && queueLine(client, line)) {
+            return true;
+        }
+        Socket socket = client.socket;
+        PrintWriter output = client.output;
+        if (output == null || socket.isClosed()) {
+            return false;
+        }
+        output.println(line);
+        if (!output.checkError()) {
+            logTraffic(MappedLog.OUTBOUND, client, line);
+            return true;
+        }
+
+        System.out.println("Fel vid sändning till " +
+                (client.carId != null ? client.carId : socket.getInetAddress()) + ", kopplar från");
+        disconnect(client, socket);
+        return false;
+    }
+
+    /**
+     * Lägger tillbaka rader som inte hann skickas vid en återanslutning, före de som köats
+     * under tiden. Blir kön för lång får de äldsta raderna ge plats.
+     *
+     * @param client den frånkopplade bilen
+     * @param lines raderna i den ordning de skulle ha skickats
+     */
+    private void requeueLines(ClientConnection client, List<String> lines) {
+        synchronized (client) {
+            for (int i = lines.size() - 1; i >= 0; i--) {
+                client.outbox.addFirst(lines.get(i));
+            }
+            while (client.outbox.size() > MAX_OUTBOX_LINES) {
+                client.outbox.pollFirst();
+            }
+        }
+    }
+
+    /**
+     * Sparar en rad till en frånkopplad bil. Blir kön full får den äldsta raden ge plats.
+     *
+     * @param client den frånkopplade bilen
+     * @param line raden att spara
+     * @return false om bilen hann återansluta, då skickas raden direkt
+     */
+    private boolean queueLine(ClientConnection client, String line) {
+        synchronized (client) {
+            if (!client.detached) {
+                return false;
+            }
+            if (client.outbox.size() >= MAX_OUTBOX_LINES) {
+                System.out.println("⚠️ Kön till " + client.carId + " är full, äldsta raden kastas");
+                client.outbox.pollFirst();
+            }
+            client.outbox.addLast(line);
+            return true;
+        }
+    }
+
+    /**
+     * Tar bort en klient och stänger dess socket. Klientens lästråd avslutas
+     * när läsningen misslyckas.
+     *
+     * @param client klienten att koppla från
+     */
+    private void disconnect(ClientConnection client) {
+        disconnect(client, client.socket);
+    }
+
+    /**
+     * Tar bort en klient och stänger en av dess sockets, om den fortfarande är klientens.
+     *
+     * @param client klienten att koppla från
+     * @param socket socketen som fick fel
+     */
+    private void disconnect(ClientConnection client, Socket socket) {
+        removeClient(client, socket);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.out.println("Fel vid stängning av socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Får poolen med läsbuffertar.
+     *
+     * @return buffertpoolen
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Får serverns räknare för inkommande trafik.
+     *
+     * @return räknarna
+     */
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Får serverns inställningar.
+     *
+     * @return inställningarna
+     */
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Får mottagningen av telemetri.
+     *
+     * @return telemetrin, eller null om den inte är igång
+     */
+    public TelemetryIngest getTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * Sätter loggen för rader till och från klienterna.
+     * Trafiken loggas bara när {@link ServerConfig#LOG_TRAFFIC} är på.
+     *
+     * @param log loggen, eller null för att inte logga trafik
+     */
+    public void setTrafficLog(MappedLog log) {
+        this.trafficLog = log;
+    }
+
+    /**
+     * Loggar en rad till eller från en klient, utan att skapa objekt.
+     * Nycklar i inloggnings- och sessionsrader ersätts med {@link #REDACTED}, eftersom en
+     * sessionsnyckel räcker för att ta över en bil. Bara de raderna skapar en ny sträng.
+     *
+     * @param direction {@link MappedLog#INBOUND} eller {@link MappedLog#OUTBOUND}
+     * @param client klienten
+     * @param line raden
+     */
+    private void logTraffic(int direction, ClientConnection client, CharSequence line) {
+        MappedLog log = trafficLog;
+        if (log != null && config.get(ServerConfig.LOG_TRAFFIC)) {
+            CharSequence peer = client.carId != null ? client.carId : UNIDENTIFIED_PEER;
+            int secret = secretStart(line);
+            if (secret < 0) {
+                log.traffic(direction, peer, line);
+            } else {
+                log.traffic(direction, peer, new StringBuilder(secret + REDACTED.length())
+                        .append(line, 0, secret).append(REDACTED));
+            }
+        }
+    }
+
+    /**
+     * Hittar var nyckeln börjar i en inloggnings- eller sessionsrad:
+     * "BIL1:AUTH:nyckel", "ESP8266 AUTH nyckel", "SESSION nyckel" eller "RESUME nyckel".
+     *
+     * @param line raden
+     * @return index för nyckeln, eller -1 om raden inte innehåller någon
+     */
+    static int secretStart(CharSequence line) {
+        if (CharSequences.startsWith(line, ARENA_AUTH)) {
+            return ARENA_AUTH.length();
+        }
+        if (CharSequences.startsWith(line, SESSION_PREFIX)) {
+            return SESSION_PREFIX.length();
+        }
+        if (CharSequences.startsWith(line, RESUME_PREFIX)) {
+            // Svaren "RESUME OK" och "RESUME FAIL" innehåller ingen nyckel
+            if (isExactly(line, RESUME_OK) || isExactly(line, RESUME_FAIL)) {
+                return -1;
+            }
+            return RESUME_PREFIX.length();
+        }
+        int separator = CharSequences.indexOf(line, ':', 0);
+        if (separator > 0 && CharSequences.startsWith(line, AUTH_TOKEN, separator + 1)) {
+            return separator + 1 + AUTH_TOKEN.length();
+        }
+        return -1;
+    }
+
+    private static boolean isExactly(CharSequence line, String text) {
+        return line.length() == text.length() && CharSequences.startsWith(line, text);
+    }
+
+    /**
+     * Får den anslutning som just nu tillhör en bilplats.
+     *
+     * @param slot bilens plats i CarTable
+     * @return anslutningen, eller null om bilen inte är ansluten
+     */
+    public ClientConnection getConnection(int slot) {
+        AtomicReferenceArray<ClientConnection> index = connectionBySlot;
+        return slot >= 0 && slot < index.length() ? index.get(slot) : null;
+    }
+
+    /**
+     * Får leveransstatus för det senaste kommandot till bilarna.
+     *
+     * @return senaste leveransen, eller null om inget kommando har skickats
+     */
+    public CommandDelivery getLastCarDelivery() {
+        return lastCarDelivery;
+    }
+
+    /**
+     * Tar bort en klient vars socket har kopplats från. Har bilen redan
+     * återanslutit med en ny socket görs ingenting.
+     *
+     * @param clientConnection klienten att ta bort
+     * @param socket socketen som kopplades från
+     */
+    public void removeClient(ClientConnection clientConnection, Socket socket) {
+        if (clientConnection.socket == socket) {
+            removeClient(clientConnection);
+        }
+    }
+
+    /**
+     * Tar bort en frånkopplad klient från listan.
+     * En bil med session behålls i stället som frånkopplad tills den återansluter
+     * eller sessionen går ut, så att kommandon under avbrottet inte går förlorade.
+     *
+     * @param clientConnection klienten att ta bort
+     */
+    public void removeClient(ClientConnection clientConnection) {
+        if (!detach(clientConnection)) {
+            dropClient(clientConnection);
+        }
+    }
+
+    /**
+     * Markerar en bil som frånkopplad och startar tiden för att återansluta.
+     *
+     * @param clientConnection bilen som tappade anslutningen
+     * @return true om bilen är frånkopplad med en sparad session
+     */
+    private boolean detach(ClientConnection clientConnection) {
+        int window = config.get(ServerConfig.SESSION_RESUME_MILLIS);
+        if (window <= 0 || !connectedClients.contains(clientConnection)) {
+            return false;
+        }
+        long generation;
+        synchronized (clientConnection) {
+            if (clientConnection.sessionToken == null) {
+                return false;
+            }
+            if (clientConnection.detached) {
+                return true;
+            }
+            clientConnection.detached = true;
+            generation = ++clientConnection.sessionGeneration;
+        }
+
+        System.out.println("📴 " + clientConnection.carId + " tappade anslutningen, sessionen sparas i " +
+                window / 1000.0 + " s");
+        fireEvent(listener -> listener.clientDisconnected(clientConnection));
+        scheduler.schedule(() -> expireSession(clientConnection, generation), window, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Tar bort en bil vars session gick ut innan den återanslöt.
+     *
+     * @param clientConnection den frånkopplade bilen
+     * @param generation sessionens generation när bilen kopplades från
+     */
+    private void expireSession(ClientConnection clientConnection, long generation) {
+        String token;
+        synchronized (clientConnection) {
+            if (!clientConnection.detached || clientConnection.sessionGeneration != generation) {
+                return; // Bilen har återanslutit sedan dess
+            }
+            token = clientConnection.sessionToken;
+            clientConnection.sessionToken = null;
+            clientConnection.detached = false;
+            clientConnection.outbox.clear();
+        }
+        sessions.remove(token, clientConnection);
+        metrics.sessionsExpired.increment();
+        System.out.println("⌛ Sessionen för " + clientConnection.carId + " gick ut");
+        dropClient(clientConnection);
+    }
+
+    /**
+     * Tar bort en klient helt, utan möjlighet att återansluta.
+     *
+     * @param clientConnection klienten att ta bort
+     */
+    private void dropClient(ClientConnection clientConnection) {
+        if (!connectedClients.remove(clientConnection)) {
+            return; // Redan borttagen, t.ex. efter ett sändningsfel
+        }
+        String token = clientConnection.sessionToken;
+        if (token != null) {
+            sessions.remove(token, clientConnection);
+        }
+
+        // Bara om ingen nyare anslutning för samma bil har tagit över platsen
+        AtomicReferenceArray<ClientConnection> index = connectionBySlot;
+        int slot = clientConnection.carSlot;
+        if (slot >= 0 && slot < index.length()) {
+            index.compareAndSet(slot, clientConnection, null);
+        }
+
+        // Kommandon som väntar på kvittens kommer aldrig fram
+        for (CommandDelivery delivery : clientConnection.pendingCommands.values()) {
+            int target = delivery.indexOf(clientConnection);
+            if (target >= 0) {
+                delivery.markFailed(target);
+            }
+        }
+        clientConnection.pendingCommands.clear();
+
+        String clientInfo = clientConnection.clientType + " " +
+                (clientConnection.carId != null ? clientConnection.carId : "okänd");
+        System.out.println(" Klient frånkopplad: " + clientInfo);
+        fireEvent(listener -> listener.clientDisconnected(clientConnection));
+    }
+
+    /**
+     * Får antal anslutna enheter.
+     *
+     * @return antal anslutna klienter
+     */
+    public int getConnectedCarsCount() {
+        return connectedClients.size();
+    }
+
+    /**
+     * Får alla anslutna enheter, även de som inte har identifierat sig.
+     *
+     * @return oföränderlig vy över anslutningarna
+     */
+    public List<ClientConnection> getConnectedClients() {
+        return Collections.unmodifiableList(connectedClients);
+    }
 
     /**
      * Listar alla anslutna enheter i konsolen.
@@ -385,8 +2110,11 @@ public class MyServer {
         for (ClientConnection client : connectedClients) {
             String clientInfo = client.clientType + " - " +
                     (client.carId != null ? client.carId : "Väntar på identifiering");
-            System.out.println("  • " + clientInfo + " (" + client.socket.getRemoteSocketAddress() + ")");
+            System.out.println("  • " + clientInfo + " (" + client.socket.getRemoteSocketAddress() + ")" +
+                    ", rader: " + client.ingress.getReceived() + ", kastade: " + client.ingress.getShed() +
+                    (client.ingress.isQuarantined() ? " [KARANTÄN]" : ""));
         }
+        System.out.println(" " + metrics.summary());
     }
 
     /**
@@ -396,7 +2124,9 @@ public class MyServer {
      * @return aktuell poäng
      */
     public int getScore(String carId) {
-        return scoreMap.getOrDefault(carId, 10);
+        CarTable table = cars;
+        int slot = table.slotOf(carId);
+        return slot >= 0 ? table.getHealth(slot) : config.get(ServerConfig.INITIAL_HEALTH);
     }
 
     /**
@@ -406,7 +2136,18 @@ public class MyServer {
      * @return bilnamn
      */
     public String getCarName(String carId) {
-        return carIdToNameMapping.get(carId);
+        CarTable table = cars;
+        int slot = table.slotOf(carId);
+        return slot >= 0 ? table.getCarName(slot) : null;
+    }
+
+    /**
+     * Får tabellen med bilarnas tillstånd för den pågående matchen.
+     *
+     * @return aktuell CarTable
+     */
+    public CarTable getCarTable() {
+        return cars;
     }
 
     /**
@@ -414,9 +2155,45 @@ public class MyServer {
      */
     public void listActiveCars() {
         System.out.println("🏁 Aktiva bilar:");
-        for (Map.Entry<String, String> entry : carIdToNameMapping.entrySet()) {
-            int score = scoreMap.getOrDefault(entry.getKey(), 10);
-            System.out.println("  " + entry.getKey() + " -> " + entry.getValue() + " (Score: " + score + ")");
+        CarTable table = cars;
+        for (int slot = 0; slot < table.size(); slot++) {
+            System.out.println("  " + table.getCarId(slot) + " -> " + table.getCarName(slot) +
+                    " (Score: " + table.getHealth(slot) + ", krockar: " + table.getCrashCount(slot) + ")");
+        }
+    }
+
+    /**
+     * Uppdaterar poängtavlan från biltabellen i Swing-tråden. Bara bilar vars hälsa har
+     * ändrats sedan förra uppdateringen skickas till GUI:t.
+     */
+    private static class ScoreboardRefresh implements Runnable {
+        /** Poängtavlan */
+        private final LeaderboardGUI gui;
+
+        /** Matchens biltabell */
+        private final CarTable table;
+
+        /** Hälsan som poängtavlan visar per plats, bara Swing-tråden */
+        private final int[] shown;
+
+        ScoreboardRefresh(LeaderboardGUI gui, CarTable table) {
+            this.gui = gui;
+            this.table = table;
+            this.shown = new int[table.size()];
+            for (int slot = 0; slot < shown.length; slot++) {
+                shown[slot] = table.getInitialHealth();
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int slot = 0; slot < shown.length; slot++) {
+                int health = table.getHealth(slot);
+                if (health != shown[slot]) {
+                    shown[slot] = health;
+                    gui.setScore(table.getCarName(slot), health);
+                }
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,359 @@
+package Control;
+
+import Model.CarTable;
+import Model.MatchResult;
+import Model.MatchSnapshot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Primärsidan av replikeringen: strömmar matchens händelser i ordning till en eller flera
+ * reservservrar ({@link ReplicationStandby}), som håller en spegel av matchen och tar över
+ * om primären slutar svara.
+ *
+ * Händelserna läggs med ett löpnummer i en buffert när servern rapporterar dem, utan disk-I/O
+ * och utan att vänta på reservservern. En sändartråd skickar allt som har samlats sedan förra
+ * sändningen i ett enda anrop, så en krock kostar bara några byte i bufferten. En ny reservserver
+ * får först hela matchen som en {@link MatchSnapshot} och sedan händelserna efter den. Bilden
+ * byggs av sändartråden utan låset, så krocktrådarna väntar aldrig på kodningen; den märks med
+ * löpnumret när den togs och innehåller minst alla händelser till och med det.
+ * När en ny match startar, eller när bufferten blev full och en händelse gick förlorad,
+ * får alla reservservrar en ny bild i stället för att kopplas från.
+ *
+ * Protokoll (big-endian): int "CWRP", sedan meddelanden med byte typ och long löpnummer:
+ * <pre>
+ * 'F' int längd, ögonblicksbild (längd 0 = ingen match pågår)
+ * 'H' short plats, int hälsa, int antal krockar, long senaste krock (ms)
+ * 'I' short plats, text sessionsnyckel
+ * 'A' text arena-kommando
+ * 'E' matchen är avgjord
+ * 'K' livstecken, löpnumret räknas inte upp
+ * </pre>
+ * Texter är short längd följt av UTF-8. Alla värden är absoluta, så en händelse som
+ * också hann komma med i ögonblicksbilden kan tillämpas en gång till utan att ändra något.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class ReplicationPrimary extends Thread implements ServerEventListener {
+
+    /** Magiskt tal i början av strömmen, "CWRP" */
+    public static final int MAGIC = 0x43575250;
+
+    /** Meddelande med hela matchen */
+    public static final byte FULL_STATE = 'F';
+
+    /** Meddelande med en bils hälsa och krockar */
+    public static final byte HIT = 'H';
+
+    /** Meddelande med en bils sessionsnyckel */
+    public static final byte SESSION = 'I';
+
+    /** Meddelande med nytt arena-kommando */
+    public static final byte ARENA = 'A';
+
+    /** Meddelande när matchen är avgjord */
+    public static final byte MATCH_END = 'E';
+
+    /** Livstecken när inget annat har hänt */
+    public static final byte HEARTBEAT = 'K';
+
+    /** Tid mellan livstecknen (ms) */
+    public static final int HEARTBEAT_MILLIS = 100;
+
+    /** Storlek på händelsebufferten */
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    /** Servern som händelserna kommer från */
+    private final MyServer server;
+
+    /** Socket som reservservrarna ansluter till */
+    private final ServerSocket serverSocket;
+
+    /** Händelser som inte har skickats än (skyddas av låset på this) */
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES);
+
+    /** Buffert som sändartråden skickar från, byts med pending */
+    private ByteBuffer sending = ByteBuffer.allocate(BUFFER_BYTES);
+
+    /** Senast använda löpnummer */
+    private long sequence;
+
+    /** Sätts när bufferten blev full och en händelse gick förlorad */
+    private boolean overflow;
+
+    /** Sätts när alla reservservrar behöver en ny bild, t.ex. när en ny match startar */
+    private boolean resyncAll;
+
+    /** Reservservrar som har anslutit men inte fått matchen än */
+    private final List<Socket> joining = new ArrayList<>();
+
+    /** Reservservrar som får händelserna (används bara av sändartråden) */
+    private final List<Socket> standbys = new ArrayList<>();
+
+    /** Spelläge för pågående match */
+    private volatile String gameMode = "";
+
+    /** Starttid för pågående match (ms) */
+    private volatile long matchStartMillis;
+
+    /**
+     * Konstruktor för ReplicationPrimary. Öppnar porten direkt, men skickar inget förrän tråden startas.
+     *
+     * @param port port som reservservrarna ansluter till
+     * @param server servern som händelserna kommer från
+     * @throws IOException om porten inte kan öppnas
+     */
+    public ReplicationPrimary(int port, MyServer server) throws IOException {
+        super("replication-primary");
+        setDaemon(true);
+        this.server = server;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+    }
+
+    /**
+     * Anger spelläge och starttid, som skickas med matchen. Anropas innan matchen startas.
+     *
+     * @param gameMode spelläge
+     * @param matchStartMillis tidpunkt då matchen startade
+     */
+    public void setMatch(String gameMode, long matchStartMillis) {
+        this.gameMode = gameMode;
+        this.matchStartMillis = matchStartMillis;
+    }
+
+    /**
+     * Tar emot reservservrar i en egen tråd och skickar händelserna tills tråden avbryts.
+     */
+    @Override
+    public void run() {
+        Thread acceptor = new Thread(this::acceptStandbys, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("🪞 Replikering: väntar på reservserver på port " + serverSocket.getLocalPort());
+
+        try {
+            while (true) {
+                List<Socket> newStandbys = new ArrayList<>();
+                boolean overflowed;
+                boolean resync;
+                long captureSequence;
+                synchronized (this) {
+                    if (pending.position() == 0 && joining.isEmpty() && !resyncAll) {
+                        wait(HEARTBEAT_MILLIS);
+                    }
+                    if (pending.position() == 0) {
+                        pending.put(HEARTBEAT).putLong(sequence);
+                    }
+                    ByteBuffer batch = pending;
+                    pending = sending;
+                    sending = batch;
+                    overflowed = overflow;
+                    resync = overflow || resyncAll;
+                    overflow = false;
+                    resyncAll = false;
+                    newStandbys.addAll(joining);
+                    joining.clear();
+
+                    // Allt till och med detta löpnummer ligger i batchen, allt efter kommer i nästa
+                    captureSequence = sequence;
+                }
+
+                // Batchen går ut även med en lucka, bilden efter den skriver över allt
+                sending.flip();
+                send(standbys, sending.array(), sending.limit());
+                sending.clear();
+
+                if (overflowed) {
+                    System.out.println("⚠️ Replikeringsbufferten blev full, reservservrarna får en ny bild");
+                    server.getMetrics().replicationResyncs.increment();
+                }
+
+                // Nya reservservrar, eller alla vid en ny match eller lucka, får matchen som den är nu.
+                // Bilden tas efter att löpnumret lästes, så den innehåller minst alla händelser i batchen.
+                if ((resync && !standbys.isEmpty()) || !newStandbys.isEmpty()) {
+                    byte[] state = fullState(captureSequence);
+                    ByteBuffer header = ByteBuffer.allocate(4);
+                    header.putInt(MAGIC);
+                    send(newStandbys, header.array(), 4);
+                    send(newStandbys, state, state.length);
+                    if (resync) {
+                        send(standbys, state, state.length);
+                    }
+                    standbys.addAll(newStandbys);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stänger porten och anslutningarna till reservservrarna.
+     */
+    public void close() {
+        interrupt();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.out.println("Fel vid stängning av replikeringsporten: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void matchStarted(CarTable cars) {
+        // Sändartråden bygger bilden av den nya matchen, utan låset
+        resyncAll = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void carHit(int slot, int health, boolean crash) {
+        CarTable table = server.getCarTable();
+        if (slot >= table.size() || !begin(HIT, 18)) {
+            return;
+        }
+        pending.putShort((short) slot).putInt(health).putInt(table.getCrashCount(slot))
+                .putLong(table.getLastCrashMillis(slot));
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void clientIdentified(MyServer.ClientConnection client) {
+        String token = client.sessionToken;
+        if (client.carSlot < 0 || token == null) {
+            return;
+        }
+        byte[] text = token.getBytes(StandardCharsets.UTF_8);
+        if (begin(SESSION, 4 + text.length)) {
+            pending.putShort((short) client.carSlot).putShort((short) text.length).put(text);
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void arenaChanged(String command, long version) {
+        byte[] text = command.getBytes(StandardCharsets.UTF_8);
+        if (begin(ARENA, 2 + text.length)) {
+            pending.putShort((short) text.length).put(text);
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void matchOver(MatchResult result) {
+        if (begin(MATCH_END, 0)) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Skriver typ och nästa löpnummer för en händelse.
+     *
+     * @param type händelsens typ
+     * @param payload antal byte efter huvudet
+     * @return false om bufferten är full
+     */
+    private boolean begin(byte type, int payload) {
+        if (!reserve(9 + payload)) {
+            return false;
+        }
+        pending.put(type).putLong(++sequence);
+        server.getMetrics().replicationEvents.increment();
+        return true;
+    }
+
+    /**
+     * Kontrollerar att en händelse får plats i bufferten.
+     *
+     * @param bytes händelsens storlek
+     * @return false om bufferten är full, då byggs speglarna om
+     */
+    private boolean reserve(int bytes) {
+        if (pending.remaining() < bytes) {
+            overflow = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Kodar hela matchen som ett meddelande. Anropas av sändartråden utan låset, så krockar
+     * kan hinna med i bilden; de kommer då en gång till efteråt, vilket inte ändrar något.
+     *
+     * @param captureSequence löpnumret för senaste händelsen som skickats före bilden
+     * @return meddelandet
+     */
+    private byte[] fullState(long captureSequence) {
+        byte[] snapshot = new byte[0];
+        MatchSnapshot state = server.captureSnapshot(gameMode, matchStartMillis);
+        if (state != null) {
+            try {
+                snapshot = state.toBytes();
+            } catch (IOException e) {
+                System.out.println("Kunde inte koda matchen för replikeringen: " + e.getMessage());
+            }
+        }
+        ByteBuffer message = ByteBuffer.allocate(13 + snapshot.length);
+        message.put(FULL_STATE).putLong(captureSequence).putInt(snapshot.length).put(snapshot);
+        return message.array();
+    }
+
+    /**
+     * Tar emot reservservrar tills porten stängs.
+     */
+    private void acceptStandbys() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket standby = serverSocket.accept();
+                standby.setTcpNoDelay(true);
+                System.out.println("🪞 Reservserver ansluten: " + standby.getInetAddress());
+                synchronized (this) {
+                    joining.add(standby);
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.out.println("Fel i replikeringen: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Skickar bytes till reservservrarna och tar bort de som inte svarar.
+     */
+    private static void send(List<Socket> targets, byte[] bytes, int length) {
+        for (int i = targets.size() - 1; i >= 0; i--) {
+            Socket target = targets.get(i);
+            try {
+                OutputStream out = target.getOutputStream();
+                out.write(bytes, 0, length);
+                out.flush();
+            } catch (IOException e) {
+                System.out.println("🪞 Reservserver frånkopplad: " + target.getInetAddress());
+                close(target);
+                targets.remove(i);
+            }
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.out.println("Fel vid stängning av socket: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package Control;
+
+import Model.MatchSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Reservsidan av replikeringen: tar emot matchens händelser från primären
+ * ({@link ReplicationPrimary}) och håller en spegel av matchen som en {@link MatchSnapshot}.
+ * Bryts anslutningen ansluter reservservern igen och får en ny bild av matchen. Först när
+ * inget har kommit från primären inom utsatt tid (den skickar livstecken flera gånger per
+ * sekund) och ingen ny anslutning har lyckats tar reservservern över: den väntar tills
+ * bilarnas port är ledig och återupptar sedan
+ * matchen från spegeln, på samma sätt som efter en omstart. Bilarna återansluter med sina
+ * sessionsnycklar. Svarar primären igen medan reservservern väntar på porten (den hade bara
+ * stannat en stund) fortsätter reservservern att spegla den i stället för att ta över.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class ReplicationStandby extends Thread {
+
+    /** Tid mellan försöken att ansluta till primären (ms) */
+    private static final int CONNECT_RETRY_MILLIS = 500;
+
+    /** Tid mellan kontrollerna av om bilarnas port är ledig (ms) */
+    private static final int PORT_POLL_MILLIS = 20;
+
+    /** Primärens adress för replikeringen */
+    private final InetSocketAddress primary;
+
+    /** Tid utan meddelanden innan primären räknas som nere (ms) */
+    private final int failoverMillis;
+
+    /** Bilarnas port, som tas över från primären */
+    private final int serverPort;
+
+    /** Anropas med spegeln (null om ingen match pågår) när reservservern tar över */
+    private final Consumer<MatchSnapshot> onTakeover;
+
+    /** Spegel av pågående match, null om ingen match pågår */
+    private MatchSnapshot mirror;
+
+    /** Arena-kommandot */
+    private String arenaCommand = "close";
+
+    /** Löpnummer för senast tillämpade meddelande */
+    private long appliedSequence;
+
+    /**
+     * Konstruktor för ReplicationStandby.
+     *
+     * @param primary primärens adress för replikeringen
+     * @param failoverMillis tid utan meddelanden innan primären räknas som nere (ms)
+     * @param serverPort bilarnas port
+     * @param onTakeover anropas när reservservern tar över
+     */
+    public ReplicationStandby(InetSocketAddress primary, int failoverMillis, int serverPort,
+                              Consumer<MatchSnapshot> onTakeover) {
+        super("replication-standby");
+        this.primary = primary;
+        this.failoverMillis = failoverMillis;
+        this.serverPort = serverPort;
+        this.onTakeover = onTakeover;
+    }
+
+    /**
+     * Ansluter till primären, följer matchen och tar över när primären slutar svara.
+     */
+    @Override
+    public void run() {
+        try {
+            long lastContact = 0;
+            while (true) {
+                follow(lastContact);
+                System.out.println("🚨 Primärservern svarar inte, tar över (löpnummer " + appliedSequence + ")");
+                if (waitForServerPort()) {
+                    break;
+                }
+                System.out.println("🪞 Primärservern svarar igen, fortsätter spegla matchen");
+                lastContact = System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        MatchSnapshot snapshot = null;
+        if (mirror != null) {
+            snapshot = new MatchSnapshot(System.currentTimeMillis(), mirror.matchStartMillis, mirror.gameMode,
+                    arenaCommand, mirror.carNames, mirror.playerNames, mirror.teams, mirror.health,
+                    mirror.crashCounts, mirror.lastCrashMillis, mirror.sessionTokens);
+        }
+        onTakeover.accept(snapshot);
+    }
+
+    /**
+     * Tar emot meddelanden från primären och ansluter igen när anslutningen bryts. Returnerar
+     * när inget har kommit från primären under {@link #failoverMillis}, efter att den har varit uppe.
+     *
+     * @param lastContact tidpunkt (System.nanoTime) för senaste kontakten, 0 innan primären har svarat
+     * @throws InterruptedException om tråden avbryts
+     */
+    private void follow(long lastContact) throws InterruptedException {
+        while (true) {
+            boolean following = false;
+            try (Socket socket = new Socket()) {
+                socket.connect(primary, failoverMillis);
+                socket.setSoTimeout(failoverMillis);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                if (in.readInt() != ReplicationPrimary.MAGIC) {
+                    System.out.println("Okänt replikeringsprotokoll från " + primary);
+                } else {
+                    System.out.println("🪞 " + (lastContact == 0 ? "Ansluten" : "Återansluten") +
+                            " till primärservern " + primary + ", speglar matchen");
+                    following = true;
+                    while (true) {
+                        lastContact = System.nanoTime();
+                        apply(in);
+                    }
+                }
+            } catch (IOException e) {
+                if (following) {
+                    System.out.println("🪞 Tappade primärservern (" +
+                            (e instanceof EOFException ? "stängd" : e.getMessage()) + "), ansluter igen");
+                }
+            }
+            if (lastContact != 0 && System.nanoTime() - lastContact >= failoverMillis * 1_000_000L) {
+                return;
+            }
+            Thread.sleep(retryMillis());
+        }
+    }
+
+    /**
+     * Tid mellan försöken att ansluta till primären, högst en femtedel av failover-tiden.
+     */
+    private int retryMillis() {
+        return Math.min(CONNECT_RETRY_MILLIS, failoverMillis / 5);
+    }
+
+    /**
+     * Läser och tillämpar ett meddelande.
+     *
+     * @param in strömmen från primären
+     * @throws IOException om strömmen bryts, tar för lång tid eller är trasig
+     */
+    private void apply(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        long sequence = in.readLong();
+        switch (type) {
+            case ReplicationPrimary.FULL_STATE:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                mirror = bytes.length == 0 ? null : MatchSnapshot.fromBytes(bytes);
+                arenaCommand = mirror != null && !mirror.arenaCommand.isEmpty() ? mirror.arenaCommand : arenaCommand;
+                System.out.println("🪞 Fick matchen från primären: " +
+                        (mirror != null ? mirror.gameMode + " med " + mirror.size() + " bilar" : "ingen match pågår"));
+                break;
+            case ReplicationPrimary.HIT:
+                int slot = in.readShort();
+                int health = in.readInt();
+                int crashes = in.readInt();
+                long lastCrash = in.readLong();
+                // Hälsan kan bara minska och krockarna bara öka under en match
+                if (mirror != null && slot >= 0 && slot < mirror.size()) {
+                    mirror.health[slot] = Math.min(mirror.health[slot], health);
+                    mirror.crashCounts[slot] = Math.max(mirror.crashCounts[slot], crashes);
+                    mirror.lastCrashMillis[slot] = Math.max(mirror.lastCrashMillis[slot], lastCrash);
+                }
+                break;
+            case ReplicationPrimary.SESSION:
+                int sessionSlot = in.readShort();
+                String token = readText(in);
+                if (mirror != null && sessionSlot >= 0 && sessionSlot < mirror.size()) {
+                    mirror.sessionTokens[sessionSlot] = token;
+                }
+                break;
+            case ReplicationPrimary.ARENA:
+                arenaCommand = readText(in);
+                break;
+            case ReplicationPrimary.MATCH_END:
+                mirror = null;
+                break;
+            case ReplicationPrimary.HEARTBEAT:
+                return;
+            default:
+                throw new IOException("okänd meddelandetyp " + type);
+        }
+        appliedSequence = sequence;
+    }
+
+    /**
+     * Väntar tills primären har släppt bilarnas port. Under tiden provas replikeringsporten
+     * med jämna mellanrum, så att en primär som bara stannade en stund (GC-paus, nätverksavbrott)
+     * följs igen i stället för att reservservern tar över med en gammal spegel.
+     *
+     * @return true om porten är ledig, false om primären svarar igen
+     * @throws InterruptedException om tråden avbryts
+     */
+    private boolean waitForServerPort() throws InterruptedException {
+        boolean reported = false;
+        long nextProbe = System.nanoTime();
+        while (true) {
+            try (ServerSocket probe = new ServerSocket()) {
+                probe.setReuseAddress(true);
+                probe.bind(new InetSocketAddress(serverPort));
+                return true;
+            } catch (IOException e) {
+                if (!reported) {
+                    System.out.println("⏳ Port " + serverPort + " är fortfarande upptagen, väntar");
+                    reported = true;
+                }
+            }
+            if (System.nanoTime() - nextProbe >= 0) {
+                if (primaryAnswers()) {
+                    return false;
+                }
+                nextProbe = System.nanoTime() + retryMillis() * 1_000_000L;
+            }
+            Thread.sleep(PORT_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Kontrollerar om primären tar emot replikeringsanslutningar och skickar sin hälsning.
+     *
+     * @return true om primären svarar
+     */
+    private boolean primaryAnswers() {
+        int timeout = retryMillis();
+        try (Socket socket = new Socket()) {
+            socket.connect(primary, timeout);
+            socket.setSoTimeout(timeout);
+            return new DataInputStream(socket.getInputStream()).readInt() == ReplicationPrimary.MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readShort() & 0xFFFF];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
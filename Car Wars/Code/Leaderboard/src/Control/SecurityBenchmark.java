@@ -0,0 +1,374 @@
+package Control;
+
+import Model.CarStats;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mätprogram som visar vad inloggning och TLS kostar i krockhanteringen.
+ * Startar en server per läge (okrypterat, inloggning, TLS med inloggning) och
+ * låter ett antal bilar skicka krockar så fort de kan. Krockarna räknas när
+ * servern har dragit av hälsan, så tiden omfattar läsning, dekryptering och tolkning.
+ * I TLS-läget mäts också hur lång tid en full handskakning tar jämfört med en
+ * återupptagen session, vilket är det som avgör kostnaden när många bilar återansluter.
+ * Serverns utskrifter stängs av under mätningen.
+ *
+ * Körs med: java Control.SecurityBenchmark [antal bilar] [rundor]
+ * En egen nyckelfil kan anges med -Dcarwars.tls.keystore och -Dcarwars.tls.keystorePassword,
+ * annars skapas en tillfällig med keytool.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class SecurityBenchmark {
+
+    /** Krockar per bil och runda, under bilarnas hälsa så att ingen slås ut */
+    private static final int CRASHES_PER_ROUND = 900;
+
+    /** Bilarnas hälsa under mätningen */
+    private static final int BENCHMARK_HEALTH = 1000;
+
+    /** Första porten, lägena använder var sin port efter denna */
+    private static final int BASE_PORT = 6100;
+
+    /** Antal omgångar där lägena turas om */
+    private static final int PASSES = 5;
+
+    /** Antal handskakningar per sort */
+    private static final int HANDSHAKES = 50;
+
+    /** Lösenord för den tillfälliga nyckelfilen */
+    private static final String GENERATED_PASSWORD = "carwars-benchmark";
+
+    /** Ursprunglig utskriftsström, för resultaten */
+    private static final PrintStream out = System.out;
+
+    /**
+     * Huvudmetod.
+     *
+     * @param args antal bilar och antal rundor (valfria)
+     * @throws Exception om mätningen inte kan genomföras
+     */
+    public static void main(String[] args) throws Exception {
+        int carCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Path workDir = Files.createTempDirectory("carwars-benchmark");
+        Path tokensFile = workDir.resolve("car-tokens.properties");
+        List<String> tokenLines = new ArrayList<>();
+        for (int i = 1; i <= carCount; i++) {
+            tokenLines.add("BIL" + i + "=nyckel-" + i);
+        }
+        Files.write(tokensFile, tokenLines);
+
+        String keystore = System.getProperty(ServerConfig.SYSTEM_PREFIX + "tls.keystore");
+        String password = System.getProperty(ServerConfig.SYSTEM_PREFIX + "tls.keystorePassword", "");
+        if (keystore == null) {
+            keystore = generateKeystore(workDir.resolve("benchmark.p12")).toString();
+            password = GENERATED_PASSWORD;
+        }
+
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "car.initialHealth", String.valueOf(BENCHMARK_HEALTH));
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "ingress.ratePerSecond", "100000");
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "ingress.burst", "100000");
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "ingress.quarantineThreshold", "1000000");
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "auth.tokensFile", tokensFile.toString());
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "tls.keystore", keystore);
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "tls.keystorePassword", password);
+
+        SSLContext clientContext = createClientContext(Paths.get(keystore), password.toCharArray());
+
+        // Serverns utskrifter per krock skulle dominera mätningen
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        Rig[] rigs = {
+                setUp("Okrypterat", BASE_PORT, false, null, carCount, workDir),
+                setUp("Inloggning", BASE_PORT + 1, true, null, carCount, workDir),
+                setUp("TLS + inloggning", BASE_PORT + 2, true, clientContext, carCount, workDir)
+        };
+
+        // Lägena turas om i flera omgångar så att JIT-kompileringen inte gynnar det sista,
+        // och den bästa omgången räknas
+        double[] best = new double[rigs.length];
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < rigs.length; i++) {
+                best[i] = Math.max(best[i], run(rigs[i], rounds));
+            }
+        }
+
+        out.println("Krockhantering med " + carCount + " bilar, " + rounds + " rundor à " +
+                CRASHES_PER_ROUND + " krockar per bil");
+        for (int i = 0; i < rigs.length; i++) {
+            out.printf("%-18s %10.0f krockar/s%n", rigs[i].name, best[i]);
+        }
+        out.printf("Inloggning kostar %.1f %% och TLS + inloggning %.1f %% av genomströmningen%n",
+                100 * (1 - best[1] / best[0]), 100 * (1 - best[2] / best[0]));
+
+        measureHandshakes(BASE_PORT + 2, Paths.get(keystore), password.toCharArray(), clientContext);
+        System.exit(0);
+    }
+
+    /**
+     * En server i ett visst läge med anslutna bilar.
+     */
+    private static final class Rig {
+        /** Lägets namn i resultatet */
+        final String name;
+
+        /** Servern */
+        final MyServer server;
+
+        /** Spelarna, för att starta om matchen */
+        final List<CarStats> players;
+
+        /** En skrivare per bil */
+        final List<Writer> writers = new ArrayList<>();
+
+        /** Räknas ner för varje krock som servern har hanterat */
+        volatile CountDownLatch crashes = new CountDownLatch(0);
+
+        Rig(String name, MyServer server, List<CarStats> players) {
+            this.name = name;
+            this.server = server;
+            this.players = players;
+        }
+    }
+
+    /**
+     * Startar en server i ett läge och ansluter bilarna.
+     *
+     * @param clientContext TLS-kontext för bilarna, eller null utan TLS
+     * @return servern med anslutna bilar
+     */
+    private static Rig setUp(String name, int port, boolean auth, SSLContext clientContext, int carCount,
+                             Path workDir) throws Exception {
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "server.port", String.valueOf(port));
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "auth.required", String.valueOf(auth));
+        System.setProperty(ServerConfig.SYSTEM_PREFIX + "tls.enabled", String.valueOf(clientContext != null));
+        ServerConfig config = ServerConfig.load(workDir.resolve("server.properties"));
+
+        List<CarStats> players = new ArrayList<>();
+        for (int i = 1; i <= carCount; i++) {
+            players.add(new CarStats("Spelare " + i, "Bil " + i, null, BENCHMARK_HEALTH, 0, 0));
+        }
+
+        MyServer server = new MyServer(config);
+        server.setLeaderboardGUI(null, players);
+        Rig rig = new Rig(name, server, players);
+        CountDownLatch identified = new CountDownLatch(carCount);
+        server.addServerEventListener(new ServerEventListener() {
+            @Override
+            public void clientIdentified(MyServer.ClientConnection client) {
+                identified.countDown();
+            }
+
+            @Override
+            public void scoreChanged(int slot, int health) {
+                rig.crashes.countDown();
+            }
+        });
+
+        Thread serverThread = new Thread(server::socket, "benchmark-server-" + port);
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        // Bilarna ansluter och loggar in eller identifierar sig
+        for (int i = 1; i <= carCount; i++) {
+            Socket socket = connect(port, clientContext);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            writer.write(auth ? "BIL" + i + ":AUTH:nyckel-" + i + "\n" : "BIL" + i + ":ACK:0\n");
+            writer.flush();
+            if (auth && !MyServer.AUTH_OK.equals(reader.readLine())) {
+                throw new IllegalStateException("Inloggningen nekades för BIL" + i);
+            }
+            drain(socket.getInputStream());
+            rig.writers.add(writer);
+        }
+        if (!identified.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Alla bilar identifierades inte");
+        }
+        return rig;
+    }
+
+    /**
+     * Låter bilarna skicka krockar och mäter hur många per sekund servern hanterar.
+     *
+     * @param rig servern med anslutna bilar
+     * @param rounds antal rundor
+     * @return krockar per sekund
+     */
+    private static double run(Rig rig, int rounds) throws Exception {
+        int carCount = rig.writers.size();
+        long totalNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            rig.server.setLeaderboardGUI(null, rig.players); // Ny match med full hälsa
+            rig.crashes = new CountDownLatch(carCount * CRASHES_PER_ROUND);
+            long start = System.nanoTime();
+            List<Thread> senders = new ArrayList<>();
+            for (int i = 0; i < carCount; i++) {
+                Writer writer = rig.writers.get(i);
+                String line = "BIL" + (i + 1) + ":KROCK\n";
+                Thread sender = new Thread(() -> {
+                    try {
+                        for (int n = 0; n < CRASHES_PER_ROUND; n++) {
+                            writer.write(line);
+                        }
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                sender.start();
+                senders.add(sender);
+            }
+            for (Thread sender : senders) {
+                sender.join();
+            }
+            if (!rig.crashes.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Servern hann inte hantera alla krockar");
+            }
+            totalNanos += System.nanoTime() - start;
+        }
+        return (double) carCount * CRASHES_PER_ROUND * rounds * 1e9 / totalNanos;
+    }
+
+    /**
+     * Mäter fulla och återupptagna TLS-handskakningar mot servern i TLS-läget.
+     */
+    private static void measureHandshakes(int port, Path keystore, char[] password, SSLContext sharedContext)
+            throws Exception {
+        long fullNanos = 0;
+        long resumedNanos = 0;
+        for (int i = 0; i < HANDSHAKES; i++) {
+            // Ny kontext utan sparade sessioner ger en full handskakning
+            SSLContext fresh = createClientContext(keystore, password);
+            fullNanos += timeHandshake(port, fresh);
+        }
+        timeHandshake(port, sharedContext); // Se till att sessionen finns i cachen
+        for (int i = 0; i < HANDSHAKES; i++) {
+            resumedNanos += timeHandshake(port, sharedContext);
+        }
+        out.printf("Full TLS-handskakning:        %6.2f ms%n", fullNanos / 1e6 / HANDSHAKES);
+        out.printf("Återupptagen TLS-handskakning: %6.2f ms%n", resumedNanos / 1e6 / HANDSHAKES);
+    }
+
+    /**
+     * Ansluter, gör handskakningen och kopplar ner.
+     *
+     * @return tid för anslutning och handskakning i ns
+     */
+    private static long timeHandshake(int port, SSLContext context) throws IOException {
+        long start = System.nanoTime();
+        try (SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", port)) {
+            socket.startHandshake();
+            long elapsed = System.nanoTime() - start;
+            // TLS 1.3 skickar sessionsbiljetten efter handskakningen, så läs tills servern kopplar ner
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write("PING\n".getBytes(StandardCharsets.UTF_8));
+            byte[] buffer = new byte[256];
+            while (socket.getInputStream().read(buffer) >= 0) {
+                // Svaret är AUTH FAIL
+            }
+            return elapsed;
+        }
+    }
+
+    /**
+     * Ansluter till servern, med TLS om en kontext anges. Försöker igen tills servern lyssnar.
+     */
+    private static Socket connect(int port, SSLContext context) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (context == null) {
+                    return new Socket("localhost", port);
+                }
+                SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", port);
+                socket.startHandshake();
+                return socket;
+            } catch (ConnectException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    /**
+     * Läser och slänger allt som servern skickar, t.ex. klocksynk, så att dess sändbuffert inte fylls.
+     */
+    private static void drain(InputStream input) {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[1024];
+            try {
+                while (input.read(buffer) >= 0) {
+                    // Slängs
+                }
+            } catch (IOException e) {
+                // Anslutningen stängdes
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Skapar en klientkontext som litar på certifikatet i nyckelfilen.
+     */
+    private static SSLContext createClientContext(Path keystore, char[] password) throws Exception {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            store.load(in, password);
+        }
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(store);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustManagers.getTrustManagers(), null);
+        return context;
+    }
+
+    /**
+     * Skapar en självsignerad nyckel med keytool.
+     *
+     * @param file nyckelfilen att skapa
+     * @return sökvägen till filen
+     */
+    private static Path generateKeystore(Path file) throws IOException, InterruptedException {
+        Path keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool");
+        Process process = new ProcessBuilder(keytool.toString(), "-genkeypair", "-alias", "carwars",
+                "-keyalg", "RSA", "-keysize", "2048", "-dname", "CN=localhost", "-validity", "30",
+                "-storetype", "PKCS12", "-keystore", file.toString(),
+                "-storepass", GENERATED_PASSWORD, "-keypass", GENERATED_PASSWORD)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IOException("keytool misslyckades");
+        }
+        return file;
+    }
+}
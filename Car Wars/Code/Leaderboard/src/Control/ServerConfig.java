@@ -0,0 +1,718 @@
+package Control;
+
+import Model.CarTable;
+import Model.LoggerSetup;
+import Model.MatchHistoryStore;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Typad konfiguration för servern och GUI:t.
+ * Värden läses från filen carwars.properties (eller filen i systemegenskapen
+ * carwars.config) och kan skrivas över med systemegenskaper med prefixet
+ * "carwars.", t.ex. {@code -Dcarwars.server.port=7000}.
+ * <p>
+ * Nycklar markerade som "hot" kan ändras medan servern kör, antingen via JMX
+ * (CarWars:type=ServerConfig, t.ex. i JConsole) eller genom att ändra filen och
+ * anropa reload. Övriga nycklar läses bara vid start; bilnycklarna gäller från
+ * nästa match.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class ServerConfig implements ServerConfigMXBean {
+
+    /** Standardfil för konfigurationen */
+    public static final String DEFAULT_FILE = "carwars.properties";
+
+    /** Prefix för systemegenskaper som skriver över filen */
+    public static final String SYSTEM_PREFIX = "carwars.";
+
+    /** JMX-namn för konfigurationen */
+    public static final String MBEAN_NAME = "CarWars:type=ServerConfig";
+
+    /**
+     * En typad konfigurationsnyckel med standardvärde.
+     *
+     * @param <T> värdets typ
+     */
+    public static final class Key<T> {
+        /** Nyckelns namn i filen (utan prefix) */
+        public final String name;
+
+        /** Standardvärde */
+        public final T defaultValue;
+
+        /** true om nyckeln kan ändras medan servern kör */
+        public final boolean hot;
+
+        private final Function<String, T> parser;
+
+        private Key(String name, T defaultValue, boolean hot, Function<String, T> parser) {
+            this.name = name;
+            this.defaultValue = defaultValue;
+            this.hot = hot;
+            this.parser = parser;
+            KEYS.add(this);
+        }
+
+        T parse(String text) {
+            return parser.apply(text.trim());
+        }
+    }
+
+    /** Alla nycklar i deklarationsordning */
+    private static final List<Key<?>> KEYS = new ArrayList<>();
+
+    /** TCP-port för bilar och arena-kontroll */
+    public static final Key<Integer> SERVER_PORT = intKey("server.port", 6000, false, 1, 65535);
+
+    /** Antal trådar för serverns schemaläggare (omsändning, klocksynk) */
+    public static final Key<Integer> SCHEDULER_THREADS = intKey("server.schedulerThreads", 1, true, 1, 64);
+
+    /** Tid mellan klocksynkar till varje bil (ms) */
+    public static final Key<Integer> SYNC_INTERVAL_MILLIS = intKey("sync.intervalMillis", 2000, false, 100, 600000);
+
+    /** Max antal tecken i en rad från en klient */
+    public static final Key<Integer> MAX_FRAME_LENGTH = intKey("frame.maxLength", 256, false, 16, 65536);
+
+    /** Antal för långa rader innan klienten kopplas från */
+    public static final Key<Integer> MAX_REJECTED_FRAMES = intKey("frame.maxRejected", 3, false, 1, 1000);
+
+    /** HTTP-port för åskådarservern */
+    public static final Key<Integer> SPECTATOR_PORT = intKey("spectator.port", 8080, false, 1, 65535);
+
+    /** Max antal händelser som väntar på åskådarserverns sändartråd */
+    public static final Key<Integer> SPECTATOR_DISPATCH_QUEUE = intKey("spectator.dispatchQueueSize", 4096, true, 16, 1 << 20);
+
+    /** Max antal diffar som väntar per åskådare, gäller åskådare som ansluter efter en ändring */
+    public static final Key<Integer> SPECTATOR_SUBSCRIBER_QUEUE = intKey("spectator.subscriberQueueSize", 256, true, 4, 1 << 16);
+
+    /** Hälsa (poäng) för varje bil vid matchstart, gäller från nästa match */
+    public static final Key<Integer> INITIAL_HEALTH = intKey("car.initialHealth", CarTable.DEFAULT_HEALTH, false, 1, 1000);
+
+    /** Förmåga för varje bil vid matchstart, gäller från nästa match */
+    public static final Key<Integer> INITIAL_ABILITY = intKey("car.initialAbility", CarTable.DEFAULT_ABILITY, false, 0, 1000);
+
+    /** Prefix för bil-ID (BIL1, BIL2, ...), gäller från nästa match */
+    public static final Key<String> CAR_ID_PREFIX = new Key<>("car.idPrefix", CarTable.CAR_ID_PREFIX, false, text -> {
+        if (text.isEmpty() || text.indexOf(':') >= 0 || text.indexOf(' ') >= 0) {
+            throw new IllegalArgumentException("får inte vara tomt eller innehålla kolon/blanksteg");
+        }
+        return text;
+    });
+
+    /** Kräver att varje klient autentiserar sig med sin nyckel innan något annat hanteras */
+    public static final Key<Boolean> AUTH_REQUIRED = boolKey("auth.required", false, false);
+
+    /** Fil med en nyckel per bil-ID (t.ex. BIL1=hemlighet, ARENA=hemlighet) */
+    public static final Key<String> AUTH_TOKENS_FILE = new Key<>("auth.tokensFile", "car-tokens.properties", false,
+            text -> text);
+
+    /** Krypterar anslutningarna med TLS */
+    public static final Key<Boolean> TLS_ENABLED = boolKey("tls.enabled", false, false);
+
+    /** PKCS12-fil med serverns nyckel och certifikat */
+    public static final Key<String> TLS_KEYSTORE = new Key<>("tls.keystore", "carwars.p12", false, text -> text);
+
+    /** Lösenord för nyckelfilen, visas inte i sammanfattningen */
+    public static final Key<String> TLS_KEYSTORE_PASSWORD = new Key<>("tls.keystorePassword", "", false, text -> text);
+
+    /** Antal TLS-sessioner som sparas för snabb återanslutning */
+    public static final Key<Integer> TLS_SESSION_CACHE_SIZE = intKey("tls.sessionCacheSize", 1000, false, 0, 1000000);
+
+    /** Hur länge en TLS-session kan återupptas (s) */
+    public static final Key<Integer> TLS_SESSION_TIMEOUT_SECONDS = intKey("tls.sessionTimeoutSeconds", 86400, false, 0, 604800);
+
+    /** Max antal uppdateringar per sekund i GUI:t */
+    public static final Key<Integer> GUI_MAX_FPS = intKey("gui.maxFps", 30, true, 1, 240);
+
+    /** Tar emot accelerometerdata från bilarna över UDP */
+    public static final Key<Boolean> TELEMETRY_ENABLED = boolKey("telemetry.enabled", true, false);
+
+    /** UDP-port för telemetri */
+    public static final Key<Integer> TELEMETRY_PORT = intKey("telemetry.port", 6001, false, 1, 65535);
+
+    /** Katalog där telemetrin sparas, en underkatalog per match */
+    public static final Key<String> TELEMETRY_DIRECTORY = new Key<>("telemetry.directory", "telemetry", false, text -> text);
+
+    /** Antal värden per bil som hålls i minnet för live-grafer */
+    public static final Key<Integer> TELEMETRY_RING_SIZE = intKey("telemetry.ringSize", 4096, false, 512, 1 << 20);
+
+    /** Antal värden per chunk-fil på disk */
+    public static final Key<Integer> TELEMETRY_CHUNK_SAMPLES = intKey("telemetry.chunkSamples", 4096, false, 64, 1 << 20);
+
+    /** Antal rader per sekund som en klient får skicka i längden */
+    public static final Key<Double> INGRESS_RATE = new Key<>("ingress.ratePerSecond", 20.0, true, text -> {
+        double value = Double.parseDouble(text);
+        if (!(value > 0 && value <= 100000)) {
+            throw new IllegalArgumentException("måste vara mellan 0 och 100000");
+        }
+        return value;
+    });
+
+    /** Antal rader som får komma i en skur */
+    public static final Key<Integer> INGRESS_BURST = intKey("ingress.burst", 40, true, 1, 100000);
+
+    /** Antal kastade rader inom fem sekunder som leder till karantän */
+    public static final Key<Integer> QUARANTINE_THRESHOLD = intKey("ingress.quarantineThreshold", 200, true, 1, 1000000);
+
+    /** Tid innan ett okvitterat bilkommando skickas igen (ms) */
+    public static final Key<Integer> ACK_TIMEOUT_MILLIS = intKey("command.ackTimeoutMillis", 250, true, 10, 60000);
+
+    /** Max antal sändningar av samma bilkommando */
+    public static final Key<Integer> MAX_SEND_ATTEMPTS = intKey("command.maxAttempts", 5, true, 1, 100);
+
+    /** Hur länge en frånkopplad bil kan återuppta sin session (ms, 0 = av) */
+    public static final Key<Integer> SESSION_RESUME_MILLIS = intKey("session.resumeWindowMillis", 30000, true, 0, 3600000);
+
+    /** Krockar från samma bil inom detta fönster räknas som en (ms, 0 = av) */
+    public static final Key<Integer> CRASH_DEBOUNCE_MILLIS = intKey("crash.debounceMillis", 0, true, 0, 60000);
+
+    /** Fil för matchhistoriken; en reservserver öppnar den först när den tar över */
+    public static final Key<String> HISTORY_FILE = new Key<>("history.file", MatchHistoryStore.DEFAULT_FILE, false, text -> text);
+
+    /** Spara krockar och matchslut i en händelsejournal för statistik i efterhand */
+    public static final Key<Boolean> JOURNAL_ENABLED = boolKey("journal.enabled", true, false);
+
+    /** Katalog för händelsejournalen, en fil per dag */
+    public static final Key<String> JOURNAL_DIRECTORY = new Key<>("journal.directory", "journal", false, text -> text);
+
+    /** Exportera varje match som en kolumnfil medan den pågår */
+    public static final Key<Boolean> EXPORT_ENABLED = boolKey("export.enabled", true, false);
+
+    /** Katalog för kolumnfilerna, en fil per match */
+    public static final Key<String> EXPORT_DIRECTORY = new Key<>("export.directory", "export", false, text -> text);
+
+    /** Låt servern avgöra krockar från telemetrin för bilar som strömmar den */
+    public static final Key<Boolean> CRASH_DETECTION = boolKey("crash.serverDetection", false, true);
+
+    /** Lägsta tröskel för förändring i acceleration mellan två värden (tusendels g) */
+    public static final Key<Integer> CRASH_DETECTION_FLOOR_MILLI_G = intKey("crash.detection.floorMilliG", 1000, true, 100, 16000);
+
+    /** Antal standardavvikelser över bilens brus som räknas som krock */
+    public static final Key<Integer> CRASH_DETECTION_SIGMA = intKey("crash.detection.sigma", 8, true, 1, 100);
+
+    /** Loggnivå för applikationens logger (t.ex. INFO, WARNING, ALL) */
+    public static final Key<String> LOG_LEVEL = new Key<>("log.level", "ALL", true,
+            text -> Level.parse(text.toUpperCase()).getName());
+
+    /** Katalog för loggsegmenten */
+    public static final Key<String> LOG_DIRECTORY = new Key<>("log.directory", LoggerSetup.DEFAULT_DIRECTORY, false, text -> text);
+
+    /** Storlek per loggsegment (MB) */
+    public static final Key<Integer> LOG_SEGMENT_MB = intKey("log.segmentMegabytes", LoggerSetup.DEFAULT_SEGMENT_MB, false, 1, 1024);
+
+    /** Antal loggsegment som sparas innan de äldsta tas bort */
+    public static final Key<Integer> LOG_SEGMENTS = intKey("log.segments", LoggerSetup.DEFAULT_SEGMENTS, false, 1, 1000);
+
+    /** Logga alla rader till och från klienterna, med nycklar i inloggnings- och sessionsrader maskerade */
+    public static final Key<Boolean> LOG_TRAFFIC = boolKey("log.traffic", true, true);
+
+    /**
+     * Skriv varje mottagen rad och varje poängändring i konsolen. Av som standard: utskrifterna
+     * skapar nya strängar för varje krock (några hundra byte per rad), medan trafikloggen
+     * ({@link #LOG_TRAFFIC}) sparar samma rader utan det. Slås på vid felsökning.
+     */
+    public static final Key<Boolean> LOG_CONSOLE = boolKey("log.console", false, true);
+
+    /** Spara ögonblicksbilder av pågående match och återuppta den vid start */
+    public static final Key<Boolean> SNAPSHOT_ENABLED = boolKey("snapshot.enabled", true, false);
+
+    /** Fil för ögonblicksbilden */
+    public static final Key<String> SNAPSHOT_FILE = new Key<>("snapshot.file", "match.snapshot", false, text -> text);
+
+    /** Tid mellan kontrollerna av om matchen har ändrats och behöver sparas (ms) */
+    public static final Key<Integer> SNAPSHOT_INTERVAL_MILLIS = intKey("snapshot.intervalMillis", 250, true, 20, 60000);
+
+    /** Äldsta ögonblicksbild som återupptas vid start (sekunder) */
+    public static final Key<Integer> SNAPSHOT_MAX_AGE_SECONDS = intKey("snapshot.maxAgeSeconds", 900, false, 1, 604800);
+
+    /** Roll för replikeringen som strömmar matchen till en reservserver */
+    public static final String REPLICATION_PRIMARY = "primary";
+
+    /** Roll för en reservserver som speglar primären och tar över om den slutar svara */
+    public static final String REPLICATION_STANDBY = "standby";
+
+    /** Serverns roll i replikeringen: none, primary eller standby */
+    public static final Key<String> REPLICATION_ROLE = new Key<>("replication.role", "none", false, text -> {
+        if (!text.equals("none") && !text.equals(REPLICATION_PRIMARY) && !text.equals(REPLICATION_STANDBY)) {
+            throw new IllegalArgumentException("ska vara none, primary eller standby");
+        }
+        return text;
+    });
+
+    /** Primärens adress, som reservservern ansluter till */
+    public static final Key<String> REPLICATION_HOST = new Key<>("replication.primaryHost", "localhost", false, text -> text);
+
+    /** TCP-port för replikeringen */
+    public static final Key<Integer> REPLICATION_PORT = intKey("replication.port", 6002, false, 1, 65535);
+
+    /** Tid utan meddelanden från primären innan reservservern tar över (ms) */
+    public static final Key<Integer> REPLICATION_FAILOVER_MILLIS = intKey("replication.failoverMillis", 1000, false, 200, 60000);
+
+    /** Ta emot bilar via gatewayer (Control.GatewayNode) utöver de som ansluter direkt */
+    public static final Key<Boolean> GATEWAY_ENABLED = boolKey("gateway.enabled", false, false);
+
+    /** TCP-port som gatewayerna ansluter till på poängservern */
+    public static final Key<Integer> GATEWAY_PORT = intKey("gateway.port", 6003, false, 1, 65535);
+
+    /** Poängserverns adress, som gatewayn ansluter till */
+    public static final Key<String> GATEWAY_AUTHORITY_HOST = new Key<>("gateway.authorityHost", "localhost", false, text -> text);
+
+    /** Tid utan ramar innan förbindelsen mellan gateway och poängserver räknas som bruten (ms) */
+    public static final Key<Integer> GATEWAY_TIMEOUT_MILLIS = intKey("gateway.timeoutMillis", 2000, false, 200, 60000);
+
+    /** Adress som poängservern tar emot gatewayer på, t.ex. det interna nätets adress */
+    public static final Key<String> GATEWAY_BIND_ADDRESS = new Key<>("gateway.bindAddress", "localhost", false, text -> text);
+
+    /** Nyckel som gatewayerna loggar in med hos poängservern, måste vara satt på båda sidor */
+    public static final Key<String> GATEWAY_SECRET = new Key<>("gateway.secret", "", false, text -> text);
+
+    /** Rader som får vänta på att skickas till en bil via gatewayn innan bilen kopplas från */
+    public static final Key<Integer> GATEWAY_CAR_QUEUE = intKey("gateway.carQueueSize", 1024, false, 4, 65536);
+
+    /** Filen som konfigurationen lästes från (kan saknas) */
+    private final Path file;
+
+    /** Aktuella värden per nyckel */
+    private final ConcurrentHashMap<Key<?>, Object> values = new ConcurrentHashMap<>();
+
+    /** Räknas upp vid varje ändring, så att cachade värden kan upptäcka den billigt */
+    private final AtomicInteger version = new AtomicInteger();
+
+    /** Lyssnare som anropas när en nyckel ändras */
+    private final CopyOnWriteArrayList<Consumer<Key<?>>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Skapar en konfiguration med standardvärden.
+     *
+     * @param file filen som reload läser, eller null
+     */
+    private ServerConfig(Path file) {
+        this.file = file;
+        for (Key<?> key : KEYS) {
+            values.put(key, key.defaultValue);
+        }
+    }
+
+    /**
+     * Skapar en konfiguration med bara standardvärden.
+     *
+     * @return konfigurationen
+     */
+    public static ServerConfig defaults() {
+        return new ServerConfig(null);
+    }
+
+    /**
+     * Läser konfigurationen från standardfilen och systemegenskaperna.
+     *
+     * @return konfigurationen
+     */
+    public static ServerConfig load() {
+        return load(Paths.get(System.getProperty(SYSTEM_PREFIX + "config", DEFAULT_FILE)));
+    }
+
+    /**
+     * Läser konfigurationen från en fil och systemegenskaperna.
+     * En fil som saknas ger standardvärden; ogiltiga värden ersätts med standardvärdet.
+     *
+     * @param file konfigurationsfil
+     * @return konfigurationen
+     */
+    public static ServerConfig load(Path file) {
+        ServerConfig config = new ServerConfig(file);
+        Properties sources = config.readSources();
+        for (Key<?> key : KEYS) {
+            String text = sources.getProperty(key.name);
+            Object value = text != null ? tryParse(key, text) : null;
+            if (value != null) {
+                config.values.put(key, value);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Får värdet för en nyckel.
+     *
+     * @param key nyckeln
+     * @param <T> värdets typ
+     * @return aktuellt värde
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key<T> key) {
+        return (T) values.get(key);
+    }
+
+    /**
+     * Ändrar en nyckel medan servern kör.
+     *
+     * @param key nyckeln, måste vara "hot"
+     * @param text nytt värde som text
+     * @throws IllegalArgumentException om nyckeln inte kan ändras eller värdet är ogiltigt
+     */
+    public void set(Key<?> key, String text) {
+        if (!key.hot) {
+            throw new IllegalArgumentException(key.name + " kan bara ändras vid omstart");
+        }
+        Object value = key.parse(text);
+        if (!value.equals(values.put(key, value))) {
+            changed(key);
+        }
+    }
+
+    /**
+     * Får versionen av konfigurationen. Den ökar vid varje ändring.
+     *
+     * @return version
+     */
+    public int getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Registrerar en lyssnare som anropas när en nyckel ändras.
+     * Anropas från den tråd som gjorde ändringen (t.ex. en JMX-tråd).
+     *
+     * @param listener lyssnaren
+     */
+    public void addListener(Consumer<Key<?>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tar bort en registrerad lyssnare.
+     *
+     * @param listener lyssnaren
+     */
+    public void removeListener(Consumer<Key<?>> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Registrerar konfigurationen i plattformens MBean-server.
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(MBEAN_NAME));
+        } catch (Exception e) {
+            System.out.println("Kunde inte registrera konfigurationen i JMX: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String reload() {
+        Properties sources = readSources();
+        List<String> restartNeeded = new ArrayList<>();
+        int changedCount = 0;
+        for (Key<?> key : KEYS) {
+            String text = sources.getProperty(key.name);
+            Object wanted = text != null ? tryParse(key, text) : key.defaultValue;
+            if (wanted == null || wanted.equals(values.get(key))) {
+                continue;
+            }
+            if (key.hot) {
+                values.put(key, wanted);
+                changed(key);
+                changedCount++;
+            } else {
+                restartNeeded.add(key.name);
+            }
+        }
+
+        String result = changedCount + " värden ändrade";
+        if (!restartNeeded.isEmpty()) {
+            result += ", kräver omstart: " + String.join(", ", restartNeeded);
+        }
+        System.out.println("⚙️ Konfiguration omläst: " + result);
+        return result;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder text = new StringBuilder();
+        for (Key<?> key : KEYS) {
+            Object value = key == TLS_KEYSTORE_PASSWORD || key == GATEWAY_SECRET ? "***" : values.get(key);
+            text.append(key.name).append('=').append(value).append(key.hot ? " (hot)" : "").append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public List<String> getKeys() {
+        List<String> names = new ArrayList<>();
+        for (Key<?> key : KEYS) {
+            names.add(key.name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    @Override
+    public void setValue(String name, String value) {
+        for (Key<?> key : KEYS) {
+            if (key.name.equals(name)) {
+                set(key, value);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Okänd nyckel: " + name);
+    }
+
+    @Override
+    public int getSchedulerThreads() {
+        return get(SCHEDULER_THREADS);
+    }
+
+    @Override
+    public void setSchedulerThreads(int threads) {
+        set(SCHEDULER_THREADS, Integer.toString(threads));
+    }
+
+    @Override
+    public int getGuiMaxFps() {
+        return get(GUI_MAX_FPS);
+    }
+
+    @Override
+    public void setGuiMaxFps(int fps) {
+        set(GUI_MAX_FPS, Integer.toString(fps));
+    }
+
+    @Override
+    public double getIngressRatePerSecond() {
+        return get(INGRESS_RATE);
+    }
+
+    @Override
+    public void setIngressRatePerSecond(double rate) {
+        set(INGRESS_RATE, Double.toString(rate));
+    }
+
+    @Override
+    public int getIngressBurst() {
+        return get(INGRESS_BURST);
+    }
+
+    @Override
+    public void setIngressBurst(int burst) {
+        set(INGRESS_BURST, Integer.toString(burst));
+    }
+
+    @Override
+    public int getQuarantineThreshold() {
+        return get(QUARANTINE_THRESHOLD);
+    }
+
+    @Override
+    public void setQuarantineThreshold(int threshold) {
+        set(QUARANTINE_THRESHOLD, Integer.toString(threshold));
+    }
+
+    @Override
+    public int getAckTimeoutMillis() {
+        return get(ACK_TIMEOUT_MILLIS);
+    }
+
+    @Override
+    public void setAckTimeoutMillis(int millis) {
+        set(ACK_TIMEOUT_MILLIS, Integer.toString(millis));
+    }
+
+    @Override
+    public int getMaxSendAttempts() {
+        return get(MAX_SEND_ATTEMPTS);
+    }
+
+    @Override
+    public void setMaxSendAttempts(int attempts) {
+        set(MAX_SEND_ATTEMPTS, Integer.toString(attempts));
+    }
+
+    @Override
+    public int getSessionResumeMillis() {
+        return get(SESSION_RESUME_MILLIS);
+    }
+
+    @Override
+    public void setSessionResumeMillis(int millis) {
+        set(SESSION_RESUME_MILLIS, Integer.toString(millis));
+    }
+
+    @Override
+    public int getCrashDebounceMillis() {
+        return get(CRASH_DEBOUNCE_MILLIS);
+    }
+
+    @Override
+    public void setCrashDebounceMillis(int millis) {
+        set(CRASH_DEBOUNCE_MILLIS, Integer.toString(millis));
+    }
+
+    @Override
+    public boolean isCrashDetection() {
+        return get(CRASH_DETECTION);
+    }
+
+    @Override
+    public void setCrashDetection(boolean enabled) {
+        set(CRASH_DETECTION, Boolean.toString(enabled));
+    }
+
+    @Override
+    public int getCrashDetectionFloorMilliG() {
+        return get(CRASH_DETECTION_FLOOR_MILLI_G);
+    }
+
+    @Override
+    public void setCrashDetectionFloorMilliG(int milliG) {
+        set(CRASH_DETECTION_FLOOR_MILLI_G, Integer.toString(milliG));
+    }
+
+    @Override
+    public int getCrashDetectionSigma() {
+        return get(CRASH_DETECTION_SIGMA);
+    }
+
+    @Override
+    public void setCrashDetectionSigma(int sigma) {
+        set(CRASH_DETECTION_SIGMA, Integer.toString(sigma));
+    }
+
+    @Override
+    public String getLogLevel() {
+        return get(LOG_LEVEL);
+    }
+
+    @Override
+    public void setLogLevel(String level) {
+        set(LOG_LEVEL, level);
+    }
+
+    @Override
+    public int getSnapshotIntervalMillis() {
+        return get(SNAPSHOT_INTERVAL_MILLIS);
+    }
+
+    @Override
+    public void setSnapshotIntervalMillis(int millis) {
+        set(SNAPSHOT_INTERVAL_MILLIS, Integer.toString(millis));
+    }
+
+    @Override
+    public boolean isLogTraffic() {
+        return get(LOG_TRAFFIC);
+    }
+
+    @Override
+    public void setLogTraffic(boolean enabled) {
+        set(LOG_TRAFFIC, Boolean.toString(enabled));
+    }
+
+    @Override
+    public boolean isLogConsole() {
+        return get(LOG_CONSOLE);
+    }
+
+    @Override
+    public void setLogConsole(boolean enabled) {
+        set(LOG_CONSOLE, Boolean.toString(enabled));
+    }
+
+    /**
+     * Läser filen och lägger systemegenskaperna ovanpå.
+     *
+     * @return nyckelnamn utan prefix mot värde
+     */
+    private Properties readSources() {
+        Properties properties = new Properties();
+        if (file != null && Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.out.println("Kunde inte läsa " + file + ": " + e.getMessage());
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(SYSTEM_PREFIX)) {
+                properties.setProperty(name.substring(SYSTEM_PREFIX.length()), System.getProperty(name));
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Tolkar ett värde och skriver ut en varning om det är ogiltigt.
+     *
+     * @return värdet, eller null om det är ogiltigt
+     */
+    private static Object tryParse(Key<?> key, String text) {
+        try {
+            return key.parse(text);
+        } catch (RuntimeException e) {
+            System.out.println("⚠️ Ogiltigt värde för " + key.name + ": '" + text + "' (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Räknar upp versionen och meddelar lyssnarna.
+     */
+    private void changed(Key<?> key) {
+        version.incrementAndGet();
+        System.out.println("⚙️ " + key.name + " = " + values.get(key));
+        for (Consumer<Key<?>> listener : listeners) {
+            try {
+                listener.accept(key);
+            } catch (Exception e) {
+                System.out.println("Fel i konfigurationslyssnare: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Skapar en nyckel för true/false.
+     */
+    private static Key<Boolean> boolKey(String name, boolean defaultValue, boolean hot) {
+        return new Key<>(name, defaultValue, hot, text -> {
+            if (text.equalsIgnoreCase("true")) {
+                return true;
+            }
+            if (text.equalsIgnoreCase("false")) {
+                return false;
+            }
+            throw new IllegalArgumentException("måste vara true eller false");
+        });
+    }
+
+    /**
+     * Skapar en heltalsnyckel med tillåtet intervall.
+     */
+    private static Key<Integer> intKey(String name, int defaultValue, boolean hot, int min, int max) {
+        return new Key<>(name, defaultValue, hot, text -> {
+            int value = Integer.parseInt(text);
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("måste vara mellan " + min + " och " + max);
+            }
+            return value;
+        });
+    }
+}
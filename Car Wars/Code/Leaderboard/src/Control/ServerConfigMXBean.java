@@ -0,0 +1,269 @@
+package Control;
+
+import java.util.List;
+
+/**
+ * JMX-gränssnitt för serverns konfiguration.
+ * Gör det möjligt att justera prestandainställningar mitt i en turnering,
+ * t.ex. från JConsole, utan att starta om servern.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public interface ServerConfigMXBean {
+
+    /**
+     * Läser om konfigurationsfilen och systemegenskaperna och tillämpar de
+     * nycklar som kan ändras medan servern kör.
+     *
+     * @return sammanfattning av vad som ändrades
+     */
+    String reload();
+
+    /**
+     * Alla nycklar och deras aktuella värden.
+     *
+     * @return en rad per nyckel
+     */
+    String getSummary();
+
+    /**
+     * Namnen på alla nycklar.
+     *
+     * @return nyckelnamn
+     */
+    List<String> getKeys();
+
+    /**
+     * Ändrar en nyckel som kan ändras medan servern kör.
+     *
+     * @param name nyckelns namn, t.ex. "ingress.burst"
+     * @param value nytt värde som text
+     */
+    void setValue(String name, String value);
+
+    /**
+     * Får antal trådar i serverns schemaläggare.
+     *
+     * @return antal trådar i serverns schemaläggare
+     */
+    int getSchedulerThreads();
+
+    /**
+     * Sätter nytt antal trådar i schemaläggaren.
+     *
+     * @param threads nytt antal trådar
+     */
+    void setSchedulerThreads(int threads);
+
+    /**
+     * Får max antal GUI-uppdateringar per sekund.
+     *
+     * @return max antal GUI-uppdateringar per sekund
+     */
+    int getGuiMaxFps();
+
+    /**
+     * Sätter nytt max antal uppdateringar per sekund.
+     *
+     * @param fps nytt max antal uppdateringar per sekund
+     */
+    void setGuiMaxFps(int fps);
+
+    /**
+     * Får rader per sekund som en klient får skicka.
+     *
+     * @return rader per sekund som en klient får skicka
+     */
+    double getIngressRatePerSecond();
+
+    /**
+     * Sätter nytt antal rader per sekund.
+     *
+     * @param rate nytt antal rader per sekund
+     */
+    void setIngressRatePerSecond(double rate);
+
+    /**
+     * Får rader som får komma i en skur.
+     *
+     * @return rader som får komma i en skur
+     */
+    int getIngressBurst();
+
+    /**
+     * Sätter ny skurstorlek.
+     *
+     * @param burst ny skurstorlek
+     */
+    void setIngressBurst(int burst);
+
+    /**
+     * Får kastade rader som leder till karantän.
+     *
+     * @return kastade rader som leder till karantän
+     */
+    int getQuarantineThreshold();
+
+    /**
+     * Sätter ny karantänsgräns.
+     *
+     * @param threshold ny karantänsgräns
+     */
+    void setQuarantineThreshold(int threshold);
+
+    /**
+     * Får tid innan ett okvitterat kommando skickas igen (ms).
+     *
+     * @return tid innan ett okvitterat kommando skickas igen (ms)
+     */
+    int getAckTimeoutMillis();
+
+    /**
+     * Sätter ny tid (ms).
+     *
+     * @param millis ny tid (ms)
+     */
+    void setAckTimeoutMillis(int millis);
+
+    /**
+     * Får max antal sändningar av ett kommando.
+     *
+     * @return max antal sändningar av ett kommando
+     */
+    int getMaxSendAttempts();
+
+    /**
+     * Sätter nytt max antal sändningar.
+     *
+     * @param attempts nytt max antal sändningar
+     */
+    void setMaxSendAttempts(int attempts);
+
+    /**
+     * Får tid som en frånkopplad bil kan återuppta sin session (ms).
+     *
+     * @return tid som en frånkopplad bil kan återuppta sin session (ms)
+     */
+    int getSessionResumeMillis();
+
+    /**
+     * Sätter ny tid (ms, 0 = av).
+     *
+     * @param millis ny tid (ms, 0 = av)
+     */
+    void setSessionResumeMillis(int millis);
+
+    /**
+     * Får fönster där krockar från samma bil räknas som en (ms).
+     *
+     * @return fönster där krockar från samma bil räknas som en (ms)
+     */
+    int getCrashDebounceMillis();
+
+    /**
+     * Sätter nytt fönster (ms, 0 = av).
+     *
+     * @param millis nytt fönster (ms, 0 = av)
+     */
+    void setCrashDebounceMillis(int millis);
+
+    /**
+     * Anger om servern avgör krockar från telemetrin.
+     *
+     * @return true om krockdetekteringen är på
+     */
+    boolean isCrashDetection();
+
+    /**
+     * Slår på eller av krockdetekteringen.
+     *
+     * @param enabled true för att låta servern avgöra krockar
+     */
+    void setCrashDetection(boolean enabled);
+
+    /**
+     * Får lägsta krocktröskel (tusendels g).
+     *
+     * @return lägsta krocktröskel (tusendels g)
+     */
+    int getCrashDetectionFloorMilliG();
+
+    /**
+     * Sätter ny lägsta krocktröskel (tusendels g).
+     *
+     * @param milliG ny lägsta krocktröskel (tusendels g)
+     */
+    void setCrashDetectionFloorMilliG(int milliG);
+
+    /**
+     * Får antal standardavvikelser över bilens brus som räknas som krock.
+     *
+     * @return antal standardavvikelser
+     */
+    int getCrashDetectionSigma();
+
+    /**
+     * Sätter nytt antal standardavvikelser.
+     *
+     * @param sigma nytt antal standardavvikelser
+     */
+    void setCrashDetectionSigma(int sigma);
+
+    /**
+     * Får applikationens loggnivå.
+     *
+     * @return applikationens loggnivå
+     */
+    String getLogLevel();
+
+    /**
+     * Sätter ny loggnivå, t.ex. "INFO".
+     *
+     * @param level ny loggnivå, t.ex. "INFO"
+     */
+    void setLogLevel(String level);
+
+    /**
+     * Anger om rader till och från klienterna loggas.
+     *
+     * @return true om trafiken loggas
+     */
+    boolean isLogTraffic();
+
+    /**
+     * Slår på eller av loggningen av trafiken.
+     *
+     * @param enabled true för att logga trafiken
+     */
+    void setLogTraffic(boolean enabled);
+
+    /**
+     * Anger om mottagna rader och poängändringar skrivs i konsolen.
+     *
+     * @return true om de skrivs i konsolen
+     */
+    boolean isLogConsole();
+
+    /**
+     * Slår på eller av utskrifterna av mottagna rader och poängändringar.
+     *
+     * @param enabled true för att skriva dem i konsolen
+     */
+    void setLogConsole(boolean enabled);
+
+    /**
+     * Får tiden mellan kontrollerna av ögonblicksbilden (ms).
+     *
+     * @return tid mellan kontrollerna (ms)
+     */
+    int getSnapshotIntervalMillis();
+
+    /**
+     * Sätter ny tid mellan kontrollerna av ögonblicksbilden (ms).
+     *
+     * @param millis ny tid mellan kontrollerna (ms)
+     */
+    void setSnapshotIntervalMillis(int millis);
+}
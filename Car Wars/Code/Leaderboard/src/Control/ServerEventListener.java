@@ -0,0 +1,93 @@
+package Control;
+
+import Model.CarTable;
+import Model.MatchResult;
+
+/**
+ * Lyssnare för händelser från MyServer.
+ * Anropas från servertrådarna, så GUI-kod måste själv flytta arbetet till EDT.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public interface ServerEventListener {
+
+    /**
+     * Anropas när en ny match har initierats med sina bilar.
+     *
+     * @param cars biltabellen för den nya matchen
+     */
+    default void matchStarted(CarTable cars) {
+    }
+
+    /**
+     * Anropas när en bils poäng (hälsa) har ändrats.
+     *
+     * @param slot bilens plats i CarTable
+     * @param health ny hälsa
+     */
+    default void scoreChanged(int slot, int health) {
+    }
+
+    /**
+     * Anropas när en bil har krockat eller straffats, före {@link #scoreChanged}.
+     * Anropas även för bilar som redan är utslagna.
+     *
+     * @param slot bilens plats i CarTable
+     * @param health hälsa efter träffen
+     * @param crash true för en krock, false för ett straff från operatören
+     */
+    default void carHit(int slot, int health, boolean crash) {
+    }
+
+    /**
+     * Anropas när en ny enhet har anslutit, innan den har identifierat sig.
+     *
+     * @param client den nya anslutningen
+     */
+    default void clientConnected(MyServer.ClientConnection client) {
+    }
+
+    /**
+     * Anropas när en anslutning har identifierat sig som bil eller arena-kontroll.
+     *
+     * @param client anslutningen
+     */
+    default void clientIdentified(MyServer.ClientConnection client) {
+    }
+
+    /**
+     * Anropas en gång när en anslutning har kopplats från.
+     *
+     * @param client anslutningen
+     */
+    default void clientDisconnected(MyServer.ClientConnection client) {
+    }
+
+    /**
+     * Anropas för varje rad som servern hanterar från en anslutning.
+     * Anropas ofta, så lyssnaren bör bara notera att något har hänt.
+     *
+     * @param client anslutningen som skickade raden
+     */
+    default void clientActivity(MyServer.ClientConnection client) {
+    }
+
+    /**
+     * Anropas när arena-kommandot har ändrats.
+     *
+     * @param command nytt arena-kommando ("open" eller "close")
+     * @param version arena-version för kommandot
+     */
+    default void arenaChanged(String command, long version) {
+    }
+
+    /**
+     * Anropas exakt en gång när matchen är avgjord.
+     *
+     * @param result matchens resultat
+     */
+    default void matchOver(MatchResult result) {
+    }
+}
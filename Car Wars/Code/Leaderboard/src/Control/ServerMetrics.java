@@ -0,0 +1,106 @@
+package Control;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Räknare för serverns inkommande trafik.
+ * LongAdder gör att många klienttrådar kan räkna upp samtidigt utan att
+ * konkurrera om samma minnesplats.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class ServerMetrics {
+
+    /** Antal mottagna rader från alla klienter */
+    public final LongAdder linesReceived = new LongAdder();
+
+    /** Antal rader som kastades för att klienten överskred sin budget */
+    public final LongAdder linesShed = new LongAdder();
+
+    /** Antal rader som kastades medan klienten var i karantän */
+    public final LongAdder linesQuarantined = new LongAdder();
+
+    /** Antal gånger en klient har satts i karantän */
+    public final LongAdder quarantines = new LongAdder();
+
+    /** Antal rader som kastades för att de var för långa */
+    public final LongAdder framesRejected = new LongAdder();
+
+    /** Antal misslyckade autentiseringar */
+    public final LongAdder authFailures = new LongAdder();
+
+    /** Antal meddelanden som påstod sig komma från en annan bil än anslutningens */
+    public final LongAdder spoofedMessages = new LongAdder();
+
+    /** Antal bilar som återanslöt till sin session */
+    public final LongAdder sessionsResumed = new LongAdder();
+
+    /** Antal sessioner som gick ut innan bilen återanslöt */
+    public final LongAdder sessionsExpired = new LongAdder();
+
+    /** Antal mottagna telemetripaket */
+    public final LongAdder telemetryPackets = new LongAdder();
+
+    /** Antal mottagna accelerometervärden */
+    public final LongAdder telemetrySamples = new LongAdder();
+
+    /** Antal telemetripaket som kastades (felaktiga, okända avsändare eller dubbletter) */
+    public final LongAdder telemetryRejected = new LongAdder();
+
+    /** Antal telemetripaket som saknades enligt löpnumren */
+    public final LongAdder telemetryLost = new LongAdder();
+
+    /** Antal chunk som inte hann skrivas till disk */
+    public final LongAdder telemetryChunksDropped = new LongAdder();
+
+    /** Antal krockar som servern upptäckt i telemetrin */
+    public final LongAdder crashesDetected = new LongAdder();
+
+    /** Antal KROCK-meddelanden som ignorerades eftersom servern avgör bilens krockar */
+    public final LongAdder carCrashesIgnored = new LongAdder();
+
+    /** Antal sparade ögonblicksbilder av matchen */
+    public final LongAdder snapshotsWritten = new LongAdder();
+
+    /** Antal gånger en ögonblicksbild fick kopieras om för att en krock kom emellan */
+    public final LongAdder snapshotRetries = new LongAdder();
+
+    /** Antal händelser som har lagts i replikeringsströmmen */
+    public final LongAdder replicationEvents = new LongAdder();
+
+    /** Antal gånger reservservrarna fick börja om för att replikeringsbufferten blev full */
+    public final LongAdder replicationResyncs = new LongAdder();
+
+    /** Antal ramar som har lagts i förbindelsen mellan gateway och poängserver */
+    public final LongAdder gatewayFrames = new LongAdder();
+
+    /** Antal sändningar på förbindelsen mellan gateway och poängserver */
+    public final LongAdder gatewayBatches = new LongAdder();
+
+    /**
+     * Kort sammanfattning av räknarna.
+     *
+     * @return text med mottagna och kastade rader
+     */
+    public String summary() {
+        return "Mottagna rader: " + linesReceived.sum() +
+                ", kastade: " + linesShed.sum() +
+                ", i karantän: " + linesQuarantined.sum() +
+                " (" + quarantines.sum() + " karantäner)" +
+                ", för långa: " + framesRejected.sum() +
+                ", nekade inloggningar: " + authFailures.sum() +
+                ", falska avsändare: " + spoofedMessages.sum() +
+                ", återanslutna: " + sessionsResumed.sum() +
+                ", utgångna sessioner: " + sessionsExpired.sum() +
+                ", telemetri: " + telemetryPackets.sum() + " paket / " + telemetrySamples.sum() + " värden" +
+                " (kastade " + telemetryRejected.sum() + ", saknade " + telemetryLost.sum() +
+                ", ej sparade chunk " + telemetryChunksDropped.sum() + ")" +
+                ", upptäckta krockar: " + crashesDetected.sum() +
+                ", ignorerade KROCK: " + carCrashesIgnored.sum() +
+                ", ögonblicksbilder: " + snapshotsWritten.sum() + " (omtagna kopior " + snapshotRetries.sum() + ")" +
+                ", replikerade händelser: " + replicationEvents.sum() + " (omstarter " + replicationResyncs.sum() + ")" +
+                ", gateway-ramar: " + gatewayFrames.sum() + " i " + gatewayBatches.sum() + " sändningar";
+    }
+}
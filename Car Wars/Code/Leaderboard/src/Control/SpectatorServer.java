@@ -0,0 +1,453 @@
+package Control;
+
+import Model.CarTable;
+import Model.MatchResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inbyggd HTTP-server som strömmar leaderboarden till åskådare via Server-Sent Events.
+ * Nya åskådare får först en hel ögonblicksbild och därefter bara ändringar (diffar).
+ * Spelvägen lägger bara händelsen i en kö; en egen sändartråd serialiserar varje
+ * diff en gång och delar samma bytes med alla åskådare. Varje åskådare har en
+ * egen begränsad kö, så en långsam webbläsare kan inte bromsa de andra. Den som
+ * hamnar efter får en ny ögonblicksbild istället för de missade diffarna. Är sändarkön
+ * full tappas poängdiffar, och alla åskådare får då en ny ögonblicksbild; en ny match och
+ * ett matchresultat tappas aldrig.
+ * <p>
+ * Testa lokalt med t.ex. {@code curl -N http://localhost:8080/events}
+ * eller öppna {@code http://localhost:8080/} i en webbläsare.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class SpectatorServer implements ServerEventListener {
+
+    /** Standardport för åskådarservern */
+    public static final int DEFAULT_PORT = 8080;
+
+    /** Standardvärde för max antal diffar som kan vänta per åskådare */
+    public static final int DEFAULT_SUBSCRIBER_QUEUE_SIZE = 256;
+
+    /** Standardvärde för max antal händelser som kan vänta på sändartråden */
+    public static final int DEFAULT_DISPATCH_QUEUE_SIZE = 4096;
+
+    /** Intervall för keep-alive-kommentarer till webbläsarna */
+    private static final long HEARTBEAT_MILLIS = 15000;
+
+    /** Keep-alive-kommentar enligt SSE-formatet */
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * En ansluten åskådare.
+     */
+    private static final class Subscriber {
+        /** Serialiserade händelser som väntar på att skickas */
+        final BlockingQueue<byte[]> queue;
+
+        /** Sätts när åskådaren hamnat efter och behöver en ny ögonblicksbild */
+        final AtomicBoolean needsSnapshot = new AtomicBoolean(true);
+
+        Subscriber(int queueSize) {
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+    }
+
+    /**
+     * En serialiserad ögonblicksbild och vilken tillståndsversion den byggdes för.
+     */
+    private static final class Snapshot {
+        final long version;
+        final byte[] bytes;
+
+        Snapshot(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * En händelse från spelvägen som väntar på att serialiseras.
+     */
+    private static final class Delta {
+        final int slot;
+        final int health;
+        final MatchResult result;
+        final CarTable cars;
+
+        Delta(int slot, int health, MatchResult result, CarTable cars) {
+            this.slot = slot;
+            this.health = health;
+            this.result = result;
+            this.cars = cars;
+        }
+    }
+
+    /** HTTP-servern */
+    private final HttpServer httpServer;
+
+    /** Trådpool för HTTP-anslutningarna */
+    private final ExecutorService httpExecutor;
+
+    /** Markerar i sändarkön att alla åskådare behöver en ny ögonblicksbild */
+    private static final Delta RESYNC = new Delta(-1, 0, null, null);
+
+    /** Händelser från spelvägen. Obegränsad, men poängdiffar läggs bara till upp till dispatchQueueSize */
+    private final BlockingQueue<Delta> dispatchQueue = new LinkedBlockingQueue<>();
+
+    /** Max antal poängdiffar som kan vänta på sändartråden */
+    private volatile int dispatchQueueSize;
+
+    /** Sätts när en diff har tappats och {@link #RESYNC} ligger i kön */
+    private final AtomicBoolean resyncQueued = new AtomicBoolean();
+
+    /** Max antal diffar som kan vänta per åskådare, gäller åskådare som ansluter efter en ändring */
+    private volatile int subscriberQueueSize;
+
+    /** Anslutna åskådare */
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /** Löpnummer för händelser (SSE id) */
+    private final AtomicLong eventId = new AtomicLong();
+
+    /** Biltabellen för pågående match */
+    private volatile CarTable cars = CarTable.empty();
+
+    /** Senaste matchresultat, skickas med i ögonblicksbilden */
+    private volatile MatchResult lastResult;
+
+    /** Räknas upp av sändartråden för varje ändring, gör cachade ögonblicksbilder ogiltiga */
+    private final AtomicLong stateVersion = new AtomicLong();
+
+    /** Cachad ögonblicksbild, gäller bara om versionen stämmer */
+    private volatile Snapshot cachedSnapshot;
+
+    /** Antal händelser som inte fick plats i sändarkön */
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    /**
+     * Skapar åskådarservern på given port. Servern startas med {@link #start()}.
+     *
+     * @param port TCP-port för HTTP
+     * @throws IOException om porten inte kan öppnas
+     */
+    public SpectatorServer(int port) throws IOException {
+        this(port, DEFAULT_DISPATCH_QUEUE_SIZE, DEFAULT_SUBSCRIBER_QUEUE_SIZE);
+    }
+
+    /**
+     * Skapar åskådarservern med givna köstorlekar. Servern startas med {@link #start()}.
+     *
+     * @param port TCP-port för HTTP
+     * @param dispatchQueueSize max antal händelser som kan vänta på sändartråden
+     * @param subscriberQueueSize max antal diffar som kan vänta per åskådare
+     * @throws IOException om porten inte kan öppnas
+     */
+    public SpectatorServer(int port, int dispatchQueueSize, int subscriberQueueSize) throws IOException {
+        this.dispatchQueueSize = dispatchQueueSize;
+        this.subscriberQueueSize = subscriberQueueSize;
+        httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        httpExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "SpectatorHttp");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(httpExecutor);
+        httpServer.createContext("/events", this::handleEvents);
+        httpServer.createContext("/", this::handlePage);
+    }
+
+    /**
+     * Startar HTTP-servern och sändartråden.
+     */
+    public void start() {
+        Thread dispatcher = new Thread(this::dispatchLoop, "SpectatorDispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        httpServer.start();
+        System.out.println("Åskådarserver igång på port " + httpServer.getAddress().getPort());
+    }
+
+    /**
+     * Stoppar servern.
+     */
+    public void stop() {
+        httpServer.stop(0);
+        httpExecutor.shutdownNow();
+    }
+
+    /**
+     * Får antal anslutna åskådare.
+     *
+     * @return antal åskådare
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Får antal händelser som tappats för att sändarkön var full.
+     *
+     * @return antal tappade händelser
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    @Override
+    public void matchStarted(CarTable cars) {
+        // Ny biltabell och resultat kommer bara en gång per match och läggs alltid i kön
+        dispatchQueue.add(new Delta(-1, 0, null, cars));
+    }
+
+    @Override
+    public void scoreChanged(int slot, int health) {
+        enqueue(new Delta(slot, health, null, null));
+    }
+
+    @Override
+    public void matchOver(MatchResult result) {
+        dispatchQueue.add(new Delta(-1, 0, result, null));
+    }
+
+    /**
+     * Ändrar köstorlekarna medan servern kör. Sändarkön får den nya gränsen direkt,
+     * medan åskådare som redan är anslutna behåller sina köer och bara nya får den nya storleken.
+     *
+     * @param dispatchQueueSize max antal händelser som kan vänta på sändartråden
+     * @param subscriberQueueSize max antal diffar som kan vänta per åskådare
+     */
+    public void setQueueSizes(int dispatchQueueSize, int subscriberQueueSize) {
+        this.dispatchQueueSize = dispatchQueueSize;
+        this.subscriberQueueSize = subscriberQueueSize;
+    }
+
+    /**
+     * Lägger en poängdiff i sändarkön utan att blockera spelvägen. Är kön full tappas diffen
+     * och sändartråden ger alla åskådare en ny ögonblicksbild, som innehåller ändringen.
+     */
+    private void enqueue(Delta delta) {
+        if (dispatchQueue.size() < dispatchQueueSize) {
+            dispatchQueue.add(delta);
+            return;
+        }
+        droppedEvents.incrementAndGet();
+        if (!resyncQueued.getAndSet(true)) {
+            dispatchQueue.add(RESYNC);
+        }
+    }
+
+    /**
+     * Ger alla åskådare en ny ögonblicksbild i stället för diffarna i deras köer.
+     */
+    private void resyncSubscribers() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.needsSnapshot.set(true);
+            subscriber.queue.clear();
+            subscriber.queue.offer(new byte[0]); // Väck skrivtråden
+        }
+    }
+
+    /**
+     * Sändartrådens loop: serialiserar varje händelse en gång och delar ut den.
+     */
+    private void dispatchLoop() {
+        try {
+            while (true) {
+                Delta delta = dispatchQueue.take();
+                byte[] event;
+                if (delta == RESYNC) {
+                    // Diffar har tappats; biltabellen har redan hälsan, så bilden blir rätt
+                    resyncQueued.set(false);
+                    stateVersion.incrementAndGet();
+                    resyncSubscribers();
+                    continue;
+                } else if (delta.cars != null) {
+                    cars = delta.cars;
+                    lastResult = null;
+                    stateVersion.incrementAndGet();
+                    resyncSubscribers();
+                    continue;
+                } else if (delta.result != null) {
+                    lastResult = delta.result;
+                    event = frame("over", resultJson(delta.result));
+                } else {
+                    event = frame("score", "{\"s\":" + delta.slot + ",\"h\":" + delta.health + "}");
+                }
+                stateVersion.incrementAndGet();
+
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.needsSnapshot.get()) {
+                        continue; // Får allt i nästa ögonblicksbild
+                    }
+                    if (!subscriber.queue.offer(event)) {
+                        // Åskådaren ligger efter, släng diffarna och skicka en ny ögonblicksbild
+                        subscriber.needsSnapshot.set(true);
+                        subscriber.queue.clear();
+                        subscriber.queue.offer(new byte[0]);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hanterar en SSE-anslutning. Körs i HTTP-poolens tråd tills åskådaren kopplar ner.
+     */
+    private void handleEvents(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.sendResponseHeaders(200, 0);
+
+        Subscriber subscriber = new Subscriber(subscriberQueueSize);
+        subscribers.add(subscriber);
+        try (OutputStream out = exchange.getResponseBody()) {
+            while (true) {
+                if (subscriber.needsSnapshot.getAndSet(false)) {
+                    // Skickas direkt, annars ligger bilden kvar i bufferten tills nästa händelse
+                    out.write(currentSnapshot());
+                    out.flush();
+                }
+
+                byte[] event = subscriber.queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    out.write(HEARTBEAT);
+                } else if (event.length > 0 && !subscriber.needsSnapshot.get()) {
+                    out.write(event);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Åskådaren kopplade ner
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscribers.remove(subscriber);
+            exchange.close();
+        }
+    }
+
+    /**
+     * Serverar en enkel webbsida som visar leaderboarden.
+     */
+    private void handlePage(HttpExchange exchange) throws IOException {
+        byte[] page = PAGE.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(200, page.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(page);
+        }
+    }
+
+    /**
+     * Får ögonblicksbilden av hela matchen, byggs bara om när något ändrats.
+     * Anropas efter att åskådarens needsSnapshot nollställts, så en ändring som
+     * sändartråden hoppade över för åskådaren syns alltid som en ny version här.
+     */
+    private byte[] currentSnapshot() {
+        long version = stateVersion.get();
+        Snapshot cached = cachedSnapshot;
+        if (cached != null && cached.version == version) {
+            return cached.bytes;
+        }
+
+        CarTable table = cars;
+        StringBuilder json = new StringBuilder(64 + table.size() * 48);
+        json.append("{\"cars\":[");
+        for (int slot = 0; slot < table.size(); slot++) {
+            if (slot > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(quote(table.getCarId(slot)))
+                    .append(",\"name\":").append(quote(table.getCarName(slot)))
+                    .append(",\"player\":").append(quote(table.getPlayerName(slot)))
+                    .append(",\"h\":").append(table.getHealth(slot))
+                    .append(",\"max\":").append(table.getInitialHealth())
+                    .append('}');
+        }
+        json.append(']');
+        MatchResult result = lastResult;
+        if (result != null) {
+            json.append(",\"over\":").append(resultJson(result));
+        }
+        json.append('}');
+
+        byte[] bytes = frame("snapshot", json.toString());
+        cachedSnapshot = new Snapshot(version, bytes);
+        return bytes;
+    }
+
+    /**
+     * Kodar en SSE-händelse.
+     */
+    private byte[] frame(String type, String data) {
+        return ("id: " + eventId.incrementAndGet() + "\nevent: " + type + "\ndata: " + data + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String resultJson(MatchResult result) {
+        return "{\"winner\":" + (result.isDraw() ? "null" : quote(result.winnerName)) +
+                ",\"id\":" + (result.isDraw() ? "null" : quote(result.winnerCarId)) + "}";
+    }
+
+    /**
+     * Skapar en JSON-sträng med escaping av specialtecken.
+     */
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /** Minimal åskådarsida som lyssnar på /events */
+    private static final String PAGE = "<!DOCTYPE html><html><head><meta charset=\"utf-8\">" +
+            "<title>Car Wars - Leaderboard</title>" +
+            "<style>body{background:#000;color:#fff;font-family:sans-serif}" +
+            ".car{margin:12px;padding:8px;border:2px solid #444}" +
+            ".bar{background:#333;width:300px;height:20px}.fill{background:#0c0;height:20px}</style>" +
+            "</head><body><h1>Car Wars - Leaderboard</h1><div id=\"cars\"></div><h2 id=\"over\"></h2>" +
+            "<script>var cars=[];" +
+            "function esc(s){return String(s==null?'':s).replace(/[&<>\"']/g,function(c){" +
+            "return{'&':'&amp;','<':'&lt;','>':'&gt;','\"':'&quot;',\"'\":'&#39;'}[c]})}" +
+            "function render(){var l=cars.map(function(c,i){return{c:c,i:i}})" +
+            ".sort(function(a,b){return b.c.h-a.c.h});" +
+            "document.getElementById('cars').innerHTML=l.map(function(e,p){var c=e.c;" +
+            "return '<div class=\"car\"><b>'+(p+1)+'. '+esc(c.player)+' - '+esc(c.name)+'</b> ('+esc(c.h)+')" +
+            "<div class=\"bar\"><div class=\"fill\" style=\"width:'+Number(100*c.h/c.max)+'%\"></div></div></div>'}).join('')}" +
+            "function over(o){document.getElementById('over').textContent=o?(o.winner?'Vinnare: '+o.winner:'Oavgjort'):''}" +
+            "var es=new EventSource('/events');" +
+            "es.addEventListener('snapshot',function(e){var d=JSON.parse(e.data);cars=d.cars;over(d.over);render()});" +
+            "es.addEventListener('score',function(e){var d=JSON.parse(e.data);if(cars[d.s]){cars[d.s].h=d.h;render()}});" +
+            "es.addEventListener('over',function(e){over(JSON.parse(e.data))});" +
+            "</script></body></html>";
+}
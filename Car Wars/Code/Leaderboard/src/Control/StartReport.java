@@ -0,0 +1,153 @@
+package Control;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Resultatet av en synkroniserad start.
+ * Servern väljer en starttid och skickar "START@tid" till varje bil, där tiden är
+ * omräknad till bilens egen klocka. Bilarna rapporterar "BILn:STARTED:bilTid" och
+ * avvikelsen från den planerade starttiden räknas fram i servertid.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class StartReport {
+
+    /** Markerar att en bil inte har rapporterat sin start */
+    private static final long NOT_REPORTED = Long.MIN_VALUE;
+
+    /** Planerad starttid i servertid (ms) */
+    private final long targetServerMillis;
+
+    /** Leveransen av startkommandot */
+    private final CommandDelivery delivery;
+
+    /** Faktisk starttid per mottagare i servertid, eller NOT_REPORTED */
+    private final AtomicLongArray startedServerMillis;
+
+    /** Om mottagaren fick en synkroniserad starttid (annars startade den direkt) */
+    private final boolean[] synced;
+
+    /**
+     * Konstruktor för StartReport.
+     *
+     * @param targetServerMillis planerad starttid i servertid
+     * @param delivery leveransen av startkommandot
+     * @param synced om respektive mottagare fick en synkroniserad starttid
+     */
+    public StartReport(long targetServerMillis, CommandDelivery delivery, boolean[] synced) {
+        this.targetServerMillis = targetServerMillis;
+        this.delivery = delivery;
+        this.synced = synced;
+        this.startedServerMillis = new AtomicLongArray(delivery.getTargetCount());
+        for (int i = 0; i < delivery.getTargetCount(); i++) {
+            startedServerMillis.set(i, NOT_REPORTED);
+        }
+    }
+
+    /**
+     * Registrerar att en bil har startat.
+     *
+     * @param target mottagarens index
+     * @param serverMillis starttid omräknad till servertid
+     */
+    void markStarted(int target, long serverMillis) {
+        startedServerMillis.compareAndSet(target, NOT_REPORTED, serverMillis);
+    }
+
+    /**
+     * Får leveransen av startkommandot.
+     *
+     * @return leveransen
+     */
+    public CommandDelivery getDelivery() {
+        return delivery;
+    }
+
+    /**
+     * Får den planerade starttiden.
+     *
+     * @return starttid i servertid (ms)
+     */
+    public long getTargetServerMillis() {
+        return targetServerMillis;
+    }
+
+    /**
+     * Anger om en bil har rapporterat sin start.
+     *
+     * @param target mottagarens index
+     * @return true om bilen har rapporterat
+     */
+    public boolean hasStarted(int target) {
+        return startedServerMillis.get(target) != NOT_REPORTED;
+    }
+
+    /**
+     * Får en bils avvikelse från den planerade starttiden.
+     *
+     * @param target mottagarens index
+     * @return avvikelse i millisekunder (positiv = sen)
+     */
+    public long getSkewMillis(int target) {
+        return startedServerMillis.get(target) - targetServerMillis;
+    }
+
+    /**
+     * Får skillnaden mellan den tidigaste och den senaste rapporterade starten.
+     *
+     * @return spridning i millisekunder, -1 om ingen bil har rapporterat
+     */
+    public long getSpreadMillis() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < startedServerMillis.length(); i++) {
+            if (hasStarted(i)) {
+                long skew = getSkewMillis(i);
+                min = Math.min(min, skew);
+                max = Math.max(max, skew);
+            }
+        }
+        return min == Long.MAX_VALUE ? -1 : max - min;
+    }
+
+    /**
+     * Kort sammanfattning av starten.
+     *
+     * @return text med antal rapporterade starter och spridning
+     */
+    public String summary() {
+        int reported = 0;
+        for (int i = 0; i < startedServerMillis.length(); i++) {
+            if (hasStarted(i)) {
+                reported++;
+            }
+        }
+        StringBuilder text = new StringBuilder("Start: ")
+                .append(reported).append('/').append(startedServerMillis.length()).append(" rapporterade");
+        long spread = getSpreadMillis();
+        if (spread >= 0) {
+            text.append(", spridning ").append(spread).append(" ms");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Skriver avvikelsen för varje bil till konsolen.
+     */
+    public void print() {
+        System.out.println("⏱️ " + summary());
+        for (int i = 0; i < delivery.getTargetCount(); i++) {
+            MyServer.ClientConnection client = delivery.getTarget(i);
+            String carId = client.carId != null ? client.carId : "ESP32";
+            String mode = synced[i] ? "synkad" : "osynkad";
+            if (hasStarted(i)) {
+                System.out.println("  • " + carId + " (" + mode + ", rtt " + client.clock.getRttMillis() +
+                        " ms): " + String.format("%+d", getSkewMillis(i)) + " ms");
+            } else {
+                System.out.println("  • " + carId + " (" + mode + "): ingen startrapport");
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package Control;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Skriver telemetri till disk i kolumnformat, i en egen tråd.
+ * Varje bil har två {@link Chunk}: telemetritråden fyller det ena medan det andra
+ * skrivs som en fil. Chunken byter plats när det som fylls är fullt, så skrivningen
+ * skapar inga nya arrayer. Hinner disken inte med kastas chunk i stället för att
+ * telemetritråden väntar.
+ *
+ * Filformat (big-endian): magiskt tal "CWT1", antal värden (int), första tidpunkten (int),
+ * bil-ID (short längd + UTF-8), sedan kolumnerna tid (int[]), x, y och z (short[]).
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class TelemetryChunkWriter extends Thread {
+
+    /** Magiskt tal i början av varje fil, "CWT1" */
+    public static final int MAGIC = 0x43575431;
+
+    /** Filändelse för chunk-filer */
+    public static final String FILE_SUFFIX = ".cwt";
+
+    /** Sista chunket i kön, får skrivtråden att avsluta */
+    private static final Chunk POISON = new Chunk(0);
+
+    /**
+     * Kolumner med telemetri för en bil, som fylls och skrivs som en fil.
+     */
+    public static final class Chunk {
+        /** Tidpunkt per värde (ms) */
+        public final int[] time;
+
+        /** Accelerationsvärden per axel */
+        public final short[] x;
+        public final short[] y;
+        public final short[] z;
+
+        /** Antal värden i chunket */
+        public int count;
+
+        /** Bilens ID */
+        String carId;
+
+        /** Katalogen som filen skrivs till */
+        Path directory;
+
+        /** Chunkets löpnummer för bilen */
+        int sequence;
+
+        /** Bilens andra chunk, som fylls medan detta skrivs */
+        Chunk partner;
+
+        /** Sant medan chunket väntar på eller håller på att skrivas */
+        volatile boolean writing;
+
+        Chunk(int capacity) {
+            time = new int[capacity];
+            x = new short[capacity];
+            y = new short[capacity];
+            z = new short[capacity];
+        }
+
+        /**
+         * Anger om chunket är fullt.
+         *
+         * @return true om inga fler värden får plats
+         */
+        public boolean isFull() {
+            return count == time.length;
+        }
+    }
+
+    /** Antal värden per chunk */
+    private final int chunkSamples;
+
+    /** Chunk som väntar på att skrivas */
+    private final ArrayBlockingQueue<Chunk> pending;
+
+    /** Räknare för kastade chunk */
+    private final ServerMetrics metrics;
+
+    /** Buffert för en hel fil, återanvänds */
+    private final ByteBuffer fileBuffer;
+
+    /**
+     * Konstruktor för TelemetryChunkWriter.
+     *
+     * @param chunkSamples antal värden per chunk
+     * @param maxPending max antal chunk som väntar på att skrivas
+     * @param metrics räknare för kastade chunk
+     */
+    public TelemetryChunkWriter(int chunkSamples, int maxPending, ServerMetrics metrics) {
+        super("telemetry-writer");
+        setDaemon(true);
+        this.chunkSamples = chunkSamples;
+        this.metrics = metrics;
+        this.pending = new ArrayBlockingQueue<>(maxPending);
+        this.fileBuffer = ByteBuffer.allocate(16 + 256 + chunkSamples * 10);
+    }
+
+    /**
+     * Skapar chunkparet för en bil som börjar skicka telemetri.
+     *
+     * @param carId bilens ID
+     * @param directory katalog för bilens filer
+     * @return ett tomt chunk att fylla
+     */
+    public Chunk newChunk(String carId, Path directory) {
+        Chunk chunk = new Chunk(chunkSamples);
+        Chunk partner = new Chunk(chunkSamples);
+        chunk.partner = partner;
+        partner.partner = chunk;
+        chunk.carId = carId;
+        chunk.directory = directory;
+        return chunk;
+    }
+
+    /**
+     * Lämnar över ett chunk för skrivning och får bilens andra chunk i utbyte.
+     * Skrivs det andra chunket fortfarande kastas innehållet och samma chunk
+     * töms och återanvänds.
+     *
+     * @param chunk chunket att skriva, även om det inte är fullt
+     * @return ett tomt chunk för samma bil
+     */
+    public Chunk submit(Chunk chunk) {
+        if (chunk.count == 0) {
+            return chunk;
+        }
+        Chunk next = chunk.partner;
+        if (next.writing) {
+            metrics.telemetryChunksDropped.increment();
+            chunk.count = 0;
+            return chunk;
+        }
+        chunk.writing = true;
+        if (!pending.offer(chunk)) {
+            chunk.writing = false;
+            metrics.telemetryChunksDropped.increment();
+            chunk.count = 0;
+            return chunk;
+        }
+        next.carId = chunk.carId;
+        next.directory = chunk.directory;
+        next.sequence = chunk.sequence + 1;
+        next.count = 0;
+        return next;
+    }
+
+    /**
+     * Skriver klart chunk som redan väntar och stänger skrivtråden.
+     */
+    public void close() {
+        try {
+            pending.put(POISON);
+            join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Skriver chunk tills skrivtråden stängs eller avbryts.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Chunk chunk = pending.take();
+                if (chunk == POISON) {
+                    return;
+                }
+                try {
+                    write(chunk);
+                } catch (IOException e) {
+                    metrics.telemetryChunksDropped.increment();
+                    System.out.println("Kunde inte skriva telemetri för " + chunk.carId + ": " + e.getMessage());
+                } finally {
+                    chunk.writing = false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Skriver ett chunk som en fil.
+     *
+     * @param chunk chunket att skriva
+     * @throws IOException om filen inte kan skrivas
+     */
+    private void write(Chunk chunk) throws IOException {
+        byte[] carId = chunk.carId.getBytes(StandardCharsets.UTF_8);
+        int count = chunk.count;
+        fileBuffer.clear();
+        fileBuffer.putInt(MAGIC).putInt(count).putInt(count > 0 ? chunk.time[0] : 0);
+        fileBuffer.putShort((short) carId.length).put(carId);
+        fileBuffer.asIntBuffer().put(chunk.time, 0, count);
+        fileBuffer.position(fileBuffer.position() + count * 4);
+        putShorts(chunk.x, count);
+        putShorts(chunk.y, count);
+        putShorts(chunk.z, count);
+        fileBuffer.flip();
+
+        Files.createDirectories(chunk.directory);
+        Path file = chunk.directory.resolve(String.format("chunk-%06d%s", chunk.sequence, FILE_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (fileBuffer.hasRemaining()) {
+                channel.write(fileBuffer);
+            }
+        }
+    }
+
+    private void putShorts(short[] column, int count) {
+        fileBuffer.asShortBuffer().put(column, 0, count);
+        fileBuffer.position(fileBuffer.position() + count * 2);
+    }
+}
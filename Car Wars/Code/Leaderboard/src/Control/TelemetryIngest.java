@@ -0,0 +1,311 @@
+package Control;
+
+import Model.CarTable;
+import Model.MatchResult;
+import Model.TelemetryRing;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Tar emot accelerometerdata från bilarna över UDP, skilt från kontrollvägen.
+ * Telemetrin har en egen port och en egen tråd, så ett högt flöde aldrig
+ * fördröjer krockar och kommandon på TCP-anslutningarna. Varje paket innehåller
+ * en sats packade värden och skrivs direkt till bilens {@link TelemetryRing} och
+ * till ett chunk som {@link TelemetryChunkWriter} sparar på disk. Paketet tas emot
+ * i samma byte-array varje gång och värdena läses utan att skapa objekt.
+ *
+ * Paketformat (little-endian, som ESP32):
+ * <pre>
+ *  0  uint16  magiskt tal "TM"
+ *  2  uint8   version (1)
+ *  3  uint8   bilnummer n i BILn
+ *  4  uint32  satsens löpnummer
+ *  8  uint32  bilens klocka för första värdet (ms)
+ * 12  uint16  tid mellan värdena (ms)
+ * 14  uint8   antal värden (1-64)
+ * 15  uint8   reserverad
+ * 16  antal * (int16 x, int16 y, int16 z), råa ADXL345-värden
+ * </pre>
+ * Paket tas bara emot från samma adress som bilens inloggade kontrollanslutning.
+ * Påbörjade chunk sparas när matchen är slut och när telemetrin stängs, inte först
+ * när nästa match startar.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class TelemetryIngest extends Thread implements ServerEventListener {
+
+    /** Magiskt tal i början av paketet, "TM" läst som little-endian */
+    public static final short MAGIC = 0x4D54;
+
+    /** Paketformatets version */
+    public static final byte VERSION = 1;
+
+    /** Storlek på paketets huvud i byte */
+    public static final int HEADER_BYTES = 16;
+
+    /** Storlek på ett värde (x, y, z) i byte */
+    public static final int SAMPLE_BYTES = 6;
+
+    /** Max antal värden per paket */
+    public static final int MAX_SAMPLES = 64;
+
+    /** Tid som mottagningen väntar innan den kontrollerar om en ny match har startat */
+    private static final int RECEIVE_TIMEOUT_MILLIS = 1000;
+
+    /** Max antal chunk som väntar på disken, högst ett per bil */
+    private static final int MAX_PENDING_CHUNKS = 1024;
+
+    /**
+     * Hur många paket bakåt ett löpnummer får ligga och ändå räknas som dubblett eller i fel ordning.
+     * Ett större hopp bakåt betyder att bilen har startat om och börjat om från 0.
+     */
+    private static final long REORDER_WINDOW = 256;
+
+    /** Servern som äger biltabellen och anslutningarna */
+    private final MyServer server;
+
+    /** Räknare för telemetrin */
+    private final ServerMetrics metrics;
+
+    /** UDP-port för telemetri */
+    private final int port;
+
+    /** Antal värden per bil i ringbufferten */
+    private final int ringSize;
+
+    /** Katalog där varje match får en egen underkatalog */
+    private final Path baseDirectory;
+
+    /** Skriver chunk till disk */
+    private final TelemetryChunkWriter writer;
+
+    /** Ringbuffert per bilplats för pågående match, läses av GUI:t */
+    private volatile TelemetryRing[] rings = new TelemetryRing[0];
+
+    /** Biltabellen som ringbuffertarna hör till (bara telemetritråden) */
+    private CarTable table;
+
+    /** Chunk som fylls per bilplats, null innan bilen har skickat något */
+    private TelemetryChunkWriter.Chunk[] chunks = new TelemetryChunkWriter.Chunk[0];
+
+    /** Senaste löpnummer per bilplats, -1 innan första paketet */
+    private long[] lastSequence = new long[0];
+
+    /** Katalog för pågående match */
+    private Path matchDirectory;
+
+    /** Sätts när matchen är slut, så att telemetritråden sparar påbörjade chunk */
+    private volatile boolean flushRequested;
+
+    /** Mottagningens socket, stängs av close() för att väcka telemetritråden */
+    private volatile DatagramSocket socket;
+
+    /** Mottagningsbuffert, återanvänds för varje paket */
+    private final byte[] packetBytes = new byte[HEADER_BYTES + MAX_SAMPLES * SAMPLE_BYTES];
+
+    /** Läsvy över mottagningsbufferten */
+    private final ByteBuffer view = ByteBuffer.wrap(packetBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Konstruktor för TelemetryIngest.
+     *
+     * @param server servern som äger biltabellen och anslutningarna
+     * @param config inställningar för port, buffertar och katalog
+     * @param metrics räknare för telemetrin
+     */
+    public TelemetryIngest(MyServer server, ServerConfig config, ServerMetrics metrics) {
+        super("telemetry-ingest");
+        setDaemon(true);
+        this.server = server;
+        this.metrics = metrics;
+        this.port = config.get(ServerConfig.TELEMETRY_PORT);
+        this.ringSize = config.get(ServerConfig.TELEMETRY_RING_SIZE);
+        this.baseDirectory = Paths.get(config.get(ServerConfig.TELEMETRY_DIRECTORY));
+        this.writer = new TelemetryChunkWriter(config.get(ServerConfig.TELEMETRY_CHUNK_SAMPLES), MAX_PENDING_CHUNKS, metrics);
+    }
+
+    /**
+     * Tar emot paket tills tråden avbryts eller telemetrin stängs.
+     * Påbörjade chunk sparas innan skrivtråden stängs.
+     */
+    @Override
+    public void run() {
+        writer.start();
+        try (DatagramSocket receiver = new DatagramSocket(port)) {
+            socket = receiver;
+            receiver.setSoTimeout(RECEIVE_TIMEOUT_MILLIS);
+            System.out.println("📈 Telemetri tas emot på UDP-port " + port);
+            DatagramPacket packet = new DatagramPacket(packetBytes, packetBytes.length);
+            while (!isInterrupted()) {
+                try {
+                    packet.setLength(packetBytes.length);
+                    receiver.receive(packet);
+                } catch (SocketTimeoutException e) {
+                    checkMatch();
+                    continue;
+                }
+                handlePacket(packet.getLength(), packet.getAddress());
+            }
+        } catch (IOException e) {
+            if (!isInterrupted()) {
+                System.out.println("Fel i telemetrin: " + e.getMessage());
+            }
+        } finally {
+            submitChunks();
+            writer.close();
+        }
+    }
+
+    /**
+     * Stänger mottagningen, sparar påbörjade chunk och väntar på att de skrivs.
+     */
+    public void close() {
+        interrupt();
+        DatagramSocket receiver = socket;
+        if (receiver != null) {
+            receiver.close();
+        }
+        try {
+            join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void matchOver(MatchResult result) {
+        flushRequested = true;
+    }
+
+    /**
+     * Får ringbufferten för en bil i pågående match.
+     *
+     * @param slot bilens plats i CarTable
+     * @return ringbufferten, eller null om platsen är okänd
+     */
+    public TelemetryRing getRing(int slot) {
+        TelemetryRing[] current = rings;
+        return slot >= 0 && slot < current.length ? current[slot] : null;
+    }
+
+    /**
+     * Tolkar ett paket och skriver värdena till ringbuffert och chunk.
+     *
+     * @param length paketets längd
+     * @param sender avsändarens adress
+     */
+    private void handlePacket(int length, InetAddress sender) {
+        int count = packetBytes[14] & 0xFF;
+        if (length < HEADER_BYTES || view.getShort(0) != MAGIC || packetBytes[2] != VERSION
+                || count == 0 || count > MAX_SAMPLES || length < HEADER_BYTES + count * SAMPLE_BYTES) {
+            metrics.telemetryRejected.increment();
+            return;
+        }
+
+        checkMatch();
+        // Bil-ID:n är prefix + n, så platsen är n - 1
+        int slot = (packetBytes[3] & 0xFF) - 1;
+        MyServer.ClientConnection connection = slot >= 0 && slot < rings.length ? server.getConnection(slot) : null;
+        if (connection == null || connection.detached || !sender.equals(connection.socket.getInetAddress())) {
+            metrics.telemetryRejected.increment();
+            return;
+        }
+
+        long sequence = view.getInt(4) & 0xFFFFFFFFL;
+        long previous = lastSequence[slot];
+        if (previous >= 0 && sequence <= previous && previous - sequence <= REORDER_WINDOW) {
+            metrics.telemetryRejected.increment(); // Dubblett eller i fel ordning
+            return;
+        }
+        // Ett stort hopp bakåt är en omstart av bilen (eller att löpnumret slog runt): börja om därifrån
+        if (previous >= 0 && sequence > previous + 1) {
+            metrics.telemetryLost.add(sequence - previous - 1);
+        }
+        lastSequence[slot] = sequence;
+
+        long carMillis = view.getInt(8) & 0xFFFFFFFFL;
+        int interval = view.getShort(12) & 0xFFFF;
+        int firstMillis = (int) (connection.clock.hasEstimate()
+                ? connection.clock.toServerMillis(carMillis) : server.serverMillis());
+
+        TelemetryRing ring = rings[slot];
+        TelemetryChunkWriter.Chunk chunk = chunks[slot];
+        if (chunk == null) {
+            chunk = writer.newChunk(table.getCarId(slot), matchDirectory.resolve(table.getCarId(slot)));
+        }
+        long position = ring.getWritten();
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_BYTES + i * SAMPLE_BYTES;
+            int millis = firstMillis + i * interval;
+            short x = view.getShort(offset);
+            short y = view.getShort(offset + 2);
+            short z = view.getShort(offset + 4);
+            ring.put(position + i, millis, x, y, z);
+
+            int index = chunk.count++;
+            chunk.time[index] = millis;
+            chunk.x[index] = x;
+            chunk.y[index] = y;
+            chunk.z[index] = z;
+            if (chunk.isFull()) {
+                chunk = writer.submit(chunk);
+            }
+        }
+        ring.publish(position + count);
+        chunks[slot] = chunk;
+
+        metrics.telemetryPackets.increment();
+        metrics.telemetrySamples.add(count);
+    }
+
+    /**
+     * Sparar påbörjade chunk när matchen är slut, och byter till nya ringbuffertar och
+     * en ny katalog när en ny match har startat. Påbörjade chunk från förra matchen sparas först.
+     */
+    private void checkMatch() {
+        if (flushRequested) {
+            flushRequested = false;
+            submitChunks();
+        }
+        CarTable current = server.getCarTable();
+        if (current == table) {
+            return;
+        }
+        submitChunks();
+
+        table = current;
+        matchDirectory = baseDirectory.resolve("match-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        chunks = new TelemetryChunkWriter.Chunk[current.size()];
+        lastSequence = new long[current.size()];
+        Arrays.fill(lastSequence, -1);
+        TelemetryRing[] created = new TelemetryRing[current.size()];
+        for (int i = 0; i < created.length; i++) {
+            created[i] = new TelemetryRing(ringSize);
+        }
+        rings = created;
+    }
+
+    /**
+     * Lämnar över alla påbörjade chunk till skrivtråden. Bilarna fortsätter i sina andra chunk.
+     */
+    private void submitChunks() {
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != null) {
+                chunks[i] = writer.submit(chunks[i]);
+            }
+        }
+    }
+}
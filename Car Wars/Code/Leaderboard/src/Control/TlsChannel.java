@@ -0,0 +1,360 @@
+package Control;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TLS ovanpå en {@link SocketChannel} med {@link SSLEngine}.
+ * Läsning sker som en vanlig {@link ReadableByteChannel}, så {@link LineFramer}
+ * kan läsa dekrypterad text utan att veta om TLS. Skrivning sker via
+ * {@link #getOutputStream()}, så servern kan fortsätta skicka med PrintWriter.
+ * Handskakningen görs av lästråden vid första läsningen; skrivningar väntar tills
+ * den är klar. SSLEngine tillåter att wrap och unwrap körs samtidigt, så läsning
+ * och skrivning behöver inte dela lås.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class TlsChannel implements ReadableByteChannel {
+
+    /** Max tid som en skrivning väntar på handskakningen */
+    private static final long HANDSHAKE_WAIT_MILLIS = 10000;
+
+    /** Tom buffert för wrap under handskakningen */
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    /** Den krypterade kanalen */
+    private final SocketChannel channel;
+
+    /** TLS-motorn för anslutningen */
+    private final SSLEngine engine;
+
+    /** Krypterade byte från nätet, i skrivläge (bara lästråden) */
+    private ByteBuffer netIn;
+
+    /** Dekrypterade byte, i läsläge (bara lästråden) */
+    private ByteBuffer appIn;
+
+    /** Krypterade byte till nätet (skyddas av writeLock) */
+    private ByteBuffer netOut;
+
+    /** Lås för wrap och skrivning till kanalen */
+    private final Object writeLock = new Object();
+
+    /** Släpps när handskakningen är klar eller har misslyckats */
+    private final CountDownLatch handshakeDone = new CountDownLatch(1);
+
+    /** true när handskakningen har lyckats */
+    private volatile boolean handshaken;
+
+    /** true när motparten har stängt TLS-sessionen */
+    private boolean inboundClosed;
+
+    /** Ström för krypterad skrivning */
+    private final OutputStream output = new TlsOutputStream();
+
+    /**
+     * Konstruktor för TlsChannel.
+     *
+     * @param channel blockerande kanal till klienten
+     * @param engine TLS-motor i serverläge
+     */
+    public TlsChannel(SocketChannel channel, SSLEngine engine) {
+        this.channel = channel;
+        this.engine = engine;
+        int packetSize = engine.getSession().getPacketBufferSize();
+        this.netIn = ByteBuffer.allocate(packetSize);
+        this.netOut = ByteBuffer.allocate(packetSize);
+        this.appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+        this.appIn.flip(); // Tom buffert i läsläge
+    }
+
+    /**
+     * Skapar en TLS-kontext för servern från en PKCS12-fil.
+     * Sessionscachen gör att bilar som återansluter kan återuppta sin session
+     * utan en fullständig handskakning.
+     *
+     * @param keystore PKCS12-fil med nyckel och certifikat
+     * @param password lösenord för filen
+     * @param sessionCacheSize antal sessioner som sparas
+     * @param sessionTimeoutSeconds hur länge en session kan återupptas
+     * @return TLS-kontexten
+     * @throws IOException om filen inte kan läsas
+     * @throws GeneralSecurityException om nyckeln inte kan laddas
+     */
+    public static SSLContext createServerContext(Path keystore, char[] password, int sessionCacheSize,
+                                                 int sessionTimeoutSeconds) throws IOException, GeneralSecurityException {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            store.load(in, password);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(store, password);
+
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), null, null);
+        context.getServerSessionContext().setSessionCacheSize(sessionCacheSize);
+        context.getServerSessionContext().setSessionTimeout(sessionTimeoutSeconds);
+        return context;
+    }
+
+    /**
+     * Gör handskakningen om den inte redan är gjord. Anropas av lästråden.
+     *
+     * @throws IOException om handskakningen misslyckas eller anslutningen stängs
+     */
+    public void handshake() throws IOException {
+        if (handshaken) {
+            return;
+        }
+        try {
+            engine.beginHandshake();
+            SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+            while (status != SSLEngineResult.HandshakeStatus.FINISHED
+                    && status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
+                switch (status) {
+                    case NEED_WRAP:
+                        synchronized (writeLock) {
+                            status = wrap(EMPTY).getHandshakeStatus();
+                        }
+                        break;
+                    case NEED_TASK:
+                        runTasks();
+                        status = engine.getHandshakeStatus();
+                        break;
+                    default: // NEED_UNWRAP och NEED_UNWRAP_AGAIN
+                        SSLEngineResult result = unwrap();
+                        if (result == null || result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                            throw new EOFException("Anslutningen stängdes under TLS-handskakningen");
+                        }
+                        status = result.getHandshakeStatus();
+                        break;
+                }
+            }
+            handshaken = true;
+        } finally {
+            handshakeDone.countDown();
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        handshake();
+        while (!appIn.hasRemaining()) {
+            if (inboundClosed) {
+                return -1;
+            }
+            SSLEngineResult result = unwrap();
+            if (result == null || result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                inboundClosed = true;
+                return -1;
+            }
+            afterHandshakeStep(result.getHandshakeStatus());
+        }
+
+        int count = Math.min(dst.remaining(), appIn.remaining());
+        int limit = appIn.limit();
+        appIn.limit(appIn.position() + count);
+        dst.put(appIn);
+        appIn.limit(limit);
+        return count;
+    }
+
+    /**
+     * Får strömmen som krypterar och skickar data till klienten.
+     *
+     * @return ström för skrivning
+     */
+    public OutputStream getOutputStream() {
+        return output;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Skickar close_notify om det går och stänger kanalen.
+     *
+     * @throws IOException om kanalen inte kan stängas
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            engine.closeOutbound();
+            synchronized (writeLock) {
+                wrap(EMPTY);
+            }
+        } catch (IOException e) {
+            // Motparten är redan borta, stäng ändå
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Dekrypterar en post från nätet till appIn. Läser från kanalen vid behov.
+     *
+     * @return resultatet, eller null om strömmen tog slut
+     */
+    private SSLEngineResult unwrap() throws IOException {
+        while (true) {
+            appIn.compact();
+            netIn.flip();
+            SSLEngineResult result;
+            try {
+                result = engine.unwrap(netIn, appIn);
+            } finally {
+                netIn.compact();
+                appIn.flip();
+            }
+
+            switch (result.getStatus()) {
+                case OK:
+                case CLOSED:
+                    return result;
+                case BUFFER_OVERFLOW:
+                    appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize(), true);
+                    break;
+                default: // BUFFER_UNDERFLOW: posten är inte komplett
+                    if (netIn.position() == netIn.capacity()) {
+                        netIn = enlarge(netIn, engine.getSession().getPacketBufferSize(), false);
+                    }
+                    if (channel.read(netIn) < 0) {
+                        return null;
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Krypterar data och skriver det till kanalen. Anroparen håller writeLock.
+     *
+     * @param src data att kryptera
+     * @return resultatet av sista wrap
+     */
+    private SSLEngineResult wrap(ByteBuffer src) throws IOException {
+        while (true) {
+            netOut.clear();
+            SSLEngineResult result = engine.wrap(src, netOut);
+            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                netOut = ByteBuffer.allocate(Math.max(netOut.capacity() * 2, engine.getSession().getPacketBufferSize()));
+                continue;
+            }
+
+            netOut.flip();
+            while (netOut.hasRemaining()) {
+                channel.write(netOut);
+            }
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED && src.hasRemaining()) {
+                throw new SSLException("TLS-sessionen är stängd");
+            }
+            if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                runTasks();
+            }
+            if (!src.hasRemaining() || result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Hanterar meddelanden efter handskakningen, t.ex. nyckelbyte i TLS 1.3.
+     */
+    private void afterHandshakeStep(SSLEngineResult.HandshakeStatus status) throws IOException {
+        if (status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+            runTasks();
+            status = engine.getHandshakeStatus();
+        }
+        if (status == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+            synchronized (writeLock) {
+                wrap(EMPTY);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Gör en buffert större och behåller innehållet.
+     *
+     * @param buffer bufferten
+     * @param minimum minsta nya storlek
+     * @param readMode true om bufferten är i läsläge
+     * @return den nya bufferten i samma läge
+     */
+    private static ByteBuffer enlarge(ByteBuffer buffer, int minimum, boolean readMode) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, minimum));
+        if (!readMode) {
+            buffer.flip();
+        }
+        larger.put(buffer);
+        if (readMode) {
+            larger.flip();
+        }
+        return larger;
+    }
+
+    /**
+     * Ström som krypterar varje skrivning till en eller flera TLS-poster.
+     */
+    private final class TlsOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            awaitHandshake();
+            synchronized (writeLock) {
+                wrap(ByteBuffer.wrap(b, off, len));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            TlsChannel.this.close();
+        }
+    }
+
+    /**
+     * Väntar tills handskakningen är klar.
+     *
+     * @throws IOException om handskakningen misslyckades eller tog för lång tid
+     */
+    private void awaitHandshake() throws IOException {
+        try {
+            if (!handshakeDone.await(HANDSHAKE_WAIT_MILLIS, TimeUnit.MILLISECONDS) || !handshaken) {
+                throw new SSLException("TLS-handskakningen är inte klar");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Avbruten i väntan på TLS-handskakningen", e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package Control;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Låsfri token bucket för att begränsa hur många meddelanden en klient får skicka.
+ * Hinken lagras som en enda tidsstämpel: den tidpunkt då hinken skulle vara tom
+ * om inga fler tokens förbrukades. Påfyllning blir då bara en jämförelse mot
+ * nuvarande tid, och förbrukning är en compareAndSet utan lås.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class TokenBucket {
+
+    /** Tid det tar att fylla på en token (ns) */
+    private final long intervalNanos;
+
+    /** Hur långt fram tidsstämpeln får ligga, motsvarar hinkens kapacitet (ns) */
+    private final long capacityNanos;
+
+    /** Tidpunkt (System.nanoTime) då alla förbrukade tokens är återfyllda */
+    private final AtomicLong drainedAt;
+
+    /**
+     * Konstruktor för TokenBucket. Hinken börjar full.
+     *
+     * @param ratePerSecond antal tokens som fylls på per sekund
+     * @param capacity max antal tokens i hinken (tillåten skur)
+     */
+    public TokenBucket(double ratePerSecond, int capacity) {
+        this(ratePerSecond, capacity, System.nanoTime());
+    }
+
+    /**
+     * Konstruktor för TokenBucket med given tidpunkt då hinken är full.
+     */
+    private TokenBucket(double ratePerSecond, int capacity, long drainedAtNanos) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.capacityNanos = intervalNanos * Math.max(capacity, 1);
+        this.drainedAt = new AtomicLong(drainedAtNanos);
+    }
+
+    /**
+     * Skapar en hink med ny takt och kapacitet som behåller de tokens som finns kvar i denna,
+     * högst den nya kapaciteten. En tom hink förblir alltså tom.
+     *
+     * @param ratePerSecond antal tokens som fylls på per sekund
+     * @param capacity max antal tokens i hinken (tillåten skur)
+     * @param nowNanos nuvarande tid (System.nanoTime)
+     * @return den nya hinken
+     */
+    public TokenBucket resize(double ratePerSecond, int capacity, long nowNanos) {
+        double tokens = (capacityNanos - Math.max(0, drainedAt.get() - nowNanos)) / (double) intervalNanos;
+        TokenBucket resized = new TokenBucket(ratePerSecond, capacity, nowNanos);
+        double kept = Math.max(0, Math.min(tokens, Math.max(capacity, 1)));
+        resized.drainedAt.set(nowNanos + resized.capacityNanos - (long) (kept * resized.intervalNanos));
+        return resized;
+    }
+
+    /**
+     * Försöker ta en token.
+     *
+     * @param nowNanos nuvarande tid (System.nanoTime)
+     * @return true om en token fanns, false om hinken är tom
+     */
+    public boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long current = drainedAt.get();
+            // En hink som stått oanvänd är full, inte "fullare än full"
+            long base = current - nowNanos > 0 ? current : nowNanos;
+            long next = base + intervalNanos;
+            if (next - nowNanos > capacityNanos) {
+                return false;
+            }
+            if (drainedAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Får antal tokens som finns kvar i hinken.
+     *
+     * @param nowNanos nuvarande tid (System.nanoTime)
+     * @return antal hela tokens
+     */
+    public long available(long nowNanos) {
+        long used = Math.max(0, drainedAt.get() - nowNanos);
+        return (capacityNanos - used) / intervalNanos;
+    }
+}
@@ -1,15 +1,28 @@
 package GUI;
 
+import Control.CommandDelivery;
 import Control.MyServer;
+import Control.ServerConfig;
+import Control.StartReport;
+import Model.CarTable;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * GUI-klass för att kontrollera bilar via server-kommandon.
  * Tillhandahåller knappar för att skicka kommandon till alla anslutna ESP32-bilar.
+ * Statusen och tabellen över anslutningar uppdateras av serverhändelser via en
+ * {@link CoalescingListener}, inte av en timer som pollar servern.
  *
  * @author Rachid kontakgi,Adnan,Josh
  * @version 1.0
@@ -26,11 +39,44 @@ public class CarControlPanel extends JFrame {
     /** Label för att visa antal anslutna bilar */
     private JLabel connectedCarsLabel;
 
-    /** Timer för att uppdatera status automatiskt */
-    private Timer statusUpdateTimer;
+    /** Label för att visa arena-status */
+    private JLabel arenaStatusLabel;
 
-    /** Aktuell arena-status (true = öppen, false = stängd) */
-    private boolean isArenaOpen = false;
+    /** Tabell över bilar och anslutningar */
+    private final ConnectionTableModel connectionModel = new ConnectionTableModel();
+
+    /** Slår ihop serverhändelser till högst en uppdatering per bildruta */
+    private CoalescingListener serverListener;
+
+    /** Räknar upp tid sedan senaste meddelande i tabellen, läser inte servern */
+    private Timer ageTimer;
+
+    /** Intervall för att räkna upp tidskolumnerna */
+    private static final int AGE_TICK_MILLIS = 1000;
+
+    /** Tabellen med bilar som riktade kommandon väljs i */
+    private JTable carTable;
+
+    /** Sortering och filtrering av bilarna i tabellen */
+    private TableRowSorter<ConnectionTableModel> carSorter;
+
+    /** Fritextfilter på bil-ID och namn */
+    private JTextField carFilterField;
+
+    /** Lagfilter, index 0 = alla lag och index n = lag n */
+    private JComboBox<String> teamFilterCombo;
+
+    /** Label för att visa leveransstatus för senaste bilkommandot */
+    private JLabel deliveryLabel;
+
+    /** Label för att visa avvikelsen vid senaste synkroniserade start */
+    private JLabel startReportLabel;
+
+    /** Timer som följer ett kommando tills alla bilar har kvitterat */
+    private Timer deliveryTimer;
+
+    /** Lyssnare som följer ändrade uppdateringsintervall */
+    private final Consumer<ServerConfig.Key<?>> configListener = this::configChanged;
 
     /**
      * Konstruktor för CarControlPanel.
@@ -40,7 +86,7 @@ public class CarControlPanel extends JFrame {
     public CarControlPanel(MyServer server) {
         this.server = server;
         initializeGUI();
-        startStatusUpdater();
+        startEventUpdates();
     }
 
     /**
@@ -48,7 +94,7 @@ public class CarControlPanel extends JFrame {
      */
     private void initializeGUI() {
         setTitle(" Bil Kontrollpanel ");
-        setSize(500, 450); // Ökat höjd för fler knappar
+        setSize(760, 820); // Plats för tabellen och riktade kommandon
         setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Bara göm, stäng inte hela applikationen
         setLocationRelativeTo(null);
 
@@ -62,9 +108,16 @@ public class CarControlPanel extends JFrame {
         titleLabel.setForeground(Color.WHITE);
         mainPanel.add(titleLabel, BorderLayout.NORTH);
 
-        // Status panel
-        JPanel statusPanel = createStatusPanel();
-        mainPanel.add(statusPanel, BorderLayout.CENTER);
+        // Status panel och tabell över anslutningar
+        JPanel centerPanel = new JPanel(new BorderLayout(10, 10));
+        centerPanel.setBackground(Color.BLACK);
+        centerPanel.add(createStatusPanel(), BorderLayout.NORTH);
+        carTable = createConnectionTable();
+        carSorter = new TableRowSorter<>(connectionModel);
+        carTable.setRowSorter(carSorter);
+        centerPanel.add(new JScrollPane(carTable), BorderLayout.CENTER);
+        centerPanel.add(createTargetPanel(), BorderLayout.SOUTH);
+        mainPanel.add(centerPanel, BorderLayout.CENTER);
 
         // Kontrollknappar
         JPanel controlPanel = createControlPanel();
@@ -79,7 +132,7 @@ public class CarControlPanel extends JFrame {
      * @return JPanel med status-komponenter
      */
     private JPanel createStatusPanel() {
-        JPanel statusPanel = new JPanel(new GridLayout(4, 1, 5, 5)); // Ökat till 4 rader
+        JPanel statusPanel = new JPanel(new GridLayout(6, 1, 5, 5)); // Ökat till 6 rader
         statusPanel.setBackground(Color.BLACK);
         statusPanel.setBorder(BorderFactory.createTitledBorder(
                 BorderFactory.createLineBorder(Color.WHITE, 2),
@@ -102,12 +155,23 @@ public class CarControlPanel extends JFrame {
         statusPanel.add(connectedCarsLabel);
 
         // Arena status
-        JLabel arenaStatusLabel = new JLabel("Arena: STÄNGD", SwingConstants.CENTER);
+        arenaStatusLabel = new JLabel("Arena: STÄNGD", SwingConstants.CENTER);
         arenaStatusLabel.setFont(new Font("SansSerif", Font.PLAIN, 16));
         arenaStatusLabel.setForeground(Color.RED);
-        arenaStatusLabel.setName("arenaStatus"); // För att kunna hitta den senare
         statusPanel.add(arenaStatusLabel);
 
+        // Leveransstatus för senaste kommandot
+        deliveryLabel = new JLabel("Senaste kommando: -", SwingConstants.CENTER);
+        deliveryLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        deliveryLabel.setForeground(Color.LIGHT_GRAY);
+        statusPanel.add(deliveryLabel);
+
+        // Spridning vid senaste start
+        startReportLabel = new JLabel("Start: -", SwingConstants.CENTER);
+        startReportLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        startReportLabel.setForeground(Color.LIGHT_GRAY);
+        statusPanel.add(startReportLabel);
+
         // Uppdatera knapp
         JButton refreshButton = new JButton(" Uppdatera Status");
         refreshButton.setBackground(new Color(0, 100, 200));
@@ -118,13 +182,268 @@ public class CarControlPanel extends JFrame {
         return statusPanel;
     }
 
+    /**
+     * Skapar en tabell som visar anslutningsmodellen.
+     *
+     * @return JTable med en rad per bil eller anslutning
+     */
+    private JTable createConnectionTable() {
+        JTable table = new JTable(connectionModel);
+        table.setFont(new Font("SansSerif", Font.PLAIN, 13));
+        table.setRowHeight(22);
+        table.setBackground(Color.DARK_GRAY);
+        table.setForeground(Color.WHITE);
+        table.getTableHeader().setFont(new Font("SansSerif", Font.BOLD, 13));
+        return table;
+    }
+
+    /**
+     * Skapar panelen för riktade kommandon till valda bilar eller ett lag.
+     *
+     * @return JPanel med filter och knappar
+     */
+    private JPanel createTargetPanel() {
+        JPanel targetPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 4));
+        targetPanel.setBackground(Color.BLACK);
+        targetPanel.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(Color.WHITE, 2),
+                "Riktade kommandon (markerade bilar, annars alla som visas)",
+                0, 0,
+                new Font("SansSerif", Font.BOLD, 14),
+                Color.WHITE
+        ));
+
+        JLabel filterLabel = new JLabel("Filter:");
+        filterLabel.setForeground(Color.WHITE);
+        targetPanel.add(filterLabel);
+
+        carFilterField = new JTextField(10);
+        carFilterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyCarFilter();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyCarFilter();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyCarFilter();
+            }
+        });
+        targetPanel.add(carFilterField);
+
+        teamFilterCombo = new JComboBox<>(new String[]{"Alla lag"});
+        teamFilterCombo.addActionListener(e -> applyCarFilter());
+        targetPanel.add(teamFilterCombo);
+
+        targetPanel.add(createTargetButton("STOPPA", "STOP", new Color(200, 0, 0)));
+        targetPanel.add(createTargetButton("ÅTERSTÄLL", "RESET", new Color(150, 150, 0)));
+
+        JButton penaltyButton = new JButton("STRAFFA");
+        penaltyButton.setFont(new Font("SansSerif", Font.BOLD, 12));
+        penaltyButton.setBackground(new Color(150, 0, 150));
+        penaltyButton.setForeground(Color.BLACK);
+        penaltyButton.addActionListener(e -> penalizeTargets());
+        targetPanel.add(penaltyButton);
+
+        return targetPanel;
+    }
+
+    /**
+     * Skapar en knapp som skickar ett kommando till de valda bilarna.
+     *
+     * @param text text som visas på knappen
+     * @param command kommando att skicka
+     * @param backgroundColor bakgrundsfärg för knappen
+     * @return JButton med konfigurerade egenskaper
+     */
+    private JButton createTargetButton(String text, String command, Color backgroundColor) {
+        JButton button = new JButton(text);
+        button.setFont(new Font("SansSerif", Font.BOLD, 12));
+        button.setBackground(backgroundColor);
+        button.setForeground(Color.BLACK);
+        button.addActionListener(e -> sendCommandToTargets(text, command));
+        return button;
+    }
+
+    /**
+     * Filtrerar bilarna på fritext (bil-ID eller namn) och valt lag.
+     */
+    private void applyCarFilter() {
+        String text = carFilterField.getText().trim().toLowerCase(Locale.ROOT);
+        int team = teamFilterCombo.getSelectedIndex() - 1;
+        if (text.isEmpty() && team < 0) {
+            carSorter.setRowFilter(null);
+            return;
+        }
+        carSorter.setRowFilter(new RowFilter<ConnectionTableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends ConnectionTableModel, ? extends Integer> entry) {
+                int row = entry.getIdentifier();
+                if (team >= 0 && entry.getModel().getTeam(row) != team) {
+                    return false;
+                }
+                return text.isEmpty()
+                        || entry.getStringValue(0).toLowerCase(Locale.ROOT).contains(text)
+                        || entry.getStringValue(1).toLowerCase(Locale.ROOT).contains(text);
+            }
+        });
+    }
+
+    /**
+     * Samlar bilplatserna som ett riktat kommando gäller: markerade rader,
+     * eller alla rader som filtret visar om inget är markerat och operatören bekräftar det.
+     *
+     * @param action knappens text, för bekräftelsen
+     * @return markering per bilplats i CarTable, eller null om operatören avbröt
+     */
+    private boolean[] targetSlots(String action) {
+        boolean[] selected = new boolean[server.getCarTable().size()];
+        int[] viewRows = carTable.getSelectedRows();
+        if (viewRows.length > 0) {
+            for (int viewRow : viewRows) {
+                markSlot(selected, connectionModel.getSlot(carTable.convertRowIndexToModel(viewRow)));
+            }
+        } else {
+            if (carTable.getRowCount() > 0 && !confirmAll(action, "alla " + carTable.getRowCount() + " bilar i listan")) {
+                return null;
+            }
+            for (int viewRow = 0; viewRow < carTable.getRowCount(); viewRow++) {
+                markSlot(selected, connectionModel.getSlot(carTable.convertRowIndexToModel(viewRow)));
+            }
+        }
+        return selected;
+    }
+
+    private static void markSlot(boolean[] selected, int slot) {
+        if (slot >= 0 && slot < selected.length) {
+            selected[slot] = true;
+        }
+    }
+
+    /**
+     * Frågar operatören om ett kommando ska gälla flera bilar trots att ingen är markerad.
+     *
+     * @param action knappens text
+     * @param targets beskrivning av bilarna som berörs
+     * @return true om operatören bekräftade
+     */
+    private boolean confirmAll(String action, String targets) {
+        return JOptionPane.showConfirmDialog(this,
+                "Ingen bil är markerad. " + action + " gäller " + targets + ". Fortsätta?",
+                "Bekräfta",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+    }
+
+    /**
+     * Skickar ett kommando till de valda bilarna. Ett helt lag adresseras via
+     * lagindexet och en enskild bil via sitt bil-ID.
+     *
+     * @param action knappens text, för bekräftelsen
+     * @param command kommando att skicka
+     */
+    private void sendCommandToTargets(String action, String command) {
+        int team = teamFilterCombo.getSelectedIndex() - 1;
+        boolean wholeTeam = team >= 0 && carTable.getSelectedRowCount() == 0 && carFilterField.getText().trim().isEmpty();
+        if (wholeTeam) {
+            if (confirmAll(action, "hela lag " + (team + 1))) {
+                trackDelivery(server.sendToTeam(team, command));
+            }
+            return;
+        }
+
+        boolean[] selected = targetSlots(action);
+        if (selected == null) {
+            return;
+        }
+        int count = 0;
+        int single = -1;
+        for (int slot = 0; slot < selected.length; slot++) {
+            if (selected[slot]) {
+                count++;
+                single = slot;
+            }
+        }
+        if (count == 0) {
+            JOptionPane.showMessageDialog(this, "Inga bilar valda", "Information", JOptionPane.INFORMATION_MESSAGE);
+        } else if (count == 1) {
+            trackDelivery(server.sendToCar(server.getCarTable().getCarId(single), command));
+        } else {
+            trackDelivery(server.sendToCarsMatching(slot -> selected[slot], command));
+        }
+    }
+
+    /**
+     * Drar av ett straff från varje vald bil.
+     */
+    private void penalizeTargets() {
+        boolean[] selected = targetSlots("STRAFFA");
+        if (selected == null) {
+            return;
+        }
+        for (int slot = 0; slot < selected.length; slot++) {
+            if (selected[slot]) {
+                server.penalizeCar(slot);
+            }
+        }
+    }
+
+    /**
+     * Visar tabellen över anslutningar i ett eget fönster.
+     * Fönstret delar modell med kontrollpanelen och uppdateras av samma händelser.
+     */
+    private void showConnectionList() {
+        JDialog dialog = new JDialog(this, "Anslutna enheter", false);
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.setContentPane(new JScrollPane(createConnectionTable()));
+        dialog.setSize(700, 400);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    /**
+     * Visar live-grafen över en bils accelerometer i ett eget fönster.
+     * Grafen uppdateras bara medan fönstret är öppet.
+     */
+    private void showTelemetry() {
+        TelemetryPlotPanel plot = new TelemetryPlotPanel(server);
+        CarTable table = server.getCarTable();
+        JComboBox<String> carChoice = new JComboBox<>();
+        for (int slot = 0; slot < table.size(); slot++) {
+            carChoice.addItem(table.getCarId(slot) + " (" + table.getCarName(slot) + ")");
+        }
+        carChoice.addActionListener(e -> plot.setSlot(carChoice.getSelectedIndex()));
+        plot.setSlot(carChoice.getSelectedIndex());
+
+        JDialog dialog = new JDialog(this, "Telemetri", false);
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.setLayout(new BorderLayout());
+        dialog.add(carChoice, BorderLayout.NORTH);
+        dialog.add(plot, BorderLayout.CENTER);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                plot.stop();
+            }
+        });
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        plot.start();
+        dialog.setVisible(true);
+    }
+
     /**
      * Skapar kontrollpanelen med knappar för bil-kommandon.
      *
      * @return JPanel med kontrollknappar
      */
     private JPanel createControlPanel() {
-        JPanel controlPanel = new JPanel(new GridLayout(4, 2, 10, 10)); // Ökat till 4x2 grid
+        JPanel controlPanel = new JPanel(new GridLayout(5, 2, 10, 10)); // Ökat till 5x2 grid
         controlPanel.setBackground(Color.BLACK);
         controlPanel.setBorder(BorderFactory.createTitledBorder(
                 BorderFactory.createLineBorder(Color.WHITE, 2),
@@ -162,10 +481,7 @@ public class CarControlPanel extends JFrame {
         JButton listCarsButton = createControlButton("📋LISTA BILAR", "", new Color(100, 100, 100));
         listCarsButton.addActionListener(e -> {
             server.listConnectedCars();
-            JOptionPane.showMessageDialog(this,
-                    "Kolla konsolen för lista över anslutna bilar",
-                    "Information",
-                    JOptionPane.INFORMATION_MESSAGE);
+            showConnectionList();
         });
         controlPanel.add(listCarsButton);
 
@@ -173,6 +489,11 @@ public class CarControlPanel extends JFrame {
         JButton testButton = createControlButton(" TEST MEDDELANDE", "TEST", new Color(150, 0, 150));
         controlPanel.add(testButton);
 
+        // Live-graf över bilarnas accelerometrar
+        JButton telemetryButton = createControlButton("📈 TELEMETRI", "", new Color(0, 150, 150));
+        telemetryButton.addActionListener(e -> showTelemetry());
+        controlPanel.add(telemetryButton);
+
         return controlPanel;
     }
 
@@ -226,12 +547,9 @@ public class CarControlPanel extends JFrame {
     private void sendArenaCommand(String command) {
         try {
             // Skicka till alla ESP8266 enheter (eller specifik ESP8266 om du vill)
+            // Arena-status uppdateras av serverns händelse för det nya kommandot
             server.broadcastToAllCars(command);
 
-            // Uppdatera arena-status
-            isArenaOpen = command.equals("open");
-            updateArenaStatus();
-
             // Visa bekräftelse
             String displayCommand = command.equals("open") ? "ÖPPNA ARENA" : "STÄNG ARENA";
             statusLabel.setText("Arena: " + displayCommand);
@@ -262,7 +580,12 @@ public class CarControlPanel extends JFrame {
      */
     private void sendCommandToAllCars(String command) {
         try {
-            server.broadcastToAllCars(command);
+            if (command.equals("START")) {
+                // Alla bilar startar samtidigt enligt sina egna klockor
+                trackDelivery(server.startAllCars().getDelivery());
+            } else {
+                trackDelivery(server.broadcastToAllCars(command));
+            }
 
             // Visa bekräftelse
             statusLabel.setText("Kommando skickat: " + command);
@@ -285,27 +608,86 @@ public class CarControlPanel extends JFrame {
     }
 
     /**
-     * Uppdaterar arena-status i GUI:n.
+     * Visar leveransstatus för ett kommando och uppdaterar den tills alla
+     * bilar har kvitterat eller leveransen har misslyckats.
+     *
+     * @param delivery leveransen att följa
+     */
+    private void trackDelivery(CommandDelivery delivery) {
+        if (deliveryTimer != null) {
+            deliveryTimer.stop();
+        }
+        if (delivery == null) {
+            return;
+        }
+
+        updateDeliveryLabel(delivery);
+        if (!delivery.isSettled()) {
+            deliveryTimer = new Timer(deliveryRefreshMillis(), e -> {
+                updateDeliveryLabel(delivery);
+                updateStartReportLabel();
+                if (delivery.isSettled()) {
+                    ((Timer) e.getSource()).stop();
+                }
+            });
+            deliveryTimer.start();
+        }
+    }
+
+    /**
+     * Uppdaterar leveransstatus i GUI:n.
+     *
+     * @param delivery leveransen att visa
+     */
+    private void updateDeliveryLabel(CommandDelivery delivery) {
+        deliveryLabel.setText("Senaste kommando: " + delivery.summary());
+        if (!delivery.isSettled()) {
+            deliveryLabel.setForeground(Color.YELLOW);
+        } else if (delivery.countState(CommandDelivery.FAILED) > 0) {
+            deliveryLabel.setForeground(Color.RED);
+        } else {
+            deliveryLabel.setForeground(Color.GREEN);
+        }
+    }
+
+    /**
+     * Uppdaterar spridningen för den senaste synkroniserade starten.
+     */
+    private void updateStartReportLabel() {
+        StartReport report = server.getLastStartReport();
+        if (report != null) {
+            startReportLabel.setText(report.summary());
+        }
+    }
+
+    /**
+     * Uppdaterar arena-status i GUI:n från serverns aktuella arena-kommando.
      */
     private void updateArenaStatus() {
-        // Hitta arena status label
-        Component[] components = ((JPanel) getContentPane().getComponent(1)).getComponents();
-        for (Component comp : components) {
-            if (comp instanceof JLabel && comp.getName() != null && comp.getName().equals("arenaStatus")) {
-                JLabel arenaLabel = (JLabel) comp;
-                arenaLabel.setText("Arena: " + (isArenaOpen ? "ÖPPEN" : "STÄNGD"));
-                arenaLabel.setForeground(isArenaOpen ? Color.GREEN : Color.RED);
-                break;
-            }
+        boolean open = "open".equals(server.getArenaCommand());
+        boolean controllerConnected = false;
+        for (MyServer.ClientConnection client : server.getConnectedClients()) {
+            controllerConnected |= "ESP8266".equals(client.clientType);
         }
+        arenaStatusLabel.setText("Arena: " + (open ? "ÖPPEN" : "STÄNGD") +
+                (controllerConnected ? "" : " (kontroll ej ansluten)"));
+        arenaStatusLabel.setForeground(open ? Color.GREEN : Color.RED);
     }
 
     /**
-     * Uppdaterar status-information för anslutna bilar.
+     * Uppdaterar status-information och tabellen över anslutningar.
+     * Anropas i Swing-tråden när servern har rapporterat en händelse.
      */
     private void updateStatus() {
-        int connectedCars = server.getConnectedCarsCount();
-        connectedCarsLabel.setText("Anslutna bilar: " + connectedCars);
+        connectionModel.refresh(server);
+        updateTeamChoices();
+        int connectedCars = connectionModel.getIdentifiedCars();
+        int matchCars = server.getCarTable().size();
+        long shed = server.getMetrics().linesShed.sum() + server.getMetrics().linesQuarantined.sum();
+        connectedCarsLabel.setText("Anslutna bilar: " + connectedCars +
+                (matchCars > 0 ? " av " + matchCars : "") + (shed > 0 ? " (kastade rader: " + shed + ")" : ""));
+        updateArenaStatus();
+        updateStartReportLabel();
 
         if (connectedCars > 0) {
             connectedCarsLabel.setForeground(Color.GREEN);
@@ -315,12 +697,60 @@ public class CarControlPanel extends JFrame {
     }
 
     /**
-     * Startar automatisk status-uppdatering var 2:a sekund.
+     * Anpassar lagfiltret efter antalet lag i pågående match.
      */
-    private void startStatusUpdater() {
-        // Uppdatera status var 2:a sekund
-        statusUpdateTimer = new Timer(2000, e -> updateStatus());
-        statusUpdateTimer.start();
+    private void updateTeamChoices() {
+        int teams = server.getTeamCount();
+        if (teamFilterCombo.getItemCount() == teams + 1) {
+            return;
+        }
+        int selected = teamFilterCombo.getSelectedIndex();
+        DefaultComboBoxModel<String> choices = new DefaultComboBoxModel<>();
+        choices.addElement("Alla lag");
+        for (int team = 0; team < teams; team++) {
+            choices.addElement("Lag " + (team + 1));
+        }
+        teamFilterCombo.setModel(choices);
+        teamFilterCombo.setSelectedIndex(selected <= teams ? Math.max(selected, 0) : 0);
+    }
+
+    /**
+     * Registrerar panelen för serverhändelser och visar nuvarande status.
+     */
+    private void startEventUpdates() {
+        serverListener = new CoalescingListener(server.getConfig(), this::updateStatus);
+        server.addServerEventListener(serverListener);
+        server.getConfig().addListener(configListener);
+
+        ageTimer = new Timer(AGE_TICK_MILLIS, e -> connectionModel.tick());
+        ageTimer.start();
+
+        updateStatus();
+    }
+
+    /**
+     * Får intervallet för leveransstatus, begränsat av max bilder per sekund.
+     *
+     * @return intervall i millisekunder
+     */
+    private int deliveryRefreshMillis() {
+        return Math.max(1, 1000 / server.getConfig().get(ServerConfig.GUI_MAX_FPS));
+    }
+
+    /**
+     * Anpassar leveranstimern när max antal uppdateringar per sekund ändras medan servern kör.
+     * Kan anropas från en annan tråd än Swing-tråden.
+     *
+     * @param key den ändrade nyckeln
+     */
+    private void configChanged(ServerConfig.Key<?> key) {
+        if (key == ServerConfig.GUI_MAX_FPS) {
+            SwingUtilities.invokeLater(() -> {
+                if (deliveryTimer != null) {
+                    deliveryTimer.setDelay(deliveryRefreshMillis());
+                }
+            });
+        }
     }
 
     /**
@@ -328,8 +758,12 @@ public class CarControlPanel extends JFrame {
      */
     @Override
     public void dispose() {
-        if (statusUpdateTimer != null) {
-            statusUpdateTimer.stop();
+        server.removeServerEventListener(serverListener);
+        serverListener.stop();
+        server.getConfig().removeListener(configListener);
+        ageTimer.stop();
+        if (deliveryTimer != null) {
+            deliveryTimer.stop();
         }
         super.dispose();
     }
@@ -0,0 +1,129 @@
+package GUI;
+
+import Control.MyServer;
+import Control.ServerConfig;
+import Control.ServerEventListener;
+import Model.CarTable;
+import Model.MatchResult;
+
+import javax.swing.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serverlyssnare som slår ihop händelser till en uppdatering i Swing-tråden.
+ * Många händelser i följd ger bara en uppdatering, och uppdateringarna begränsas
+ * till högst {@link ServerConfig#GUI_MAX_FPS} per sekund. Efter en lugn stund körs
+ * uppdateringen direkt, så GUI:t följer servern utan att polla den.
+ *
+ * @author Rachid kontakgi,Adnan,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class CoalescingListener implements ServerEventListener {
+
+    /** Uppdateringen som körs i Swing-tråden */
+    private final Runnable refresh;
+
+    /** {@link #flush()} som Runnable, skapad en gång så att en begäran inte skapar objekt */
+    private final Runnable flushTask = this::flush;
+
+    /** Inställningar med max antal uppdateringar per sekund */
+    private final ServerConfig config;
+
+    /** true när en uppdatering redan är på väg, så fler händelser inte köar nya */
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    /** Väntar in resten av intervallet när händelserna kommer tätt */
+    private final Timer delayTimer;
+
+    /** Tidpunkt (System.nanoTime) för senaste uppdateringen, bara Swing-tråden */
+    private long lastRefreshNanos;
+
+    /**
+     * Konstruktor för CoalescingListener.
+     *
+     * @param config inställningar med max antal uppdateringar per sekund
+     * @param refresh uppdateringen som körs i Swing-tråden
+     */
+    public CoalescingListener(ServerConfig config, Runnable refresh) {
+        this.config = config;
+        this.refresh = refresh;
+        this.delayTimer = new Timer(0, e -> flush());
+        this.delayTimer.setRepeats(false);
+    }
+
+    /**
+     * Begär en uppdatering. Kan anropas från vilken tråd som helst.
+     */
+    public void requestRefresh() {
+        if (pending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(flushTask);
+        }
+    }
+
+    /**
+     * Stoppar en väntande uppdatering, t.ex. när fönstret stängs.
+     */
+    public void stop() {
+        delayTimer.stop();
+    }
+
+    /**
+     * Kör uppdateringen, eller väntar tills intervallet har gått. Körs i Swing-tråden.
+     */
+    private void flush() {
+        long intervalNanos = 1_000_000_000L / config.get(ServerConfig.GUI_MAX_FPS);
+        long now = System.nanoTime();
+        long waitNanos = intervalNanos - (now - lastRefreshNanos);
+        if (lastRefreshNanos != 0 && waitNanos > 0) {
+            delayTimer.setInitialDelay((int) Math.max(1, waitNanos / 1_000_000L));
+            delayTimer.restart();
+            return;
+        }
+
+        // Händelser under själva uppdateringen begär en ny
+        pending.set(false);
+        lastRefreshNanos = now;
+        refresh.run();
+    }
+
+    @Override
+    public void matchStarted(CarTable cars) {
+        requestRefresh();
+    }
+
+    @Override
+    public void scoreChanged(int slot, int health) {
+        requestRefresh();
+    }
+
+    @Override
+    public void clientConnected(MyServer.ClientConnection client) {
+        requestRefresh();
+    }
+
+    @Override
+    public void clientIdentified(MyServer.ClientConnection client) {
+        requestRefresh();
+    }
+
+    @Override
+    public void clientDisconnected(MyServer.ClientConnection client) {
+        requestRefresh();
+    }
+
+    @Override
+    public void clientActivity(MyServer.ClientConnection client) {
+        requestRefresh();
+    }
+
+    @Override
+    public void arenaChanged(String command, long version) {
+        requestRefresh();
+    }
+
+    @Override
+    public void matchOver(MatchResult result) {
+        requestRefresh();
+    }
+}
@@ -0,0 +1,279 @@
+package GUI;
+
+import Control.MyServer;
+import Model.CarTable;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabellmodell med en rad per bil i matchen och per övrig anslutning.
+ * Visar anslutningsstatus, hälsa, tur-och-retur-tid, tid sedan senaste meddelande
+ * och meddelandetakt. Modellen byggs om av {@link #refresh(MyServer)} i Swing-tråden.
+ * Så länge raderna är desamma uppdateras bara deras värden, så att markering och
+ * sortering i tabellen finns kvar.
+ *
+ * @author Rachid kontakgi,Adnan,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class ConnectionTableModel extends AbstractTableModel {
+
+    /** Kolumnrubriker */
+    private static final String[] COLUMNS = {"Enhet", "Namn", "Lag", "Status", "Hälsa", "RTT (ms)", "Senast (s)", "Rader/s", "Kastade"};
+
+    /** Minsta tid mellan två mätningar av meddelandetakten (ns) */
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    /**
+     * En rad i tabellen.
+     */
+    private static final class Row {
+        /** Anslutningen, null om bilen i matchen inte är ansluten */
+        final MyServer.ClientConnection client;
+
+        /** Bilens plats i CarTable, -1 för övriga anslutningar */
+        int slot = -1;
+
+        /** Bilens lag (0 = lag 1), -1 för övriga anslutningar */
+        int team = -1;
+
+        /** Antal mottagna rader vid förra mätningen */
+        long sampledReceived;
+
+        /** Tidpunkt för förra mätningen */
+        long sampledNanos;
+
+        /** Senast uppmätt takt i rader per sekund */
+        double rate;
+
+        Row(MyServer.ClientConnection client) {
+            this.client = client;
+            if (client != null) {
+                sampledReceived = client.ingress.getReceived();
+                sampledNanos = System.nanoTime();
+            }
+        }
+    }
+
+    /** Aktuella rader */
+    private List<Row> rows = new ArrayList<>();
+
+    /** Biltabellen som raderna byggdes från */
+    private CarTable cars = CarTable.empty();
+
+    /** Antal identifierade bilar vid senaste uppdateringen */
+    private int identifiedCars;
+
+    /**
+     * Bygger om raderna från serverns anslutningar och biltabell.
+     * Rader för samma anslutning återanvänds så att meddelandetakten kan mätas.
+     *
+     * @param server servern att läsa från
+     */
+    public void refresh(MyServer server) {
+        CarTable table = server.getCarTable();
+        List<MyServer.ClientConnection> clients = server.getConnectedClients();
+
+        Map<MyServer.ClientConnection, Row> previous = new IdentityHashMap<>();
+        for (Row row : rows) {
+            if (row.client != null) {
+                previous.put(row.client, row);
+            }
+        }
+
+        // En rad per bil i matchen, även de som inte är anslutna
+        List<Row> updated = new ArrayList<>(table.size() + clients.size());
+        boolean[] placed = new boolean[clients.size()];
+        int identified = 0;
+        for (int slot = 0; slot < table.size(); slot++) {
+            int match = -1;
+            for (int i = 0; i < clients.size(); i++) {
+                if (!placed[i] && table.getCarId(slot).equals(clients.get(i).carId)) {
+                    match = i; // Senast anslutna vinner om bilen har återanslutit
+                }
+            }
+            Row row;
+            if (match >= 0) {
+                placed[match] = true;
+                row = reuse(previous, clients.get(match));
+            } else {
+                row = new Row(null);
+            }
+            row.slot = slot;
+            row.team = server.getTeam(slot);
+            updated.add(row);
+        }
+
+        // Övriga anslutningar: arena-kontroll, okända bil-ID:n och oidentifierade
+        for (int i = 0; i < clients.size(); i++) {
+            MyServer.ClientConnection client = clients.get(i);
+            if ("ESP32".equals(client.clientType)) {
+                identified++;
+            }
+            if (!placed[i]) {
+                updated.add(reuse(previous, client));
+            }
+        }
+
+        boolean sameRows = updated.size() == rows.size() && table == cars;
+        for (int i = 0; sameRows && i < updated.size(); i++) {
+            sameRows = updated.get(i).client == rows.get(i).client && updated.get(i).slot == rows.get(i).slot;
+        }
+
+        rows = updated;
+        cars = table;
+        identifiedCars = identified;
+        if (!sameRows) {
+            fireTableDataChanged();
+        } else if (!rows.isEmpty()) {
+            fireTableRowsUpdated(0, rows.size() - 1);
+        }
+    }
+
+    /**
+     * Får bilens plats för en rad.
+     *
+     * @param rowIndex raden i modellen
+     * @return plats i CarTable, eller -1 om raden inte är en bil i matchen
+     */
+    public int getSlot(int rowIndex) {
+        return rows.get(rowIndex).slot;
+    }
+
+    /**
+     * Får bilens lag för en rad.
+     *
+     * @param rowIndex raden i modellen
+     * @return lagets index (0 = lag 1), eller -1 om raden inte är en bil i matchen
+     */
+    public int getTeam(int rowIndex) {
+        return rows.get(rowIndex).team;
+    }
+
+    /**
+     * Mäter om meddelandetakten och ritar om tidskolumnerna.
+     * Anropas regelbundet så att tiden sedan senaste meddelande räknas upp även när det är tyst.
+     */
+    public void tick() {
+        long now = System.nanoTime();
+        for (Row row : rows) {
+            sampleRate(row, now);
+        }
+        if (!rows.isEmpty()) {
+            fireTableRowsUpdated(0, rows.size() - 1);
+        }
+    }
+
+    /**
+     * Får antal anslutningar som har identifierat sig som bilar.
+     *
+     * @return antal identifierade bilar
+     */
+    public int getIdentifiedCars() {
+        return identifiedCars;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Row row = rows.get(rowIndex);
+        MyServer.ClientConnection client = row.client;
+        switch (columnIndex) {
+            case 0:
+                if (row.slot >= 0) {
+                    return cars.getCarId(row.slot);
+                }
+                return client.carId != null ? client.carId : client.socket.getInetAddress().toString();
+            case 1:
+                if (row.slot >= 0) {
+                    return cars.getCarName(row.slot);
+                }
+                return "ESP8266".equals(client.clientType) ? "Arena-kontroll" : "-";
+            case 2:
+                return row.team >= 0 ? "Lag " + (row.team + 1) : "-";
+            case 3:
+                return status(client);
+            case 4:
+                return row.slot >= 0 ? String.valueOf(cars.getHealth(row.slot)) : "-";
+            case 5:
+                long rtt = client != null ? client.clock.getRttMillis() : -1;
+                return rtt >= 0 ? String.valueOf(rtt) : "-";
+            case 6:
+                long last = client != null ? client.ingress.getLastReceivedNanos() : 0;
+                return last != 0 ? String.format("%.1f", (System.nanoTime() - last) / 1e9) : "-";
+            case 7:
+                return client != null ? String.format("%.1f", row.rate) : "-";
+            case 8:
+                return client != null ? String.valueOf(client.ingress.getShed()) : "-";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Beskriver en anslutnings status.
+     *
+     * @param client anslutningen, eller null
+     * @return statustext
+     */
+    private static String status(MyServer.ClientConnection client) {
+        if (client == null) {
+            return "EJ ANSLUTEN";
+        }
+        if (client.detached) {
+            return "ÅTERANSLUTER";
+        }
+        if (client.ingress.isQuarantined()) {
+            return "KARANTÄN";
+        }
+        if ("UNKNOWN".equals(client.clientType)) {
+            return "OIDENTIFIERAD";
+        }
+        return "ANSLUTEN";
+    }
+
+    /**
+     * Hämtar raden för en anslutning från förra uppdateringen, eller skapar en ny.
+     */
+    private static Row reuse(Map<MyServer.ClientConnection, Row> previous, MyServer.ClientConnection client) {
+        Row row = previous.get(client);
+        if (row == null) {
+            return new Row(client);
+        }
+        row.slot = -1;
+        row.team = -1;
+        sampleRate(row, System.nanoTime());
+        return row;
+    }
+
+    /**
+     * Räknar om takten när mätfönstret har gått.
+     */
+    private static void sampleRate(Row row, long now) {
+        if (row.client == null || now - row.sampledNanos < RATE_WINDOW_NANOS) {
+            return;
+        }
+        long received = row.client.ingress.getReceived();
+        row.rate = (received - row.sampledReceived) * 1e9 / (now - row.sampledNanos);
+        row.sampledReceived = received;
+        row.sampledNanos = now;
+    }
+}
@@ -37,6 +37,12 @@ public class LeaderboardGUI extends JFrame {
     /** Aktuellt spelläge */
     private final String gameMode;
 
+    /** Högsta värde i poängstaplarna (bilarnas startpoäng) */
+    private final int maxScore;
+
+    /** Högsta värde i förmågestaplarna (bilarnas startförmåga) */
+    private final int maxAbility;
+
     /**
      * Konstruktor för LeaderboardGUI med specificerat spelläge.
      *
@@ -47,13 +53,23 @@ public class LeaderboardGUI extends JFrame {
         this.players = new ArrayList<>(players);
         this.gameMode = gameMode;
 
+        // Staplarnas skala följer startvärdena, som kan vara konfigurerade
+        int highestScore = 1;
+        int highestAbility = 1;
+        for (CarStats player : players) {
+            highestScore = Math.max(highestScore, player.score);
+            highestAbility = Math.max(highestAbility, player.ability);
+        }
+        this.maxScore = highestScore;
+        this.maxAbility = highestAbility;
+
         setTitle("Car Championship - " + gameMode);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1200, 200 + (players.size() * 300)); // Dynamisk höjd baserat på antal spelare
         setLocationRelativeTo(null);
 
         // Sortera spelare efter poäng (högst först)
-        this.players.sort((a, b) -> Double.compare(b.score, a.score));
+        this.players.sort((a, b) -> Integer.compare(b.score, a.score));
 
         // Skapa huvudlayout
         mainPanel = new JPanel(new GridLayout(players.size(), 1));
@@ -119,8 +135,8 @@ public class LeaderboardGUI extends JFrame {
         panel.add(playerCarLabel);
 
         // Score bar
-        JProgressBar scoreBar = new JProgressBar(0, 100);
-        scoreBar.setValue((int) (player.score * 10));
+        JProgressBar scoreBar = new JProgressBar(0, maxScore);
+        scoreBar.setValue(player.score);
         scoreBar.setStringPainted(true);
         scoreBar.setForeground(Color.GREEN);
         scoreBar.setBackground(Color.DARK_GRAY);
@@ -131,8 +147,8 @@ public class LeaderboardGUI extends JFrame {
         scoreBars.put(player.carName, scoreBar);
 
         // Ability bar
-        JProgressBar abilityBar = new JProgressBar(0, 100);
-        abilityBar.setValue((int) (player.ability * 10));
+        JProgressBar abilityBar = new JProgressBar(0, maxAbility);
+        abilityBar.setValue(player.ability);
         abilityBar.setStringPainted(true);
         abilityBar.setForeground(Color.CYAN);
         abilityBar.setBackground(Color.DARK_GRAY);
@@ -152,7 +168,7 @@ public class LeaderboardGUI extends JFrame {
      * @param carName namnet på bilen
      * @param score ny poäng
      */
-    public void setScore(String carName, double score) {
+    public void setScore(String carName, int score) {
         boolean updated = false;
 
         // Uppdatera poängen i modellen
@@ -167,8 +183,7 @@ public class LeaderboardGUI extends JFrame {
         // Uppdatera scoreBar om den finns
         if (scoreBars.containsKey(carName)) {
             JProgressBar bar = scoreBars.get(carName);
-            int value = (int) (score * 10);
-            bar.setValue(value);
+            bar.setValue(score);
             bar.setString("Score: " + score);
         }
 
@@ -184,7 +199,7 @@ public class LeaderboardGUI extends JFrame {
      * @param carName namnet på bilen
      * @param ability ny förmåga
      */
-    public void setAbility(String carName, double ability) {
+    public void setAbility(String carName, int ability) {
         // Uppdatera ability i modellen
         for (CarStats player : players) {
             if (player.carName.equals(carName)) {
@@ -196,8 +211,7 @@ public class LeaderboardGUI extends JFrame {
         // Uppdatera abilityBar om den finns
         if (abilityBars.containsKey(carName)) {
             JProgressBar bar = abilityBars.get(carName);
-            int value = (int) (ability * 10);
-            bar.setValue(value);
+            bar.setValue(ability);
             bar.setString("Ability: " + ability);
         }
     }
@@ -207,7 +221,7 @@ public class LeaderboardGUI extends JFrame {
      */
     private void updateLeaderboardOrder() {
         // Sortera spelarna efter poäng (högst först)
-        players.sort((a, b) -> Double.compare(b.score, a.score));
+        players.sort((a, b) -> Integer.compare(b.score, a.score));
 
         // Uppdatera UI:n med de nya positionerna
         updateLeaderboardDisplay();
@@ -1,6 +1,10 @@
 package GUI;
 
+import Control.ServerConfig;
 import Model.CarStats;
+import Model.MatchHistoryStore;
+import Model.MatchSnapshot;
+import Model.RatingService;
 import Imageresources.ImageResources;
 
 import javax.swing.*;
@@ -31,6 +35,12 @@ public class MatchSetupGUI extends JFrame {
     /** Textfält för spelarnamn */
     private JTextField[] playerNameFields;
 
+    /** Val av lag per spelare */
+    private List<JComboBox<String>> teamCombos;
+
+    /** Alternativ i lagvalet, index 0 betyder att bilen kör för sig själv */
+    private static final String[] TEAM_CHOICES = {"Eget lag", "Lag 1", "Lag 2"};
+
     /** Knapp för att starta matchen */
     private JButton startButton;
 
@@ -40,6 +50,15 @@ public class MatchSetupGUI extends JFrame {
     /** Resurs-klass för bilbilder */
     private ImageResources imageResources;
 
+    /** Matchhistorik för säsongsställningen (kan vara null) */
+    private MatchHistoryStore historyStore;
+
+    /** Säsongsranking (kan vara null) */
+    private RatingService ratingService;
+
+    /** Konfiguration med startvärden för bilarna */
+    private ServerConfig serverConfig;
+
     /**
      * Konfigurationsklass som innehåller match-inställningar.
      */
@@ -68,7 +87,35 @@ public class MatchSetupGUI extends JFrame {
      * @param onMatchStartCallback callback som anropas när matchen startas
      */
     public MatchSetupGUI(Consumer<MatchConfig> onMatchStartCallback) {
+        this(onMatchStartCallback, null, null);
+    }
+
+    /**
+     * Konstruktor för MatchSetupGUI med matchhistorik och ranking.
+     *
+     * @param onMatchStartCallback callback som anropas när matchen startas
+     * @param historyStore matchhistorik för säsongsställningen, eller null
+     * @param ratingService säsongsranking, eller null
+     */
+    public MatchSetupGUI(Consumer<MatchConfig> onMatchStartCallback, MatchHistoryStore historyStore,
+                         RatingService ratingService) {
+        this(onMatchStartCallback, historyStore, ratingService, ServerConfig.defaults());
+    }
+
+    /**
+     * Konstruktor för MatchSetupGUI med matchhistorik, ranking och konfiguration.
+     *
+     * @param onMatchStartCallback callback som anropas när matchen startas
+     * @param historyStore matchhistorik för säsongsställningen, eller null
+     * @param ratingService säsongsranking, eller null
+     * @param serverConfig konfiguration med startvärden för bilarna
+     */
+    public MatchSetupGUI(Consumer<MatchConfig> onMatchStartCallback, MatchHistoryStore historyStore,
+                         RatingService ratingService, ServerConfig serverConfig) {
         this.onMatchStartCallback = onMatchStartCallback;
+        this.historyStore = historyStore;
+        this.ratingService = ratingService;
+        this.serverConfig = serverConfig;
         this.imageResources = new ImageResources();
         initializeGUI();
     }
@@ -78,7 +125,7 @@ public class MatchSetupGUI extends JFrame {
      */
     private void initializeGUI() {
         setTitle("Match Setup - Car Championship");
-        setSize(600, 500);
+        setSize(700, 500);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
@@ -136,6 +183,28 @@ public class MatchSetupGUI extends JFrame {
         startButton.addActionListener(this::startMatch);
         buttonPanel.add(startButton);
 
+        // Säsongsställning från matchhistoriken
+        if (historyStore != null) {
+            JButton standingsButton = new JButton("📊 STÄLLNING");
+            standingsButton.setFont(new Font("SansSerif", Font.BOLD, 16));
+            standingsButton.setPreferredSize(new Dimension(180, 50));
+            standingsButton.setBackground(new Color(0, 100, 200));
+            standingsButton.setForeground(Color.BLACK);
+            standingsButton.addActionListener(e -> new StandingsGUI(historyStore).setVisible(true));
+            buttonPanel.add(standingsButton);
+        }
+
+        // Säsongsranking
+        if (ratingService != null) {
+            JButton rankingButton = new JButton("🏆 RANKING");
+            rankingButton.setFont(new Font("SansSerif", Font.BOLD, 16));
+            rankingButton.setPreferredSize(new Dimension(180, 50));
+            rankingButton.setBackground(new Color(150, 150, 0));
+            rankingButton.setForeground(Color.BLACK);
+            rankingButton.addActionListener(e -> new RankingGUI(ratingService, historyStore).setVisible(true));
+            buttonPanel.add(rankingButton);
+        }
+
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
 
         setContentPane(mainPanel);
@@ -176,9 +245,16 @@ public class MatchSetupGUI extends JFrame {
         carHeader.setForeground(Color.WHITE);
         playersPanel.add(carHeader, gbc);
 
+        gbc.gridx = 2;
+        JLabel teamHeader = new JLabel("Lag");
+        teamHeader.setFont(new Font("SansSerif", Font.BOLD, 14));
+        teamHeader.setForeground(Color.WHITE);
+        playersPanel.add(teamHeader, gbc);
+
         // Initialisera fält för max 4 spelare
         playerNameFields = new JTextField[4];
         carNameFields = new JTextField[4];
+        teamCombos = new ArrayList<>();
 
         String[] defaultPlayerNames = {"Player 1", "Player 2", "Player 3", "Player 4"};
         String[] defaultCarNames = {"IronCrusher", "MudEater", "BlazeFury", "BlueThunder"};
@@ -197,6 +273,13 @@ public class MatchSetupGUI extends JFrame {
             carNameFields[i] = new JTextField(defaultCarNames[i], 15);
             carNameFields[i].setFont(new Font("SansSerif", Font.PLAIN, 14));
             playersPanel.add(carNameFields[i], gbc);
+
+            // Lagval
+            gbc.gridx = 2;
+            JComboBox<String> teamCombo = new JComboBox<>(TEAM_CHOICES);
+            teamCombo.setFont(new Font("SansSerif", Font.PLAIN, 14));
+            teamCombos.add(teamCombo);
+            playersPanel.add(teamCombo, gbc);
         }
 
         return playersPanel;
@@ -214,6 +297,7 @@ public class MatchSetupGUI extends JFrame {
             boolean enabled = is2v2 ? (i < 2) : true;
             playerNameFields[i].setEnabled(enabled);
             carNameFields[i].setEnabled(enabled);
+            teamCombos.get(i).setEnabled(enabled);
 
             if (!enabled) {
                 playerNameFields[i].setBackground(Color.LIGHT_GRAY);
@@ -255,9 +339,14 @@ public class MatchSetupGUI extends JFrame {
             String carName = carNameFields[i].getText().trim();
 
             // Välj bildbild baserat på position
-            BufferedImage carImage = getCarImageForIndex(i);
+            BufferedImage carImage = getCarImageForIndex(imageResources, i);
+
+            // "Eget lag" ger inget gemensamt lag, "Lag n" ger lag n-1
+            int teamChoice = teamCombos.get(i).getSelectedIndex();
+            int team = teamChoice > 0 ? teamChoice - 1 : CarStats.NO_TEAM;
 
-            players.add(new CarStats(playerName, carName, carImage, 10.0, 10.0));
+            players.add(new CarStats(playerName, carName, carImage,
+                    serverConfig.get(ServerConfig.INITIAL_HEALTH), serverConfig.get(ServerConfig.INITIAL_ABILITY), team));
         }
 
         // Skapa match config och starta
@@ -268,19 +357,58 @@ public class MatchSetupGUI extends JFrame {
         dispose();
     }
 
+    /**
+     * Skapar inställningarna för en match som återupptas från en ögonblicksbild,
+     * med samma spelare, lag och bilbilder som när matchen startades.
+     *
+     * @param snapshot ögonblicksbilden
+     * @param serverConfig konfiguration med startvärden för bilarna
+     * @return matchens inställningar
+     */
+    public static MatchConfig restoredMatch(MatchSnapshot snapshot, ServerConfig serverConfig) {
+        ImageResources images = new ImageResources();
+        List<CarStats> players = new ArrayList<>();
+        for (int slot = 0; slot < snapshot.size(); slot++) {
+            players.add(new CarStats(snapshot.playerNames[slot], snapshot.carNames[slot],
+                    getCarImageForIndex(images, slot), serverConfig.get(ServerConfig.INITIAL_HEALTH),
+                    serverConfig.get(ServerConfig.INITIAL_ABILITY), snapshot.teams[slot]));
+        }
+        return new MatchConfig(snapshot.gameMode, players);
+    }
+
+    /**
+     * Skapar inställningarna för en simulerad match, där bilarna fördelas på lagen i tur och ordning.
+     *
+     * @param cars antal bilar
+     * @param teams antal lag
+     * @param serverConfig konfiguration med startvärden för bilarna
+     * @return matchens inställningar
+     */
+    public static MatchConfig simulatedMatch(int cars, int teams, ServerConfig serverConfig) {
+        ImageResources images = new ImageResources();
+        List<CarStats> players = new ArrayList<>();
+        for (int slot = 0; slot < cars; slot++) {
+            players.add(new CarStats("Sim" + (slot + 1), "SimBil" + (slot + 1), getCarImageForIndex(images, slot),
+                    serverConfig.get(ServerConfig.INITIAL_HEALTH), serverConfig.get(ServerConfig.INITIAL_ABILITY),
+                    slot % teams));
+        }
+        return new MatchConfig("Simulering (" + cars + " bilar, " + teams + " lag)", players);
+    }
+
     /**
      * Väljer lämplig bilbild baserat på spelarindex.
      *
+     * @param images bildresurserna
      * @param index spelarens position (0-3)
      * @return BufferedImage för bilen
      */
-    private BufferedImage getCarImageForIndex(int index) {
+    private static BufferedImage getCarImageForIndex(ImageResources images, int index) {
         switch (index) {
-            case 0: return imageResources.getTankImage();
-            case 1: return imageResources.getTractorImage();
-            case 2: return imageResources.getRaceCarRedImage();
-            case 3: return imageResources.getRaceCarBlueImage();
-            default: return imageResources.getTankImage();
+            case 0: return images.getTankImage();
+            case 1: return images.getTractorImage();
+            case 2: return images.getRaceCarRedImage();
+            case 3: return images.getRaceCarBlueImage();
+            default: return images.getTankImage();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,221 @@
+package GUI;
+
+import Model.MatchHistoryStore;
+import Model.RatingService;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * GUI-klass för att visa säsongsrankingen.
+ * Visar topplistan och spelarna runt en sökt spelare med samma radstil som leaderboarden.
+ *
+ * @author Rachid kontakgi,Adnan,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class RankingGUI extends JFrame {
+
+    /** Antal spelare i topplistan */
+    private static final int TOP_COUNT = 10;
+
+    /** Antal placeringar som visas ovanför och nedanför en sökt spelare */
+    private static final int AROUND_RADIUS = 2;
+
+    /** Lägsta betyg som visas i betygsstapeln */
+    private static final int BAR_MIN = 1000;
+
+    /** Högsta betyg som visas i betygsstapeln */
+    private static final int BAR_MAX = 2000;
+
+    /** Rankingtjänsten som visas */
+    private final RatingService ratingService;
+
+    /** Matchhistoriken för omräkning (kan vara null) */
+    private final MatchHistoryStore historyStore;
+
+    /** Panel som innehåller rankingraderna */
+    private final JPanel rowsPanel;
+
+    /** Sökfält för spelarnamn */
+    private final JTextField searchField;
+
+    /**
+     * Konstruktor för RankingGUI.
+     *
+     * @param ratingService rankingtjänsten
+     * @param historyStore matchhistorik för omräkning, eller null
+     */
+    public RankingGUI(RatingService ratingService, MatchHistoryStore historyStore) {
+        this.ratingService = ratingService;
+        this.historyStore = historyStore;
+
+        setTitle("Säsongsranking - Car Championship");
+        setSize(700, 750);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        JPanel container = new JPanel(new BorderLayout(10, 10));
+        container.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        container.setBackground(Color.BLACK);
+
+        JLabel titleLabel = new JLabel("🏆 RANKING 🏆", SwingConstants.CENTER);
+        titleLabel.setFont(new Font("SansSerif", Font.BOLD, 36));
+        titleLabel.setForeground(Color.WHITE);
+        container.add(titleLabel, BorderLayout.NORTH);
+
+        rowsPanel = new JPanel(new GridLayout(0, 1, 0, 5));
+        rowsPanel.setBackground(Color.BLACK);
+        JScrollPane scrollPane = new JScrollPane(rowsPanel);
+        scrollPane.getViewport().setBackground(Color.BLACK);
+        container.add(scrollPane, BorderLayout.CENTER);
+
+        // Sökning och omräkning
+        JPanel bottomPanel = new JPanel();
+        bottomPanel.setBackground(Color.BLACK);
+
+        searchField = new JTextField(15);
+        searchField.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        bottomPanel.add(searchField);
+
+        JButton searchButton = new JButton("🔍 RUNT SPELARE");
+        searchButton.setForeground(Color.BLACK);
+        searchButton.addActionListener(e -> showAround(searchField.getText().trim()));
+        bottomPanel.add(searchButton);
+
+        JButton topButton = new JButton("🥇 TOPPLISTA");
+        topButton.setForeground(Color.BLACK);
+        topButton.addActionListener(e -> showRows(ratingService.top(TOP_COUNT)));
+        bottomPanel.add(topButton);
+
+        if (historyStore != null) {
+            JButton rerateButton = new JButton("🔄 RÄKNA OM");
+            rerateButton.setForeground(Color.BLACK);
+            rerateButton.addActionListener(e -> rerate(rerateButton));
+            bottomPanel.add(rerateButton);
+        }
+        container.add(bottomPanel, BorderLayout.SOUTH);
+
+        setContentPane(container);
+        showRows(ratingService.top(TOP_COUNT));
+    }
+
+    /**
+     * Visar spelarna runt en given spelare.
+     *
+     * @param playerName spelarnamn
+     */
+    private void showAround(String playerName) {
+        List<RatingService.Rating> rows = ratingService.around(playerName, AROUND_RADIUS);
+        if (rows.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "Spelaren '" + playerName + "' har ingen ranking ännu",
+                    "Information",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        showRows(rows);
+    }
+
+    /**
+     * Räknar om hela rankingen från matchhistoriken i bakgrunden, med samma regel som vid start.
+     * Matcher som avslutas under omräkningen läggs på det nya resultatet av rankingtjänsten.
+     *
+     * @param button knappen som startade omräkningen
+     */
+    private void rerate(JButton button) {
+        button.setEnabled(false);
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                ratingService.rerate(historyStore);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    showRows(ratingService.top(TOP_COUNT));
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(RankingGUI.this,
+                            "Fel vid omräkning: " + e.getMessage(),
+                            "Fel",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+                button.setEnabled(true);
+            }
+        }.execute();
+    }
+
+    /**
+     * Ersätter raderna i listan.
+     *
+     * @param ratings raderna att visa
+     */
+    private void showRows(List<RatingService.Rating> ratings) {
+        rowsPanel.removeAll();
+        for (RatingService.Rating rating : ratings) {
+            rowsPanel.add(createRow(rating));
+        }
+        rowsPanel.revalidate();
+        rowsPanel.repaint();
+    }
+
+    /**
+     * Skapar en rad för en spelare, i samma stil som leaderboardens bilrader.
+     *
+     * @param rating spelarens betyg och placering
+     * @return JPanel med spelarens information
+     */
+    private JPanel createRow(RatingService.Rating rating) {
+        JPanel panel = new JPanel(null);
+        panel.setPreferredSize(new Dimension(600, 110));
+        panel.setBackground(Color.BLACK);
+
+        // Place label
+        JLabel placeLabel = new JLabel(placeText(rating.rank));
+        placeLabel.setFont(new Font("SansSerif", Font.BOLD, 26));
+        placeLabel.setForeground(Color.WHITE);
+        placeLabel.setBounds(20, 10, 250, 35);
+        panel.add(placeLabel);
+
+        // Player label
+        JLabel playerLabel = new JLabel(rating.name + " (" + ratingService.getMatchesPlayed(rating.name) + " matcher)");
+        playerLabel.setFont(new Font("SansSerif", Font.BOLD, 22));
+        playerLabel.setForeground(Color.WHITE);
+        playerLabel.setBounds(20, 45, 450, 30);
+        panel.add(playerLabel);
+
+        // Rating bar
+        long rounded = Math.round(rating.rating);
+        JProgressBar ratingBar = new JProgressBar(BAR_MIN, BAR_MAX);
+        ratingBar.setValue((int) Math.max(BAR_MIN, Math.min(BAR_MAX, rounded)));
+        ratingBar.setStringPainted(true);
+        ratingBar.setForeground(Color.CYAN);
+        ratingBar.setBackground(Color.DARK_GRAY);
+        ratingBar.setBounds(20, 80, 300, 22);
+        ratingBar.setFont(new Font("SansSerif", Font.BOLD, 14));
+        ratingBar.setString("Rating: " + rounded);
+        panel.add(ratingBar);
+
+        panel.setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY, 2));
+        return panel;
+    }
+
+    /**
+     * Placeringstext med emoji för de tre första.
+     *
+     * @param rank placering (1 = bäst)
+     * @return text för placeringen
+     */
+    private static String placeText(int rank) {
+        switch (rank) {
+            case 1: return "🥇 1st Place";
+            case 2: return "🥈 2nd Place";
+            case 3: return "🥉 3rd Place";
+            default: return "🏁 " + rank + " Place";
+        }
+    }
+}
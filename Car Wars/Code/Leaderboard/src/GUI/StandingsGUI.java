@@ -0,0 +1,93 @@
+package GUI;
+
+import Model.CareerStats;
+import Model.MatchHistoryStore;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * GUI-klass för att visa säsongsställningen från matchhistoriken.
+ * Visar spelare och bilar med vinster, matcher och krockar.
+ *
+ * @author Rachid kontakgi,Adnan,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class StandingsGUI extends JFrame {
+
+    /** Kolumnrubriker för ställningstabellerna */
+    private static final String[] COLUMNS = {"#", "Namn", "Matcher", "Vinster", "Krockar", "Snitt hälsa kvar"};
+
+    /**
+     * Konstruktor för StandingsGUI.
+     *
+     * @param historyStore matchhistoriken
+     */
+    public StandingsGUI(MatchHistoryStore historyStore) {
+        setTitle("Säsongsställning - Car Championship");
+        setSize(700, 500);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        mainPanel.setBackground(Color.BLACK);
+
+        // Titel
+        JLabel titleLabel = new JLabel("📊 SÄSONGSSTÄLLNING 📊", SwingConstants.CENTER);
+        titleLabel.setFont(new Font("SansSerif", Font.BOLD, 26));
+        titleLabel.setForeground(Color.WHITE);
+        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        // En flik för spelare och en för bilar
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Spelare", new JScrollPane(createTable(historyStore.getPlayerStandings())));
+        tabs.addTab("Bilar", new JScrollPane(createTable(historyStore.getCarStandings())));
+        mainPanel.add(tabs, BorderLayout.CENTER);
+
+        JLabel countLabel = new JLabel("Sparade matcher: " + historyStore.getStoredMatchCount(), SwingConstants.CENTER);
+        countLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        countLabel.setForeground(Color.CYAN);
+        mainPanel.add(countLabel, BorderLayout.SOUTH);
+
+        setContentPane(mainPanel);
+    }
+
+    /**
+     * Skapar en tabell för en ställningslista.
+     *
+     * @param standings sorterad statistik
+     * @return JTable med en rad per spelare eller bil
+     */
+    private JTable createTable(List<CareerStats> standings) {
+        DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+
+        int place = 1;
+        for (CareerStats stats : standings) {
+            model.addRow(new Object[]{
+                    place++,
+                    stats.name,
+                    stats.getMatches(),
+                    stats.getWins(),
+                    stats.getCrashes(),
+                    String.format("%.1f", stats.getAverageHealthLeft())
+            });
+        }
+
+        JTable table = new JTable(model);
+        table.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        table.setRowHeight(24);
+        table.setBackground(Color.DARK_GRAY);
+        table.setForeground(Color.WHITE);
+        table.getTableHeader().setFont(new Font("SansSerif", Font.BOLD, 14));
+        return table;
+    }
+}
@@ -0,0 +1,202 @@
+package GUI;
+
+import Control.MyServer;
+import Control.ServerConfig;
+import Control.TelemetryIngest;
+import Model.TelemetryRing;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Live-graf över en bils accelerometervärden.
+ * De senaste sekunderna kopieras ur bilens {@link TelemetryRing} och
+ * nedsamplas till en kolumn per pixel, där varje kolumn visar minsta och
+ * största värdet per axel. Så syns korta krocktoppar även när tusentals
+ * värden delar på några hundra pixlar. Arrayerna återanvänds mellan ritningarna.
+ *
+ * @author Rachid kontakgi,Adnan,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class TelemetryPlotPanel extends JPanel {
+
+    /** Tidsfönster som visas (ms) */
+    private static final int WINDOW_MILLIS = 10000;
+
+    /** Max antal uppdateringar per sekund, oavsett GUI-inställningen */
+    private static final int MAX_PLOT_FPS = 20;
+
+    /** Råvärden per g för ADXL345 i ±2 g-läge (0,0039 g per steg) */
+    private static final double COUNTS_PER_G = 256.0;
+
+    /** Högsta acceleration som visas (g) */
+    private static final double RANGE_G = 4.0;
+
+    /** Färg per axel */
+    private static final Color[] AXIS_COLORS = {new Color(230, 80, 80), new Color(80, 200, 80), new Color(90, 140, 255)};
+
+    /** Servern med telemetrin */
+    private final MyServer server;
+
+    /** Ritar om grafen regelbundet */
+    private final Timer repaintTimer;
+
+    /** Bilens plats som visas, -1 för ingen */
+    private int slot = -1;
+
+    /** Kopia av de senaste värdena */
+    private int[] time = new int[0];
+    private short[][] axes = new short[3][0];
+
+    /** Minsta och största värde per pixelkolumn och axel */
+    private int[][] columnMin = new int[3][0];
+    private int[][] columnMax = new int[3][0];
+
+    /**
+     * Konstruktor för TelemetryPlotPanel.
+     *
+     * @param server servern med telemetrin
+     */
+    public TelemetryPlotPanel(MyServer server) {
+        this.server = server;
+        setBackground(Color.BLACK);
+        setPreferredSize(new Dimension(700, 300));
+        int fps = Math.min(MAX_PLOT_FPS, server.getConfig().get(ServerConfig.GUI_MAX_FPS));
+        repaintTimer = new Timer(1000 / fps, e -> repaint());
+    }
+
+    /**
+     * Väljer vilken bil som visas.
+     *
+     * @param slot bilens plats i CarTable, -1 för ingen
+     */
+    public void setSlot(int slot) {
+        this.slot = slot;
+        repaint();
+    }
+
+    /**
+     * Startar uppdateringen av grafen.
+     */
+    public void start() {
+        repaintTimer.start();
+    }
+
+    /**
+     * Stoppar uppdateringen, t.ex. när fönstret stängs.
+     */
+    public void stop() {
+        repaintTimer.stop();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+        int width = getWidth();
+        int height = getHeight();
+        int middle = height / 2;
+        double pixelsPerCount = (height / 2.0 - 10) / (RANGE_G * COUNTS_PER_G);
+
+        // Stödlinjer för 0, ±1 g och ±2 g
+        g2.setColor(Color.DARK_GRAY);
+        for (int gLevel = -2; gLevel <= 2; gLevel++) {
+            int y = middle - (int) Math.round(gLevel * COUNTS_PER_G * pixelsPerCount);
+            g2.drawLine(0, y, width, y);
+            g2.drawString(gLevel + " g", 4, y - 2);
+        }
+
+        TelemetryIngest telemetry = server.getTelemetry();
+        TelemetryRing ring = telemetry != null ? telemetry.getRing(slot) : null;
+        if (ring == null) {
+            g2.setColor(Color.WHITE);
+            g2.drawString(telemetry == null ? "Telemetri är avstängd" : "Ingen telemetri för vald bil", 40, 20);
+            return;
+        }
+
+        int count = copyWindow(ring);
+        if (count == 0) {
+            g2.setColor(Color.WHITE);
+            g2.drawString("Väntar på telemetri...", 40, 20);
+            return;
+        }
+
+        // En kolumn per pixel med minsta och största värde per axel
+        ensureColumns(width);
+        for (int axis = 0; axis < 3; axis++) {
+            Arrays.fill(columnMin[axis], 0, width, Integer.MAX_VALUE);
+            Arrays.fill(columnMax[axis], 0, width, Integer.MIN_VALUE);
+        }
+        int end = time[count - 1];
+        int start = end - WINDOW_MILLIS;
+        for (int i = 0; i < count; i++) {
+            // Tiderna är inte alltid växande: de byter från ankomsttid till bilens klocka när
+            // uppskattningen finns, och bilens klocka börjar om när den startas om
+            if (time[i] < start || time[i] > end) {
+                continue;
+            }
+            int column = (int) ((long) (time[i] - start) * (width - 1) / WINDOW_MILLIS);
+            for (int axis = 0; axis < 3; axis++) {
+                int value = axes[axis][i];
+                if (value < columnMin[axis][column]) {
+                    columnMin[axis][column] = value;
+                }
+                if (value > columnMax[axis][column]) {
+                    columnMax[axis][column] = value;
+                }
+            }
+        }
+
+        for (int axis = 0; axis < 3; axis++) {
+            g2.setColor(AXIS_COLORS[axis]);
+            int previousY = Integer.MIN_VALUE;
+            for (int column = 0; column < width; column++) {
+                if (columnMin[axis][column] > columnMax[axis][column]) {
+                    continue; // Inga värden i kolumnen
+                }
+                int top = middle - (int) Math.round(columnMax[axis][column] * pixelsPerCount);
+                int bottom = middle - (int) Math.round(columnMin[axis][column] * pixelsPerCount);
+                g2.drawLine(column, top, column, bottom);
+                if (previousY != Integer.MIN_VALUE) {
+                    g2.drawLine(column - 1, previousY, column, (top + bottom) / 2);
+                }
+                previousY = (top + bottom) / 2;
+            }
+        }
+
+        String[] names = {"x", "y", "z"};
+        for (int axis = 0; axis < 3; axis++) {
+            g2.setColor(AXIS_COLORS[axis]);
+            g2.drawString(names[axis], width - 60 + axis * 15, 16);
+        }
+    }
+
+    /**
+     * Kopierar värdena inom tidsfönstret från ringbufferten.
+     *
+     * @param ring bilens ringbuffert
+     * @return antal kopierade värden
+     */
+    private int copyWindow(TelemetryRing ring) {
+        int capacity = ring.capacity();
+        if (time.length != capacity) {
+            time = new int[capacity];
+            axes = new short[3][capacity];
+        }
+        return ring.copyRecent(capacity, time, axes[0], axes[1], axes[2]);
+    }
+
+    /**
+     * Ser till att det finns en kolumn per pixel.
+     *
+     * @param width panelens bredd
+     */
+    private void ensureColumns(int width) {
+        if (columnMin[0].length < width) {
+            columnMin = new int[3][width];
+            columnMax = new int[3][width];
+        }
+    }
+}
@@ -20,11 +20,17 @@ public class CarStats {
     /** Bildens grafiska representation */
     public BufferedImage carImage;
 
-    /** Aktuell poäng för bilen */
-    public double score;
+    /** Aktuell poäng (hälsa) för bilen */
+    public int score;
 
     /** Bilens förmågevärde */
-    public double ability;
+    public int ability;
+
+    /** Lag som bilen tillhör (0 = lag 1), eller {@link #NO_TEAM} om bilen kör för sig själv */
+    public int team = NO_TEAM;
+
+    /** Markerar att bilen inte tillhör något gemensamt lag */
+    public static final int NO_TEAM = -1;
 
     /**
      * Konstruktor för CarStats.
@@ -35,11 +41,26 @@ public class CarStats {
      * @param score startpoäng
      * @param ability startförmåga
      */
-    public CarStats(String playerName, String carName, BufferedImage carImage, double score, double ability) {
+    public CarStats(String playerName, String carName, BufferedImage carImage, int score, int ability) {
         this.playerName = playerName;
         this.carName = carName;
         this.carImage = carImage;
         this.score = score;
         this.ability = ability;
     }
+
+    /**
+     * Konstruktor för CarStats med lag.
+     *
+     * @param playerName namnet på spelaren
+     * @param carName namnet på bilen
+     * @param carImage bildens grafiska representation
+     * @param score startpoäng
+     * @param ability startförmåga
+     * @param team lag (0 = lag 1), eller {@link #NO_TEAM}
+     */
+    public CarStats(String playerName, String carName, BufferedImage carImage, int score, int ability, int team) {
+        this(playerName, carName, carImage, score, ability);
+        this.team = team;
+    }
 }
\ No newline at end of file
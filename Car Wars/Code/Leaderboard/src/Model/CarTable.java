@@ -0,0 +1,369 @@
+package Model;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Kompakt tabell över bilarnas tillstånd under en match.
+ * Varje egenskap lagras i en egen primitiv array (struct-of-arrays) och
+ * indexeras med bilens plats, som slås upp en gång när bilen identifieras.
+ * Uppdateringar per plats är atomära och krockvägen boxar inga värden.
+ * Hela tabellen kan kopieras med {@link #copyState} utan att skrivarna stoppas; varje plats
+ * har egna ändringsräknare, så krockar på olika bilar aldrig skriver till samma cacheline.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class CarTable {
+
+    /** Standardvärde för hälsa vid matchstart */
+    public static final int DEFAULT_HEALTH = 10;
+
+    /** Standardvärde för förmåga vid matchstart */
+    public static final int DEFAULT_ABILITY = 10;
+
+    /** Prefix för bil-ID (BIL1, BIL2, ...) */
+    public static final String CAR_ID_PREFIX = "BIL";
+
+    /** Bil-ID per plats */
+    private final String[] carIds;
+
+    /** Bilnamn per plats */
+    private final String[] carNames;
+
+    /** Spelarnamn per plats */
+    private final String[] playerNames;
+
+    /** Hälsa (poäng) per plats */
+    private final AtomicIntegerArray health;
+
+    /** Förmåga per plats */
+    private final AtomicIntegerArray ability;
+
+    /** Antal registrerade krockar per plats */
+    private final AtomicIntegerArray crashCount;
+
+    /** Tidpunkt för senaste krock per plats (System.currentTimeMillis) */
+    private final AtomicLongArray lastCrashMillis;
+
+    /** Hälsa som varje bil startar med */
+    private final int initialHealth;
+
+    /** Prefix för bil-ID i denna tabell */
+    private final String idPrefix;
+
+    /** Avstånd mellan platsernas räknare i {@link #writes}, 128 byte så att platserna inte delar cacheline */
+    private static final int WRITES_STRIDE = 16;
+
+    /** Antal försök per plats i {@link #copyState} innan kopian ges upp */
+    private static final int COPY_ATTEMPTS = 8;
+
+    /**
+     * Ändringsräknare per plats: på index plats * {@link #WRITES_STRIDE} antal påbörjade ändringar,
+     * räknas upp innan en ändring görs, och direkt efter antal avslutade ändringar.
+     */
+    private final AtomicLongArray writes;
+
+    /**
+     * Konstruktor för CarTable.
+     *
+     * @param carIds bil-ID per plats
+     * @param carNames bilnamn per plats
+     * @param playerNames spelarnamn per plats
+     * @param initialHealth hälsa vid matchstart
+     * @param initialAbility förmåga vid matchstart
+     */
+    public CarTable(String[] carIds, String[] carNames, String[] playerNames, int initialHealth, int initialAbility) {
+        this(carIds, carNames, playerNames, initialHealth, initialAbility, CAR_ID_PREFIX);
+    }
+
+    /**
+     * Konstruktor för CarTable med eget prefix för bil-ID.
+     *
+     * @param carIds bil-ID per plats, på formen prefix + nummer
+     * @param carNames bilnamn per plats
+     * @param playerNames spelarnamn per plats
+     * @param initialHealth hälsa vid matchstart
+     * @param initialAbility förmåga vid matchstart
+     * @param idPrefix prefix för bil-ID
+     */
+    public CarTable(String[] carIds, String[] carNames, String[] playerNames, int initialHealth, int initialAbility,
+                    String idPrefix) {
+        this.idPrefix = idPrefix;
+        this.carIds = carIds.clone();
+        this.carNames = carNames.clone();
+        this.playerNames = playerNames.clone();
+        this.initialHealth = initialHealth;
+
+        int size = carIds.length;
+        this.health = new AtomicIntegerArray(size);
+        this.ability = new AtomicIntegerArray(size);
+        this.crashCount = new AtomicIntegerArray(size);
+        this.lastCrashMillis = new AtomicLongArray(size);
+        this.writes = new AtomicLongArray(size * WRITES_STRIDE);
+        for (int slot = 0; slot < size; slot++) {
+            health.set(slot, initialHealth);
+            ability.set(slot, initialAbility);
+        }
+    }
+
+    /**
+     * Skapar en tom tabell utan bilar.
+     *
+     * @return tom CarTable
+     */
+    public static CarTable empty() {
+        return new CarTable(new String[0], new String[0], new String[0], DEFAULT_HEALTH, DEFAULT_ABILITY);
+    }
+
+    /**
+     * Antal platser i tabellen.
+     *
+     * @return antal bilar
+     */
+    public int size() {
+        return carIds.length;
+    }
+
+    /**
+     * Slår upp platsen för ett bil-ID utan att skapa nya objekt.
+     * Bil-ID har formatet prefix + n (t.ex. "BIL1") där n börjar på 1.
+     *
+     * @param text text som innehåller bil-ID
+     * @param start startindex för bil-ID i texten
+     * @param end slutindex (exklusivt) för bil-ID i texten
+     * @return platsen eller -1 om ID:t är okänt
+     */
+    public int slotOf(CharSequence text, int start, int end) {
+        int prefixLength = idPrefix.length();
+        if (end - start <= prefixLength || end - start > prefixLength + 6) {
+            return -1;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if (text.charAt(start + i) != idPrefix.charAt(i)) {
+                return -1;
+            }
+        }
+
+        int number = 0;
+        for (int i = start + prefixLength; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+
+        int slot = number - 1;
+        return slot >= 0 && slot < carIds.length ? slot : -1;
+    }
+
+    /**
+     * Slår upp platsen för ett helt bil-ID.
+     *
+     * @param carId bil-ID (t.ex. "BIL1")
+     * @return platsen eller -1 om ID:t är okänt
+     */
+    public int slotOf(String carId) {
+        return carId == null ? -1 : slotOf(carId, 0, carId.length());
+    }
+
+    /**
+     * Registrerar en krock för en bil och minskar hälsan med 1 (aldrig under 0).
+     *
+     * @param slot bilens plats
+     * @param nowMillis tidpunkt för krocken
+     * @return hälsan före krocken
+     */
+    public int applyCrash(int slot, long nowMillis) {
+        int index = slot * WRITES_STRIDE;
+        writes.incrementAndGet(index);
+        int previous;
+        do {
+            previous = health.get(slot);
+            if (previous == 0) {
+                break;
+            }
+        } while (!health.compareAndSet(slot, previous, previous - 1));
+
+        crashCount.incrementAndGet(slot);
+        lastCrashMillis.set(slot, nowMillis);
+        writes.incrementAndGet(index + 1);
+        return previous;
+    }
+
+    /**
+     * Drar av ett straff från en bils hälsa (aldrig under 0) utan att räkna det som en krock.
+     *
+     * @param slot bilens plats
+     * @return hälsan före straffet
+     */
+    public int applyPenalty(int slot) {
+        int index = slot * WRITES_STRIDE;
+        writes.incrementAndGet(index);
+        int previous;
+        do {
+            previous = health.get(slot);
+            if (previous == 0) {
+                break;
+            }
+        } while (!health.compareAndSet(slot, previous, previous - 1));
+        writes.incrementAndGet(index + 1);
+        return previous;
+    }
+
+    /**
+     * Får bil-ID för en plats.
+     *
+     * @param slot bilens plats
+     * @return bil-ID
+     */
+    public String getCarId(int slot) {
+        return carIds[slot];
+    }
+
+    /**
+     * Får bilnamn för en plats.
+     *
+     * @param slot bilens plats
+     * @return bilnamn
+     */
+    public String getCarName(int slot) {
+        return carNames[slot];
+    }
+
+    /**
+     * Får spelarnamn för en plats.
+     *
+     * @param slot bilens plats
+     * @return spelarnamn
+     */
+    public String getPlayerName(int slot) {
+        return playerNames[slot];
+    }
+
+    /**
+     * Får aktuell hälsa för en plats.
+     *
+     * @param slot bilens plats
+     * @return hälsa
+     */
+    public int getHealth(int slot) {
+        return health.get(slot);
+    }
+
+    /**
+     * Sätter hälsan för en plats direkt.
+     *
+     * @param slot bilens plats
+     * @param value ny hälsa
+     */
+    public void setHealth(int slot, int value) {
+        int index = slot * WRITES_STRIDE;
+        writes.incrementAndGet(index);
+        health.set(slot, value);
+        writes.incrementAndGet(index + 1);
+    }
+
+    /**
+     * Återställer en plats från en sparad kopia (se {@link #copyState}).
+     *
+     * @param slot bilens plats
+     * @param healthValue hälsa
+     * @param crashes antal krockar
+     * @param lastCrash tidpunkt för senaste krock (ms), 0 om bilen inte har krockat
+     */
+    public void restoreState(int slot, int healthValue, int crashes, long lastCrash) {
+        int index = slot * WRITES_STRIDE;
+        writes.incrementAndGet(index);
+        health.set(slot, healthValue);
+        crashCount.set(slot, crashes);
+        lastCrashMillis.set(slot, lastCrash);
+        writes.incrementAndGet(index + 1);
+    }
+
+    /**
+     * Kopierar hälsa, krockar och krocktider för alla platser utan att stoppa skrivarna.
+     * Varje plats kopieras optimistiskt: kopian godkänns bara om ingen ändring av platsen pågick
+     * när den började och ingen ny påbörjades under tiden, annars görs platsen om. Platserna är
+     * var för sig konsistenta; en ändring rör alltid bara en plats.
+     *
+     * @param healthOut array för hälsan, minst {@link #size()} lång
+     * @param crashCountOut array för antal krockar
+     * @param lastCrashOut array för krocktiderna
+     * @return true om kopian är konsistent, false om en plats ändrades vid varje försök
+     */
+    public boolean copyState(int[] healthOut, int[] crashCountOut, long[] lastCrashOut) {
+        for (int slot = 0; slot < carIds.length; slot++) {
+            if (!copySlot(slot, healthOut, crashCountOut, lastCrashOut)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Kopierar en plats, med några nya försök om en ändring kommer emellan.
+     *
+     * @return true om kopian av platsen är konsistent
+     */
+    private boolean copySlot(int slot, int[] healthOut, int[] crashCountOut, long[] lastCrashOut) {
+        int index = slot * WRITES_STRIDE;
+        for (int attempt = 0; attempt < COPY_ATTEMPTS; attempt++) {
+            // Avslutade läses före påbörjade: är de lika pågår ingen ändring
+            long finished = writes.get(index + 1);
+            long started = writes.get(index);
+            if (started != finished) {
+                Thread.onSpinWait();
+                continue;
+            }
+            healthOut[slot] = health.get(slot);
+            crashCountOut[slot] = crashCount.get(slot);
+            lastCrashOut[slot] = lastCrashMillis.get(slot);
+            if (writes.get(index) == started) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Får aktuell förmåga för en plats.
+     *
+     * @param slot bilens plats
+     * @return förmåga
+     */
+    public int getAbility(int slot) {
+        return ability.get(slot);
+    }
+
+    /**
+     * Får antal krockar för en plats.
+     *
+     * @param slot bilens plats
+     * @return antal krockar
+     */
+    public int getCrashCount(int slot) {
+        return crashCount.get(slot);
+    }
+
+    /**
+     * Får tidpunkten för senaste krock.
+     *
+     * @param slot bilens plats
+     * @return tidpunkt i millisekunder, 0 om bilen inte har krockat
+     */
+    public long getLastCrashMillis(int slot) {
+        return lastCrashMillis.get(slot);
+    }
+
+    /**
+     * Får hälsan som bilarna startade med.
+     *
+     * @return starthälsa
+     */
+    public int getInitialHealth() {
+        return initialHealth;
+    }
+}
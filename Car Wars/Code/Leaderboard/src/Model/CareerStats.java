@@ -0,0 +1,113 @@
+package Model;
+
+/**
+ * Sammanlagd statistik för en spelare eller bil över alla sparade matcher.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class CareerStats {
+    /** Spelar- eller bilnamn som statistiken gäller */
+    public final String name;
+
+    /** Antal spelade matcher */
+    private int matches;
+
+    /** Antal vunna matcher */
+    private int wins;
+
+    /** Totalt antal krockar */
+    private long crashes;
+
+    /** Summa av hälsa kvar vid matchslut */
+    private long healthLeft;
+
+    /** Tidpunkt för senaste matchen */
+    private long lastPlayedMillis;
+
+    /**
+     * Konstruktor för CareerStats.
+     *
+     * @param name spelar- eller bilnamn
+     */
+    public CareerStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Lägger till resultatet från en match.
+     *
+     * @param participant bilens slutresultat
+     * @param endTimeMillis när matchen avgjordes
+     */
+    synchronized void add(MatchResult.Participant participant, long endTimeMillis) {
+        matches++;
+        if (participant.winner) {
+            wins++;
+        }
+        crashes += participant.crashCount;
+        healthLeft += participant.finalHealth;
+        lastPlayedMillis = Math.max(lastPlayedMillis, endTimeMillis);
+    }
+
+    /**
+     * Skapar en oföränderlig kopia av statistiken.
+     *
+     * @return kopia som kan läsas från valfri tråd
+     */
+    public synchronized CareerStats copy() {
+        CareerStats copy = new CareerStats(name);
+        copy.matches = matches;
+        copy.wins = wins;
+        copy.crashes = crashes;
+        copy.healthLeft = healthLeft;
+        copy.lastPlayedMillis = lastPlayedMillis;
+        return copy;
+    }
+
+    /**
+     * Får antal spelade matcher.
+     *
+     * @return antal matcher
+     */
+    public synchronized int getMatches() {
+        return matches;
+    }
+
+    /**
+     * Får antal vunna matcher.
+     *
+     * @return antal vinster
+     */
+    public synchronized int getWins() {
+        return wins;
+    }
+
+    /**
+     * Får totalt antal krockar.
+     *
+     * @return antal krockar
+     */
+    public synchronized long getCrashes() {
+        return crashes;
+    }
+
+    /**
+     * Får genomsnittlig hälsa kvar vid matchslut.
+     *
+     * @return genomsnittlig hälsa
+     */
+    public synchronized double getAverageHealthLeft() {
+        return matches == 0 ? 0 : (double) healthLeft / matches;
+    }
+
+    /**
+     * Får tidpunkten för senaste matchen.
+     *
+     * @return tidpunkt i millisekunder
+     */
+    public synchronized long getLastPlayedMillis() {
+        return lastPlayedMillis;
+    }
+}
@@ -0,0 +1,427 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kolumnfil med en matchs händelser och bilarnas tillstånd, för analytiker.
+ * Klassen beskriver formatet och läser filer direkt ur en minnesmappad buffert:
+ * kolumnerna i varje radgrupp är vyer över filen och kopieras inte.
+ *
+ * Filformat (big-endian):
+ * <pre>
+ * huvud:    int "CWC1", short version (2), long starttid (ms)
+ * schema:   byte antal kolumner, per kolumn: text namn, byte kodning
+ * lexikon:  varint antal texter, texterna; byte antal bilar,
+ *           per bil: varint bil-ID, varint bilnamn, varint spelarnamn (index i texterna), byte lag
+ * radgrupp: byte 'G', int antal rader, per kolumn: int längd i byte, kolumndata
+ * slut:     byte 'F', int antal radgrupper, per grupp: long position, int rader,
+ *           byte vinnande lag, long sluttid (ms), int slutets position, int "CWCE"
+ * </pre>
+ * Texter är varint längd följt av UTF-8. Tiden är millisekunder sedan matchstart,
+ * lagrad som första värdet följt av skillnader (zigzag-varint). Bilen lagras som
+ * index i lexikonet, så namnen bara finns en gång per fil. Hälsan är en short per rad;
+ * i version 1 var den en byte och värden över 127 blev fel. Filen skrivs medan matchen
+ * pågår; saknas slutet läses radgrupperna i ordning tills filen tar slut.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class ColumnarMatchFile {
+
+    /** Magiskt tal i början av filen, "CWC1" */
+    public static final int MAGIC = 0x43574331;
+
+    /** Magiskt tal sist i en avslutad fil, "CWCE" */
+    public static final int END_MAGIC = 0x43574345;
+
+    /** Formatets version */
+    public static final short VERSION = 2;
+
+    /** Äldsta version som går att läsa */
+    public static final short MIN_VERSION = 1;
+
+    /** Filändelse för kolumnfiler */
+    public static final String FILE_SUFFIX = ".cwc";
+
+    /** Markör före varje radgrupp */
+    public static final byte ROW_GROUP = 'G';
+
+    /** Markör före slutet */
+    public static final byte FOOTER = 'F';
+
+    /** Kodning: zigzag-varint av skillnaden mot föregående värde */
+    public static final byte ENCODING_DELTA = 1;
+
+    /** Kodning: en byte per rad med index i lexikonet */
+    public static final byte ENCODING_DICTIONARY = 2;
+
+    /** Kodning: en byte per rad */
+    public static final byte ENCODING_BYTE = 3;
+
+    /** Kodning: en short per rad (big-endian) */
+    public static final byte ENCODING_SHORT = 4;
+
+    /** Kolumn: tid sedan matchstart (ms) */
+    public static final int COLUMN_TIME = 0;
+
+    /** Kolumn: bilens plats i lexikonet */
+    public static final int COLUMN_CAR = 1;
+
+    /** Kolumn: händelsetyp */
+    public static final int COLUMN_EVENT = 2;
+
+    /** Kolumn: bilens hälsa efter händelsen */
+    public static final int COLUMN_HEALTH = 3;
+
+    /** Kolumnernas namn i schemat */
+    public static final String[] COLUMN_NAMES = {"time_ms", "car", "event", "health"};
+
+    /** Kolumnernas kodning i schemat */
+    public static final byte[] COLUMN_ENCODINGS = {ENCODING_DELTA, ENCODING_DICTIONARY, ENCODING_BYTE, ENCODING_SHORT};
+
+    /** Händelse: krock */
+    public static final byte EVENT_CRASH = 0;
+
+    /** Händelse: straff från operatören */
+    public static final byte EVENT_PENALTY = 1;
+
+    /** Händelse: bilen anslöt */
+    public static final byte EVENT_CONNECTED = 2;
+
+    /** Händelse: bilen kopplades från */
+    public static final byte EVENT_DISCONNECTED = 3;
+
+    /** Händelsernas namn, index är händelsetypen */
+    public static final String[] EVENT_NAMES = {"crash", "penalty", "connected", "disconnected"};
+
+    /** Hela filen, minnesmappad */
+    private final ByteBuffer file;
+
+    /** Matchens starttid (ms) */
+    public final long startMillis;
+
+    /** Kolumnernas namn enligt filens schema */
+    public final String[] columnNames;
+
+    /** Kolumnernas kodning enligt filens schema */
+    public final byte[] columnEncodings;
+
+    /** Bil-ID, bilnamn och spelarnamn per plats */
+    public final String[] carIds;
+    public final String[] carNames;
+    public final String[] playerNames;
+
+    /** Lag per plats */
+    public final int[] teams;
+
+    /** Position och antal rader per radgrupp */
+    private final long[] groupOffsets;
+    private final int[] groupRows;
+
+    /** Vinnande lag, -1 vid oavgjort och Integer.MIN_VALUE om matchen inte avslutades */
+    public final int winnerTeam;
+
+    /** Sluttid (ms), 0 om matchen inte avslutades */
+    public final long endMillis;
+
+    /**
+     * Läser huvud, schema, lexikon och radgruppernas positioner.
+     *
+     * @param file hela filen
+     * @throws IOException om filen inte är en kolumnfil
+     */
+    private ColumnarMatchFile(ByteBuffer file) throws IOException {
+        this.file = file;
+        if (file.getInt() != MAGIC) {
+            throw new IOException("Inte en kolumnfil för Car Wars");
+        }
+        short version = file.getShort();
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new IOException("Kolumnfilens version " + version + " stöds inte");
+        }
+        startMillis = file.getLong();
+
+        int columns = file.get() & 0xFF;
+        columnNames = new String[columns];
+        columnEncodings = new byte[columns];
+        for (int i = 0; i < columns; i++) {
+            columnNames[i] = readText(file);
+            columnEncodings[i] = file.get();
+        }
+
+        String[] texts = new String[readVarint(file)];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = readText(file);
+        }
+        int cars = file.get() & 0xFF;
+        carIds = new String[cars];
+        carNames = new String[cars];
+        playerNames = new String[cars];
+        teams = new int[cars];
+        for (int slot = 0; slot < cars; slot++) {
+            carIds[slot] = texts[readVarint(file)];
+            carNames[slot] = texts[readVarint(file)];
+            playerNames[slot] = texts[readVarint(file)];
+            teams[slot] = file.get();
+        }
+
+        // Med slut finns radgruppernas positioner där, annars läses grupperna i ordning
+        int limit = file.limit();
+        if (limit >= 8 && file.getInt(limit - 4) == END_MAGIC) {
+            ByteBuffer footer = file.duplicate();
+            footer.position(file.getInt(limit - 8));
+            if (footer.get() != FOOTER) {
+                throw new IOException("Trasigt slut i kolumnfilen");
+            }
+            int groups = footer.getInt();
+            groupOffsets = new long[groups];
+            groupRows = new int[groups];
+            for (int i = 0; i < groups; i++) {
+                groupOffsets[i] = footer.getLong();
+                groupRows[i] = footer.getInt();
+            }
+            winnerTeam = footer.get();
+            endMillis = footer.getLong();
+        } else {
+            List<long[]> found = new ArrayList<>();
+            ByteBuffer scan = file.duplicate();
+            scan.position(file.position());
+            try {
+                while (scan.hasRemaining() && scan.get(scan.position()) == ROW_GROUP) {
+                    int offset = scan.position();
+                    scan.get();
+                    int rows = scan.getInt();
+                    for (int column = 0; column < columns; column++) {
+                        int length = scan.getInt();
+                        if (length > scan.remaining()) {
+                            throw new BufferUnderflowException();
+                        }
+                        scan.position(scan.position() + length);
+                    }
+                    found.add(new long[]{offset, rows});
+                }
+            } catch (BufferUnderflowException e) {
+                // Sista radgruppen hann inte skrivas klart
+            }
+            groupOffsets = new long[found.size()];
+            groupRows = new int[found.size()];
+            for (int i = 0; i < found.size(); i++) {
+                groupOffsets[i] = found.get(i)[0];
+                groupRows[i] = (int) found.get(i)[1];
+            }
+            winnerTeam = Integer.MIN_VALUE;
+            endMillis = 0;
+        }
+    }
+
+    /**
+     * Öppnar en kolumnfil genom att minnesmappa den.
+     *
+     * @param path filen
+     * @return den öppnade filen
+     * @throws IOException om filen inte kan läsas eller inte är en kolumnfil
+     */
+    public static ColumnarMatchFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ColumnarMatchFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Trasig kolumnfil: " + path);
+        }
+    }
+
+    /**
+     * Får antal radgrupper.
+     *
+     * @return antal radgrupper
+     */
+    public int getGroupCount() {
+        return groupOffsets.length;
+    }
+
+    /**
+     * Får antal rader i en radgrupp.
+     *
+     * @param group radgruppens index
+     * @return antal rader
+     */
+    public int getRowCount(int group) {
+        return groupRows[group];
+    }
+
+    /**
+     * Får antal rader i hela filen.
+     *
+     * @return antal rader
+     */
+    public long getRowCount() {
+        long rows = 0;
+        for (int count : groupRows) {
+            rows += count;
+        }
+        return rows;
+    }
+
+    /**
+     * Får en kolumns data i en radgrupp som en vy över filen, utan kopiering.
+     *
+     * @param group radgruppens index
+     * @param column kolumnens index
+     * @return kolumnens byte, från position 0
+     */
+    public ByteBuffer column(int group, int column) {
+        ByteBuffer view = file.duplicate();
+        view.position((int) groupOffsets[group] + 5);
+        for (int i = 0; i < column; i++) {
+            view.position(view.position() + 4 + view.getInt(view.position()));
+        }
+        int length = view.getInt();
+        view.limit(view.position() + length);
+        return view.slice();
+    }
+
+    /**
+     * Avkodar tidskolumnen i en radgrupp.
+     *
+     * @param group radgruppens index
+     * @param out array för tiderna, minst lika lång som antal rader
+     */
+    public void readTimes(int group, long[] out) {
+        ByteBuffer column = column(group, COLUMN_TIME);
+        long value = 0;
+        for (int row = 0; row < groupRows[group]; row++) {
+            long zigzag = readVarLong(column);
+            value += (zigzag >>> 1) ^ -(zigzag & 1);
+            out[row] = value;
+        }
+    }
+
+    /**
+     * Läser hälsokolumnen i en radgrupp, med den kodning filens schema anger.
+     *
+     * @param group radgruppens index
+     * @param out array för hälsan, minst lika lång som antal rader
+     */
+    public void readHealth(int group, int[] out) {
+        ByteBuffer column = column(group, COLUMN_HEALTH);
+        boolean wide = columnEncodings[COLUMN_HEALTH] == ENCODING_SHORT;
+        for (int row = 0; row < groupRows[group]; row++) {
+            out[row] = wide ? column.getShort(row * 2) : column.get(row);
+        }
+    }
+
+    /**
+     * Räknar en händelsetyp per bil direkt i kolumnerna, utan att avkoda tiderna.
+     *
+     * @param event händelsetypen
+     * @return antal händelser per plats
+     */
+    public int[] countEvents(byte event) {
+        int[] counts = new int[carIds.length];
+        for (int group = 0; group < groupOffsets.length; group++) {
+            ByteBuffer cars = column(group, COLUMN_CAR);
+            ByteBuffer events = column(group, COLUMN_EVENT);
+            for (int row = 0; row < groupRows[group]; row++) {
+                if (events.get(row) == event) {
+                    counts[cars.get(row) & 0xFF]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Skriver schema och en sammanfattning av en kolumnfil.
+     *
+     * @param args kolumnfilen
+     * @throws IOException om filen inte kan läsas
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Användning: java Model.ColumnarMatchFile <fil" + FILE_SUFFIX + ">");
+            return;
+        }
+        ColumnarMatchFile match = open(Paths.get(args[0]));
+        System.out.println("Schema:");
+        for (int i = 0; i < match.columnNames.length; i++) {
+            System.out.println("  " + match.columnNames[i] + " (kodning " + match.columnEncodings[i] + ")");
+        }
+        System.out.println(match.getRowCount() + " rader i " + match.getGroupCount() + " radgrupper"
+                + (match.winnerTeam == Integer.MIN_VALUE ? ", matchen avslutades inte" : ""));
+        int[] crashes = match.countEvents(EVENT_CRASH);
+        int[] penalties = match.countEvents(EVENT_PENALTY);
+        for (int slot = 0; slot < match.carIds.length; slot++) {
+            System.out.println("  " + match.carIds[slot] + " (" + match.carNames[slot] + ", " + match.playerNames[slot]
+                    + "): " + crashes[slot] + " krockar, " + penalties[slot] + " straff");
+        }
+    }
+
+    /**
+     * Läser ett icke-negativt heltal som varint.
+     *
+     * @param buffer bufferten
+     * @return talet
+     */
+    public static int readVarint(ByteBuffer buffer) {
+        return (int) readVarLong(buffer);
+    }
+
+    /**
+     * Läser ett icke-negativt long som varint (7 bitar per byte, minst signifikanta först).
+     *
+     * @param buffer bufferten
+     * @return talet
+     */
+    public static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Skriver ett icke-negativt long som varint.
+     *
+     * @param buffer bufferten
+     * @param value talet
+     */
+    public static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Skriver en text som varint längd följt av UTF-8.
+     *
+     * @param buffer bufferten
+     * @param text texten
+     */
+    public static void writeText(ByteBuffer buffer, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readText(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarint(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
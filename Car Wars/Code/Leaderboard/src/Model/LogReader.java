@@ -0,0 +1,149 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.logging.Level;
+
+/**
+ * Läser och formaterar loggen som {@link MappedLog} har skrivit.
+ * Körs från kommandoraden:
+ * {@code java Model.LogReader [katalog] [--no-traffic] [--traffic-only] [--grep text]}
+ *
+ * @author Rachid kontakgi,Adnan,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class LogReader {
+
+    /** Visa trafikposter */
+    private boolean traffic = true;
+
+    /** Visa loggposter */
+    private boolean messages = true;
+
+    /** Text som raden måste innehålla, eller null */
+    private String grep;
+
+    /** Formatering av tidpunkter */
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * Skriver ut loggen.
+     *
+     * @param args katalog och filter
+     * @throws IOException om loggen inte kan läsas
+     */
+    public static void main(String[] args) throws IOException {
+        LogReader reader = new LogReader();
+        Path directory = Paths.get("logs");
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--no-traffic")) {
+                reader.traffic = false;
+            } else if (args[i].equals("--traffic-only")) {
+                reader.messages = false;
+            } else if (args[i].equals("--grep") && i + 1 < args.length) {
+                reader.grep = args[++i];
+            } else {
+                directory = Paths.get(args[i]);
+            }
+        }
+        for (Path segment : MappedLog.listSegments(directory)) {
+            reader.print(segment);
+        }
+    }
+
+    /**
+     * Skriver ut alla poster i ett segment.
+     *
+     * @param file segmentet
+     * @throws IOException om segmentet inte kan läsas
+     */
+    public void print(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < MappedLog.SEGMENT_HEADER || buffer.getInt() != MappedLog.MAGIC) {
+            System.err.println("Inte ett loggsegment: " + file);
+            return;
+        }
+        buffer.position(MappedLog.SEGMENT_HEADER);
+
+        try {
+            while (buffer.remaining() >= MappedLog.RECORD_HEADER) {
+                int start = buffer.position();
+                byte type = buffer.get();
+                int length = buffer.getInt();
+                if (length < MappedLog.RECORD_HEADER || length > buffer.limit() - start) {
+                    break; // Resten av segmentet är tomt
+                }
+                if (type == 0) {
+                    // Platsen reserverades men posten blev aldrig klar (t.ex. vid ett krasch)
+                    buffer.position(start + length);
+                    continue;
+                }
+                long millis = buffer.getLong();
+                int value = buffer.getInt();
+                long threadId = buffer.getLong();
+                String line = type == MappedLog.RECORD_TRAFFIC
+                        ? formatTraffic(buffer, millis, value)
+                        : formatLog(buffer, millis, value, threadId);
+                if (line != null && (grep == null || line.contains(grep))) {
+                    System.out.println(line);
+                }
+                buffer.position(start + length);
+            }
+        } catch (BufferUnderflowException e) {
+            System.err.println("Trasig post i slutet av " + file);
+        }
+    }
+
+    private String formatTraffic(ByteBuffer buffer, long millis, int direction) {
+        if (!traffic) {
+            return null;
+        }
+        String peer = readText(buffer);
+        String line = readText(buffer);
+        return timeFormat.format(new Date(millis)) + (direction == MappedLog.INBOUND ? " <- " : " -> ") + peer + ": " + line;
+    }
+
+    private String formatLog(ByteBuffer buffer, long millis, int level, long threadId) {
+        if (!messages) {
+            return null;
+        }
+        String logger = readText(buffer);
+        String pattern = readText(buffer);
+        Object[] parameters = new Object[buffer.get()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = readText(buffer);
+        }
+        String thrown = readText(buffer);
+
+        // Samma regel som java.util.logging.Formatter: bara mönster med {0..} formateras
+        String message = pattern;
+        if (parameters.length > 0 && pattern.contains("{")) {
+            try {
+                message = MessageFormat.format(pattern, parameters);
+            } catch (IllegalArgumentException e) {
+                // Ogiltigt mönster, visa det som det är
+            }
+        }
+        return timeFormat.format(new Date(millis)) + " " + Level.parse(Integer.toString(level)).getName()
+                + " [" + logger + ", tråd " + threadId + "] " + message + (thrown.isEmpty() ? "" : "\n" + thrown);
+    }
+
+    private static String readText(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,11 +1,13 @@
 package Model;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.logging.*;
 
 /**
  * Hjälpklass för att konfigurera logging för applikationen.
- * Skapar en fil-baserad logger för att spara händelser.
+ * Loggar till en binär, minnesmappad logg ({@link MappedLog}) som läses med {@link LogReader}.
  *
  * @author Rachid kontakgi
  * @version 1.0
@@ -13,19 +15,46 @@ import java.util.logging.*;
  */
 public class LoggerSetup {
 
+    /** Standardkatalog för loggen */
+    public static final String DEFAULT_DIRECTORY = "logs";
+
+    /** Standardstorlek per segment (MB) */
+    public static final int DEFAULT_SEGMENT_MB = 16;
+
+    /** Standard för antal sparade segment */
+    public static final int DEFAULT_SEGMENTS = 8;
+
+    /** Loggen som alla loggers delar, null tills den har skapats */
+    private static MappedLog log;
+
     /**
-     * Skapar och konfigurerar en logger med fil-output.
+     * Skapar och konfigurerar en logger med standardinställningar.
      *
      * @param name namnet på loggern
      * @return konfigurerad Logger-instans
      */
     public static Logger setupLogger(String name) {
+        return setupLogger(name, Paths.get(DEFAULT_DIRECTORY), DEFAULT_SEGMENT_MB, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Skapar och konfigurerar en logger som skriver till den minnesmappade loggen.
+     *
+     * @param name namnet på loggern
+     * @param directory katalog för loggsegmenten
+     * @param segmentMegabytes storlek per segment (MB)
+     * @param segments antal segment som sparas
+     * @return konfigurerad Logger-instans
+     */
+    public static synchronized Logger setupLogger(String name, Path directory, int segmentMegabytes, int segments) {
         Logger logger = Logger.getLogger(name);
         try {
-            // Skapa fil-handler för att logga till fil
-            FileHandler fileHandler = new FileHandler("leaderboard.log", true);
-            fileHandler.setFormatter(new SimpleFormatter());
-            logger.addHandler(fileHandler);
+            // Samma logg delas av alla loggers i applikationen
+            if (log == null) {
+                log = new MappedLog(directory, segmentMegabytes * 1024 * 1024, segments);
+                Runtime.getRuntime().addShutdownHook(new Thread(log::close));
+            }
+            logger.addHandler(new MappedLogHandler(log));
             logger.setUseParentHandlers(false); // Logga inte till konsol
             logger.setLevel(Level.ALL);
         } catch (IOException e) {
@@ -33,4 +62,13 @@ public class LoggerSetup {
         }
         return logger;
     }
-}
\ No newline at end of file
+
+    /**
+     * Får den gemensamma loggen, t.ex. för att logga trafik direkt.
+     *
+     * @return loggen, eller null om ingen logger har konfigurerats
+     */
+    public static synchronized MappedLog getLog() {
+        return log;
+    }
+}
@@ -0,0 +1,471 @@
+package Model;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Binär logg i förallokerade, minnesmappade segmentfiler.
+ * Varje post skrivs direkt in i mappningen utan formatering: loggmeddelandets mönster
+ * och parametrar sparas som de är och formateras först när loggen läses med
+ * {@link LogReader}. Trafikposter (rader till och från bilarna) kodas tecken för tecken,
+ * så de skapar inga objekt. Varje post reserverar sin plats med en atomisk ökning av
+ * segmentets position, så trådar som loggar samtidigt väntar inte på varandra. En
+ * bakgrundstråd har alltid nästa segment färdigt när det aktuella blir fullt, och tar
+ * bort de äldsta segmenten när antalet överstiger gränsen.
+ *
+ * Segmentformat (big-endian): int "CWL1", int segmentnummer, long skapad (ms), sedan poster:
+ * <pre>
+ * byte typ (0 = tomt eller ej klar, skrivs sist), int postens längd, long tid (ms), int nivå eller riktning, long tråd-ID,
+ * LOG:     text logger, text mönster, byte antal parametrar, texter parametrar, text undantag
+ * TRAFFIC: text bil eller adress, text rad
+ * </pre>
+ * Texter är short längd följt av UTF-8.
+ *
+ * @author Rachid kontakgi,Adnan,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MappedLog {
+
+    /** Magiskt tal i början av varje segment, "CWL1" */
+    public static final int MAGIC = 0x43574C31;
+
+    /** Filändelse för segment */
+    public static final String FILE_SUFFIX = ".cwl";
+
+    /** Storlek på segmentets huvud i byte */
+    public static final int SEGMENT_HEADER = 16;
+
+    /** Storlek på postens huvud i byte */
+    public static final int RECORD_HEADER = 25;
+
+    /** Posttyp för en loggpost från java.util.logging */
+    public static final byte RECORD_LOG = 1;
+
+    /** Posttyp för en rad till eller från en klient */
+    public static final byte RECORD_TRAFFIC = 2;
+
+    /** Riktning för en mottagen rad */
+    public static final int INBOUND = 0;
+
+    /** Riktning för en skickad rad */
+    public static final int OUTBOUND = 1;
+
+    /** Max antal tecken som sparas per text */
+    private static final int MAX_TEXT_CHARS = 4096;
+
+    /** Minsta segmentstorlek, så att även den största posten får plats */
+    private static final int MIN_SEGMENT_BYTES = 1 << 20;
+
+    /** Max antal parametrar som sparas per loggpost */
+    private static final int MAX_PARAMETERS = 16;
+
+    /** Katalog för segmenten */
+    private final Path directory;
+
+    /** Storlek per segment i byte */
+    private final int segmentBytes;
+
+    /** Max antal segment som sparas */
+    private final int maxSegments;
+
+    /** Skyddar segmentbytet, {@link #spare} och {@link #segmentNumber} */
+    private final Object rotateLock = new Object();
+
+    /** Aktuellt segment, null när loggen är stängd */
+    private volatile Segment segment;
+
+    /** Nästa segment, förberett av {@link #rotator}, null medan det skapas */
+    private Segment spare;
+
+    /** Senast skapade segmentets nummer */
+    private int segmentNumber;
+
+    /** Sätts av {@link #close()} */
+    private boolean closed;
+
+    /** Bakgrundstråd som skapar nästa segment och tar bort de äldsta */
+    private final Thread rotator;
+
+    /**
+     * Ett minnesmappat segment. Poster reserverar plats med en atomisk ökning av positionen
+     * och skrivs sedan med absoluta positioner, så flera trådar kan skriva samtidigt utan lås.
+     */
+    private static final class Segment {
+        /** Segmentets fil */
+        final Path file;
+
+        /** Mappningen av filen */
+        final MappedByteBuffer buffer;
+
+        /** Nästa lediga position */
+        final AtomicInteger position = new AtomicInteger(SEGMENT_HEADER);
+
+        Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Reserverar plats för en post och skriver dess längd, så att läsaren kan hoppa
+         * över posten om den aldrig blir klar. Minst en nollbyte lämnas sist i segmentet.
+         *
+         * @param size postens storlek i byte
+         * @return postens position, eller -1 om segmentet är fullt
+         */
+        int reserve(int size) {
+            int start = position.getAndAdd(size);
+            if (start > buffer.capacity() - size - 1 || start < SEGMENT_HEADER) {
+                // Positionen kan ha passerat gränsen (eller slagit runt); segmentet räknas som fullt
+                position.set(buffer.capacity());
+                return -1;
+            }
+            buffer.putInt(start + 1, size);
+            return start;
+        }
+
+        /**
+         * Kodar en text som UTF-8 direkt i segmentet, utan att skapa objekt.
+         *
+         * @param at position att skriva på
+         * @param text texten, null sparas som tom text
+         * @return positionen efter texten
+         */
+        int putText(int at, CharSequence text) {
+            int length = text == null ? 0 : Math.min(text.length(), MAX_TEXT_CHARS);
+            int out = at + 2;
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    buffer.put(out++, (byte) c);
+                } else if (c < 0x800) {
+                    buffer.put(out++, (byte) (0xC0 | c >> 6));
+                    buffer.put(out++, (byte) (0x80 | c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    buffer.put(out++, (byte) (0xF0 | codePoint >> 18));
+                    buffer.put(out++, (byte) (0x80 | codePoint >> 12 & 0x3F));
+                    buffer.put(out++, (byte) (0x80 | codePoint >> 6 & 0x3F));
+                    buffer.put(out++, (byte) (0x80 | codePoint & 0x3F));
+                } else {
+                    buffer.put(out++, (byte) (0xE0 | c >> 12));
+                    buffer.put(out++, (byte) (0x80 | c >> 6 & 0x3F));
+                    buffer.put(out++, (byte) (0x80 | c & 0x3F));
+                }
+            }
+            buffer.putShort(at, (short) (out - at - 2));
+            return out;
+        }
+
+        /**
+         * Fyller i resten av postens huvud. Typen skrivs sist, så en halvskriven post syns inte för läsaren.
+         */
+        void commit(int start, byte type, long millis, int value, long threadId) {
+            buffer.putLong(start + 5, millis);
+            buffer.putInt(start + 13, value);
+            buffer.putLong(start + 17, threadId);
+            buffer.put(start, type);
+        }
+    }
+
+    /**
+     * Öppnar loggen och skapar ett nytt segment efter de som redan finns.
+     *
+     * @param directory katalog för segmenten
+     * @param segmentBytes storlek per segment i byte
+     * @param maxSegments max antal segment som sparas
+     * @throws IOException om katalogen eller segmentet inte kan skapas
+     */
+    public MappedLog(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.max(segmentBytes, MIN_SEGMENT_BYTES);
+        this.maxSegments = Math.max(maxSegments, 1);
+        Files.createDirectories(directory);
+        List<Path> existing = listSegments(directory);
+        if (!existing.isEmpty()) {
+            segmentNumber = segmentNumber(existing.get(existing.size() - 1));
+        }
+        segment = createSegment(++segmentNumber);
+        deleteOldSegments();
+
+        rotator = new Thread(this::prepareSegments, "log-rotator");
+        rotator.setDaemon(true);
+        rotator.start();
+    }
+
+    /**
+     * Sparar en loggpost utan att formatera meddelandet.
+     *
+     * @param level nivåns värde (t.ex. Level.INFO.intValue())
+     * @param millis tidpunkt (ms)
+     * @param threadId trådens ID
+     * @param logger loggerns namn
+     * @param pattern meddelandet, eventuellt med {0}-parametrar
+     * @param parameters parametrarna, eller null
+     * @param thrown undantaget, eller null
+     */
+    public void log(int level, long millis, long threadId, String logger, String pattern,
+                    Object[] parameters, Throwable thrown) {
+        int count = parameters == null ? 0 : Math.min(parameters.length, MAX_PARAMETERS);
+        String[] values = new String[count];
+        String stackTrace = thrown == null ? "" : stackTrace(thrown);
+        int size = RECORD_HEADER + 1 + textSize(logger) + textSize(pattern) + textSize(stackTrace);
+        for (int i = 0; i < count; i++) {
+            values[i] = String.valueOf(parameters[i]);
+            size += textSize(values[i]);
+        }
+        for (Segment current = segment; current != null; current = nextSegment(current)) {
+            int start = current.reserve(size);
+            if (start >= 0) {
+                int at = current.putText(start + RECORD_HEADER, logger);
+                at = current.putText(at, pattern);
+                current.buffer.put(at++, (byte) count);
+                for (String value : values) {
+                    at = current.putText(at, value);
+                }
+                current.putText(at, stackTrace);
+                current.commit(start, RECORD_LOG, millis, level, threadId);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sparar en rad till eller från en klient. Skapar inga objekt och tar inget lås,
+     * utom i det sällsynta fallet att segmentet är fullt.
+     *
+     * @param direction {@link #INBOUND} eller {@link #OUTBOUND}
+     * @param peer bil-ID eller annan beskrivning av klienten
+     * @param line raden
+     */
+    public void traffic(int direction, CharSequence peer, CharSequence line) {
+        int size = RECORD_HEADER + textSize(peer) + textSize(line);
+        for (Segment current = segment; current != null; current = nextSegment(current)) {
+            int start = current.reserve(size);
+            if (start >= 0) {
+                current.putText(current.putText(start + RECORD_HEADER, peer), line);
+                current.commit(start, RECORD_TRAFFIC, System.currentTimeMillis(), direction, Thread.currentThread().getId());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skriver segmentet till disk och stänger loggen. Ett förberett men oanvänt segment tas bort.
+     */
+    public void close() {
+        Segment last;
+        Segment unused;
+        synchronized (rotateLock) {
+            closed = true;
+            last = segment;
+            unused = spare;
+            segment = null;
+            spare = null;
+            rotateLock.notifyAll();
+        }
+        if (last != null) {
+            last.buffer.force();
+        }
+        if (unused != null) {
+            deleteSegment(unused.file);
+        }
+    }
+
+    /**
+     * Får katalogen med segmenten.
+     *
+     * @return katalogen
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Får alla segment i en katalog, äldsta först.
+     *
+     * @param directory katalogen
+     * @return segmenten
+     * @throws IOException om katalogen inte kan läsas
+     */
+    public static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Byter till nästa segment när ett segment är fullt. Segmentet har normalt redan skapats
+     * av {@link #rotator}; annars väntar tråden på det.
+     *
+     * @param full segmentet som inte hade plats
+     * @return segmentet att försöka i, eller null om loggen är stängd
+     */
+    private Segment nextSegment(Segment full) {
+        synchronized (rotateLock) {
+            try {
+                while (segment == full && spare == null && !closed) {
+                    rotateLock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (segment == full && spare != null) {
+                segment = spare;
+                spare = null;
+                rotateLock.notifyAll();
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * Bakgrundstrådens loop: skapar nästa segment så fort det förra har tagits i bruk
+     * och tar bort de äldsta segmenten. Kan segmentet inte skapas stängs loggen.
+     */
+    private void prepareSegments() {
+        while (true) {
+            int number;
+            synchronized (rotateLock) {
+                try {
+                    while (spare != null && !closed) {
+                        rotateLock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+                number = ++segmentNumber;
+            }
+
+            Segment prepared;
+            try {
+                prepared = createSegment(number);
+            } catch (IOException e) {
+                System.err.println("Kunde inte skapa loggsegment: " + e.getMessage());
+                synchronized (rotateLock) {
+                    closed = true;
+                    segment = null;
+                    rotateLock.notifyAll();
+                }
+                return;
+            }
+
+            boolean unused;
+            synchronized (rotateLock) {
+                unused = closed;
+                if (!unused) {
+                    spare = prepared;
+                    rotateLock.notifyAll();
+                }
+            }
+            if (unused) {
+                deleteSegment(prepared.file);
+                return;
+            }
+            deleteOldSegments();
+        }
+    }
+
+    /**
+     * Skapar och mappar ett segment med sitt huvud.
+     *
+     * @param number segmentets nummer
+     * @return segmentet
+     * @throws IOException om segmentet inte kan skapas
+     */
+    private Segment createSegment(int number) throws IOException {
+        Path file = directory.resolve(String.format("log-%08d%s", number, FILE_SUFFIX));
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(segmentBytes);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, number);
+        buffer.putLong(8, System.currentTimeMillis());
+        return new Segment(file, buffer);
+    }
+
+    /**
+     * Tar bort de äldsta segmenten när det finns fler än {@link #maxSegments}, det förberedda
+     * nästa segmentet oräknat. Ett segment som inte går att ta bort påverkar inte loggningen.
+     */
+    private void deleteOldSegments() {
+        List<Path> segments;
+        try {
+            segments = listSegments(directory);
+        } catch (IOException e) {
+            System.err.println("Kunde inte lista loggsegmenten: " + e.getMessage());
+            return;
+        }
+        Segment prepared;
+        synchronized (rotateLock) {
+            prepared = spare;
+        }
+        int kept = segments.size() - (prepared != null && segments.contains(prepared.file) ? 1 : 0);
+        for (int i = 0; i < kept - maxSegments; i++) {
+            deleteSegment(segments.get(i));
+        }
+    }
+
+    private static void deleteSegment(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Kunde inte ta bort loggsegment " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Antal byte som en text tar i segmentet: längd och UTF-8, kodad som i {@link Segment#putText}.
+     */
+    private static int textSize(CharSequence text) {
+        int length = text == null ? 0 : Math.min(text.length(), MAX_TEXT_CHARS);
+        int size = 2;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    private static String stackTrace(Throwable thrown) {
+        StringWriter out = new StringWriter();
+        thrown.printStackTrace(new PrintWriter(out));
+        return out.toString();
+    }
+
+    private static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(4, name.length() - FILE_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
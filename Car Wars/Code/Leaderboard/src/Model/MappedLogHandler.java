@@ -0,0 +1,49 @@
+package Model;
+
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Handler för java.util.logging som skriver till en {@link MappedLog}.
+ * Meddelandet formateras inte när det loggas, utan mönster och parametrar
+ * sparas och formateras av {@link LogReader}.
+ *
+ * @author Rachid kontakgi,Adnan,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MappedLogHandler extends Handler {
+
+    /** Loggen som posterna skrivs till */
+    private final MappedLog log;
+
+    /**
+     * Konstruktor för MappedLogHandler.
+     *
+     * @param log loggen som posterna skrivs till
+     */
+    public MappedLogHandler(MappedLog log) {
+        this.log = log;
+    }
+
+    // getThreadID är föråldrad från JDK 16, men getLongThreadID finns inte i Java 11
+    @SuppressWarnings("deprecation")
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        log.log(record.getLevel().intValue(), record.getMillis(), record.getThreadID(), record.getLoggerName(),
+                record.getMessage(), record.getParameters(), record.getThrown());
+    }
+
+    @Override
+    public void flush() {
+        // Mappningen skrivs till disk av operativsystemet
+    }
+
+    @Override
+    public void close() {
+        log.close();
+    }
+}
@@ -0,0 +1,554 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Lokal lagring av matchhistorik och karriärstatistik.
+ * Matcher sparas i en append-only fil där varje post har längd och CRC,
+ * så att en halvskriven post efter ett krasch kan upptäckas och kapas bort.
+ * En skadad post mitt i filen flyttas till en karantänfil och hoppas över,
+ * så att matcherna efter den finns kvar.
+ * Skrivningar köas och görs av en egen bakgrundstråd (write-behind), så
+ * spelvägen blockeras aldrig av disk-I/O. Statistik per spelare och bil
+ * hålls i minnesindex som byggs upp när filen läses in vid start.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MatchHistoryStore {
+
+    /** Standardfil för matchhistoriken */
+    public static final String DEFAULT_FILE = "matchhistory.dat";
+
+    /** Markör i början av varje post */
+    private static final int RECORD_MAGIC = 0x43574D48; // "CWMH"
+
+    /** Storlek på posthuvud (magic + längd) */
+    private static final int HEADER_SIZE = 8;
+
+    /** Ändelse på filen dit skadade poster flyttas vid inläsning */
+    private static final String DAMAGED_SUFFIX = ".damaged";
+
+    /** Buffertstorlek när filen söks igenom efter nästa hela post */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /** Sista posten i kön, får skrivtråden att avsluta */
+    private static final MatchRecord POISON = new MatchRecord(-1, "", 0, 0, Collections.emptyList());
+
+    /** Fil som historiken lagras i */
+    private final Path file;
+
+    /** Filkanal för läsning och skrivning */
+    private final FileChannel channel;
+
+    /** Matcher som väntar på att skrivas till disk (obegränsad, så att offer aldrig misslyckas) */
+    private final BlockingQueue<MatchRecord> writeQueue = new LinkedBlockingQueue<>();
+
+    /** Matcher som har sparats men ännu inte skrivits till disk, per match-ID */
+    private final Map<Long, MatchRecord> unwritten = new ConcurrentSkipListMap<>();
+
+    /** Bakgrundstråd som skriver köade matcher */
+    private final Thread writerThread;
+
+    /** Nästa lediga match-ID */
+    private final AtomicLong nextMatchId = new AtomicLong(1);
+
+    /** Karriärstatistik per spelarnamn */
+    private final Map<String, CareerStats> playerIndex = new ConcurrentHashMap<>();
+
+    /** Karriärstatistik per bilnamn */
+    private final Map<String, CareerStats> carIndex = new ConcurrentHashMap<>();
+
+    /** Filpositioner för sparade matcher per spelarnamn */
+    private final Map<String, List<Long>> playerMatchOffsets = new ConcurrentHashMap<>();
+
+    /** Filpositioner för sparade matcher per bilnamn */
+    private final Map<String, List<Long>> carMatchOffsets = new ConcurrentHashMap<>();
+
+    /** Filpositioner för alla sparade matcher i skrivordning */
+    private final List<Long> allMatchOffsets = new CopyOnWriteArrayList<>();
+
+    /**
+     * Öppnar (eller skapar) historiken i angiven fil och läser in befintliga matcher.
+     *
+     * @param file fil för historiken
+     * @throws IOException om filen inte kan öppnas
+     */
+    public MatchHistoryStore(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+
+        writerThread = new Thread(this::writeLoop, "MatchHistoryWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Sparar resultatet från en avslutad match.
+     * Statistiken uppdateras direkt, själva skrivningen sker i bakgrunden.
+     * Metoden blockerar aldrig.
+     *
+     * @param result matchens resultat
+     * @param gameMode spelläge
+     * @param startTimeMillis när matchen startade
+     * @return den sparade matchen
+     */
+    public MatchRecord record(MatchResult result, String gameMode, long startTimeMillis) {
+        MatchRecord record = new MatchRecord(nextMatchId.getAndIncrement(), gameMode,
+                startTimeMillis, result.endTimeMillis, result.participants);
+        indexStats(record);
+
+        unwritten.put(record.matchId, record);
+        writeQueue.offer(record);
+        return record;
+    }
+
+    /**
+     * Får karriärstatistik för en spelare.
+     *
+     * @param playerName spelarnamn
+     * @return kopia av statistiken eller null om spelaren saknas
+     */
+    public CareerStats getPlayerStats(String playerName) {
+        CareerStats stats = playerIndex.get(text(playerName));
+        return stats != null ? stats.copy() : null;
+    }
+
+    /**
+     * Får karriärstatistik för en bil.
+     *
+     * @param carName bilnamn
+     * @return kopia av statistiken eller null om bilen saknas
+     */
+    public CareerStats getCarStats(String carName) {
+        CareerStats stats = carIndex.get(text(carName));
+        return stats != null ? stats.copy() : null;
+    }
+
+    /**
+     * Får säsongsställning för alla spelare, flest vinster först.
+     *
+     * @return sorterad lista med statistik
+     */
+    public List<CareerStats> getPlayerStandings() {
+        return standings(playerIndex);
+    }
+
+    /**
+     * Får säsongsställning för alla bilar, flest vinster först.
+     *
+     * @return sorterad lista med statistik
+     */
+    public List<CareerStats> getCarStandings() {
+        return standings(carIndex);
+    }
+
+    /**
+     * Läser alla sparade matcher för en spelare.
+     *
+     * @param playerName spelarnamn
+     * @return matcherna i den ordning de spelades
+     * @throws IOException om filen inte kan läsas
+     */
+    public List<MatchRecord> getMatchesForPlayer(String playerName) throws IOException {
+        return readAt(playerMatchOffsets.getOrDefault(text(playerName), Collections.emptyList()));
+    }
+
+    /**
+     * Läser alla sparade matcher för en bil.
+     *
+     * @param carName bilnamn
+     * @return matcherna i den ordning de spelades
+     * @throws IOException om filen inte kan läsas
+     */
+    public List<MatchRecord> getMatchesForCar(String carName) throws IOException {
+        return readAt(carMatchOffsets.getOrDefault(text(carName), Collections.emptyList()));
+    }
+
+    /**
+     * Läser alla sparade matcher, även de som ännu väntar på att skrivas till disk.
+     *
+     * @return matcherna i den ordning de spelades
+     * @throws IOException om filen inte kan läsas
+     */
+    public List<MatchRecord> getAllMatches() throws IOException {
+        // Väntande matcher tas före filen, så en match som skrivs under tiden hamnar i någon av dem
+        List<MatchRecord> queued = new ArrayList<>(unwritten.values());
+        List<MatchRecord> records = readAt(allMatchOffsets);
+        long lastStored = records.isEmpty() ? 0 : records.get(records.size() - 1).matchId;
+        for (MatchRecord record : queued) {
+            if (record.matchId > lastStored) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Får antal matcher som skrivits till disk.
+     *
+     * @return antal sparade matcher
+     */
+    public int getStoredMatchCount() {
+        return allMatchOffsets.size();
+    }
+
+    /**
+     * Skriver klart köade matcher och stänger filen.
+     */
+    public void close() {
+        try {
+            writeQueue.put(POISON);
+            writerThread.join(5000);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Matchhistorik: fel vid stängning av " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Läser in hela filen och bygger upp indexen.
+     * En skadad post hoppas över fram till nästa hela post, och de skadade byten
+     * sparas i karantänfilen. Bara det som ligger efter sista hela posten
+     * (t.ex. en halvskriven post efter strömavbrott) kapas bort.
+     */
+    private void load() throws IOException {
+        long size = channel.size();
+        long position = 0;
+
+        while (position + HEADER_SIZE <= size) {
+            MatchRecord record = recordAt(position, size);
+            if (record == null) {
+                long next = findRecord(position + 1, size);
+                if (next < 0) {
+                    break;
+                }
+                System.err.println("Matchhistorik: hoppar över skadad post i " + file
+                        + " vid position " + position + " (" + (next - position) + " byte)");
+                quarantine(position, next);
+                position = next;
+                continue;
+            }
+            indexStats(record);
+            indexOffsets(record, position);
+            nextMatchId.set(Math.max(nextMatchId.get(), record.matchId + 1));
+            position = channel.position();
+        }
+
+        if (position < size) {
+            System.err.println("Matchhistorik: kapar ofullständig post i " + file + " vid position " + position);
+            quarantine(position, size);
+            channel.truncate(position);
+        }
+        channel.position(position);
+    }
+
+    /**
+     * Läser posten på given position om magic och längd ramar in en hel post
+     * som ryms i filen och checksumman stämmer. Kanalens position sätts till
+     * byten efter posten.
+     *
+     * @return posten eller null om ingen hel post börjar här
+     */
+    private MatchRecord recordAt(long position, long size) throws IOException {
+        if (position + HEADER_SIZE > size) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, position);
+        header.flip();
+        int magic = header.getInt();
+        int length = header.getInt();
+        if (magic != RECORD_MAGIC || length < 0 || position + HEADER_SIZE + length + 4 > size) {
+            return null;
+        }
+        MatchRecord record;
+        try {
+            record = readRecord(position);
+        } catch (IOException e) {
+            // Rätt checksumma men innehåll som inte går att avkoda räknas också som skadat
+            return null;
+        }
+        if (record != null) {
+            channel.position(position + HEADER_SIZE + length + 4);
+        }
+        return record;
+    }
+
+    /**
+     * Söker framåt efter nästa position där en hel post börjar.
+     *
+     * @return positionen eller -1 om ingen hel post finns efter from
+     */
+    private long findRecord(long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        while (position + HEADER_SIZE <= size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 4) {
+                break;
+            }
+            for (int i = 0; i + 4 <= read; i++) {
+                if (buffer.getInt(i) == RECORD_MAGIC && recordAt(position + i, size) != null) {
+                    return position + i;
+                }
+            }
+            // Överlappa med tre byte så att en magic som delas av buffertgränsen hittas
+            position += read - 3;
+        }
+        return -1;
+    }
+
+    /**
+     * Kopierar skadade byte till karantänfilen innan de hoppas över eller kapas,
+     * så att de kan undersökas i efterhand.
+     */
+    private void quarantine(long from, long to) {
+        Path damaged = file.resolveSibling(file.getFileName() + DAMAGED_SUFFIX);
+        try (FileChannel out = FileChannel.open(damaged, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long position = from;
+            while (position < to) {
+                long copied = channel.transferTo(position, to - position, out);
+                if (copied <= 0) {
+                    break;
+                }
+                position += copied;
+            }
+        } catch (IOException e) {
+            System.err.println("Matchhistorik: kunde inte spara skadade byte i " + damaged + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Bakgrundstrådens loop som skriver köade matcher i batchar.
+     * Ett fel i en post hoppar bara över den posten, så tråden lever kvar.
+     */
+    private void writeLoop() {
+        List<MatchRecord> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(writeQueue.take());
+                writeQueue.drainTo(batch);
+
+                for (MatchRecord record : batch) {
+                    if (record == POISON) {
+                        running = false;
+                        continue;
+                    }
+                    try {
+                        writeRecord(record);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Matchhistorik: kunde inte spara match " + record.matchId
+                                + " i " + file + ": " + e);
+                    } finally {
+                        unwritten.remove(record.matchId);
+                    }
+                }
+                channel.force(false);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException e) {
+                System.err.println("Matchhistorik: kunde inte skriva till " + file + ": " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Skriver en post sist i filen. Posten kodas färdigt i en buffert innan något skrivs,
+     * och misslyckas skrivningen halvvägs kapas filen tillbaka till postens början,
+     * så att en trasig post inte får inläsningen att kapa alla poster efter den.
+     */
+    private void writeRecord(MatchRecord record) throws IOException {
+        ByteBuffer buffer = encode(record);
+        long offset = channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            channel.truncate(offset);
+            channel.position(offset);
+            throw e;
+        }
+        indexOffsets(record, offset);
+    }
+
+    /**
+     * Uppdaterar karriärstatistiken med en match.
+     */
+    private void indexStats(MatchRecord record) {
+        for (MatchResult.Participant participant : record.participants) {
+            playerIndex.computeIfAbsent(text(participant.playerName), CareerStats::new)
+                    .add(participant, record.endTimeMillis);
+            carIndex.computeIfAbsent(text(participant.carName), CareerStats::new)
+                    .add(participant, record.endTimeMillis);
+        }
+    }
+
+    /**
+     * Lägger till filpositionen för en sparad match i indexen.
+     */
+    private void indexOffsets(MatchRecord record, long offset) {
+        for (MatchResult.Participant participant : record.participants) {
+            playerMatchOffsets.computeIfAbsent(text(participant.playerName), k -> new CopyOnWriteArrayList<>()).add(offset);
+            carMatchOffsets.computeIfAbsent(text(participant.carName), k -> new CopyOnWriteArrayList<>()).add(offset);
+        }
+        allMatchOffsets.add(offset);
+    }
+
+    /**
+     * Läser matcher på givna filpositioner.
+     */
+    private List<MatchRecord> readAt(List<Long> offsets) throws IOException {
+        List<MatchRecord> records = new ArrayList<>(offsets.size());
+        for (long offset : offsets) {
+            MatchRecord record = readRecord(offset);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Läser en post på given position.
+     *
+     * @return posten eller null om checksumman inte stämmer
+     */
+    private MatchRecord readRecord(long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, position);
+        header.flip();
+        header.getInt();
+        int length = header.getInt();
+
+        ByteBuffer body = ByteBuffer.allocate(length + 4);
+        readFully(body, position + HEADER_SIZE);
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, length);
+        body.position(length);
+        if ((int) crc.getValue() != body.getInt()) {
+            return null;
+        }
+        return decode(body.array(), length);
+    }
+
+    /**
+     * Läser tills bufferten är full (positionell läsning, trådsäker).
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Oväntat filslut i " + file);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Kodar en match som post: magic, längd, innehåll och CRC32.
+     */
+    private static ByteBuffer encode(MatchRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(record.matchId);
+        out.writeUTF(text(record.gameMode));
+        out.writeLong(record.startTimeMillis);
+        out.writeLong(record.endTimeMillis);
+        out.writeShort(record.participants.size());
+        for (MatchResult.Participant participant : record.participants) {
+            out.writeUTF(text(participant.carId));
+            out.writeUTF(text(participant.carName));
+            out.writeUTF(text(participant.playerName));
+            out.writeInt(participant.finalHealth);
+            out.writeInt(participant.crashCount);
+            out.writeBoolean(participant.winner);
+        }
+        out.flush();
+
+        byte[] body = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + body.length + 4);
+        buffer.putInt(RECORD_MAGIC);
+        buffer.putInt(body.length);
+        buffer.put(body);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Avkodar innehållet i en post.
+     */
+    private static MatchRecord decode(byte[] body, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+        long matchId = in.readLong();
+        String gameMode = in.readUTF();
+        long startTime = in.readLong();
+        long endTime = in.readLong();
+        int count = in.readShort();
+
+        List<MatchResult.Participant> participants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            participants.add(new MatchResult.Participant(
+                    in.readUTF(), in.readUTF(), in.readUTF(),
+                    in.readInt(), in.readInt(), in.readBoolean()));
+        }
+        return new MatchRecord(matchId, gameMode, startTime, endTime, participants);
+    }
+
+    /**
+     * Namn som saknas (null) lagras och indexeras som tom sträng.
+     */
+    private static String text(String value) {
+        return value != null ? value : "";
+    }
+
+    /**
+     * Sorterar statistiken: flest vinster, sedan flest matcher, sedan namn.
+     */
+    private static List<CareerStats> standings(Map<String, CareerStats> index) {
+        List<CareerStats> list = new ArrayList<>(index.size());
+        for (CareerStats stats : index.values()) {
+            list.add(stats.copy());
+        }
+        list.sort(Comparator.comparingInt(CareerStats::getWins).reversed()
+                .thenComparing(Comparator.comparingInt(CareerStats::getMatches).reversed())
+                .thenComparing(stats -> stats.name));
+        return list;
+    }
+}
@@ -0,0 +1,62 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * En sparad match i matchhistoriken.
+ * Innehåller spelläge, tider och slutresultat för varje bil.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MatchRecord {
+    /** Löpnummer för matchen i historiken */
+    public final long matchId;
+
+    /** Spelläge (t.ex. "2v2 (2 bilar)") */
+    public final String gameMode;
+
+    /** Tidpunkt då matchen startade (System.currentTimeMillis) */
+    public final long startTimeMillis;
+
+    /** Tidpunkt då matchen avgjordes (System.currentTimeMillis) */
+    public final long endTimeMillis;
+
+    /** Slutresultat för varje bil */
+    public final List<MatchResult.Participant> participants;
+
+    /**
+     * Konstruktor för MatchRecord.
+     *
+     * @param matchId löpnummer för matchen
+     * @param gameMode spelläge
+     * @param startTimeMillis starttid
+     * @param endTimeMillis sluttid
+     * @param participants slutresultat för varje bil
+     */
+    public MatchRecord(long matchId, String gameMode, long startTimeMillis, long endTimeMillis,
+                       List<MatchResult.Participant> participants) {
+        this.matchId = matchId;
+        this.gameMode = gameMode;
+        this.startTimeMillis = startTimeMillis;
+        this.endTimeMillis = endTimeMillis;
+        this.participants = Collections.unmodifiableList(new ArrayList<>(participants));
+    }
+
+    /**
+     * Får vinnande spelare, eller null vid oavgjort.
+     *
+     * @return spelarnamn för vinnaren
+     */
+    public String getWinnerPlayer() {
+        for (MatchResult.Participant participant : participants) {
+            if (participant.winner) {
+                return participant.playerName;
+            }
+        }
+        return null;
+    }
+}
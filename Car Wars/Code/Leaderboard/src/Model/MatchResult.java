@@ -0,0 +1,100 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultatet av en avslutad match.
+ * Skapas exakt en gång per match när win-condition uppfylls.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MatchResult {
+    /** Bil-ID för vinnaren (t.ex. "BIL1"), null vid oavgjort */
+    public final String winnerCarId;
+
+    /** Bilnamn för vinnaren, null vid oavgjort */
+    public final String winnerName;
+
+    /** Lag som vann, -1 vid oavgjort */
+    public final int winnerTeam;
+
+    /** Tidpunkt då matchen avgjordes (System.currentTimeMillis) */
+    public final long endTimeMillis;
+
+    /** Slutställning för varje bil i matchen */
+    public final List<Participant> participants;
+
+    /**
+     * En bils slutresultat i matchen.
+     */
+    public static class Participant {
+        /** Bil-ID (t.ex. "BIL1") */
+        public final String carId;
+
+        /** Bilnamn */
+        public final String carName;
+
+        /** Spelarnamn */
+        public final String playerName;
+
+        /** Hälsa kvar vid matchslut */
+        public final int finalHealth;
+
+        /** Antal krockar under matchen */
+        public final int crashCount;
+
+        /** Om bilen tillhörde det vinnande laget */
+        public final boolean winner;
+
+        /**
+         * Konstruktor för Participant.
+         *
+         * @param carId bil-ID
+         * @param carName bilnamn
+         * @param playerName spelarnamn
+         * @param finalHealth hälsa kvar vid matchslut
+         * @param crashCount antal krockar
+         * @param winner om bilen vann
+         */
+        public Participant(String carId, String carName, String playerName,
+                           int finalHealth, int crashCount, boolean winner) {
+            this.carId = carId;
+            this.carName = carName;
+            this.playerName = playerName;
+            this.finalHealth = finalHealth;
+            this.crashCount = crashCount;
+            this.winner = winner;
+        }
+    }
+
+    /**
+     * Konstruktor för MatchResult.
+     *
+     * @param winnerCarId bil-ID för vinnaren eller null vid oavgjort
+     * @param winnerName bilnamn för vinnaren eller null vid oavgjort
+     * @param winnerTeam vinnande lag eller -1 vid oavgjort
+     * @param endTimeMillis tidpunkt då matchen avgjordes
+     * @param participants slutresultat för varje bil
+     */
+    public MatchResult(String winnerCarId, String winnerName, int winnerTeam, long endTimeMillis,
+                       List<Participant> participants) {
+        this.winnerCarId = winnerCarId;
+        this.winnerName = winnerName;
+        this.winnerTeam = winnerTeam;
+        this.endTimeMillis = endTimeMillis;
+        this.participants = Collections.unmodifiableList(new ArrayList<>(participants));
+    }
+
+    /**
+     * Anger om matchen slutade oavgjort.
+     *
+     * @return true om ingen bil/lag överlevde
+     */
+    public boolean isDraw() {
+        return winnerTeam < 0;
+    }
+}
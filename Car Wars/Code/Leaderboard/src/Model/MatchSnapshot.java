@@ -0,0 +1,221 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Ögonblicksbild av en pågående match, så att matchen kan återupptas om servern stängs.
+ * Innehåller bilarna med lag, hälsa och krockar, bilarnas sessionsnycklar och arenans läge.
+ * Filen skrivs först till en temporär fil som sedan flyttas på plats i ett steg, så den
+ * som läser filen ser antingen den förra eller den nya bilden, aldrig en halv.
+ *
+ * Filformat (big-endian): int "CWSS", short version, sedan matchen och bilarna, sist long CRC32.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class MatchSnapshot {
+
+    /** Magiskt tal i början av filen, "CWSS" */
+    public static final int MAGIC = 0x43575353;
+
+    /** Version av filformatet */
+    public static final short VERSION = 1;
+
+    /** Tidpunkt då bilden togs (ms) */
+    public final long takenMillis;
+
+    /** Tidpunkt då matchen startade (ms) */
+    public final long matchStartMillis;
+
+    /** Spelläge */
+    public final String gameMode;
+
+    /** Arena-kommandot ("open" eller "close") */
+    public final String arenaCommand;
+
+    /** Bilnamn per plats */
+    public final String[] carNames;
+
+    /** Spelarnamn per plats */
+    public final String[] playerNames;
+
+    /** Lag per plats */
+    public final int[] teams;
+
+    /** Hälsa per plats */
+    public final int[] health;
+
+    /** Antal krockar per plats */
+    public final int[] crashCounts;
+
+    /** Tidpunkt för senaste krock per plats (ms) */
+    public final long[] lastCrashMillis;
+
+    /** Sessionsnyckel per plats, null om bilen inte har någon session */
+    public final String[] sessionTokens;
+
+    /**
+     * Konstruktor för MatchSnapshot. Arrayerna kopieras inte.
+     *
+     * @param takenMillis tidpunkt då bilden togs
+     * @param matchStartMillis tidpunkt då matchen startade
+     * @param gameMode spelläge
+     * @param arenaCommand arena-kommandot
+     * @param carNames bilnamn per plats
+     * @param playerNames spelarnamn per plats
+     * @param teams lag per plats
+     * @param health hälsa per plats
+     * @param crashCounts antal krockar per plats
+     * @param lastCrashMillis tidpunkt för senaste krock per plats
+     * @param sessionTokens sessionsnyckel per plats, eller null
+     */
+    public MatchSnapshot(long takenMillis, long matchStartMillis, String gameMode, String arenaCommand,
+                         String[] carNames, String[] playerNames, int[] teams, int[] health,
+                         int[] crashCounts, long[] lastCrashMillis, String[] sessionTokens) {
+        this.takenMillis = takenMillis;
+        this.matchStartMillis = matchStartMillis;
+        this.gameMode = gameMode;
+        this.arenaCommand = arenaCommand;
+        this.carNames = carNames;
+        this.playerNames = playerNames;
+        this.teams = teams;
+        this.health = health;
+        this.crashCounts = crashCounts;
+        this.lastCrashMillis = lastCrashMillis;
+        this.sessionTokens = sessionTokens;
+    }
+
+    /**
+     * Antal bilar i matchen.
+     *
+     * @return antal platser
+     */
+    public int size() {
+        return carNames.length;
+    }
+
+    /**
+     * Skriver bilden till en temporär fil bredvid filen och flyttar den sedan på plats.
+     *
+     * @param file filen som ska ersättas
+     * @throws IOException om filen inte kan skrivas
+     */
+    public void write(Path file) throws IOException {
+        // Skriv och synka den temporära filen innan den ersätter den gamla
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(toBytes());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Läser en bild från fil.
+     *
+     * @param file filen
+     * @return bilden, eller null om filen inte finns
+     * @throws IOException om filen inte kan läsas eller är trasig
+     */
+    public static MatchSnapshot read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        return fromBytes(Files.readAllBytes(file));
+    }
+
+    /**
+     * Kodar bilden i filformatet, t.ex. för att skicka den till en reservserver.
+     *
+     * @return bilden med checksumma
+     * @throws IOException om bilden inte kan kodas
+     */
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(takenMillis);
+        out.writeLong(matchStartMillis);
+        out.writeUTF(gameMode != null ? gameMode : "");
+        out.writeUTF(arenaCommand != null ? arenaCommand : "");
+        out.writeShort(size());
+        for (int slot = 0; slot < size(); slot++) {
+            out.writeUTF(carNames[slot] != null ? carNames[slot] : "");
+            out.writeUTF(playerNames[slot] != null ? playerNames[slot] : "");
+            out.writeShort(teams[slot]);
+            out.writeInt(health[slot]);
+            out.writeInt(crashCounts[slot]);
+            out.writeLong(lastCrashMillis[slot]);
+            out.writeUTF(sessionTokens[slot] != null ? sessionTokens[slot] : "");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Avkodar en bild i filformatet.
+     *
+     * @param bytes bilden med checksumma
+     * @return bilden
+     * @throws IOException om bilden är trasig
+     */
+    public static MatchSnapshot fromBytes(byte[] bytes) throws IOException {
+        if (bytes.length < 14) {
+            throw new IOException("för kort fil");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 8, 8).getLong()) {
+            throw new IOException("felaktig checksumma");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            throw new IOException("okänt format");
+        }
+        long takenMillis = in.readLong();
+        long matchStartMillis = in.readLong();
+        String gameMode = in.readUTF();
+        String arenaCommand = in.readUTF();
+        int count = in.readShort();
+        String[] carNames = new String[count];
+        String[] playerNames = new String[count];
+        int[] teams = new int[count];
+        int[] health = new int[count];
+        int[] crashCounts = new int[count];
+        long[] lastCrashMillis = new long[count];
+        String[] sessionTokens = new String[count];
+        for (int slot = 0; slot < count; slot++) {
+            carNames[slot] = in.readUTF();
+            playerNames[slot] = in.readUTF();
+            teams[slot] = in.readShort();
+            health[slot] = in.readInt();
+            crashCounts[slot] = in.readInt();
+            lastCrashMillis[slot] = in.readLong();
+            String token = in.readUTF();
+            sessionTokens[slot] = token.isEmpty() ? null : token;
+        }
+        return new MatchSnapshot(takenMillis, matchStartMillis, gameMode, arenaCommand, carNames, playerNames,
+                teams, health, crashCounts, lastCrashMillis, sessionTokens);
+    }
+}
@@ -0,0 +1,198 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sorterat index över spelarbetyg (högst betyg först).
+ * Implementerat som en treap där varje nod känner till storleken på sitt
+ * delträd, vilket ger O(log n) för insättning, borttagning, placering och
+ * uppslagning av den i:te spelaren. Klassen är inte trådsäker; RatingService
+ * synkroniserar åtkomsten.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class RatingIndex {
+
+    /**
+     * En nod i trädet.
+     */
+    private static final class Node {
+        final String name;
+        final double rating;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(String name, double rating, int priority) {
+            this.name = name;
+            this.rating = rating;
+            this.priority = priority;
+        }
+    }
+
+    /** Slumpgenerator för nodprioriteter, fast frö ger reproducerbar form */
+    private final Random random = new Random(0x5EED);
+
+    /** Trädets rot */
+    private Node root;
+
+    /**
+     * Antal spelare i indexet.
+     *
+     * @return antal spelare
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Lägger till en spelare med givet betyg.
+     *
+     * @param name spelarnamn
+     * @param rating betyg
+     */
+    public void insert(String name, double rating) {
+        Node[] parts = split(root, name, rating);
+        root = merge(merge(parts[0], new Node(name, rating, random.nextInt())), parts[1]);
+    }
+
+    /**
+     * Tar bort en spelare. Betyget måste vara det som spelaren lades in med.
+     *
+     * @param name spelarnamn
+     * @param rating betyget som spelaren har i indexet
+     */
+    public void remove(String name, double rating) {
+        root = remove(root, name, rating);
+    }
+
+    /**
+     * Får placeringen (0 = bäst) för en spelare med givet betyg.
+     *
+     * @param name spelarnamn
+     * @param rating betyget som spelaren har i indexet
+     * @return placering räknat från 0
+     */
+    public int rankOf(String name, double rating) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(name, rating, node);
+            if (cmp == 0) {
+                return rank + size(node.left);
+            }
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Får spelarna på placering from (inklusive) till to (exklusive).
+     *
+     * @param from första placering (0 = bäst)
+     * @param to placering efter den sista
+     * @return spelarnamn och betyg i placeringsordning
+     */
+    public List<RatingService.Rating> range(int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, size());
+        List<RatingService.Rating> result = new ArrayList<>(Math.max(to - from, 0));
+        collect(root, 0, from, to, result);
+        return result;
+    }
+
+    /**
+     * Samlar noder i ordning, men besöker bara delträd som överlappar intervallet.
+     */
+    private static void collect(Node node, int offset, int from, int to, List<RatingService.Rating> out) {
+        if (node == null || offset >= to || offset + node.size <= from) {
+            return;
+        }
+        int leftSize = size(node.left);
+        collect(node.left, offset, from, to, out);
+        int position = offset + leftSize;
+        if (position >= from && position < to) {
+            out.add(new RatingService.Rating(node.name, node.rating, position + 1));
+        }
+        collect(node.right, position + 1, from, to, out);
+    }
+
+    private Node remove(Node node, String name, double rating) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(name, rating, node);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = remove(node.left, name, rating);
+        } else {
+            node.right = remove(node.right, name, rating);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Delar trädet i noder som ordnas före respektive efter (name, rating).
+     */
+    private static Node[] split(Node node, String name, double rating) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(name, rating, node) > 0) {
+            Node[] parts = split(node.right, name, rating);
+            node.right = parts[0];
+            update(node);
+            return new Node[]{node, parts[1]};
+        }
+        Node[] parts = split(node.left, name, rating);
+        node.left = parts[1];
+        update(node);
+        return new Node[]{parts[0], node};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    /**
+     * Jämför (name, rating) med en nod: högre betyg först, vid lika betyg i namnordning.
+     */
+    private static int compare(String name, double rating, Node node) {
+        int cmp = Double.compare(node.rating, rating);
+        return cmp != 0 ? cmp : name.compareTo(node.name);
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,374 @@
+package Model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Säsongsranking med Elo-betyg som uppdateras inkrementellt efter varje match.
+ * Varje deltagare jämförs parvis med alla andra i matchen: vinnaren slår alla,
+ * övriga rangordnas efter hälsa kvar. Betygen hålls i ett sorterat
+ * {@link RatingIndex} så att topplista, placering och "runt mig" tar O(log n).
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class RatingService {
+
+    /** Betyg för en ny spelare */
+    public static final double INITIAL_RATING = 1500.0;
+
+    /** Hur mycket ett betyg maximalt kan ändras per match */
+    public static final double K_FACTOR = 32.0;
+
+    /** Antal matcher per löv i fork/join-omräkningen */
+    private static final int BATCH_THRESHOLD = 8;
+
+    /**
+     * Ett spelarbetyg med placering.
+     */
+    public static class Rating {
+        /** Spelarnamn */
+        public final String name;
+
+        /** Aktuellt betyg */
+        public final double rating;
+
+        /** Placering (1 = bäst), 0 om okänd */
+        public final int rank;
+
+        /**
+         * Konstruktor för Rating.
+         *
+         * @param name spelarnamn
+         * @param rating betyg
+         * @param rank placering
+         */
+        public Rating(String name, double rating, int rank) {
+            this.name = name;
+            this.rating = rating;
+            this.rank = rank;
+        }
+    }
+
+    /** Aktuellt betyg per spelare */
+    private final Map<String, Double> ratings = new HashMap<>();
+
+    /** Antal rankade matcher per spelare */
+    private final Map<String, Integer> matchesPlayed = new HashMap<>();
+
+    /** Sorterat index över betygen */
+    private RatingIndex index = new RatingIndex();
+
+    /** Högsta match-ID som har tillämpats */
+    private long lastMatchId;
+
+    /** Matcher som tillämpats medan en omräkning pågår, null annars */
+    private List<MatchRecord> appliedDuringRerate;
+
+    /**
+     * Uppdaterar betygen med resultatet från en match.
+     *
+     * @param record den avslutade matchen
+     */
+    public synchronized void applyMatch(MatchRecord record) {
+        apply(record);
+        if (appliedDuringRerate != null) {
+            appliedDuringRerate.add(record);
+        }
+    }
+
+    /**
+     * Räknar om alla betyg från matchhistoriken och ersätter de nuvarande.
+     * Resultatet blir detsamma som när matcherna tillämpas en i taget vid start
+     * (se {@link #rerate(List)}). Matcher som tillämpas medan omräkningen pågår och som inte fanns med i historiken
+     * läggs på det nya resultatet, så ingen match går förlorad. Tar tid och körs inte på EDT.
+     *
+     * @param historyStore matchhistoriken
+     * @throws IOException om historiken inte kan läsas
+     */
+    public void rerate(MatchHistoryStore historyStore) throws IOException {
+        synchronized (this) {
+            appliedDuringRerate = new ArrayList<>();
+        }
+        try {
+            replaceWith(rerate(historyStore.getAllMatches()));
+        } finally {
+            synchronized (this) {
+                appliedDuringRerate = null;
+            }
+        }
+    }
+
+    /**
+     * Får de n bästa spelarna.
+     *
+     * @param n antal spelare
+     * @return spelarna i placeringsordning
+     */
+    public synchronized List<Rating> top(int n) {
+        return index.range(0, n);
+    }
+
+    /**
+     * Får betyg och placering för en spelare.
+     *
+     * @param playerName spelarnamn
+     * @return betyget eller null om spelaren inte är rankad
+     */
+    public synchronized Rating get(String playerName) {
+        Double rating = ratings.get(playerName);
+        if (rating == null) {
+            return null;
+        }
+        return new Rating(playerName, rating, index.rankOf(playerName, rating) + 1);
+    }
+
+    /**
+     * Får spelarna närmast en given spelare i rankingen.
+     *
+     * @param playerName spelarnamn
+     * @param radius antal placeringar ovanför och nedanför
+     * @return spelarna runt den givna spelaren, tom lista om spelaren saknas
+     */
+    public synchronized List<Rating> around(String playerName, int radius) {
+        Double rating = ratings.get(playerName);
+        if (rating == null) {
+            return Collections.emptyList();
+        }
+        int rank = index.rankOf(playerName, rating);
+        return index.range(rank - radius, rank + radius + 1);
+    }
+
+    /**
+     * Får antal rankade matcher för en spelare.
+     *
+     * @param playerName spelarnamn
+     * @return antal matcher
+     */
+    public synchronized int getMatchesPlayed(String playerName) {
+        return matchesPlayed.getOrDefault(playerName, 0);
+    }
+
+    /**
+     * Antal rankade spelare.
+     *
+     * @return antal spelare
+     */
+    public synchronized int size() {
+        return ratings.size();
+    }
+
+    /**
+     * Ersätter alla betyg med betygen från en annan tjänst, t.ex. efter en omräkning.
+     * Pågår en omräkning ({@link #rerate(MatchHistoryStore)}) läggs matcher som tillämpats
+     * under tiden och som är nyare än den andra tjänstens på det nya resultatet.
+     *
+     * @param other tjänsten att kopiera från
+     */
+    public void replaceWith(RatingService other) {
+        Map<String, Double> newRatings;
+        Map<String, Integer> newMatches;
+        long newLastMatchId;
+        synchronized (other) {
+            newRatings = new HashMap<>(other.ratings);
+            newMatches = new HashMap<>(other.matchesPlayed);
+            newLastMatchId = other.lastMatchId;
+        }
+
+        RatingIndex newIndex = new RatingIndex();
+        for (Map.Entry<String, Double> entry : newRatings.entrySet()) {
+            newIndex.insert(entry.getKey(), entry.getValue());
+        }
+
+        synchronized (this) {
+            ratings.clear();
+            ratings.putAll(newRatings);
+            matchesPlayed.clear();
+            matchesPlayed.putAll(newMatches);
+            index = newIndex;
+            lastMatchId = newLastMatchId;
+            if (appliedDuringRerate != null) {
+                for (MatchRecord record : appliedDuringRerate) {
+                    if (record.matchId > newLastMatchId) {
+                        apply(record);
+                    }
+                }
+                appliedDuringRerate.clear();
+            }
+        }
+    }
+
+    /**
+     * Räknar om alla betyg från grunden över en hel matchhistorik.
+     * Matcherna delas in i nivåer: en match hamnar i nivån efter den senaste tidigare
+     * matchen som någon av dess spelare deltog i. Matcherna i en nivå har inga spelare
+     * gemensamma och alla matcher de beror på ligger i tidigare nivåer, så deras
+     * betygsändringar beräknas parallellt (fork/join) mot betygen efter förra nivån.
+     * Varje match ser därmed exakt samma betyg som när matcherna tillämpas en i taget,
+     * och resultatet blir identiskt med den inkrementella uppdateringen.
+     *
+     * @param matches alla matcher i spelordning
+     * @return en ny tjänst med omräknade betyg
+     */
+    public static RatingService rerate(List<MatchRecord> matches) {
+        RatingService service = new RatingService();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        for (List<MatchRecord> level : levels(matches)) {
+            // Nivån läser bara betygen, de ändras först när alla ändringar är summerade
+            DeltaTask task = new DeltaTask(level, 0, level.size(), service.ratings);
+            service.applyDeltas(level.size() <= BATCH_THRESHOLD ? task.compute() : pool.invoke(task));
+
+            for (MatchRecord record : level) {
+                for (MatchResult.Participant participant : record.participants) {
+                    service.matchesPlayed.merge(participant.playerName, 1, Integer::sum);
+                }
+                service.lastMatchId = Math.max(service.lastMatchId, record.matchId);
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Delar in matcherna i nivåer där ingen spelare förekommer i två matcher i samma nivå.
+     *
+     * @param matches alla matcher i spelordning
+     * @return nivåerna i den ordning de ska tillämpas
+     */
+    private static List<List<MatchRecord>> levels(List<MatchRecord> matches) {
+        List<List<MatchRecord>> levels = new ArrayList<>();
+        Map<String, Integer> lastLevel = new HashMap<>();
+        for (MatchRecord record : matches) {
+            int level = 0;
+            for (MatchResult.Participant participant : record.participants) {
+                level = Math.max(level, lastLevel.getOrDefault(participant.playerName, -1) + 1);
+            }
+            if (level == levels.size()) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(level).add(record);
+            for (MatchResult.Participant participant : record.participants) {
+                lastLevel.put(participant.playerName, level);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Fork/join-uppgift som summerar betygsändringar för ett intervall av matcher
+     * utan gemensamma spelare.
+     */
+    private static class DeltaTask extends RecursiveTask<Map<String, Double>> {
+        private final List<MatchRecord> matches;
+        private final int from;
+        private final int to;
+        private final Map<String, Double> ratings;
+
+        DeltaTask(List<MatchRecord> matches, int from, int to, Map<String, Double> ratings) {
+            this.matches = matches;
+            this.from = from;
+            this.to = to;
+            this.ratings = ratings;
+        }
+
+        @Override
+        protected Map<String, Double> compute() {
+            if (to - from <= BATCH_THRESHOLD) {
+                Map<String, Double> sum = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    computeDeltas(matches.get(i), ratings).forEach((name, delta) -> sum.merge(name, delta, Double::sum));
+                }
+                return sum;
+            }
+
+            int middle = (from + to) >>> 1;
+            DeltaTask left = new DeltaTask(matches, from, middle, ratings);
+            left.fork();
+            Map<String, Double> right = new DeltaTask(matches, middle, to, ratings).compute();
+            Map<String, Double> sum = left.join();
+            right.forEach((name, delta) -> sum.merge(name, delta, Double::sum));
+            return sum;
+        }
+    }
+
+    /**
+     * Beräknar betygsändringen för varje spelare i en match.
+     *
+     * @param record matchen
+     * @param ratings betyg före matchen (läses bara)
+     * @return betygsändring per spelarnamn
+     */
+    private static Map<String, Double> computeDeltas(MatchRecord record, Map<String, Double> ratings) {
+        List<MatchResult.Participant> participants = record.participants;
+        int n = participants.size();
+        Map<String, Double> deltas = new HashMap<>();
+        if (n < 2) {
+            return deltas;
+        }
+
+        double k = K_FACTOR / (n - 1);
+        for (int i = 0; i < n; i++) {
+            MatchResult.Participant a = participants.get(i);
+            double ratingA = ratings.getOrDefault(a.playerName, INITIAL_RATING);
+            double delta = 0;
+            for (int j = 0; j < n; j++) {
+                if (i == j) {
+                    continue;
+                }
+                MatchResult.Participant b = participants.get(j);
+                double ratingB = ratings.getOrDefault(b.playerName, INITIAL_RATING);
+                double expected = 1.0 / (1.0 + Math.pow(10, (ratingB - ratingA) / 400.0));
+                delta += k * (outcome(a, b) - expected);
+            }
+            deltas.merge(a.playerName, delta, Double::sum);
+        }
+        return deltas;
+    }
+
+    /**
+     * Utfall för a mot b: 1 om a placerade sig bättre, 0.5 vid lika, annars 0.
+     */
+    private static double outcome(MatchResult.Participant a, MatchResult.Participant b) {
+        if (a.winner != b.winner) {
+            return a.winner ? 1.0 : 0.0;
+        }
+        if (a.finalHealth != b.finalHealth) {
+            return a.finalHealth > b.finalHealth ? 1.0 : 0.0;
+        }
+        return 0.5;
+    }
+
+    /**
+     * Tillämpar en match på betygen. Anropas med tjänstens lås.
+     */
+    private void apply(MatchRecord record) {
+        applyDeltas(computeDeltas(record, ratings));
+        for (MatchResult.Participant participant : record.participants) {
+            matchesPlayed.merge(participant.playerName, 1, Integer::sum);
+        }
+        lastMatchId = Math.max(lastMatchId, record.matchId);
+    }
+
+    /**
+     * Tillämpar betygsändringar och håller indexet sorterat.
+     */
+    private void applyDeltas(Map<String, Double> deltas) {
+        for (Map.Entry<String, Double> entry : deltas.entrySet()) {
+            String name = entry.getKey();
+            Double old = ratings.get(name);
+            if (old != null) {
+                index.remove(name, old);
+            }
+            double updated = (old != null ? old : INITIAL_RATING) + entry.getValue();
+            ratings.put(name, updated);
+            index.insert(name, updated);
+        }
+    }
+}
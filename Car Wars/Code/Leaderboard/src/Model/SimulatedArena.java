@@ -0,0 +1,249 @@
+package Model;
+
+import java.util.Random;
+
+/**
+ * Enkel fysikmodell av arenan för simulerade bilar. Bilarna kör mot närmaste bil med lite
+ * slumpmässig styrning, studsar mot väggarna och krockar när de kör in i varandra.
+ * Modellen är deterministisk: samma antal bilar och samma frö ger exakt samma krockar,
+ * eftersom all slump kommer från ett eget {@link Random} och trigonometrin räknas med
+ * {@link StrictMath}, som ger samma resultat på alla plattformar.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class SimulatedArena {
+
+    /** Arenans bredd (m) */
+    public static final double WIDTH = 6.0;
+
+    /** Arenans höjd (m) */
+    public static final double HEIGHT = 4.0;
+
+    /** Bilarnas radie (m) */
+    public static final double CAR_RADIUS = 0.2;
+
+    /** Bilarnas högsta fart (m/s) */
+    public static final double MAX_SPEED = 1.2;
+
+    /** Flest bilar som får plats i arenan */
+    public static final int MAX_CARS = 32;
+
+    /** Simulerad tid per steg (ms) */
+    public static final int TICK_MILLIS = 20;
+
+    /** Slumpmässig styrning per steg (standardavvikelse, radianer) */
+    private static final double STEER_NOISE = 0.15;
+
+    /** Andel av vinkeln mot närmaste bil som bilen svänger per steg */
+    private static final double CHASE = 0.03;
+
+    /** Steg efter en krock då bilen kör vidare utan att jaga någon */
+    private static final int RECOVERY_TICKS = 100;
+
+    /** Fart efter en krock, som andel av farten före */
+    private static final double CRASH_SPEED = 0.3;
+
+    /** Slump för styrningen */
+    private final Random random;
+
+    /** Position per bil (m) */
+    private final double[] x;
+
+    /** Position per bil (m) */
+    private final double[] y;
+
+    /** Färdriktning per bil (radianer) */
+    private final double[] heading;
+
+    /** Fart per bil (m/s) */
+    private final double[] speed;
+
+    /** true för bilar som fortfarande kör */
+    private final boolean[] active;
+
+    /** Återstående steg utan jakt efter senaste krock */
+    private final int[] recovery;
+
+    /**
+     * Konstruktor för SimulatedArena. Bilarna placeras slumpmässigt utan att överlappa.
+     *
+     * @param cars antal bilar
+     * @param seed frö för slumpen
+     * @throws IllegalArgumentException om bilarna inte får plats
+     */
+    public SimulatedArena(int cars, long seed) {
+        if (cars < 2 || cars > MAX_CARS) {
+            throw new IllegalArgumentException("antal bilar ska vara 2-" + MAX_CARS + ", var " + cars);
+        }
+        this.random = new Random(seed);
+        this.x = new double[cars];
+        this.y = new double[cars];
+        this.heading = new double[cars];
+        this.speed = new double[cars];
+        this.active = new boolean[cars];
+        this.recovery = new int[cars];
+        for (int car = 0; car < cars; car++) {
+            do {
+                x[car] = CAR_RADIUS + random.nextDouble() * (WIDTH - 2 * CAR_RADIUS);
+                y[car] = CAR_RADIUS + random.nextDouble() * (HEIGHT - 2 * CAR_RADIUS);
+            } while (overlaps(car));
+            heading[car] = random.nextDouble() * 2 * StrictMath.PI;
+            active[car] = true;
+        }
+    }
+
+    /**
+     * Antal bilar i arenan.
+     *
+     * @return antal bilar
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Stänger av eller sätter på en bil. En avstängd bil kör inte och kan inte krocka.
+     *
+     * @param car bilens index
+     * @param on true om bilen ska köra
+     */
+    public void setActive(int car, boolean on) {
+        active[car] = on;
+    }
+
+    /**
+     * Flyttar alla bilar ett steg och tar reda på vilka som krockade.
+     * Vid en krock räknas båda bilarna som träffade.
+     *
+     * @param hits fylls med index för träffade bilar, två per krock (minst size() * size() platser)
+     * @return antal index i hits
+     */
+    public int step(int[] hits) {
+        double seconds = TICK_MILLIS / 1000.0;
+        int cars = x.length;
+        for (int car = 0; car < cars; car++) {
+            if (!active[car]) {
+                continue;
+            }
+            // Sväng lite mot närmaste bil, plus slumpmässig styrning
+            int target = recovery[car] > 0 ? -1 : nearest(car);
+            if (recovery[car] > 0) {
+                recovery[car]--;
+            }
+            if (target >= 0) {
+                double wanted = StrictMath.atan2(y[target] - y[car], x[target] - x[car]);
+                heading[car] += CHASE * normalize(wanted - heading[car]);
+            }
+            heading[car] += random.nextGaussian() * STEER_NOISE;
+            speed[car] += (MAX_SPEED - speed[car]) * 0.05;
+
+            x[car] += StrictMath.cos(heading[car]) * speed[car] * seconds;
+            y[car] += StrictMath.sin(heading[car]) * speed[car] * seconds;
+            bounce(car);
+        }
+
+        int count = 0;
+        double reach = 2 * CAR_RADIUS;
+        for (int a = 0; a < cars; a++) {
+            if (!active[a]) {
+                continue;
+            }
+            for (int b = a + 1; b < cars; b++) {
+                if (!active[b]) {
+                    continue;
+                }
+                double dx = x[b] - x[a];
+                double dy = y[b] - y[a];
+                if (dx * dx + dy * dy >= reach * reach) {
+                    continue;
+                }
+                // Bara bilar som närmar sig varandra krockar, inte de som redan är på väg isär
+                double closing = (StrictMath.cos(heading[a]) * speed[a] - StrictMath.cos(heading[b]) * speed[b]) * dx
+                        + (StrictMath.sin(heading[a]) * speed[a] - StrictMath.sin(heading[b]) * speed[b]) * dy;
+                if (closing <= 0) {
+                    continue;
+                }
+                // Vilken bil som rapporteras först lottas, annars skulle bilarnas ordning avgöra jämna matcher
+                boolean aFirst = random.nextBoolean();
+                hits[count++] = aFirst ? a : b;
+                hits[count++] = aFirst ? b : a;
+
+                // Bilarna studsar isär
+                double away = StrictMath.atan2(-dy, -dx);
+                heading[a] = away;
+                heading[b] = away + StrictMath.PI;
+                speed[a] *= CRASH_SPEED;
+                speed[b] *= CRASH_SPEED;
+                recovery[a] = RECOVERY_TICKS;
+                recovery[b] = RECOVERY_TICKS;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Hittar närmaste bil som fortfarande kör.
+     *
+     * @param car bilens index
+     * @return index för närmaste bil, eller -1 om ingen annan kör
+     */
+    private int nearest(int car) {
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int other = 0; other < x.length; other++) {
+            if (other == car || !active[other]) {
+                continue;
+            }
+            double dx = x[other] - x[car];
+            double dy = y[other] - y[car];
+            double distance = dx * dx + dy * dy;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = other;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Studsar en bil mot väggarna.
+     *
+     * @param car bilens index
+     */
+    private void bounce(int car) {
+        if (x[car] < CAR_RADIUS || x[car] > WIDTH - CAR_RADIUS) {
+            x[car] = Math.max(CAR_RADIUS, Math.min(WIDTH - CAR_RADIUS, x[car]));
+            heading[car] = StrictMath.PI - heading[car];
+        }
+        if (y[car] < CAR_RADIUS || y[car] > HEIGHT - CAR_RADIUS) {
+            y[car] = Math.max(CAR_RADIUS, Math.min(HEIGHT - CAR_RADIUS, y[car]));
+            heading[car] = -heading[car];
+        }
+    }
+
+    /**
+     * Kontrollerar om en nyplacerad bil överlappar en tidigare.
+     *
+     * @param car bilens index
+     * @return true om bilen överlappar
+     */
+    private boolean overlaps(int car) {
+        for (int other = 0; other < car; other++) {
+            double dx = x[other] - x[car];
+            double dy = y[other] - y[car];
+            if (dx * dx + dy * dy < 4 * CAR_RADIUS * CAR_RADIUS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Vinkel i intervallet -pi till pi.
+     */
+    private static double normalize(double angle) {
+        return StrictMath.IEEEremainder(angle, 2 * StrictMath.PI);
+    }
+}
@@ -0,0 +1,151 @@
+package Model;
+
+/**
+ * Ringbuffert med de senaste accelerometervärdena från en bil.
+ * Tid och axlar lagras i egna primitiva arrayer, så inga objekt skapas per värde.
+ * En tråd skriver (telemetritråden) och publicerar en hel sats åt gången;
+ * andra trådar kan läsa de senaste värdena samtidigt. En läsare som blir
+ * omkörd av skrivaren märker det och får bara de värden som inte skrevs över.
+ *
+ * @author Adnan,Rachid,Josh
+ * @version 1.0
+ * @since 2025
+ */
+public class TelemetryRing {
+
+    /** Max antal värden som skrivaren skriver innan den publicerar dem */
+    public static final int MAX_BATCH = 256;
+
+    /** Mask för index i arrayerna (storleken är en tvåpotens) */
+    private final int mask;
+
+    /** Tidpunkt per värde (serverns klocka, ms) */
+    private final int[] time;
+
+    /** Rå accelerationsvärden från ADXL345 per axel */
+    private final short[] x;
+    private final short[] y;
+    private final short[] z;
+
+    /** Antal publicerade värden sedan starten */
+    private volatile long written;
+
+    /**
+     * Konstruktor för TelemetryRing.
+     *
+     * @param capacity minsta antal värden som sparas, avrundas upp till en tvåpotens
+     */
+    public TelemetryRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.time = new int[size];
+        this.x = new short[size];
+        this.y = new short[size];
+        this.z = new short[size];
+    }
+
+    /**
+     * Skriver ett värde utan att publicera det. Bara skrivartråden anropar metoden.
+     *
+     * @param position värdets löpnummer, från {@link #getWritten()} och uppåt
+     * @param millis tidpunkt (ms)
+     * @param ax acceleration i x
+     * @param ay acceleration i y
+     * @param az acceleration i z
+     */
+    public void put(long position, int millis, short ax, short ay, short az) {
+        int index = (int) position & mask;
+        time[index] = millis;
+        x[index] = ax;
+        y[index] = ay;
+        z[index] = az;
+    }
+
+    /**
+     * Publicerar alla värden upp till ett löpnummer, så att läsare ser dem.
+     *
+     * @param count antal skrivna värden sedan starten
+     */
+    public void publish(long count) {
+        written = count;
+    }
+
+    /**
+     * Får antal publicerade värden sedan starten.
+     *
+     * @return antal värden
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Får antal värden som ringbufferten rymmer.
+     *
+     * @return kapacitet
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Får löpnumret för det äldsta värdet som säkert inte skrivs över under en kopiering,
+     * med marginal för en sats som är skriven men inte publicerad.
+     *
+     * @return löpnummer för äldsta läsbara värde
+     */
+    public long oldestReadable() {
+        return Math.max(0, written + MAX_BATCH - capacity());
+    }
+
+    /**
+     * Kopierar de senaste värdena till anroparens arrayer, äldsta först.
+     *
+     * @param max max antal värden
+     * @param outTime tidpunkter
+     * @param outX acceleration i x
+     * @param outY acceleration i y
+     * @param outZ acceleration i z
+     * @return antal kopierade värden
+     */
+    public int copyRecent(int max, int[] outTime, short[] outX, short[] outY, short[] outZ) {
+        long end = written;
+        int count = (int) Math.min(Math.min(max, end), capacity());
+        long start = end - count;
+        copy(start, count, outTime, outX, outY, outZ, 0);
+
+        // Värden som skrivaren kan ha skrivit över under kopieringen tas bort
+        long overwritten = oldestReadable() - start;
+        if (overwritten > 0) {
+            int skip = (int) Math.min(overwritten, count);
+            count -= skip;
+            System.arraycopy(outTime, skip, outTime, 0, count);
+            System.arraycopy(outX, skip, outX, 0, count);
+            System.arraycopy(outY, skip, outY, 0, count);
+            System.arraycopy(outZ, skip, outZ, 0, count);
+        }
+        return count;
+    }
+
+    /**
+     * Kopierar värden från ett löpnummer och framåt, utan kontroll av överskrivning.
+     * Anroparen kontrollerar mot {@link #oldestReadable()} före och efter kopieringen.
+     *
+     * @param start löpnummer för första värdet
+     * @param count antal värden
+     * @param outTime tidpunkter
+     * @param outX acceleration i x
+     * @param outY acceleration i y
+     * @param outZ acceleration i z
+     * @param offset första index i anroparens arrayer
+     */
+    public void copy(long start, int count, int[] outTime, short[] outX, short[] outY, short[] outZ, int offset) {
+        for (int i = 0; i < count; i++) {
+            int index = (int) (start + i) & mask;
+            outTime[offset + i] = time[index];
+            outX[offset + i] = x[index];
+            outY[offset + i] = y[index];
+            outZ[offset + i] = z[index];
+        }
+    }
+}